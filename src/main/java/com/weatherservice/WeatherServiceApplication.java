@@ -1,5 +1,7 @@
 package com.weatherservice;
 
+import com.weatherservice.diagnostics.SchedulerMetrics;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -9,6 +11,8 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 public class WeatherServiceApplication {
 
     public static void main(String[] args) {
+        // До создания планировщиков Reactor; метрики попадают в реестры Spring Boot через глобальный реестр
+        SchedulerMetrics.install(Metrics.globalRegistry);
         SpringApplication.run(WeatherServiceApplication.class, args);
     }
 }
@@ -3,6 +3,7 @@ package com.weatherservice.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.weatherservice.model.*;
 import com.weatherservice.exception.*;
+import com.weatherservice.service.RequestTimings;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -61,7 +62,8 @@ public class AccuWeatherClient implements WeatherProviderClient {
                 .retrieve()
                 .bodyToFlux(JsonNode.class)
                 .next()
-                .map(weatherNode -> parseWeatherResponse(weatherNode, request))
+                .transformDeferredContextual(RequestTimings.timedMap(RequestTimings.Stage.PARSE,
+                        WeatherProvider.ACCUWEATHER, weatherNode -> parseWeatherResponse(weatherNode, request)))
                 .onErrorResume(WebClientResponseException.class, e -> {
                     if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
                         log.warn("Rate limit exceeded for AccuWeather");
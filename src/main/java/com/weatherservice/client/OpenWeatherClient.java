@@ -3,6 +3,7 @@ package com.weatherservice.client;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.weatherservice.model.*;
 import com.weatherservice.exception.*;
+import com.weatherservice.service.RequestTimings;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -28,7 +29,8 @@ public class OpenWeatherClient implements WeatherProviderClient {
                 .uri(url)
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .map(this::parseWeatherResponse)
+                .transformDeferredContextual(RequestTimings.timedMap(RequestTimings.Stage.PARSE,
+                        WeatherProvider.OPENWEATHER_MAP, this::parseWeatherResponse))
                 .map(weather -> enhanceWithProvider(weather, request))
                 .doOnSubscribe(s -> log.debug("Fetching weather from OpenWeatherMap for {}", request.getCity()))
                 .onErrorResume(WebClientResponseException.class, e -> {
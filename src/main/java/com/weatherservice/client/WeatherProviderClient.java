@@ -1,5 +1,6 @@
 package com.weatherservice.client;
 
+import com.weatherservice.model.WeatherProvider;
 import com.weatherservice.model.WeatherRequest;
 import com.weatherservice.model.WeatherResponse;
 import com.weatherservice.model.LocationInfo;
@@ -15,4 +16,14 @@ public interface WeatherProviderClient {
     default boolean isRealProvider() {
         return true;
     }
+
+    // Провайдер, которого обслуживает клиент (null для no-op клиента)
+    default WeatherProvider getProvider() {
+        for (WeatherProvider provider : WeatherProvider.values()) {
+            if (supportsProvider(provider.name())) {
+                return provider;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,37 @@
+package com.weatherservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.weatherservice.web.BinaryJacksonEncoders;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+
+/**
+ * {@code application/cbor} и {@code application/x-jackson-smile} наряду с JSON - для внутренних
+ * сервисов, которым не нужен текстовый формат. Мапперы форматов один раз копируются из
+ * основного {@link ObjectMapper} (те же модули и настройки дат) и общие для энкодеров и
+ * декодеров, так что сериализаторы типов строятся один раз на формат. Типы указываются явно:
+ * без них кодеки Jackson считают себя JSON-кодеками.
+ */
+@Configuration
+public class BinaryCodecConfig {
+
+    @Bean
+    @Order(20)
+    public CodecCustomizer binaryJacksonCodecsCustomizer(ObjectMapper objectMapper) {
+        ObjectMapper cborMapper = objectMapper.copyWith(new CBORFactory());
+        ObjectMapper smileMapper = objectMapper.copyWith(new SmileFactory());
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new BinaryJacksonEncoders.Smile(smileMapper));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper,
+                    BinaryJacksonEncoders.SMILE, BinaryJacksonEncoders.SMILE_STREAM));
+            configurer.customCodecs().register(new BinaryJacksonEncoders.Cbor(cborMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, BinaryJacksonEncoders.CBOR));
+        };
+    }
+}
@@ -1,5 +1,8 @@
 package com.weatherservice.config;
 
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -10,6 +13,7 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
 import java.util.HashMap;
@@ -17,6 +21,8 @@ import java.util.Map;
 
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties({CacheConfig.CacheAnalyticsProperties.class, CacheConfig.PrecompressionProperties.class,
+        CacheConfig.MemoryCacheProperties.class})
 public class CacheConfig {
 
     @Bean
@@ -47,4 +53,54 @@ public class CacheConfig {
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
     }
+
+    /**
+     * Аналитика кэша: {@code topK} ключей в отчете, {@code sketchCapacity} счетчиков в каждом скетче,
+     * разбитых на {@code sketchStripes} полос с отдельными блокировками
+     */
+    @ConfigurationProperties(prefix = "weather.cache-analytics")
+    public record CacheAnalyticsProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("20") int topK,
+            @DefaultValue("256") int sketchCapacity,
+            @DefaultValue("8") int sketchStripes
+    ) {
+
+        public static CacheAnalyticsProperties disabled() {
+            return new CacheAnalyticsProperties(false, 20, 256, 1);
+        }
+    }
+
+    /**
+     * In-memory уровень кэша (запасной на время недоступности Redis и готовые тела ответов):
+     * не больше {@code maxEntries} записей, истекшие удаляются раз в {@code sweepInterval}
+     */
+    @ConfigurationProperties(prefix = "weather.memory-cache")
+    public record MemoryCacheProperties(
+            @DefaultValue("10000") int maxEntries,
+            @DefaultValue("1m") Duration sweepInterval
+    ) {
+
+        public static MemoryCacheProperties defaults() {
+            return new MemoryCacheProperties(10000, Duration.ofMinutes(1));
+        }
+    }
+
+    /**
+     * Заранее сжатые варианты тел ответов из памяти: все варианты вместе занимают не больше
+     * {@code budget}; тела меньше {@code minSize} не сжимаются, как и при сжатии сервером.
+     * Вариант строится, только когда у ключа набралось {@code minHits} попаданий по аналитике кэша.
+     */
+    @ConfigurationProperties(prefix = "weather.precompression")
+    public record PrecompressionProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("16MB") DataSize budget,
+            @DefaultValue("2KB") DataSize minSize,
+            @DefaultValue("3") int minHits
+    ) {
+
+        public static PrecompressionProperties disabled() {
+            return new PrecompressionProperties(false, DataSize.ofBytes(0), DataSize.ofBytes(0), 0);
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package com.weatherservice.config;
+
+import com.weatherservice.diagnostics.BlockingCallDetector;
+import com.weatherservice.diagnostics.EventLoopMonitor;
+import com.weatherservice.diagnostics.JfrRecordingEndpoint;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import reactor.netty.http.HttpResources;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties(DiagnosticsConfig.DiagnosticsProperties.class)
+public class DiagnosticsConfig {
+
+    // Сервер и WebClient используют общие циклы HttpResources
+    @Bean
+    @ConditionalOnProperty(prefix = "weather.diagnostics", name = "event-loop-monitor",
+            havingValue = "true", matchIfMissing = true)
+    public EventLoopMonitor eventLoopMonitor(MeterRegistry meterRegistry, DiagnosticsProperties properties) {
+        return new EventLoopMonitor(HttpResources.get().onServer(LoopResources.DEFAULT_NATIVE),
+                meterRegistry, properties.probeInterval());
+    }
+
+    @Bean
+    @Profile("dev")
+    @ConditionalOnClass(name = "reactor.blockhound.BlockHound")
+    @ConditionalOnProperty(prefix = "weather.diagnostics", name = "blocking-detection", havingValue = "true")
+    public BlockingCallDetector blockingCallDetector() {
+        return new BlockingCallDetector();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "weather.diagnostics", name = "jfr-endpoint", havingValue = "true")
+    public JfrRecordingEndpoint jfrRecordingEndpoint() {
+        return new JfrRecordingEndpoint();
+    }
+
+    /**
+     * Диагностика реактивного рантайма: пробы event loop'ов, BlockHound (только профиль dev)
+     * и управление JFR-записями через actuator
+     */
+    @ConfigurationProperties(prefix = "weather.diagnostics")
+    public record DiagnosticsProperties(
+            @DefaultValue("true") boolean eventLoopMonitor,
+            @DefaultValue("1s") Duration probeInterval,
+            @DefaultValue("false") boolean blockingDetection,
+            @DefaultValue("false") boolean jfrEndpoint
+    ) {}
+}
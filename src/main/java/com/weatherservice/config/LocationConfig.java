@@ -0,0 +1,96 @@
+package com.weatherservice.config;
+
+import com.weatherservice.location.Gazetteer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({
+        LocationConfig.LocationIndexProperties.class,
+        LocationConfig.GazetteerProperties.class,
+        LocationConfig.SpatialIndexProperties.class,
+        LocationConfig.LocationSearchProperties.class,
+        LocationConfig.FuzzySearchProperties.class
+})
+public class LocationConfig {
+
+    @Bean
+    public Gazetteer gazetteer(GazetteerProperties properties) {
+        if (!properties.enabled()) {
+            return Gazetteer.empty();
+        }
+        try {
+            return Gazetteer.open(Path.of(properties.source()), Path.of(properties.compiled()), properties.maxScan());
+        } catch (IOException | RuntimeException e) {
+            // Без справочника поиск работает как раньше - через индекс, кэш и провайдеров
+            log.warn("Gazetteer {} unavailable, offline lookup disabled: {}", properties.source(), e.getMessage());
+            return Gazetteer.empty();
+        }
+    }
+
+    /**
+     * Префиксный индекс автодополнения: {@code maxEntries} - предел числа мест в памяти,
+     * {@code topK} - сколько самых популярных мест хранится в каждом узле (максимум на ответ)
+     */
+    @ConfigurationProperties(prefix = "weather.location-index")
+    public record LocationIndexProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("100000") int maxEntries,
+            @DefaultValue("10") int topK
+    ) {}
+
+    /**
+     * Офлайн-справочник мест: {@code source} - выгрузка GeoNames (например, cities500.txt),
+     * {@code compiled} - бинарный файл, который собирается из нее при первом старте и отображается
+     * в память; {@code maxScan} - сколько мест с подходящим префиксом просматривается за запрос
+     */
+    @ConfigurationProperties(prefix = "weather.gazetteer")
+    public record GazetteerProperties(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("data/cities500.txt") String source,
+            @DefaultValue("data/cities500.gaz") String compiled,
+            @DefaultValue("2000") int maxScan
+    ) {}
+
+    /**
+     * Пространственный индекс для сопоставления координат известным местам: {@code cellDegrees} -
+     * шаг сетки, {@code radiusKm} - насколько далеко от места запрос по координатам еще считается
+     * запросом этого места
+     */
+    @ConfigurationProperties(prefix = "weather.spatial-index")
+    public record SpatialIndexProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("100000") int maxEntries,
+            @DefaultValue("0.25") double cellDegrees,
+            @DefaultValue("5") double radiusKm
+    ) {}
+
+    /**
+     * Поиск у провайдеров: через {@code deadline} клиент получает то, что успело прийти,
+     * остальные ответы только дописываются в кэш
+     */
+    @ConfigurationProperties(prefix = "weather.location-search")
+    public record LocationSearchProperties(
+            @DefaultValue("800ms") Duration deadline
+    ) {}
+
+    /**
+     * Нечеткий поиск по триграммам: {@code maxCandidates} - сколько мест проверяется расстоянием
+     * правки на один запрос
+     */
+    @ConfigurationProperties(prefix = "weather.fuzzy-search")
+    public record FuzzySearchProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("100000") int maxEntries,
+            @DefaultValue("200") int maxCandidates
+    ) {}
+}
@@ -0,0 +1,69 @@
+package com.weatherservice.config;
+
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.web.RateLimitWebFilter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({
+        RateLimitConfig.LocalLimiterProperties.class,
+        RateLimitConfig.RouteCostProperties.class
+})
+public class RateLimitConfig {
+
+    @Bean
+    public RateLimitWebFilter rateLimitWebFilter(RateLimitingService rateLimitingService,
+                                                 RouteCostProperties properties) {
+        return new RateLimitWebFilter(rateLimitingService, properties.routes());
+    }
+
+    /**
+     * Локальный слой rate limiting перед Redis.
+     * {@code headroom} - доля лимита у его границы, в которой решения принимает Redis;
+     * {@code syncInterval} - период пакетной отправки локальных счетчиков в Redis.
+     */
+    @ConfigurationProperties(prefix = "weather.rate-limit.local")
+    public record LocalLimiterProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("16") int stripes,
+            @DefaultValue("0.2") double headroom,
+            @DefaultValue("200ms") Duration syncInterval
+    ) {
+
+        public static LocalLimiterProperties disabled() {
+            return new LocalLimiterProperties(false, 1, 0, Duration.ofSeconds(1));
+        }
+    }
+
+    /**
+     * Стоимость запросов по маршрутам; побеждает первый подходящий шаблон, 0 - без лимита.
+     * Список из {@code weather.rate-limit.routes} заменяет значения по умолчанию целиком.
+     */
+    @ConfigurationProperties(prefix = "weather.rate-limit")
+    public record RouteCostProperties(List<RouteCost> routes) {
+
+        // Поиск и агрегация опрашивают всех провайдеров, текущая погода обычно отдается из кэша.
+        // Подписка оплачивается один раз за соединение, дальше обновления приходят без запросов.
+        public static final List<RouteCost> DEFAULT_ROUTES = List.of(
+                new RouteCost("/api/v1/weather/rate-limit", 0),
+                new RouteCost("/api/v1/weather/providers", 0),
+                new RouteCost("/api/v1/weather/locations/**", 5),
+                new RouteCost("/api/v1/weather/aggregated", 3),
+                new RouteCost("/api/v1/weather/subscribe", 5),
+                new RouteCost("/api/**", 1)
+        );
+
+        public RouteCostProperties {
+            routes = routes == null || routes.isEmpty() ? DEFAULT_ROUTES : List.copyOf(routes);
+        }
+    }
+
+    public record RouteCost(String pattern, int cost) {}
+}
@@ -0,0 +1,41 @@
+package com.weatherservice.config;
+
+import com.weatherservice.recording.ProviderRecording;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+@Configuration
+@EnableConfigurationProperties(RecordingConfig.RecordingProperties.class)
+public class RecordingConfig {
+
+    @Bean
+    public ProviderRecording providerRecording(RecordingProperties properties) {
+        return new ProviderRecording(properties);
+    }
+
+    public enum RecordingMode {
+        DISABLED,
+        RECORD,
+        REPLAY
+    }
+
+    /**
+     * Запись ответов провайдеров в файл и воспроизведение из него.
+     * {@code speed} - во сколько раз быстрее записанного отдавать ответы (0 - без задержек),
+     * {@code queueCapacity} - сколько ответов может ждать записи в файл, сверх этого они отбрасываются.
+     */
+    @ConfigurationProperties(prefix = "weather.recording")
+    public record RecordingProperties(
+            @DefaultValue("disabled") RecordingMode mode,
+            @DefaultValue("recordings/provider-responses.rec") Path file,
+            @DefaultValue("1.0") double speed,
+            @DefaultValue("16MB") DataSize initialSize,
+            @DefaultValue("10000") int queueCapacity
+    ) {}
+}
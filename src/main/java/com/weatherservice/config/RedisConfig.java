@@ -3,6 +3,8 @@ package com.weatherservice.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weatherservice.location.LocationListCodec;
+import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.WeatherResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,6 +14,8 @@ import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -54,4 +58,19 @@ public class RedisConfig {
 
         return new ReactiveRedisTemplate<>(factory, context);
     }
+
+    /**
+     * Кэш поиска мест: типизированный шаблон с компактным бинарным кодеком
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, List<LocationInfo>> locationSearchRedisTemplate(
+            ReactiveRedisConnectionFactory factory) {
+
+        RedisSerializationContext<String, List<LocationInfo>> context = RedisSerializationContext
+                .<String, List<LocationInfo>>newSerializationContext(new StringRedisSerializer())
+                .value(new LocationListCodec())
+                .build();
+
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
 }
@@ -0,0 +1,44 @@
+package com.weatherservice.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weatherservice.service.WeatherMetrics;
+import com.weatherservice.web.RequestTimingWebFilter;
+import com.weatherservice.web.TimedJackson2JsonEncoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+@Configuration
+@EnableConfigurationProperties(RequestTimingConfig.RequestTimingProperties.class)
+@ConditionalOnProperty(prefix = "weather.timing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestTimingConfig {
+
+    @Bean
+    public RequestTimingWebFilter requestTimingWebFilter(ObjectProvider<WeatherMetrics> metrics,
+                                                         RequestTimingProperties properties) {
+        return new RequestTimingWebFilter(metrics.getIfAvailable(), properties.serverTimingHeader());
+    }
+
+    // После стандартной настройки Jackson-кодеков Spring Boot
+    @Bean
+    @Order(10)
+    public CodecCustomizer timedJsonEncoderCustomizer(ObjectMapper objectMapper) {
+        return configurer -> configurer.defaultCodecs()
+                .jackson2JsonEncoder(new TimedJackson2JsonEncoder(objectMapper));
+    }
+
+    /**
+     * Замеры этапов запроса; {@code serverTimingHeader} - отдавать разбивку клиенту в Server-Timing
+     */
+    @ConfigurationProperties(prefix = "weather.timing")
+    public record RequestTimingProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("false") boolean serverTimingHeader
+    ) {}
+}
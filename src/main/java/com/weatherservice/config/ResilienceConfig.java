@@ -1,17 +1,31 @@
 package com.weatherservice.config;
 
+import com.weatherservice.exception.LocationNotFoundException;
+import com.weatherservice.exception.ServiceUnavailableException;
+import com.weatherservice.exception.WeatherServiceException;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.ratelimiter.RateLimiterConfig;
 import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
 import io.github.resilience4j.retry.RetryConfig;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.core.IntervalFunction;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import java.time.Duration;
+import java.util.concurrent.TimeoutException;
 
 @Configuration
+@EnableConfigurationProperties({
+        ResilienceConfig.RetryProperties.class,
+        ResilienceConfig.RedisCircuitProperties.class
+})
 public class ResilienceConfig {
 
     @Bean
@@ -41,22 +55,70 @@ public class ResilienceConfig {
         return RateLimiterRegistry.of(config);
     }
 
+    /**
+     * Огибающая ретраев провайдеров: экспоненциальный рост паузы с потолком.
+     * Сама пауза выбирается с full jitter в {@link com.weatherservice.resilience.ProviderRetryPolicy}.
+     */
     @Bean
     public RetryRegistry retryRegistry() {
         RetryConfig config = RetryConfig.custom()
                 .maxAttempts(3)
-                .waitDuration(Duration.ofMillis(500))
-                .retryOnException(throwable ->
-                        !(throwable instanceof com.weatherservice.exception.LocationNotFoundException))
+                .intervalFunction(IntervalFunction.ofExponentialBackoff(Duration.ofMillis(100), 2.0, Duration.ofSeconds(2)))
+                .retryOnException(ResilienceConfig::isTransientProviderFailure)
                 .build();
 
         return RetryRegistry.of(config);
     }
 
+    /**
+     * Повторять имеет смысл только сетевые сбои, таймауты и 5xx.
+     * 404 и 429 (клиенты превращают его в ServiceUnavailableException) не ретраим.
+     */
+    static boolean isTransientProviderFailure(Throwable throwable) {
+        if (throwable instanceof LocationNotFoundException || throwable instanceof ServiceUnavailableException) {
+            return false;
+        }
+        if (throwable instanceof WebClientRequestException || throwable instanceof TimeoutException) {
+            return true;
+        }
+        Throwable cause = throwable instanceof WeatherServiceException ? throwable.getCause() : throwable;
+        return cause instanceof WebClientResponseException responseException
+                && responseException.getStatusCode().is5xxServerError();
+    }
+
     @Bean
     public TimeLimiterConfig timeLimiterConfig() {
         return TimeLimiterConfig.custom()
                 .timeoutDuration(Duration.ofSeconds(10))
                 .build();
     }
+
+    @ConfigurationProperties(prefix = "weather.retry")
+    public record RetryProperties(
+            @DefaultValue("0.1") double budgetRatio,
+            @DefaultValue("10") int budgetCapacity,
+            @DefaultValue("5s") Duration requestDeadline,
+            @DefaultValue("200ms") Duration minAttemptTime
+    ) {}
+
+    /**
+     * Автомат доступности Redis: {@code operationTimeout} - таймаут одной операции,
+     * {@code probeInterval} - период фонового PING, пока автомат открыт
+     */
+    @ConfigurationProperties(prefix = "weather.redis-circuit")
+    public record RedisCircuitProperties(
+            @DefaultValue("true") boolean enabled,
+            @DefaultValue("250ms") Duration operationTimeout,
+            @DefaultValue("50") float failureRateThreshold,
+            @DefaultValue("5") int minimumNumberOfCalls,
+            @DefaultValue("20") int slidingWindowSize,
+            @DefaultValue("1s") Duration probeInterval,
+            @DefaultValue("30s") Duration waitDurationInOpenState
+    ) {
+
+        public static RedisCircuitProperties disabled() {
+            return new RedisCircuitProperties(false, Duration.ofSeconds(2), 50, 5, 20,
+                    Duration.ofSeconds(1), Duration.ofSeconds(30));
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.weatherservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableConfigurationProperties(SubscriptionConfig.SubscriptionProperties.class)
+public class SubscriptionConfig {
+
+    /**
+     * Push-подписки на погоду: {@code refreshInterval} - как часто место с подписчиками сверяется
+     * с кэшем, {@code bufferSize} - сколько кадров ждет медленного клиента до вытеснения старых,
+     * {@code heartbeatInterval} - комментарий SSE, не дающий прокси закрыть тихое соединение
+     */
+    @ConfigurationProperties(prefix = "weather.subscriptions")
+    public record SubscriptionProperties(
+            @DefaultValue("30s") Duration refreshInterval,
+            @DefaultValue("16") int bufferSize,
+            @DefaultValue("15s") Duration heartbeatInterval,
+            @DefaultValue("10") int maxLocations
+    ) {}
+}
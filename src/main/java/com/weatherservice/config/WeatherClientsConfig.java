@@ -1,7 +1,12 @@
 package com.weatherservice.config;
 
 import com.weatherservice.client.*;
+import com.weatherservice.config.ResilienceConfig.RetryProperties;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.recording.ProviderRecording;
+import com.weatherservice.resilience.ProviderRetryPolicy;
 import com.weatherservice.resilience.WeatherErrorHandler;
+import com.weatherservice.service.BlockingWeatherService;
 import com.weatherservice.service.WeatherCacheService;
 import com.weatherservice.service.WeatherMetrics;
 import com.weatherservice.service.WeatherServiceFacade;
@@ -11,6 +16,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import java.time.Duration;
@@ -27,6 +33,7 @@ public class WeatherClientsConfig {
 
     private final WeatherProperties properties;
     private final WebClient.Builder webClientBuilder;
+    private final ProviderRecording recording;
 
     @Bean
     public List<WeatherProviderClient> weatherClients() {
@@ -44,15 +51,13 @@ public class WeatherClientsConfig {
             return new NoOpWeatherProviderClient();
         }
 
-        WebClient webClient = webClientBuilder
-                .baseUrl(properties.openweather().baseUrl())
-                .build();
+        WebClient webClient = providerWebClient(WeatherProvider.OPENWEATHER_MAP, properties.openweather());
 
-        return new OpenWeatherClient(
+        return recording.decorate(WeatherProvider.OPENWEATHER_MAP, new OpenWeatherClient(
                 webClient,
                 properties.openweather().apiKey(),
                 properties.openweather().baseUrl()
-        );
+        ));
     }
 
     @Bean
@@ -62,15 +67,13 @@ public class WeatherClientsConfig {
             return new NoOpWeatherProviderClient();
         }
 
-        WebClient webClient = webClientBuilder
-                .baseUrl(properties.weatherapi().baseUrl())
-                .build();
+        WebClient webClient = providerWebClient(WeatherProvider.WEATHER_API, properties.weatherapi());
 
-        return new WeatherApiClient(
+        return recording.decorate(WeatherProvider.WEATHER_API, new WeatherApiClient(
                 webClient,
                 properties.weatherapi().apiKey(),
                 properties.weatherapi().baseUrl()
-        );
+        ));
     }
 
     @Bean
@@ -80,15 +83,13 @@ public class WeatherClientsConfig {
             return new NoOpWeatherProviderClient();
         }
 
-        WebClient webClient = webClientBuilder
-                .baseUrl(properties.accuweather().baseUrl())
-                .build();
+        WebClient webClient = providerWebClient(WeatherProvider.ACCUWEATHER, properties.accuweather());
 
-        return new AccuWeatherClient(
+        return recording.decorate(WeatherProvider.ACCUWEATHER, new AccuWeatherClient(
                 webClient,
                 properties.accuweather().apiKey(),
                 properties.accuweather().baseUrl()
-        );
+        ));
     }
 
     @Bean
@@ -96,15 +97,45 @@ public class WeatherClientsConfig {
             List<WeatherProviderClient> clients,
             WeatherCacheService cacheService,
             WeatherErrorHandler errorHandler,
-            WeatherMetrics metrics) {
+            WeatherMetrics metrics,
+            ProviderRetryPolicy retryPolicy,
+            RetryProperties retryProperties) {
 
-        Map<String, WeatherProviderClient> clientMap = clients.stream()
+        return new WeatherServiceFacade(byProvider(clients), cacheService, errorHandler, metrics,
+                retryPolicy, retryProperties.requestDeadline());
+    }
+
+    @Bean
+    @Profile(BlockingWeatherService.PROFILE)
+    public BlockingWeatherService blockingWeatherService(
+            List<WeatherProviderClient> clients,
+            WeatherCacheService cacheService,
+            WeatherErrorHandler errorHandler,
+            WeatherMetrics metrics,
+            ProviderRetryPolicy retryPolicy,
+            RetryProperties retryProperties) {
+
+        return new BlockingWeatherService(byProvider(clients), cacheService, errorHandler, metrics,
+                retryPolicy, retryProperties.requestDeadline());
+    }
+
+    // Ключ по провайдеру: в режиме воспроизведения все клиенты одного класса
+    private static Map<String, WeatherProviderClient> byProvider(List<WeatherProviderClient> clients) {
+        return clients.stream()
                 .collect(Collectors.toMap(
-                        client -> client.getClass().getSimpleName(),
-                        Function.identity()
+                        client -> client.getProvider() != null
+                                ? client.getProvider().name()
+                                : client.getClass().getSimpleName(),
+                        Function.identity(),
+                        (first, second) -> first
                 ));
+    }
 
-        return new WeatherServiceFacade(clientMap, cacheService, errorHandler, metrics);
+    // Отдельный builder на провайдера: общий builder не должен накапливать base-url и фильтры
+    private WebClient providerWebClient(WeatherProvider provider, ProviderConfig config) {
+        WebClient.Builder builder = webClientBuilder.clone()
+                .baseUrl(config.baseUrl());
+        return recording.configure(provider, config.baseUrl(), builder).build();
     }
 
     @ConfigurationProperties(prefix = "weather.providers")
@@ -0,0 +1,138 @@
+package com.weatherservice.controller;
+
+import com.weatherservice.model.*;
+import com.weatherservice.service.BlockingWeatherService;
+import com.weatherservice.service.CacheEntryTag;
+import com.weatherservice.service.EncodedWeatherResponse;
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.service.RateLimitingService.RateLimitInfo;
+import com.weatherservice.web.BinaryJacksonEncoders;
+import com.weatherservice.web.FieldProjection;
+import com.weatherservice.web.RateLimitWebFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+
+import static com.weatherservice.controller.WeatherController.*;
+
+/**
+ * API погоды из {@link WeatherController} в профиле {@value BlockingWeatherService#PROFILE}:
+ * обработчики возвращают готовые значения, поэтому WebFlux вызывает их на виртуальных потоках
+ * (исполнитель блокирующих обработчиков), а не на event loop. Rate limiting, кэш и заголовки
+ * ответов - те же; отличается только модель исполнения.
+ */
+@RestController
+@Profile(BlockingWeatherService.PROFILE)
+@RequestMapping(value = "/api/v1/weather",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryJacksonEncoders.SMILE_VALUE})
+@RequiredArgsConstructor
+public class BlockingWeatherController {
+
+    private final BlockingWeatherService weatherService;
+    private final RateLimitingService rateLimitingService;
+
+    @GetMapping("/current")
+    public ResponseEntity<?> getCurrentWeather(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "en") String lang,
+            @RequestParam(required = false) String provider,
+            @RequestParam(name = FieldProjection.PARAMETER, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            ServerWebExchange exchange) {
+
+        WeatherRequest request = WeatherRequest.builder()
+                .city(city)
+                .countryCode(country)
+                .latitude(lat)
+                .longitude(lon)
+                .units(units)
+                .language(lang)
+                .provider(provider != null ?
+                        WeatherProvider.valueOf(provider.toUpperCase()) : null)
+                .build();
+        if (!acceptsProducedType(exchange.getRequest().getHeaders())) {
+            return notAcceptable();
+        }
+        FieldProjection projection = fields != null ? FieldProjection.of(fields) : null;
+
+        // Валидатор читается, только если его есть с чем сверить
+        boolean encodedJson = acceptsEncodedJson(exchange.getRequest().getHeaders());
+        CacheEntryTag tag = ifNoneMatch != null || encodedJson && weatherService.hasEncodedWeather(request)
+                ? weatherService.getEntryTag(request) : null;
+        if (tag != null && (projection == null ? tag.matches(ifNoneMatch) : tag.matches(ifNoneMatch, projection.id()))) {
+            return weatherService.servedFromCache(request, () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(cacheHeaders(tag))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .eTag(projection == null ? tag.match(ifNoneMatch) : tag.quoted(projection.id()))
+                    .build());
+        }
+        if (tag != null && encodedJson) {
+            ResponseEntity<?> cached = weatherService.servedFromCache(request, () -> {
+                EncodedWeatherResponse encoded = weatherService.getEncodedWeather(request, tag);
+                if (encoded == null) {
+                    return null;
+                }
+                return projection == null
+                        ? encodedResponse(encoded, exchange)
+                        : projectedResponse(projection.project(encoded.json()), encoded.tag(), projection, exchange);
+            });
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        WeatherResponse response = weatherService.getWeather(request);
+        // У записи из кэша валидатор прочитан вместе с ней или совпадает по сроку с уже прочитанным;
+        // свежий ответ провайдера только что записан
+        CacheEntryTag current = CacheEntryTag.stored(response);
+        if (current == null) {
+            current = tag != null && tag.cachedUntil().equals(response.getCachedUntil())
+                    ? tag : weatherService.getEntryTag(request);
+        }
+        if (projection != null) {
+            return projectedResponse(projection.project(response), current, projection, exchange);
+        }
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        return current != null ? ok.headers(cacheHeaders(current)).body(response) : ok.body(response);
+    }
+
+    @GetMapping("/aggregated")
+    public AggregatedWeatherResponse getAggregatedWeather(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String country,
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lon,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "en") String lang) {
+
+        WeatherRequest request = WeatherRequest.builder()
+                .city(city)
+                .countryCode(country)
+                .latitude(lat)
+                .longitude(lon)
+                .units(units)
+                .language(lang)
+                .build();
+
+        return weatherService.getAggregatedWeather(request);
+    }
+
+    @GetMapping("/rate-limit")
+    public RateLimitInfo getRateLimitInfo(ServerWebExchange exchange) {
+        return rateLimitingService.getRateLimitInfo(RateLimitWebFilter.clientId(exchange)).block();
+    }
+
+    @GetMapping("/providers")
+    public WeatherProvider[] getAvailableProviders() {
+        return WeatherProvider.values();
+    }
+}
@@ -3,13 +3,18 @@ package com.weatherservice.controller;
 import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.LocationSearchRequest;
 import com.weatherservice.service.LocationSearchService;
+import com.weatherservice.web.BinaryJacksonEncoders;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import jakarta.validation.Valid;
 
 @RestController
-@RequestMapping("/api/v1/weather")
+@RequestMapping(value = "/api/v1/weather",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryJacksonEncoders.SMILE_VALUE})
 @RequiredArgsConstructor
 public class LocationController {
 
@@ -30,6 +35,16 @@ public class LocationController {
         return locationSearchService.searchLocations(request);
     }
 
+    @GetMapping("/locations/resolve")
+    public Mono<ResponseEntity<LocationInfo>> resolveLocation(
+            @RequestParam String name,
+            @RequestParam(required = false) String country) {
+
+        return locationSearchService.resolveLocation(name, country)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/locations/search")
     public Flux<LocationInfo> searchLocationsPost(@Valid @RequestBody LocationSearchRequest request) {
         return locationSearchService.searchLocations(request);
@@ -1,28 +1,62 @@
 package com.weatherservice.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.weatherservice.model.*;
+import com.weatherservice.service.BlockingWeatherService;
+import com.weatherservice.service.CacheEntryTag;
+import com.weatherservice.service.EncodedWeatherResponse;
 import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.service.RateLimitingService.RateLimitInfo;
 import com.weatherservice.service.WeatherServiceFacade;
-import lombok.Builder;
-import lombok.Data;
+import com.weatherservice.util.JsonSerializerUtil;
+import com.weatherservice.web.BinaryJacksonEncoders;
+import com.weatherservice.web.FieldProjection;
+import com.weatherservice.web.RateLimitWebFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
-@RequestMapping("/api/v1/weather")
+@Profile("!" + BlockingWeatherService.PROFILE)
+@RequestMapping(value = "/api/v1/weather",
+        produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, BinaryJacksonEncoders.SMILE_VALUE})
 @RequiredArgsConstructor
 public class WeatherController {
 
+    private static final List<MediaType> BINARY_TYPES =
+            List.of(MediaType.APPLICATION_CBOR, MediaType.parseMediaType(BinaryJacksonEncoders.SMILE_VALUE));
+    private static final List<MediaType> PRODUCED_TYPES =
+            List.of(MediaType.APPLICATION_JSON, BINARY_TYPES.get(0), BINARY_TYPES.get(1));
+
     private final WeatherServiceFacade weatherService;
     private final RateLimitingService rateLimitingService;
 
+    /**
+     * Текущая погода. Ответ из кэша несет ETag, Cache-Control и Expires по сроку записи;
+     * совпавший {@code If-None-Match} получает 304 без чтения записи и сериализации тела.
+     * Запись, сохраненная этим экземпляром, отдается готовыми байтами из памяти, без Jackson.
+     * Валидатор читается из Redis, только если его есть с чем сверить: у запроса есть
+     * {@code If-None-Match} или у экземпляра есть готовое тело записи.
+     * С {@code fields} отдаются только перечисленные поля - см. {@link FieldProjection}.
+     * Формат согласуется по {@code Accept}, поэтому любой ответ несет {@code Vary: Accept}.
+     */
     @GetMapping("/current")
-    public Mono<WeatherResponse> getCurrentWeather(
+    public Mono<ResponseEntity<?>> getCurrentWeather(
             @RequestParam(required = false) String city,
             @RequestParam(required = false) String country,
             @RequestParam(required = false) Double lat,
@@ -30,30 +64,45 @@ public class WeatherController {
             @RequestParam(defaultValue = "metric") String units,
             @RequestParam(defaultValue = "en") String lang,
             @RequestParam(required = false) String provider,
+            @RequestParam(name = FieldProjection.PARAMETER, required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             ServerWebExchange exchange) {
 
-        // Rate limiting по IP
-        String clientId = getClientId(exchange);
-
-        return rateLimitingService.isAllowed(clientId)
-                .flatMap(allowed -> {
-                    if (!allowed) {
-                        return Mono.error(new com.weatherservice.exception.RateLimitExceededException("Rate limit exceeded"));
-                    }
-
-                    WeatherRequest request = WeatherRequest.builder()
-                            .city(city)
-                            .countryCode(country)
-                            .latitude(lat)
-                            .longitude(lon)
-                            .units(units)
-                            .language(lang)
-                            .provider(provider != null ?
-                                    WeatherProvider.valueOf(provider.toUpperCase()) : null)
-                            .build();
-
-                    return weatherService.getWeather(request);
-                });
+        // Rate limiting выполняет RateLimitWebFilter до маршрутизации
+        WeatherRequest request = WeatherRequest.builder()
+                .city(city)
+                .countryCode(country)
+                .latitude(lat)
+                .longitude(lon)
+                .units(units)
+                .language(lang)
+                .provider(provider != null ?
+                        WeatherProvider.valueOf(provider.toUpperCase()) : null)
+                .build();
+
+        if (!acceptsProducedType(exchange.getRequest().getHeaders())) {
+            return Mono.just(notAcceptable());
+        }
+        if (fields != null) {
+            return projected(request, FieldProjection.of(fields), ifNoneMatch, exchange);
+        }
+        Mono<CacheEntryTag> tag = entryTag(request, ifNoneMatch, exchange);
+        return weatherService.servedFromCache(request, tag.filter(current -> current.matches(ifNoneMatch))
+                        .<ResponseEntity<?>>map(current -> ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .headers(cacheHeaders(current))
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .eTag(current.match(ifNoneMatch))
+                                .build())
+                        .switchIfEmpty(tag.filter(current -> acceptsEncodedJson(exchange.getRequest().getHeaders()))
+                                .flatMap(current -> weatherService.getEncodedWeather(request, current))
+                                .map(encoded -> encodedResponse(encoded, exchange))))
+                .switchIfEmpty(Mono.defer(() -> weatherService.getWeather(request)
+                        .flatMap(response -> tagOf(request, response, tag)
+                                .<ResponseEntity<?>>map(current -> ResponseEntity.ok()
+                                        .headers(cacheHeaders(current))
+                                        .varyBy(HttpHeaders.ACCEPT)
+                                        .body(response))
+                                .defaultIfEmpty(ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(response)))));
     }
 
     @GetMapping("/aggregated")
@@ -63,41 +112,24 @@ public class WeatherController {
             @RequestParam(required = false) Double lat,
             @RequestParam(required = false) Double lon,
             @RequestParam(defaultValue = "metric") String units,
-            @RequestParam(defaultValue = "en") String lang,
-            ServerWebExchange exchange) {
+            @RequestParam(defaultValue = "en") String lang) {
+
+        WeatherRequest request = WeatherRequest.builder()
+                .city(city)
+                .countryCode(country)
+                .latitude(lat)
+                .longitude(lon)
+                .units(units)
+                .language(lang)
+                .build();
 
-        String clientId = getClientId(exchange);
-
-        return rateLimitingService.isAllowed(clientId)
-                .flatMap(allowed -> {
-                    if (!allowed) {
-                        return Mono.error(new com.weatherservice.exception.RateLimitExceededException("Rate limit exceeded"));
-                    }
-
-                    WeatherRequest request = WeatherRequest.builder()
-                            .city(city)
-                            .countryCode(country)
-                            .latitude(lat)
-                            .longitude(lon)
-                            .units(units)
-                            .language(lang)
-                            .build();
-
-                    return weatherService.getAggregatedWeather(request);
-                });
+        return weatherService.getAggregatedWeather(request);
     }
 
     @GetMapping("/rate-limit")
     public Mono<RateLimitInfo> getRateLimitInfo(ServerWebExchange exchange) {
-        String clientId = getClientId(exchange);
-
-        return rateLimitingService.getRemainingRequests(clientId)
-                .map(remaining -> RateLimitInfo.builder()
-                        .clientId(clientId)
-                        .remainingRequests(remaining)
-                        .limit(100)
-                        .windowMinutes(1)
-                        .build());
+        // Лимит, остаток и время сброса - из того же решения GCRA-скрипта, что и заголовки RateLimit-*
+        return rateLimitingService.getRateLimitInfo(RateLimitWebFilter.clientId(exchange));
     }
 
     @GetMapping("/providers")
@@ -105,20 +137,144 @@ public class WeatherController {
         return WeatherProvider.values();
     }
 
-    private String getClientId(ServerWebExchange exchange) {
-        // Используем IP адрес клиента для rate limiting
-        return exchange.getRequest().getRemoteAddress() != null ?
-                exchange.getRequest().getRemoteAddress().getAddress().getHostAddress() :
-                "unknown";
+    // Тот же путь, что и у полного ответа, но у проекции свой ETag, а готовые байты из кэша
+    // переписываются через фильтр без десериализации в модель
+    private Mono<ResponseEntity<?>> projected(WeatherRequest request, FieldProjection projection,
+                                              String ifNoneMatch, ServerWebExchange exchange) {
+        Mono<CacheEntryTag> tag = entryTag(request, ifNoneMatch, exchange);
+        return weatherService.servedFromCache(request, tag.filter(current -> current.matches(ifNoneMatch, projection.id()))
+                        .<ResponseEntity<?>>map(current -> ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                .headers(cacheHeaders(current))
+                                .varyBy(HttpHeaders.ACCEPT)
+                                .eTag(current.quoted(projection.id()))
+                                .build())
+                        .switchIfEmpty(tag.filter(current -> acceptsEncodedJson(exchange.getRequest().getHeaders()))
+                                .flatMap(current -> weatherService.getEncodedWeather(request, current))
+                                .map(encoded -> projectedResponse(projection.project(encoded.json()), encoded.tag(),
+                                        projection, exchange))))
+                .switchIfEmpty(Mono.defer(() -> weatherService.getWeather(request)
+                        .flatMap(response -> {
+                            byte[] json = projection.project(response);
+                            return tagOf(request, response, tag)
+                                    .<ResponseEntity<?>>map(current -> projectedResponse(json, current, projection, exchange))
+                                    .switchIfEmpty(Mono.fromSupplier(() -> projectedResponse(json, null, projection, exchange)));
+                        })));
+    }
+
+    // JSON-клиенту проекция пишется готовыми байтами; CBOR и Smile кодирует кодек из дерева узлов
+    static ResponseEntity<?> projectedResponse(byte[] json, CacheEntryTag tag, FieldProjection projection,
+                                                       ServerWebExchange exchange) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        if (tag != null) {
+            response.headers(cacheHeaders(tag)).eTag(tag.quoted(projection.id()));
+        }
+        if (!acceptsEncodedJson(exchange.getRequest().getHeaders())) {
+            return response.body(JsonSerializerUtil.fromJson(new String(json, StandardCharsets.UTF_8), JsonNode.class));
+        }
+        DataBuffer body = exchange.getResponse().bufferFactory().allocateBuffer(json.length).write(json);
+        return response.contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    // Валидатор записи кэша, если его есть с чем сверить; иначе лишний GET в Redis не выполняется
+    private Mono<CacheEntryTag> entryTag(WeatherRequest request, String ifNoneMatch, ServerWebExchange exchange) {
+        if (ifNoneMatch != null || acceptsEncodedJson(exchange.getRequest().getHeaders())
+                && weatherService.hasEncodedWeather(request)) {
+            return weatherService.getEntryTag(request).cache();
+        }
+        return Mono.empty();
+    }
+
+    // Валидатор, относящийся именно к отданному ответу: у записи из кэша он прочитан вместе с ней
+    // или совпадает по сроку с уже прочитанным; свежий ответ провайдера только что записан -
+    // его валидатор читается заново
+    private Mono<CacheEntryTag> tagOf(WeatherRequest request, WeatherResponse response, Mono<CacheEntryTag> known) {
+        CacheEntryTag stored = CacheEntryTag.stored(response);
+        if (stored != null) {
+            return Mono.just(stored);
+        }
+        return known.filter(current -> current.cachedUntil().equals(response.getCachedUntil()))
+                .switchIfEmpty(Mono.defer(() -> weatherService.getEntryTag(request)));
+    }
+
+    // Готовые байты копируются в буфер из пула сервера и пишутся как есть. Если клиент
+    // принимает gzip и у записи есть сжатый вариант, отдается он - сервер уже сжатое не сжимает
+    static ResponseEntity<DataBuffer> encodedResponse(EncodedWeatherResponse encoded, ServerWebExchange exchange) {
+        byte[] gzip = acceptsGzip(exchange.getRequest().getHeaders()) ? encoded.gzip() : null;
+        byte[] bytes = gzip != null ? gzip : encoded.json();
+        DataBuffer body = exchange.getResponse().bufferFactory().allocateBuffer(bytes.length).write(bytes);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .headers(cacheHeaders(encoded.tag()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip != null) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip").eTag(encoded.tag().gzipQuoted());
+        }
+        return response.body(body);
+    }
+
+    // Готовые байты - JSON: только клиенту, который принимает JSON явно или через wildcard.
+    // Запросившему CBOR или Smile ответ кодирует кодек, прочие типы получают 406; q=0 - отказ от типа
+    static boolean acceptsEncodedJson(HttpHeaders headers) {
+        List<MediaType> accepted = headers.getAccept();
+        boolean json = accepted.isEmpty();
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (!type.isWildcardSubtype() && BINARY_TYPES.stream().anyMatch(type::isCompatibleWith)) {
+                return false;
+            }
+            json |= type.isCompatibleWith(MediaType.APPLICATION_JSON);
+        }
+        return json;
+    }
+
+    // Клиент принимает хотя бы один из форматов /current; пустой Accept - любой формат
+    static boolean acceptsProducedType(HttpHeaders headers) {
+        List<MediaType> accepted = headers.getAccept();
+        return accepted.isEmpty() || accepted.stream().anyMatch(type -> type.getQualityValue() > 0
+                && PRODUCED_TYPES.stream().anyMatch(type::isCompatibleWith));
+    }
+
+    // Сопоставление по produces не учитывает q=0, поэтому отказ от всех форматов проверяется здесь
+    static ResponseEntity<?> notAcceptable() {
+        return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).varyBy(HttpHeaders.ACCEPT).build();
+    }
+
+    // gzip или "*" без q=0 в Accept-Encoding
+    static boolean acceptsGzip(HttpHeaders headers) {
+        for (String value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.trim().split(";");
+                String name = parts[0].trim().toLowerCase(Locale.ROOT);
+                if ((name.equals("gzip") || name.equals("*")) && !rejected(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean rejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    // DTO для информации о rate limit
-    @Data
-    @Builder
-    public static class RateLimitInfo {
-        private String clientId;
-        private Long remainingRequests;
-        private Integer limit;
-        private Integer windowMinutes;
+    static HttpHeaders cacheHeaders(CacheEntryTag tag) {
+        Duration maxAge = Duration.between(LocalDateTime.now(), tag.cachedUntil());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(tag.quoted());
+        headers.setCacheControl(CacheControl.maxAge(maxAge.isNegative() ? Duration.ZERO : maxAge).mustRevalidate());
+        headers.setExpires(tag.cachedUntil().atZone(ZoneId.systemDefault()));
+        return headers;
     }
 }
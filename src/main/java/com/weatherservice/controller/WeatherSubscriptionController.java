@@ -0,0 +1,71 @@
+package com.weatherservice.controller;
+
+import com.weatherservice.config.SubscriptionConfig.SubscriptionProperties;
+import com.weatherservice.exception.WeatherServiceException;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.service.WeatherUpdateBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/weather")
+@RequiredArgsConstructor
+public class WeatherSubscriptionController {
+
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final WeatherUpdateBroadcaster broadcaster;
+    private final SubscriptionProperties properties;
+
+    /**
+     * Server-Sent Events с погодой для одного или нескольких мест ({@code city} и {@code country}
+     * повторяются попарно). Кадры пишутся в ответ как есть, минуя кодеки, - общие байты для всех
+     * подписчиков места.
+     */
+    @GetMapping(value = "/subscribe", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Mono<Void> subscribe(
+            @RequestParam List<String> city,
+            @RequestParam(required = false) List<String> country,
+            @RequestParam(defaultValue = "metric") String units,
+            @RequestParam(defaultValue = "en") String lang,
+            @RequestParam(required = false) String provider,
+            ServerHttpResponse response) {
+
+        if (city.size() > properties.maxLocations()) {
+            return Mono.error(new WeatherServiceException(
+                    "At most " + properties.maxLocations() + " locations per subscription"));
+        }
+
+        List<Flux<byte[]>> streams = new ArrayList<>(city.size());
+        for (int i = 0; i < city.size(); i++) {
+            streams.add(broadcaster.subscribe(WeatherRequest.builder()
+                    .city(city.get(i))
+                    .countryCode(country != null && i < country.size() ? country.get(i) : null)
+                    .units(units)
+                    .language(lang)
+                    .provider(provider != null ? WeatherProvider.valueOf(provider.toUpperCase()) : null)
+                    .build()));
+        }
+        Flux<byte[]> heartbeat = Flux.interval(properties.heartbeatInterval()).map(tick -> HEARTBEAT);
+
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        response.getHeaders().setCacheControl("no-cache");
+        DataBufferFactory buffers = response.bufferFactory();
+        // wrap не копирует массив: каждому подписчику - только своя обертка над общими байтами
+        return response.writeAndFlushWith(Flux.merge(streams).mergeWith(heartbeat)
+                .map(frame -> Mono.just(buffers.wrap(frame))));
+    }
+}
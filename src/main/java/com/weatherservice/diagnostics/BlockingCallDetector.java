@@ -0,0 +1,37 @@
+package com.weatherservice.diagnostics;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.blockhound.BlockHound;
+
+/**
+ * BlockHound для профиля dev: блокирующий вызов (sleep, файловый или сокетный I/O, ожидание
+ * блокировки) в неблокирующем потоке - event loop Netty, parallel/single Reactor - завершается
+ * {@code BlockingOperationError}. В тестах тот же детектор ставит {@code blockhound-junit-platform}.
+ * На JDK 13+ нужен флаг JVM {@code -XX:+AllowRedefinitionToAddDeleteMethods}.
+ */
+@Slf4j
+public class BlockingCallDetector {
+
+    private final boolean installed;
+
+    public BlockingCallDetector() {
+        this.installed = install();
+    }
+
+    public boolean isInstalled() {
+        return installed;
+    }
+
+    private static boolean install() {
+        try {
+            BlockHound.install();
+            log.warn("BlockHound installed: blocking calls on non-blocking threads will fail");
+            return true;
+        } catch (Throwable e) {
+            // Без флага JVM инструментирование невозможно - приложение работает без детектора
+            log.warn("BlockHound not installed (run with -XX:+AllowRedefinitionToAddDeleteMethods): {}",
+                    e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.weatherservice.diagnostics;
+
+import com.weatherservice.service.CacheAnalytics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/cacheanalytics} - текущий срез {@link CacheAnalytics}
+ */
+@Component
+@Endpoint(id = "cacheanalytics")
+@RequiredArgsConstructor
+public class CacheAnalyticsEndpoint {
+
+    private final CacheAnalytics analytics;
+
+    @ReadOperation
+    public CacheAnalytics.Snapshot analytics() {
+        return analytics.snapshot();
+    }
+}
@@ -0,0 +1,28 @@
+package com.weatherservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.weatherservice.CacheLookup")
+@Label("Cache Lookup")
+@Category({"Weather Service", "Cache"})
+@Description("Поиск записи в кэше погоды")
+@StackTrace(false)
+public class CacheLookupEvent extends jdk.jfr.Event {
+
+    @Label("Key")
+    String key;
+
+    @Label("Tier")
+    @Description("l1 - память процесса, redis - общий кэш")
+    String tier;
+
+    @Label("Hit")
+    boolean hit;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,25 @@
+package com.weatherservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.weatherservice.CoalescedFetch")
+@Label("Coalesced Fetch")
+@Category({"Weather Service", "Provider"})
+@Description("Запрос присоединился к уже выполняющемуся запросу к провайдеру за тем же ключом")
+@StackTrace(false)
+public class CoalescedFetchEvent extends jdk.jfr.Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Key")
+    String key;
+
+    @Label("Outcome")
+    @Description("success, empty, cancelled или класс исключения")
+    String outcome;
+}
@@ -0,0 +1,53 @@
+package com.weatherservice.diagnostics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/eventloops} - загрузка и латентность каждого event loop, состояние
+ * планировщиков Reactor и итоговая оценка: упор в CPU, блокировка циклов или запас есть
+ */
+@Component
+@Endpoint(id = "eventloops")
+@RequiredArgsConstructor
+public class EventLoopEndpoint {
+
+    // Загрузка цикла, с которой считаем, что сервис упирается в CPU
+    static final double CPU_BOUND_UTILIZATION = 0.8;
+    // Задержка задач цикла, которую при низкой загрузке объясняет только блокировка
+    static final double BLOCKED_LATENCY_MILLIS = 50;
+
+    private final ObjectProvider<EventLoopMonitor> monitor;
+    private final ObjectProvider<BlockingCallDetector> blockingCallDetector;
+
+    @ReadOperation
+    public EventLoopReport report() {
+        EventLoopMonitor loopMonitor = monitor.getIfAvailable();
+        List<EventLoopMonitor.LoopSnapshot> loops = loopMonitor != null ? loopMonitor.snapshot() : List.of();
+        BlockingCallDetector detector = blockingCallDetector.getIfAvailable();
+
+        return new EventLoopReport(verdict(loops), loops, SchedulerMetrics.snapshot(),
+                detector != null && detector.isInstalled());
+    }
+
+    static String verdict(List<EventLoopMonitor.LoopSnapshot> loops) {
+        if (loops.isEmpty()) {
+            return "unknown";
+        }
+        double maxUtilization = loops.stream().mapToDouble(EventLoopMonitor.LoopSnapshot::utilization).max().orElse(0);
+        if (maxUtilization >= CPU_BOUND_UTILIZATION) {
+            return "cpu-bound";
+        }
+        boolean stalled = loops.stream().anyMatch(loop -> loop.lastTaskLatencyMillis() >= BLOCKED_LATENCY_MILLIS);
+        return stalled ? "blocked" : "io-bound";
+    }
+
+    public record EventLoopReport(String verdict, List<EventLoopMonitor.LoopSnapshot> loops,
+                                  List<SchedulerMetrics.SchedulerSnapshot> schedulers,
+                                  boolean blockingDetection) {}
+}
@@ -0,0 +1,148 @@
+package com.weatherservice.diagnostics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Насыщение event loop'ов Netty. Раз в {@code probeInterval} в каждый цикл ставится пробная
+ * задача: задержка до ее запуска - латентность задач цикла ({@code weather.eventloop.task.latency}),
+ * а доля CPU-времени потока цикла за интервал - его загрузка ({@code weather.eventloop.utilization}).
+ * Высокая загрузка означает упор в CPU (разбор JSON, сериализация); высокая латентность при низкой
+ * загрузке - блокирующий вызов на цикле. Длина очереди - {@code weather.eventloop.pending.tasks}.
+ */
+@Slf4j
+public class EventLoopMonitor {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final List<LoopStats> loops;
+    private final Duration probeInterval;
+    private Disposable probeTask;
+
+    public EventLoopMonitor(EventLoopGroup group, MeterRegistry registry, Duration probeInterval) {
+        List<LoopStats> stats = new ArrayList<>();
+        for (EventExecutor executor : group) {
+            stats.add(new LoopStats("loop-" + stats.size(), executor, registry));
+        }
+        this.loops = List.copyOf(stats);
+        this.probeInterval = probeInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        probeTask = Flux.interval(probeInterval, probeInterval)
+                .onBackpressureDrop()
+                .subscribe(tick -> probe());
+        log.info("Monitoring {} event loops every {}", loops.size(), probeInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (probeTask != null) {
+            probeTask.dispose();
+        }
+    }
+
+    public void probe() {
+        loops.forEach(LoopStats::probe);
+    }
+
+    public List<LoopSnapshot> snapshot() {
+        return loops.stream().map(LoopStats::toSnapshot).toList();
+    }
+
+    /**
+     * @param utilization доля CPU-времени потока цикла за последний интервал; -1, если не измерялась
+     */
+    public record LoopSnapshot(String name, String thread, int pendingTasks, double lastTaskLatencyMillis,
+                               double maxTaskLatencyMillis, double utilization) {}
+
+    private static final class LoopStats {
+
+        private final String name;
+        private final EventExecutor executor;
+        private final Timer latency;
+
+        // Пишутся только потоком цикла (в пробной задаче), читаются снаружи
+        private volatile String threadName;
+        private volatile long lastLatencyNanos;
+        private volatile double utilization = -1;
+        private long lastCpuNanos = -1;
+        private long lastWallNanos;
+
+        LoopStats(String name, EventExecutor executor, MeterRegistry registry) {
+            this.name = name;
+            this.executor = executor;
+            this.latency = Timer.builder("weather.eventloop.task.latency")
+                    .description("Delay between submitting a task to a Netty event loop and its start")
+                    .tag("loop", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+            Gauge.builder("weather.eventloop.pending.tasks", this, LoopStats::pendingTasks)
+                    .description("Tasks waiting in a Netty event loop queue")
+                    .tag("loop", name)
+                    .register(registry);
+            Gauge.builder("weather.eventloop.utilization", this, stats -> stats.utilization)
+                    .description("Share of wall time the event loop thread spent on CPU during the last probe interval")
+                    .tag("loop", name)
+                    .register(registry);
+        }
+
+        void probe() {
+            if (executor.isShuttingDown()) {
+                return;
+            }
+            long submitted = System.nanoTime();
+            try {
+                executor.execute(() -> onLoop(submitted));
+            } catch (RejectedExecutionException e) {
+                log.debug("Event loop {} rejected probe: {}", name, e.getMessage());
+            }
+        }
+
+        private void onLoop(long submitted) {
+            long now = System.nanoTime();
+            lastLatencyNanos = now - submitted;
+            latency.record(lastLatencyNanos, TimeUnit.NANOSECONDS);
+
+            if (threadName == null) {
+                threadName = Thread.currentThread().getName();
+            }
+            if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+                return;
+            }
+            long cpu = THREADS.getCurrentThreadCpuTime();
+            if (lastCpuNanos >= 0 && now > lastWallNanos) {
+                utilization = Math.min(1.0, (double) (cpu - lastCpuNanos) / (now - lastWallNanos));
+            }
+            lastCpuNanos = cpu;
+            lastWallNanos = now;
+        }
+
+        int pendingTasks() {
+            return executor instanceof SingleThreadEventExecutor loop ? loop.pendingTasks() : -1;
+        }
+
+        LoopSnapshot toSnapshot() {
+            return new LoopSnapshot(name, threadName, pendingTasks(), lastLatencyNanos / 1_000_000.0,
+                    latency.max(TimeUnit.MILLISECONDS), utilization);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.weatherservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.weatherservice.Fallback")
+@Label("Fallback")
+@Category({"Weather Service", "Resilience"})
+@Description("Переход на резервный путь: устаревший кэш, кэш в памяти, пропуск без rate limiting")
+@StackTrace(false)
+public class FallbackEvent extends jdk.jfr.Event {
+
+    @Label("Kind")
+    String kind;
+
+    @Label("Key")
+    String key;
+
+    @Label("Reason")
+    String reason;
+}
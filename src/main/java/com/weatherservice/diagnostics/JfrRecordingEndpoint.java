@@ -0,0 +1,170 @@
+package com.weatherservice.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Управление JFR-записями без доступа к JVM: {@code POST /actuator/jfr} запускает запись
+ * с событиями сервиса, {@code GET /actuator/jfr/{id}} отдает файл .jfr,
+ * {@code DELETE /actuator/jfr/{id}} останавливает и удаляет запись.
+ * <p>
+ * Выключен по умолчанию ({@code weather.diagnostics.jfr-endpoint}): записи раскрывают ключи
+ * запросов и нагружают диск. Файл записи отдается потоком с диска, а не целиком из памяти.
+ */
+@Slf4j
+@Endpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+
+    private static final Duration DEFAULT_DURATION = Duration.ofMinutes(5);
+    private static final String DEFAULT_SETTINGS = "default";
+
+    // Последний снимок каждой записи; удаляется вместе с записью
+    private final Path dumpDirectory;
+
+    public JfrRecordingEndpoint() {
+        try {
+            this.dumpDirectory = Files.createTempDirectory("weather-recordings-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create JFR dump directory", e);
+        }
+    }
+
+    @ReadOperation
+    public List<RecordingInfo> recordings() {
+        if (!FlightRecorder.isAvailable()) {
+            return List.of();
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(RecordingInfo::of)
+                .toList();
+    }
+
+    /**
+     * @param settings встроенная конфигурация JFR: {@code default} (~1% накладных расходов) или {@code profile}
+     */
+    @WriteOperation
+    public WebEndpointResponse<RecordingInfo> start(@Nullable String name, @Nullable Duration duration,
+                                                    @Nullable String settings) {
+        if (!FlightRecorder.isAvailable()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : DEFAULT_SETTINGS);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(name != null ? name : "weather-service");
+        recording.setDuration(duration != null ? duration : DEFAULT_DURATION);
+        recording.setToDisk(true);
+        WeatherEvents.EVENT_TYPES.forEach(recording::enable);
+        recording.start();
+        log.info("Started JFR recording {} ({}, {})", recording.getId(), recording.getName(), recording.getDuration());
+
+        return new WebEndpointResponse<>(RecordingInfo.of(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> download(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        // Снимок пишется во временный файл и подменяет прежний: скачивание, которое еще читает
+        // прежний снимок, дочитает его - открытый файл остается доступен до закрытия
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(dumpDirectory, "recording-" + id + "-", ".part");
+            recording.dump(temporary);
+            Path file = Files.move(temporary, dumpFile(id),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new WebEndpointResponse<>(new FileSystemResource(file));
+        } catch (IOException e) {
+            deleteQuietly(temporary);
+            throw new UncheckedIOException("Failed to dump JFR recording " + id, e);
+        }
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> stop(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close();
+        deleteQuietly(dumpFile(id));
+        log.info("Closed JFR recording {}", id);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    @PreDestroy
+    public void deleteDumps() {
+        try (Stream<Path> files = Files.list(dumpDirectory)) {
+            files.forEach(JfrRecordingEndpoint::deleteQuietly);
+        } catch (IOException e) {
+            log.debug("Failed to list JFR dump directory {}: {}", dumpDirectory, e.getMessage());
+        }
+        deleteQuietly(dumpDirectory);
+    }
+
+    private Path dumpFile(long id) {
+        return dumpDirectory.resolve("recording-" + id + ".jfr");
+    }
+
+    private static Recording find(long id) {
+        if (!FlightRecorder.isAvailable()) {
+            return null;
+        }
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(recording -> recording.getId() == id)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete recording dump {}: {}", file, e.getMessage());
+        }
+    }
+
+    public record RecordingInfo(long id, String name, String state, Instant startTime,
+                                Duration duration, long size) {
+
+        static RecordingInfo of(Recording recording) {
+            return new RecordingInfo(recording.getId(), recording.getName(), recording.getState().name(),
+                    recording.getStartTime(), recording.getDuration(), recording.getSize());
+        }
+    }
+}
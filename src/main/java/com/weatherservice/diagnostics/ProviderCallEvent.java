@@ -0,0 +1,25 @@
+package com.weatherservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.weatherservice.ProviderCall")
+@Label("Provider Call")
+@Category({"Weather Service", "Provider"})
+@Description("Запрос погоды у провайдера, включая ретраи")
+@StackTrace(false)
+public class ProviderCallEvent extends jdk.jfr.Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Key")
+    String key;
+
+    @Label("Outcome")
+    @Description("success, empty, cancelled или класс исключения")
+    String outcome;
+}
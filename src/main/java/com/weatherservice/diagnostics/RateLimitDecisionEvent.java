@@ -0,0 +1,31 @@
+package com.weatherservice.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.weatherservice.RateLimitDecision")
+@Label("Rate Limit Decision")
+@Category({"Weather Service", "Rate Limiting"})
+@Description("Решение rate limiter по запросу клиента")
+@StackTrace(false)
+public class RateLimitDecisionEvent extends jdk.jfr.Event {
+
+    @Label("Key")
+    String key;
+
+    @Label("Path")
+    @Description("redis, local, synced или fail-open")
+    String path;
+
+    @Label("Cost")
+    int cost;
+
+    @Label("Allowed")
+    boolean allowed;
+
+    @Label("Remaining")
+    long remaining;
+}
@@ -0,0 +1,272 @@
+package com.weatherservice.diagnostics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Метрики планировщиков Reactor через декоратор их executor'ов. В отличие от метрик на каждый
+ * executor (boundedElastic постоянно создает и выбрасывает worker'ы), метрики агрегируются по
+ * имени планировщика и имеют фиксированную кардинальность:
+ * <ul>
+ *     <li>{@code weather.scheduler.task.wait} - ожидание задачи в очереди до запуска;</li>
+ *     <li>{@code weather.scheduler.task.execution} - время выполнения задачи;</li>
+ *     <li>{@code weather.scheduler.tasks.active} / {@code weather.scheduler.tasks.queued} - текущая загрузка.</li>
+ * </ul>
+ * Декоратор действует только на executor'ы, созданные после {@link #install}, поэтому установка
+ * выполняется в {@code main} до запуска контекста.
+ */
+public final class SchedulerMetrics {
+
+    private static final String DECORATOR_KEY = "weather-scheduler-metrics";
+
+    private static final Map<String, SchedulerStats> STATS = new ConcurrentHashMap<>();
+
+    private SchedulerMetrics() {
+    }
+
+    public static void install(MeterRegistry registry) {
+        Schedulers.addExecutorServiceDecorator(DECORATOR_KEY, (scheduler, executor) ->
+                new InstrumentedExecutorService(executor, STATS.computeIfAbsent(schedulerName(scheduler),
+                        name -> new SchedulerStats(name, registry))));
+    }
+
+    public static void uninstall() {
+        Schedulers.removeExecutorServiceDecorator(DECORATOR_KEY);
+        STATS.clear();
+    }
+
+    public static List<SchedulerSnapshot> snapshot() {
+        return STATS.values().stream()
+                .map(SchedulerStats::toSnapshot)
+                .sorted((a, b) -> a.name().compareTo(b.name()))
+                .toList();
+    }
+
+    /**
+     * {@code Schedulers.parallel()} -> {@code parallel}, {@code parallel(4,"weather-x")} -> {@code weather-x}
+     */
+    static String schedulerName(Scheduler scheduler) {
+        String description = scheduler.toString();
+        int quote = description.indexOf('"');
+        if (quote >= 0) {
+            int end = description.indexOf('"', quote + 1);
+            return end > quote ? description.substring(quote + 1, end) : description.substring(quote + 1);
+        }
+        return description.replace("Schedulers.", "").replace("()", "");
+    }
+
+    public record SchedulerSnapshot(String name, int executors, long active, long queued,
+                                    double meanWaitMillis, double maxWaitMillis, long completedTasks) {}
+
+    private static final class SchedulerStats {
+
+        private final String name;
+        private final Set<ScheduledExecutorService> executors = ConcurrentHashMap.newKeySet();
+        private final Timer wait;
+        private final Timer execution;
+
+        SchedulerStats(String name, MeterRegistry registry) {
+            this.name = name;
+            this.wait = Timer.builder("weather.scheduler.task.wait")
+                    .description("Time a task waits in a Reactor scheduler queue before it starts")
+                    .tag("scheduler", name)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry);
+            this.execution = Timer.builder("weather.scheduler.task.execution")
+                    .description("Reactor scheduler task execution time")
+                    .tag("scheduler", name)
+                    .register(registry);
+            Gauge.builder("weather.scheduler.tasks.active", this, SchedulerStats::active)
+                    .tag("scheduler", name)
+                    .register(registry);
+            Gauge.builder("weather.scheduler.tasks.queued", this, SchedulerStats::queued)
+                    .tag("scheduler", name)
+                    .register(registry);
+        }
+
+        double active() {
+            return sum(true);
+        }
+
+        double queued() {
+            return sum(false);
+        }
+
+        // Размеры доступны только у ScheduledThreadPoolExecutor - его и создают планировщики Reactor
+        private long sum(boolean active) {
+            long total = 0;
+            for (ScheduledExecutorService executor : executors) {
+                if (executor instanceof ScheduledThreadPoolExecutor pool) {
+                    total += active ? pool.getActiveCount() : pool.getQueue().size();
+                }
+            }
+            return total;
+        }
+
+        SchedulerSnapshot toSnapshot() {
+            return new SchedulerSnapshot(name, executors.size(), (long) active(), (long) queued(),
+                    wait.mean(TimeUnit.MILLISECONDS), wait.max(TimeUnit.MILLISECONDS), execution.count());
+        }
+    }
+
+    /**
+     * Делегирующий executor: задачи оборачиваются замером ожидания и выполнения
+     */
+    private static final class InstrumentedExecutorService implements ScheduledExecutorService {
+
+        private final ScheduledExecutorService delegate;
+        private final SchedulerStats stats;
+
+        InstrumentedExecutorService(ScheduledExecutorService delegate, SchedulerStats stats) {
+            this.delegate = delegate;
+            this.stats = stats;
+            stats.executors.add(delegate);
+        }
+
+        private Runnable wrap(Runnable task, long delayNanos) {
+            long due = System.nanoTime() + delayNanos;
+            return () -> {
+                long start = System.nanoTime();
+                stats.wait.record(Math.max(0, start - due), TimeUnit.NANOSECONDS);
+                try {
+                    task.run();
+                } finally {
+                    stats.execution.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+        }
+
+        private <T> Callable<T> wrap(Callable<T> task, long delayNanos) {
+            long due = System.nanoTime() + delayNanos;
+            return () -> {
+                long start = System.nanoTime();
+                stats.wait.record(Math.max(0, start - due), TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    stats.execution.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+        }
+
+        // Периодические задачи: ожидание не меряем, момент каждого запуска задает сам executor
+        private Runnable wrapPeriodic(Runnable task) {
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    stats.execution.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command, 0));
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(wrap(task, 0));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(wrap(task, 0), result);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(wrap(task, 0));
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return delegate.schedule(wrap(command, unit.toNanos(delay)), delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return delegate.schedule(wrap(callable, unit.toNanos(delay)), delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            return delegate.scheduleAtFixedRate(wrapPeriodic(command), initialDelay, period, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            return delegate.scheduleWithFixedDelay(wrapPeriodic(command), initialDelay, delay, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            stats.executors.remove(delegate);
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            stats.executors.remove(delegate);
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(tasks.stream().map(task -> wrap(task, 0)).toList());
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(tasks.stream().map(task -> wrap(task, 0)).toList(), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(tasks.stream().map(task -> wrap(task, 0)).toList());
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(tasks.stream().map(task -> wrap(task, 0)).toList(), timeout, unit);
+        }
+    }
+}
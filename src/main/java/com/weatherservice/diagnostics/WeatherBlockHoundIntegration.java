@@ -0,0 +1,21 @@
+package com.weatherservice.diagnostics;
+
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.integration.BlockHoundIntegration;
+
+/**
+ * Разрешенные блокировки сервиса для BlockHound (подключается через ServiceLoader):
+ * синхронная запись лога в консоль - осознанный компромисс профиля dev, а не ошибка в коде.
+ * Плюс блокирующие вызовы, которых BlockHound не знает: отображение файла в память и его
+ * сброс на диск ({@link com.weatherservice.recording.RecordingFile}).
+ */
+public class WeatherBlockHoundIntegration implements BlockHoundIntegration {
+
+    @Override
+    public void applyTo(BlockHound.Builder builder) {
+        builder.allowBlockingCallsInside("ch.qos.logback.core.OutputStreamAppender", "subAppend");
+        builder.markAsBlocking("sun.nio.ch.FileChannelImpl", "map",
+                "(Ljava/nio/channels/FileChannel$MapMode;JJ)Ljava/nio/MappedByteBuffer;");
+        builder.markAsBlocking("java.nio.MappedByteBuffer", "force", "()Ljava/nio/MappedByteBuffer;");
+    }
+}
@@ -0,0 +1,161 @@
+package com.weatherservice.diagnostics;
+
+import com.weatherservice.model.WeatherProvider;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Точки генерации JFR-событий сервиса. Каждый метод сначала проверяет, включено ли событие
+ * хотя бы в одной активной записи; если нет - объект события не создается, а реактивная
+ * цепочка возвращается без изменений, так что без записи JFR события ничего не стоят.
+ */
+public final class WeatherEvents {
+
+    /**
+     * Все события сервиса - включаются в записи, запущенные через {@link JfrRecordingEndpoint}
+     */
+    public static final List<Class<? extends Event>> EVENT_TYPES = List.of(CacheLookupEvent.class,
+            ProviderCallEvent.class, CoalescedFetchEvent.class, RateLimitDecisionEvent.class, FallbackEvent.class);
+
+    private static final EventType CACHE_LOOKUP = EventType.getEventType(CacheLookupEvent.class);
+    private static final EventType PROVIDER_CALL = EventType.getEventType(ProviderCallEvent.class);
+    private static final EventType COALESCED_FETCH = EventType.getEventType(CoalescedFetchEvent.class);
+    private static final EventType RATE_LIMIT_DECISION = EventType.getEventType(RateLimitDecisionEvent.class);
+    private static final EventType FALLBACK = EventType.getEventType(FallbackEvent.class);
+
+    private static final String SUCCESS = "success";
+
+    private WeatherEvents() {
+    }
+
+    public static <T> Mono<T> cacheLookup(String key, String tier, Mono<T> lookup) {
+        if (!CACHE_LOOKUP.isEnabled()) {
+            return lookup;
+        }
+        return timed(CacheLookupEvent::new, lookup, (event, outcome) -> {
+            event.key = key;
+            event.tier = tier;
+            event.hit = SUCCESS.equals(outcome);
+            event.outcome = outcome;
+        });
+    }
+
+    /**
+     * Ключ запроса может быть любым объектом: строка из него строится, только если событие записывается
+     */
+    public static <T> Mono<T> providerCall(WeatherProvider provider, Object key, Mono<T> call) {
+        if (!PROVIDER_CALL.isEnabled()) {
+            return call;
+        }
+        return timed(ProviderCallEvent::new, call, (event, outcome) -> {
+            event.provider = providerName(provider);
+            event.key = String.valueOf(key);
+            event.outcome = outcome;
+        });
+    }
+
+    /**
+     * Ожидание результата чужого запроса к провайдеру (single-flight)
+     */
+    public static <T> Mono<T> coalescedFetch(WeatherProvider provider, Object key, Mono<T> wait) {
+        if (!COALESCED_FETCH.isEnabled()) {
+            return wait;
+        }
+        return timed(CoalescedFetchEvent::new, wait, (event, outcome) -> {
+            event.provider = providerName(provider);
+            event.key = String.valueOf(key);
+            event.outcome = outcome;
+        });
+    }
+
+    /**
+     * То же ожидание в блокирующем коде
+     */
+    public static <T> T coalescedFetch(WeatherProvider provider, Object key, Supplier<T> wait) {
+        if (!COALESCED_FETCH.isEnabled()) {
+            return wait.get();
+        }
+        CoalescedFetchEvent event = new CoalescedFetchEvent();
+        event.begin();
+        String outcome = "empty";
+        try {
+            T result = wait.get();
+            outcome = result != null ? SUCCESS : "empty";
+            return result;
+        } catch (RuntimeException e) {
+            outcome = Exceptions.unwrap(e).getClass().getSimpleName();
+            throw e;
+        } finally {
+            event.end();
+            event.provider = providerName(provider);
+            event.key = String.valueOf(key);
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+
+    public static void rateLimitDecision(String key, String path, int cost, boolean allowed, long remaining) {
+        if (!RATE_LIMIT_DECISION.isEnabled()) {
+            return;
+        }
+        RateLimitDecisionEvent event = new RateLimitDecisionEvent();
+        event.key = key;
+        event.path = path;
+        event.cost = cost;
+        event.allowed = allowed;
+        event.remaining = remaining;
+        event.commit();
+    }
+
+    public static void fallback(String kind, String key, Throwable reason) {
+        if (!FALLBACK.isEnabled()) {
+            return;
+        }
+        FallbackEvent event = new FallbackEvent();
+        event.kind = kind;
+        event.key = key;
+        event.reason = reason != null ? reason.getClass().getSimpleName() + ": " + reason.getMessage() : null;
+        event.commit();
+    }
+
+    // Длительность - от подписки до первого сигнала (значение, завершение, ошибка) или отмены
+    private static <E extends Event, T> Mono<T> timed(Supplier<E> factory, Mono<T> operation,
+                                                      BiConsumer<E, String> fill) {
+        return Mono.defer(() -> {
+            E event = factory.get();
+            boolean[] committed = new boolean[1];
+            return operation
+                    .doOnSubscribe(subscription -> event.begin())
+                    .doOnEach(signal -> commit(event, committed, fill, outcome(signal)))
+                    .doOnCancel(() -> commit(event, committed, fill, "cancelled"));
+        });
+    }
+
+    private static <E extends Event> void commit(E event, boolean[] committed, BiConsumer<E, String> fill,
+                                                 String outcome) {
+        if (!committed[0]) {
+            committed[0] = true;
+            event.end();
+            fill.accept(event, outcome);
+            event.commit();
+        }
+    }
+
+    private static String outcome(Signal<?> signal) {
+        if (signal.isOnError()) {
+            return signal.getThrowable().getClass().getSimpleName();
+        }
+        return signal.hasValue() ? SUCCESS : "empty";
+    }
+
+    private static String providerName(WeatherProvider provider) {
+        return provider != null ? provider.name() : "UNKNOWN";
+    }
+}
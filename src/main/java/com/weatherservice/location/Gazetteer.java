@@ -0,0 +1,251 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Офлайн-справочник мест, отображенный в память только для чтения. Данные живут в page cache,
+ * а не в куче, и разделяются всеми процессами на хосте, открывшими тот же файл.
+ * <p>
+ * Формат: заголовок (magic, версия, число мест, смещение пула строк, размер исходного файла),
+ * затем записи фиксированного размера, отсортированные по нормализованному названию (ключ,
+ * смещения названия и часового пояса в пуле, широта, долгота, население, код страны), затем
+ * пул строк. Поиск по префиксу - бинарный поиск по ключам прямо в отображении, без аллокаций
+ * до формирования ответа.
+ */
+@Slf4j
+public class Gazetteer implements Closeable {
+
+    static final int MAGIC = 0x5747415A; // "WGAZ"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 28;
+
+    private static final int KEY = 0;
+    private static final int NAME = 4;
+    private static final int TIMEZONE = 8;
+    private static final int LATITUDE = 12;
+    private static final int LONGITUDE = 16;
+    private static final int POPULATION = 20;
+    private static final int COUNTRY = 24;
+
+    private static final Gazetteer EMPTY = new Gazetteer(null, null, 0, 0, 0);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int strings;
+    private final int maxScan;
+
+    private Gazetteer(FileChannel channel, MappedByteBuffer buffer, int count, int strings, int maxScan) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.count = count;
+        this.strings = strings;
+        this.maxScan = maxScan;
+    }
+
+    /**
+     * Справочник без данных - для выключенного офлайн-поиска
+     */
+    public static Gazetteer empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Открывает скомпилированный файл, при первом запуске или после обновления исходной
+     * выгрузки предварительно собирая его из {@code source}
+     *
+     * @param maxScan сколько мест с подходящим префиксом просматривать для выбора самых крупных
+     */
+    public static Gazetteer open(Path source, Path compiled, int maxScan) throws IOException {
+        if (needsCompile(source, compiled)) {
+            GazetteerCompiler.compile(source, compiled);
+        }
+
+        FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Gazetteer file is too large: " + compiled);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a gazetteer file: " + compiled);
+            }
+            Gazetteer gazetteer = new Gazetteer(channel, buffer, buffer.getInt(8), buffer.getInt(12), maxScan);
+            log.info("Opened gazetteer {} with {} places", compiled, gazetteer.size());
+            return gazetteer;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean needsCompile(Path source, Path compiled) throws IOException {
+        if (!Files.exists(compiled)) {
+            return true;
+        }
+        if (!Files.exists(source)) {
+            return false;
+        }
+        if (Files.getLastModifiedTime(source).compareTo(Files.getLastModifiedTime(compiled)) > 0) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            return header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getLong(16) != Files.size(source);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * До {@code limit} самых населенных мест, чье название начинается с запроса
+     */
+    public List<LocationInfo> search(String query, int limit) {
+        byte[] prefix = LocationNames.normalize(query).getBytes(StandardCharsets.UTF_8);
+        if (count == 0 || prefix.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Отобранные записи, по убыванию населения
+        int[] best = new int[limit];
+        int found = 0;
+        int start = lowerBound(prefix);
+        int end = (int) Math.min(count, (long) start + maxScan);
+        for (int record = start; record < end && startsWith(record, prefix); record++) {
+            int population = population(record);
+            if (found == limit && population <= population(best[limit - 1])) {
+                continue;
+            }
+            int position = found < limit ? found++ : limit - 1;
+            while (position > 0 && population(best[position - 1]) < population) {
+                best[position] = best[position - 1];
+                position--;
+            }
+            best[position] = record;
+        }
+
+        List<LocationInfo> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(toLocation(best[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Самое населенное место с точно таким названием (и страной, если указана)
+     */
+    public Optional<LocationInfo> resolve(String name, String country) {
+        byte[] key = LocationNames.normalize(name).getBytes(StandardCharsets.UTF_8);
+        if (count == 0 || key.length == 0) {
+            return Optional.empty();
+        }
+        String countryCode = country != null ? country.toUpperCase(Locale.ROOT) : null;
+
+        // Записи с равным ключом отсортированы по убыванию населения - берем первую подходящую
+        for (int record = lowerBound(key); record < count && compareKey(record, key) == 0; record++) {
+            if (countryCode == null || countryCode.equals(country(record))) {
+                return Optional.of(toLocation(record));
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // Первая запись с ключом >= target
+    private int lowerBound(byte[] target) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareKey(middle, target) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compareKey(int record, byte[] target) {
+        int offset = strings + buffer.getInt(base(record) + KEY);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (buffer.get(offset + 2 + i) & 0xFF) - (target[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - target.length;
+    }
+
+    private boolean startsWith(int record, byte[] prefix) {
+        int offset = strings + buffer.getInt(base(record) + KEY);
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + 2 + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int population(int record) {
+        return buffer.getInt(base(record) + POPULATION);
+    }
+
+    private String country(int record) {
+        int base = base(record) + COUNTRY;
+        return new String(new char[]{(char) buffer.get(base), (char) buffer.get(base + 1)});
+    }
+
+    private LocationInfo toLocation(int record) {
+        int base = base(record);
+        return LocationInfo.builder()
+                .name(string(buffer.getInt(base + NAME)))
+                .country(country(record))
+                .lat((double) buffer.getFloat(base + LATITUDE))
+                .lon((double) buffer.getFloat(base + LONGITUDE))
+                .timezone(string(buffer.getInt(base + TIMEZONE)))
+                .build();
+    }
+
+    private String string(int poolOffset) {
+        int offset = strings + poolOffset;
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int base(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,159 @@
+package com.weatherservice.location;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Преобразует текстовую выгрузку GeoNames (TSV: geonameid, name, asciiname, alternatenames,
+ * latitude, longitude, ..., country code в колонке 8, population в 14, timezone в 17) в бинарный
+ * формат {@link Gazetteer}. Файл пишется во временный и атомарно переименовывается, поэтому
+ * процессы, стартующие одновременно, никогда не отображают недописанный файл.
+ */
+@Slf4j
+final class GazetteerCompiler {
+
+    private static final int COLUMN_NAME = 1;
+    private static final int COLUMN_LATITUDE = 4;
+    private static final int COLUMN_LONGITUDE = 5;
+    private static final int COLUMN_COUNTRY = 8;
+    private static final int COLUMN_POPULATION = 14;
+    private static final int COLUMN_TIMEZONE = 17;
+
+    private GazetteerCompiler() {
+    }
+
+    static void compile(Path source, Path target) throws IOException {
+        long started = System.nanoTime();
+        List<Place> places = read(source);
+        // Ключи сравниваются побайтно (UTF-8 без знака), при равных - сначала крупные места
+        places.sort(Comparator.<Place, byte[]>comparing(place -> place.key, Arrays::compareUnsigned)
+                .thenComparing(Comparator.comparingInt((Place place) -> place.population).reversed()));
+
+        StringPool strings = new StringPool();
+        ByteBuffer records = ByteBuffer.allocate(places.size() * Gazetteer.RECORD_SIZE);
+        for (Place place : places) {
+            records.putInt(strings.add(place.key))
+                    .putInt(strings.add(place.name.getBytes(StandardCharsets.UTF_8)))
+                    .putInt(strings.addShared(place.timezone))
+                    .putFloat(place.latitude)
+                    .putFloat(place.longitude)
+                    .putInt(place.population)
+                    .put((byte) place.country.charAt(0))
+                    .put((byte) place.country.charAt(1))
+                    .putShort((short) 0);
+        }
+        records.flip();
+
+        ByteBuffer header = ByteBuffer.allocate(Gazetteer.HEADER_SIZE)
+                .putInt(Gazetteer.MAGIC)
+                .putInt(Gazetteer.VERSION)
+                .putInt(places.size())
+                .putInt(Gazetteer.HEADER_SIZE + records.remaining())
+                .putLong(Files.size(source));
+        header.position(Gazetteer.HEADER_SIZE).flip();
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer pool = ByteBuffer.wrap(strings.bytes.toByteArray());
+            for (ByteBuffer part : new ByteBuffer[]{header, records, pool}) {
+                while (part.hasRemaining()) {
+                    channel.write(part);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.info("Compiled gazetteer {} -> {}: {} places in {} ms", source, target, places.size(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static List<Place> read(Path source) throws IOException {
+        List<Place> places = new ArrayList<>();
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Place place = parse(line);
+                if (place != null) {
+                    places.add(place);
+                } else if (!line.isBlank() && !line.startsWith("#")) {
+                    skipped++;
+                }
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} malformed gazetteer lines in {}", skipped, source);
+        }
+        return places;
+    }
+
+    private static Place parse(String line) {
+        String[] columns = line.split("\t", -1);
+        if (columns.length <= COLUMN_TIMEZONE || columns[COLUMN_COUNTRY].length() != 2) {
+            return null;
+        }
+        String key = LocationNames.normalize(columns[COLUMN_NAME]);
+        if (key.isEmpty()) {
+            return null;
+        }
+        try {
+            return new Place(
+                    key.getBytes(StandardCharsets.UTF_8),
+                    columns[COLUMN_NAME],
+                    columns[COLUMN_COUNTRY],
+                    Float.parseFloat(columns[COLUMN_LATITUDE]),
+                    Float.parseFloat(columns[COLUMN_LONGITUDE]),
+                    columns[COLUMN_POPULATION].isEmpty() ? 0 : (int) Math.min(Integer.MAX_VALUE,
+                            Long.parseLong(columns[COLUMN_POPULATION])),
+                    columns[COLUMN_TIMEZONE]);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record Place(byte[] key, String name, String country, float latitude, float longitude,
+                         int population, String timezone) {}
+
+    /**
+     * Пул строк: длина (2 байта) и байты UTF-8; повторяющиеся значения (часовые пояса) хранятся один раз
+     */
+    private static final class StringPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final Map<String, Integer> shared = new HashMap<>();
+
+        int add(byte[] value) {
+            int length = Math.min(value.length, 0xFFFF);
+            int offset = bytes.size();
+            bytes.write(length >>> 8);
+            bytes.write(length);
+            bytes.write(value, 0, length);
+            return offset;
+        }
+
+        int addShared(String value) {
+            return shared.computeIfAbsent(value, text -> add(text.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
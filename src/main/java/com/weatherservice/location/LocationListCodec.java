@@ -0,0 +1,162 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактный бинарный формат списка мест для кэша поиска. В отличие от JSON через
+ * {@code Object.class}, читается сразу в {@link LocationInfo}, без промежуточных Map.
+ * <p>
+ * Формат: версия (1 байт), число мест (varint), для каждого места - байт флагов присутствующих
+ * полей, затем название, страна (varint длины + UTF-8), координаты (два int в микроградусах)
+ * и часовой пояс. Координаты хранятся с точностью 1e-6 градуса (~0.1 м).
+ */
+public class LocationListCodec implements RedisSerializer<List<LocationInfo>> {
+
+    static final byte VERSION = 1;
+
+    private static final int HAS_NAME = 1;
+    private static final int HAS_COUNTRY = 1 << 1;
+    private static final int HAS_COORDINATES = 1 << 2;
+    private static final int HAS_TIMEZONE = 1 << 3;
+    private static final double MICRODEGREES = 1_000_000;
+
+    @Override
+    public byte[] serialize(List<LocationInfo> locations) {
+        if (locations == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + locations.size() * 32);
+        out.write(VERSION);
+        writeVarint(out, locations.size());
+        for (LocationInfo location : locations) {
+            boolean coordinates = location.getLat() != null && location.getLon() != null;
+            int flags = (location.getName() != null ? HAS_NAME : 0)
+                    | (location.getCountry() != null ? HAS_COUNTRY : 0)
+                    | (coordinates ? HAS_COORDINATES : 0)
+                    | (location.getTimezone() != null ? HAS_TIMEZONE : 0);
+            out.write(flags);
+            if (location.getName() != null) {
+                writeString(out, location.getName());
+            }
+            if (location.getCountry() != null) {
+                writeString(out, location.getCountry());
+            }
+            if (coordinates) {
+                writeInt(out, (int) Math.round(location.getLat() * MICRODEGREES));
+                writeInt(out, (int) Math.round(location.getLon() * MICRODEGREES));
+            }
+            if (location.getTimezone() != null) {
+                writeString(out, location.getTimezone());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public List<LocationInfo> deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != VERSION) {
+            throw new SerializationException("Unsupported location list format: " + bytes[0]);
+        }
+
+        try {
+            Reader in = new Reader(bytes);
+            int count = in.varint();
+            if (count < 0) {
+                throw new SerializationException("Malformed location count: " + count);
+            }
+            // Каждое место занимает хотя бы байт флагов - емкость не больше длины данных
+            List<LocationInfo> locations = new ArrayList<>(Math.min(count, bytes.length));
+            for (int i = 0; i < count; i++) {
+                int flags = in.bytes[in.position++];
+                LocationInfo.LocationInfoBuilder location = LocationInfo.builder();
+                if ((flags & HAS_NAME) != 0) {
+                    location.name(in.string());
+                }
+                if ((flags & HAS_COUNTRY) != 0) {
+                    location.country(in.string());
+                }
+                if ((flags & HAS_COORDINATES) != 0) {
+                    location.lat(in.integer() / MICRODEGREES).lon(in.integer() / MICRODEGREES);
+                }
+                if ((flags & HAS_TIMEZONE) != 0) {
+                    location.timezone(in.string());
+                }
+                locations.add(location.build());
+            }
+            return locations;
+        } catch (IndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated location list", e);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int position = 1;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int next = bytes[position++];
+                value |= (next & 0x7F) << shift;
+                if ((next & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in location list");
+        }
+
+        int integer() {
+            int value = (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+                    | (bytes[position + 2] & 0xFF) << 8 | (bytes[position + 3] & 0xFF);
+            position += 4;
+            return value;
+        }
+
+        String string() {
+            int length = varint();
+            if (length < 0 || length > bytes.length - position) {
+                throw new IndexOutOfBoundsException(length);
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.weatherservice.location;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Нормализация названий мест для индексов: без диакритики и регистра, разделители сведены
+ * к одному пробелу. "São Paulo", "sao-paulo" и "SAO  PAULO" дают одинаковый ключ.
+ */
+public final class LocationNames {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private LocationNames() {
+    }
+
+    public static String normalize(String name) {
+        if (name == null || name.isBlank()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
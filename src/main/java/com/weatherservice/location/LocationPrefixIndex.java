@@ -0,0 +1,212 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.LocationIndexProperties;
+import com.weatherservice.model.LocationInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксный индекс мест для автодополнения. Заполняется всеми {@link LocationInfo}, которые
+ * сервис получил от провайдеров или отдал клиентам; каждое такое появление повышает популярность
+ * места. Каждый узел trie хранит {@code topK} самых популярных мест своего поддерева, поэтому
+ * запрос стоит O(длина префикса) независимо от размера индекса.
+ * <p>
+ * Место идентифицируется нормализованными названием и страной. Популярность только растет,
+ * так что при ее увеличении место может лишь подняться в списках узлов на своем пути.
+ */
+@Slf4j
+@Component
+public class LocationPrefixIndex {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int topK;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean fullLogged;
+
+    public LocationPrefixIndex(LocationIndexProperties properties) {
+        this.enabled = properties.enabled();
+        this.maxEntries = properties.maxEntries();
+        this.topK = properties.topK();
+    }
+
+    /**
+     * До {@code limit} (но не больше {@code topK}) самых популярных мест, чье название начинается с запроса
+     */
+    public List<LocationInfo> search(String query, int limit) {
+        String prefix = LocationNames.normalize(query);
+        if (!enabled || prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            int count = Math.min(limit, node.topSize);
+            List<LocationInfo> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(node.top[i].location);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Учитывает появление мест: новые добавляются в индекс, популярность известных растет на 1
+     */
+    public void record(Collection<LocationInfo> locations) {
+        if (!enabled || locations.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (LocationInfo location : locations) {
+                record(location);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void record(LocationInfo location) {
+        String name = LocationNames.normalize(location.getName());
+        if (name.isEmpty()) {
+            return;
+        }
+
+        String id = name + '|' + (location.getCountry() != null ? location.getCountry().toUpperCase(Locale.ROOT) : "");
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            if (entries.size() >= maxEntries) {
+                if (!fullLogged) {
+                    fullLogged = true;
+                    log.warn("Location index is full ({} entries), new locations are not indexed", maxEntries);
+                }
+                return;
+            }
+            entry = new Entry(location);
+            entries.put(id, entry);
+        }
+        entry.popularity++;
+
+        Node node = root;
+        for (int i = 0; i < name.length(); i++) {
+            node = node.childOrCreate(name.charAt(i));
+            node.promote(entry, topK);
+        }
+    }
+
+    private static final class Entry {
+
+        private final LocationInfo location;
+        private long popularity;
+
+        Entry(LocationInfo location) {
+            this.location = location;
+        }
+    }
+
+    /**
+     * Узел trie: дети в отсортированном массиве символов (бинарный поиск), top-K поддерева
+     * отсортирован по убыванию популярности
+     */
+    private static final class Node {
+
+        private static final char[] NO_LABELS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] top = NO_ENTRIES;
+        private int topSize;
+
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insert = -index - 1;
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insert);
+            System.arraycopy(children, 0, newChildren, 0, insert);
+            System.arraycopy(labels, insert, newLabels, insert + 1, labels.length - insert);
+            System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+
+            Node child = new Node();
+            newLabels[insert] = label;
+            newChildren[insert] = child;
+            labels = newLabels;
+            children = newChildren;
+            return child;
+        }
+
+        // Популярность entry только что выросла: поднимаем его или вставляем вместо последнего
+        void promote(Entry entry, int capacity) {
+            int position = -1;
+            for (int i = 0; i < topSize; i++) {
+                if (top[i] == entry) {
+                    position = i;
+                    break;
+                }
+            }
+
+            if (position < 0) {
+                if (topSize < capacity) {
+                    if (top.length == topSize) {
+                        top = Arrays.copyOf(top, Math.min(capacity, Math.max(2, topSize * 2)));
+                    }
+                    position = topSize++;
+                } else if (entry.popularity > top[topSize - 1].popularity) {
+                    position = topSize - 1;
+                } else {
+                    return;
+                }
+                top[position] = entry;
+            }
+
+            while (position > 0 && top[position - 1].popularity < entry.popularity) {
+                top[position] = top[position - 1];
+                top[--position] = entry;
+            }
+        }
+    }
+}
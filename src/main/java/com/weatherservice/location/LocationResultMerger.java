@@ -0,0 +1,99 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Слияние ответов нескольких провайдеров на один поисковый запрос. Одно место у разных
+ * провайдеров узнается по нормализованному названию и координатам, округленным до ~1 км
+ * (без координат - по стране). Порядок определяет {@link #score}: совпадение с запросом,
+ * согласие провайдеров и позиция в их выдаче.
+ * <p>
+ * Не потокобезопасен: рассчитан на последовательную обработку ответов одного запроса.
+ */
+public class LocationResultMerger {
+
+    // Точность сравнения координат: 0.01 градуса - порядка километра
+    private static final double COORDINATE_PRECISION = 100;
+
+    private final String query;
+    private final Map<String, Candidate> candidates = new LinkedHashMap<>();
+
+    public LocationResultMerger(String query) {
+        this.query = LocationNames.normalize(query);
+    }
+
+    /**
+     * Учитывает ответ очередного провайдера; возвращает места, которых не было в прежних
+     * ответах, в порядке убывания оценки
+     */
+    public List<LocationInfo> accept(List<LocationInfo> batch) {
+        List<Candidate> added = new ArrayList<>();
+        for (int position = 0; position < batch.size(); position++) {
+            LocationInfo location = batch.get(position);
+            if (location == null || location.getName() == null) {
+                continue;
+            }
+            Candidate candidate = candidates.get(identity(location));
+            if (candidate == null) {
+                candidate = new Candidate(location);
+                candidates.put(identity(location), candidate);
+                added.add(candidate);
+            }
+            candidate.providers++;
+            candidate.bestPosition = Math.min(candidate.bestPosition, position);
+        }
+        return sorted(added);
+    }
+
+    /**
+     * Все места из учтенных ответов в порядке убывания оценки
+     */
+    public List<LocationInfo> ranked() {
+        return sorted(new ArrayList<>(candidates.values()));
+    }
+
+    /**
+     * Оценка места: точное совпадение названия с запросом важнее совпадения префикса, а то -
+     * вхождения; каждый следующий провайдер, вернувший место, и высокая позиция в выдаче
+     * добавляют уверенности
+     */
+    double score(LocationInfo location, int providers, int bestPosition) {
+        String name = LocationNames.normalize(location.getName());
+        double match = name.equals(query) ? 3 : name.startsWith(query) ? 2 : name.contains(query) ? 1 : 0;
+        return match + 0.5 * (providers - 1) + 1.0 / (2 + bestPosition);
+    }
+
+    private List<LocationInfo> sorted(List<Candidate> list) {
+        // Сортировка устойчивая: при равной оценке сохраняется порядок поступления
+        list.sort(Comparator.comparingDouble((Candidate candidate) ->
+                score(candidate.location, candidate.providers, candidate.bestPosition)).reversed());
+        return list.stream().map(candidate -> candidate.location).toList();
+    }
+
+    private static String identity(LocationInfo location) {
+        String name = LocationNames.normalize(location.getName());
+        if (location.getLat() != null && location.getLon() != null) {
+            return name + '@' + Math.round(location.getLat() * COORDINATE_PRECISION)
+                    + ',' + Math.round(location.getLon() * COORDINATE_PRECISION);
+        }
+        return name + '|' + (location.getCountry() != null ? location.getCountry().toUpperCase(Locale.ROOT) : "");
+    }
+
+    private static final class Candidate {
+
+        private final LocationInfo location;
+        private int providers;
+        private int bestPosition = Integer.MAX_VALUE;
+
+        Candidate(LocationInfo location) {
+            this.location = location;
+        }
+    }
+}
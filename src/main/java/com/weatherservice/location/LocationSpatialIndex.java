@@ -0,0 +1,226 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.SpatialIndexProperties;
+import com.weatherservice.model.LocationInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Predicate;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Пространственный индекс известных мест: равномерная сетка по широте и долготе с ячейкой
+ * {@code cellDegrees}. Запрос просматривает только ячейки, которые пересекает круг поиска,
+ * а новые места добавляются в свою ячейку без перестроения. Позволяет сопоставить координаты
+ * запроса каноническому месту, чтобы запросы по координатам и по городу делили записи кэша.
+ */
+@Slf4j
+@Component
+public class LocationSpatialIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final double cellDegrees;
+    private final int longitudeCells;
+    private final double defaultRadiusKm;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<LocationInfo>> cells = new HashMap<>();
+    private final Set<String> identities = new HashSet<>();
+    private boolean fullLogged;
+
+    @Autowired
+    public LocationSpatialIndex(SpatialIndexProperties properties) {
+        this.enabled = properties.enabled();
+        this.maxEntries = properties.maxEntries();
+        this.cellDegrees = properties.cellDegrees();
+        this.longitudeCells = (int) Math.ceil(360 / properties.cellDegrees());
+        this.defaultRadiusKm = properties.radiusKm();
+    }
+
+    /**
+     * Индекс, который ничего не хранит - для окружений без сопоставления координат
+     */
+    public static LocationSpatialIndex disabled() {
+        return new LocationSpatialIndex(new SpatialIndexProperties(false, 0, 1, 0));
+    }
+
+    /**
+     * Ближайшее известное место не дальше радиуса из настроек
+     */
+    public Optional<LocationInfo> nearest(double lat, double lon) {
+        return nearest(lat, lon, defaultRadiusKm);
+    }
+
+    /**
+     * Ближайшее подходящее под {@code filter} место не дальше радиуса из настроек
+     */
+    public Optional<LocationInfo> nearest(double lat, double lon, Predicate<LocationInfo> filter) {
+        return nearest(lat, lon, defaultRadiusKm, filter);
+    }
+
+    /**
+     * Ближайшее известное место не дальше {@code radiusKm}
+     */
+    public Optional<LocationInfo> nearest(double lat, double lon, double radiusKm) {
+        return nearest(lat, lon, radiusKm, location -> true);
+    }
+
+    private Optional<LocationInfo> nearest(double lat, double lon, double radiusKm, Predicate<LocationInfo> filter) {
+        LocationInfo best = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (LocationInfo location : candidates(lat, lon, radiusKm)) {
+            if (!filter.test(location)) {
+                continue;
+            }
+            double distance = distanceKm(lat, lon, location.getLat(), location.getLon());
+            if (distance <= radiusKm && distance < bestDistance) {
+                best = location;
+                bestDistance = distance;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Все известные места не дальше {@code radiusKm}, от ближнего к дальнему
+     */
+    public List<LocationInfo> withinRadius(double lat, double lon, double radiusKm) {
+        return candidates(lat, lon, radiusKm).stream()
+                .filter(location -> distanceKm(lat, lon, location.getLat(), location.getLon()) <= radiusKm)
+                .sorted(Comparator.comparingDouble(location ->
+                        distanceKm(lat, lon, location.getLat(), location.getLon())))
+                .toList();
+    }
+
+    /**
+     * Добавляет места с координатами; уже известные (по названию и стране) не меняются
+     */
+    public void add(Collection<LocationInfo> locations) {
+        if (!enabled || locations.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (LocationInfo location : locations) {
+                add(location);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return identities.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(LocationInfo location) {
+        if (location.getName() == null || !isValid(location.getLat(), location.getLon())) {
+            return;
+        }
+        String id = LocationNames.normalize(location.getName()) + '|'
+                + (location.getCountry() != null ? location.getCountry().toUpperCase(Locale.ROOT) : "");
+        if (identities.contains(id)) {
+            return;
+        }
+        if (identities.size() >= maxEntries) {
+            if (!fullLogged) {
+                fullLogged = true;
+                log.warn("Spatial location index is full ({} entries), new locations are not indexed", maxEntries);
+            }
+            return;
+        }
+        identities.add(id);
+        cells.computeIfAbsent(cell(latitudeCell(location.getLat()), longitudeCell(location.getLon())),
+                key -> new ArrayList<>(2)).add(location);
+    }
+
+    // Места из ячеек, которые пересекает круг; точное расстояние проверяет вызывающий
+    private List<LocationInfo> candidates(double lat, double lon, double radiusKm) {
+        if (!enabled || radiusKm <= 0 || !isValid(lat, lon)) {
+            return List.of();
+        }
+
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        int fromLat = latitudeCell(Math.max(-90, lat - latitudeDelta));
+        int toLat = latitudeCell(Math.min(90, lat + latitudeDelta));
+        // Ширина градуса долготы сужается к полюсам; у полюса просматриваем весь пояс
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + latitudeDelta)));
+        int lonSpan = cos > 1e-6
+                ? (int) Math.ceil(latitudeDelta / cos / cellDegrees) + 1
+                : longitudeCells;
+        int centerLon = longitudeCell(lon);
+
+        List<LocationInfo> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int latCell = fromLat; latCell <= toLat; latCell++) {
+                if (2 * lonSpan + 1 >= longitudeCells) {
+                    for (int lonCell = 0; lonCell < longitudeCells; lonCell++) {
+                        addCell(result, latCell, lonCell);
+                    }
+                } else {
+                    for (int offset = -lonSpan; offset <= lonSpan; offset++) {
+                        // Через антимеридиан ячейки долготы замыкаются в кольцо
+                        addCell(result, latCell, Math.floorMod(centerLon + offset, longitudeCells));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void addCell(List<LocationInfo> result, int latCell, int lonCell) {
+        List<LocationInfo> cell = cells.get(cell(latCell, lonCell));
+        if (cell != null) {
+            result.addAll(cell);
+        }
+    }
+
+    private int latitudeCell(double lat) {
+        return (int) Math.floor((lat + 90) / cellDegrees);
+    }
+
+    private int longitudeCell(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / cellDegrees), longitudeCells);
+    }
+
+    private static long cell(int latCell, int lonCell) {
+        return ((long) latCell << 32) | (lonCell & 0xFFFFFFFFL);
+    }
+
+    private static boolean isValid(Double lat, Double lon) {
+        return lat != null && lon != null && Math.abs(lat) <= 90 && Math.abs(lon) <= 180;
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
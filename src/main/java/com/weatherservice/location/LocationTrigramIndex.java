@@ -0,0 +1,263 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.FuzzySearchProperties;
+import com.weatherservice.model.LocationInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Нечеткий поиск мест с опечатками ("Lodnon", "Moskow") по известным названиям. Инвертированный
+ * индекс триграмм: для каждой триграммы - массив id мест. Кандидаты набираются из самых редких
+ * триграмм запроса и не больше {@code maxCandidates}, затем проверяются расстоянием
+ * Дамерау-Левенштейна (перестановка соседних букв - одна правка).
+ */
+@Slf4j
+@Component
+public class LocationTrigramIndex {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int maxCandidates;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Set<String> identities = new HashSet<>();
+    private String[] names = new String[16];
+    private LocationInfo[] locations = new LocationInfo[16];
+    private int size;
+    private boolean fullLogged;
+
+    public LocationTrigramIndex(FuzzySearchProperties properties) {
+        this.enabled = properties.enabled();
+        this.maxEntries = properties.maxEntries();
+        this.maxCandidates = properties.maxCandidates();
+    }
+
+    /**
+     * До {@code limit} мест, название которых отличается от запроса не больше чем на допустимое
+     * для его длины число правок; ближайшие - первыми
+     */
+    public List<LocationInfo> search(String query, int limit) {
+        return corrections(query, limit).stream().map(Correction::location).toList();
+    }
+
+    /**
+     * Исправления запроса с расстоянием до названия. Начало названия ("Lodn" - "London")
+     * сравнивается, только если ни одно название целиком не подошло: иначе полное слово
+     * "Bern" совпало бы с началом "Berlin".
+     */
+    public List<Correction> corrections(String query, int limit) {
+        String normalized = LocationNames.normalize(query);
+        if (!enabled || normalized.length() < 3 || limit <= 0) {
+            return List.of();
+        }
+        int maxEdits = maxEdits(normalized.length());
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(normalized);
+            List<Match> matches = new ArrayList<>();
+            for (int id : candidates) {
+                int full = editDistance(normalized, names[id]);
+                if (full <= maxEdits) {
+                    matches.add(new Match(id, full));
+                }
+            }
+            if (matches.isEmpty()) {
+                for (int id : candidates) {
+                    int prefix = prefixDistance(normalized, names[id]);
+                    if (prefix <= maxEdits) {
+                        matches.add(new Match(id, prefix));
+                    }
+                }
+            }
+            // При равном расстоянии выше места, добавленные раньше
+            matches.sort(Comparator.comparingInt(Match::distance).thenComparingInt(Match::id));
+
+            List<Correction> result = new ArrayList<>(Math.min(limit, matches.size()));
+            for (int i = 0; i < matches.size() && result.size() < limit; i++) {
+                Match match = matches.get(i);
+                result.add(new Correction(locations[match.id], match.distance));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет новые места; уже известные (по названию и стране) пропускаются
+     */
+    public void add(Collection<LocationInfo> added) {
+        if (!enabled || added.isEmpty()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (LocationInfo location : added) {
+                add(location);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(LocationInfo location) {
+        String name = location.getName() != null ? LocationNames.normalize(location.getName()) : "";
+        if (name.isEmpty()) {
+            return;
+        }
+        String id = name + '|' + (location.getCountry() != null ? location.getCountry().toUpperCase(Locale.ROOT) : "");
+        if (identities.contains(id)) {
+            return;
+        }
+        if (size >= maxEntries) {
+            if (!fullLogged) {
+                fullLogged = true;
+                log.warn("Fuzzy location index is full ({} entries), new locations are not indexed", maxEntries);
+            }
+            return;
+        }
+
+        identities.add(id);
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            locations = Arrays.copyOf(locations, size * 2);
+        }
+        names[size] = name;
+        locations[size] = location;
+        for (long trigram : trigrams(name)) {
+            // id растут, поэтому списки остаются отсортированными
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(size);
+        }
+        size++;
+    }
+
+    // Кандидаты из самых избирательных триграмм; общее число ограничено maxCandidates
+    private int[] candidates(String query) {
+        List<Postings> lists = new ArrayList<>();
+        for (long trigram : trigrams(query)) {
+            Postings list = postings.get(trigram);
+            if (list != null) {
+                lists.add(list);
+            }
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = new int[Math.min(maxCandidates, size)];
+        int count = 0;
+        BitSet seen = new BitSet(size);
+        for (Postings list : lists) {
+            for (int i = 0; i < list.size; i++) {
+                if (count == candidates.length) {
+                    return candidates;
+                }
+                int id = list.ids[i];
+                if (!seen.get(id)) {
+                    seen.set(id);
+                    candidates[count++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Расстояние до начала названия той же длины - для запроса-префикса ("Lodn" - "London")
+     */
+    static int prefixDistance(String query, String name) {
+        if (name.length() > query.length() && query.length() >= 4) {
+            return editDistance(query, name.substring(0, query.length()));
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    // Расстояние Дамерау-Левенштейна в варианте optimal string alignment
+    static int editDistance(String a, String b) {
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], previous2[j - 2] + 1);
+                }
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    // Короткие названия терпят одну опечатку, длинные - больше
+    static int maxEdits(int length) {
+        return length <= 5 ? 1 : length <= 10 ? 2 : 3;
+    }
+
+    // Триграммы с дополнением "  " в начале и " " в конце, как в pg_trgm
+    private static Set<Long> trigrams(String value) {
+        String padded = "  " + value + " ";
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add((long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2));
+        }
+        return result;
+    }
+
+    private record Match(int id, int distance) {}
+
+    /**
+     * @param distance число правок от запроса до названия (или его начала); 0 - точное совпадение
+     */
+    public record Correction(LocationInfo location, int distance) {}
+
+    /**
+     * Список id мест с триграммой: примитивный массив с удвоением емкости
+     */
+    private static final class Postings {
+
+        private int[] ids = NO_IDS;
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.weatherservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,4 +21,10 @@ public class WeatherResponse {
     private WeatherProvider source;
     private LocalDateTime cachedUntil;
 
+    // Хэш валидатора записи кэша, прочитанный вместе с ней; не сериализуется ни в ответ, ни в Redis
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String etag;
+
 }
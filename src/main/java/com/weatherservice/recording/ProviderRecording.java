@@ -0,0 +1,74 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.config.RecordingConfig.RecordingMode;
+import com.weatherservice.config.RecordingConfig.RecordingProperties;
+import com.weatherservice.model.WeatherProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Точка подключения записи/воспроизведения к клиентам провайдеров.
+ * В режиме {@code record} на WebClient вешается {@link RecordingExchangeFilter},
+ * в режиме {@code replay} сетевой транспорт заменяется на {@link ReplayExchangeFunction}.
+ * В режиме {@code disabled} файл не открывается и клиенты не меняются.
+ */
+@Slf4j
+public class ProviderRecording implements DisposableBean {
+
+    private final RecordingProperties properties;
+    private final RecordingWriter recordingWriter;
+    private final List<RecordedExchange> recorded;
+
+    public ProviderRecording(RecordingProperties properties) {
+        this.properties = properties;
+        try {
+            this.recordingWriter = properties.mode() == RecordingMode.RECORD
+                    ? new RecordingWriter(RecordingFile.open(properties.file(), properties.initialSize().toBytes()),
+                            properties.queueCapacity())
+                    : null;
+            this.recorded = properties.mode() == RecordingMode.REPLAY
+                    ? RecordingFile.readAll(properties.file())
+                    : List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open provider recording " + properties.file(), e);
+        }
+
+        if (properties.mode() != RecordingMode.DISABLED) {
+            log.warn("Provider recording mode {} using {}", properties.mode(), properties.file().toAbsolutePath());
+        }
+    }
+
+    public RecordingMode mode() {
+        return properties.mode();
+    }
+
+    public WebClient.Builder configure(WeatherProvider provider, String baseUrl, WebClient.Builder builder) {
+        return switch (properties.mode()) {
+            case RECORD -> builder.filter(new RecordingExchangeFilter(provider, baseUrl, recordingWriter));
+            case REPLAY -> builder.exchangeFunction(
+                    new ReplayExchangeFunction(provider, baseUrl, recorded, properties.speed()));
+            case DISABLED -> builder;
+        };
+    }
+
+    public WeatherProviderClient decorate(WeatherProvider provider, WeatherProviderClient client) {
+        return properties.mode() == RecordingMode.REPLAY
+                ? new ReplayWeatherProviderClient(provider, client)
+                : client;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (recordingWriter != null) {
+            recordingWriter.close();
+            RecordingFile recordingFile = recordingWriter.file();
+            log.info("Recorded {} bytes of provider responses to {}", recordingFile.size(), recordingFile.path());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.model.WeatherProvider;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Один записанный ответ провайдера.
+ *
+ * @param key     путь относительно base-url провайдера и query без ключа API
+ * @param latency время от отправки запроса до получения тела целиком
+ * @param body    тело ответа; при чтении из файла - read-only срез отображенной памяти
+ */
+public record RecordedExchange(
+        WeatherProvider provider,
+        String key,
+        int status,
+        Duration latency,
+        long recordedAt,
+        ByteBuffer body
+) {
+
+    // Параметры с ключом API у разных провайдеров
+    private static final Set<String> SECRET_PARAMETERS = Set.of("appid", "key", "apikey");
+
+    /**
+     * Ключ запроса для сопоставления при воспроизведении: путь относительно base-url
+     * провайдера (чтобы запись не зависела от адреса) и query без ключа API
+     */
+    public static String keyOf(URI url, String baseUrl) {
+        String path = url.getRawPath() != null ? url.getRawPath() : "";
+        String basePath = URI.create(baseUrl).getRawPath();
+        if (basePath != null && !basePath.isEmpty() && path.startsWith(basePath)) {
+            path = path.substring(basePath.length());
+        }
+
+        String query = url.getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return path;
+        }
+
+        String sanitized = Arrays.stream(query.split("&"))
+                .filter(parameter -> !SECRET_PARAMETERS.contains(parameter.split("=", 2)[0].toLowerCase()))
+                .collect(Collectors.joining("&"));
+        return sanitized.isEmpty() ? path : path + "?" + sanitized;
+    }
+
+    /**
+     * Путь ключа без query - для подбора похожего ответа, когда точного совпадения нет
+     */
+    public static String pathOf(String key) {
+        int query = key.indexOf('?');
+        return query >= 0 ? key.substring(0, query) : key;
+    }
+}
@@ -0,0 +1,57 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.model.WeatherProvider;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+
+/**
+ * Фильтр WebClient, который передает тело каждого ответа провайдера и время
+ * его получения в {@link RecordingWriter}. Тело собирается один раз и отдается клиенту
+ * дальше без копирования; сама запись в файл идет не на event loop'е, и ее ошибка
+ * не влияет на запрос.
+ */
+@RequiredArgsConstructor
+public class RecordingExchangeFilter implements ExchangeFilterFunction {
+
+    private final WeatherProvider provider;
+    private final String baseUrl;
+    private final RecordingWriter recordingWriter;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String key = RecordedExchange.keyOf(request.url(), baseUrl);
+
+        return Mono.defer(() -> {
+            long startTime = System.nanoTime();
+            return next.exchange(request)
+                    .map(response -> response.mutate()
+                            .body(body -> DataBufferUtils.join(body)
+                                    .doOnNext(buffer -> record(key, response, startTime, buffer))
+                                    .switchIfEmpty(Mono.fromRunnable(() -> record(key, response, startTime, null)))
+                                    .flux())
+                            .build());
+        });
+    }
+
+    private void record(String key, ClientResponse response, long startTime, DataBuffer buffer) {
+        byte[] body = new byte[buffer != null ? buffer.readableByteCount() : 0];
+        if (buffer != null) {
+            int readPosition = buffer.readPosition();
+            buffer.read(body);
+            buffer.readPosition(readPosition);
+        }
+
+        RecordedExchange exchange = new RecordedExchange(provider, key, response.statusCode().value(),
+                Duration.ofNanos(System.nanoTime() - startTime), System.currentTimeMillis(), ByteBuffer.wrap(body));
+        recordingWriter.submit(exchange);
+    }
+}
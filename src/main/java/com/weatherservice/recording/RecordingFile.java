@@ -0,0 +1,185 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.model.WeatherProvider;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only файл записанных ответов, отображенный в память.
+ * <p>
+ * Формат: заголовок (magic, версия, смещение конца данных), затем записи подряд:
+ * длина записи, провайдер, HTTP-статус, задержка в нс, время записи, ключ (UTF-8), тело.
+ * Смещение конца данных в заголовке обновляется после записи целиком, поэтому
+ * файл, оборванный посреди записи, читается до последней полной записи.
+ * При нехватке места отображение перестраивается с удвоенным размером - это блокирующие
+ * вызовы, поэтому из неблокирующих потоков файл пишется через {@link RecordingWriter}.
+ */
+public class RecordingFile implements Closeable {
+
+    private static final int MAGIC = 0x57535243; // "WSRC"
+    private static final int VERSION = 1;
+    private static final int END_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int FIXED_RECORD_SIZE = Integer.BYTES + Byte.BYTES + Short.BYTES
+            + Long.BYTES + Long.BYTES + Short.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+
+    private RecordingFile(Path path, FileChannel channel, MappedByteBuffer buffer, int end) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.end = end;
+    }
+
+    /**
+     * Открывает файл для дозаписи, создавая его при необходимости
+     */
+    public static RecordingFile open(Path path, long initialCapacity) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long existing = channel.size();
+            long capacity = Math.min(Integer.MAX_VALUE, Math.max(Math.max(existing, initialCapacity), HEADER_SIZE));
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+            if (existing == 0) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(END_OFFSET, HEADER_SIZE);
+                return new RecordingFile(path, channel, buffer, HEADER_SIZE);
+            }
+            return new RecordingFile(path, channel, buffer, validatedEnd(buffer, path));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Читает все записи файла без возможности дозаписи
+     */
+    public static List<RecordedExchange> readAll(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Отображение остается валидным и после закрытия канала
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return parse(buffer, validatedEnd(buffer, path));
+        }
+    }
+
+    public synchronized void append(RecordedExchange exchange) throws IOException {
+        byte[] key = exchange.key().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = exchange.body().duplicate();
+        if (key.length > Short.MAX_VALUE) {
+            throw new IOException("Recording key is too long: " + key.length + " bytes");
+        }
+
+        int recordSize = FIXED_RECORD_SIZE + key.length + body.remaining();
+        ensureCapacity((long) end + recordSize);
+
+        buffer.position(end);
+        buffer.putInt(recordSize - Integer.BYTES);
+        buffer.put((byte) exchange.provider().ordinal());
+        buffer.putShort((short) exchange.status());
+        buffer.putLong(exchange.latency().toNanos());
+        buffer.putLong(exchange.recordedAt());
+        buffer.putShort((short) key.length);
+        buffer.put(key);
+        buffer.putInt(body.remaining());
+        buffer.put(body);
+
+        end += recordSize;
+        buffer.putLong(END_OFFSET, end);
+    }
+
+    public synchronized List<RecordedExchange> entries() {
+        return parse(buffer.duplicate(), end);
+    }
+
+    public synchronized long size() {
+        return end;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IOException("Recording file " + path + " is full");
+        }
+
+        long capacity = Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity()));
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static int validatedEnd(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a provider recording file: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported recording file version " + buffer.getInt(4) + ": " + path);
+        }
+
+        long end = buffer.getLong(END_OFFSET);
+        if (end < HEADER_SIZE || end > buffer.capacity()) {
+            throw new IOException("Corrupted recording file header: " + path);
+        }
+        return (int) end;
+    }
+
+    private static List<RecordedExchange> parse(ByteBuffer buffer, int end) {
+        WeatherProvider[] providers = WeatherProvider.values();
+        List<RecordedExchange> exchanges = new ArrayList<>();
+
+        int position = HEADER_SIZE;
+        while (position < end) {
+            buffer.position(position);
+            int length = buffer.getInt();
+            WeatherProvider provider = providers[buffer.get()];
+            int status = buffer.getShort();
+            Duration latency = Duration.ofNanos(buffer.getLong());
+            long recordedAt = buffer.getLong();
+
+            byte[] key = new byte[buffer.getShort()];
+            buffer.get(key);
+
+            int bodyLength = buffer.getInt();
+            ByteBuffer body = buffer.slice(buffer.position(), bodyLength).asReadOnlyBuffer();
+
+            exchanges.add(new RecordedExchange(provider, new String(key, StandardCharsets.UTF_8),
+                    status, latency, recordedAt, body));
+            position += Integer.BYTES + length;
+        }
+        return exchanges;
+    }
+}
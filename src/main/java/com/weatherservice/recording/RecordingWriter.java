@@ -0,0 +1,82 @@
+package com.weatherservice.recording;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Единственный писатель {@link RecordingFile}. Записи принимаются с любого потока, в том числе
+ * с event loop'а Netty, без блокировки и дописываются в файл на одном потоке bounded elastic
+ * планировщика - там же перестраивается отображение и вызывается {@code force()}. Очередь
+ * ограничена: при переполнении запись отбрасывается, а не задерживает ответ провайдера.
+ */
+@Slf4j
+public class RecordingWriter implements Closeable {
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final int IDLE_TTL_SECONDS = 60;
+
+    private final RecordingFile recordingFile;
+    private final Scheduler scheduler;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public RecordingWriter(RecordingFile recordingFile, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Recording queue capacity must be positive: " + capacity);
+        }
+        this.recordingFile = recordingFile;
+        // Один поток - один писатель, записи ложатся в файл в порядке приема
+        this.scheduler = Schedulers.newBoundedElastic(1, capacity, "provider-recording", IDLE_TTL_SECONDS, true);
+    }
+
+    /**
+     * Ставит запись в очередь; false - очередь полна или писатель закрыт
+     */
+    public boolean submit(RecordedExchange exchange) {
+        try {
+            scheduler.schedule(() -> write(exchange));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Очередь полна или писатель уже закрыт
+            if (dropped.getAndIncrement() == 0) {
+                log.warn("Dropping {} response for {}: recording queue rejected it",
+                        exchange.provider(), exchange.key());
+            }
+            return false;
+        }
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public RecordingFile file() {
+        return recordingFile;
+    }
+
+    /**
+     * Дописывает уже принятые записи и закрывает файл
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.disposeGracefully().block(CLOSE_TIMEOUT);
+        if (dropped.get() > 0) {
+            log.warn("Dropped {} provider responses while recording to {}", dropped.get(), recordingFile.path());
+        }
+        recordingFile.close();
+    }
+
+    private void write(RecordedExchange exchange) {
+        try {
+            recordingFile.append(exchange);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to record {} response for {}: {}", exchange.provider(), exchange.key(), e.getMessage());
+        }
+    }
+}
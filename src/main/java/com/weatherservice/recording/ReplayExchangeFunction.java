@@ -0,0 +1,100 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.model.WeatherProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Транспорт WebClient, отвечающий записанными ответами вместо сети.
+ * <p>
+ * Ответ ищется по точному ключу запроса, затем по пути без query (так запросы
+ * к городам, которых нет в записи, получают ответ того же формата). Записи одного
+ * ключа выдаются по кругу. Задержка ответа - записанная, деленная на {@code speed};
+ * при {@code speed <= 0} ответы отдаются без задержки.
+ */
+@Slf4j
+public class ReplayExchangeFunction implements ExchangeFunction {
+
+    private final WeatherProvider provider;
+    private final String baseUrl;
+    private final double speed;
+    private final Map<String, Replay> byKey;
+    private final Map<String, Replay> byPath;
+
+    public ReplayExchangeFunction(WeatherProvider provider, String baseUrl, List<RecordedExchange> recording,
+                                  double speed) {
+        this.provider = provider;
+        this.baseUrl = baseUrl;
+        this.speed = speed;
+
+        List<RecordedExchange> own = recording.stream()
+                .filter(exchange -> exchange.provider() == provider)
+                .toList();
+        this.byKey = index(own, RecordedExchange::key);
+        this.byPath = index(own, exchange -> RecordedExchange.pathOf(exchange.key()));
+        log.info("Replaying {} recorded {} responses ({} distinct requests)", own.size(), provider, byKey.size());
+    }
+
+    @Override
+    public Mono<ClientResponse> exchange(ClientRequest request) {
+        String key = RecordedExchange.keyOf(request.url(), baseUrl);
+        Replay replay = byKey.getOrDefault(key, byPath.get(RecordedExchange.pathOf(key)));
+        if (replay == null) {
+            log.debug("No recorded {} response for {}", provider, key);
+            return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+        }
+
+        RecordedExchange exchange = replay.next();
+        ClientResponse response = ClientResponse.create(HttpStatusCode.valueOf(exchange.status()))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(Flux.defer(() -> Flux.just(
+                        DefaultDataBufferFactory.sharedInstance.wrap(exchange.body().duplicate()))))
+                .build();
+
+        Duration delay = replayDelay(exchange.latency());
+        return delay.isZero() ? Mono.just(response) : Mono.delay(delay).thenReturn(response);
+    }
+
+    private Duration replayDelay(Duration recorded) {
+        if (speed <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((long) (recorded.toNanos() / speed));
+    }
+
+    private static Map<String, Replay> index(List<RecordedExchange> exchanges,
+                                             Function<RecordedExchange, String> key) {
+        return exchanges.stream()
+                .collect(Collectors.groupingBy(key, HashMap::new, Collectors.toList()))
+                .entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> new Replay(entry.getValue())));
+    }
+
+    private record Replay(List<RecordedExchange> exchanges, AtomicInteger cursor) {
+
+        Replay(List<RecordedExchange> exchanges) {
+            this(exchanges, new AtomicInteger());
+        }
+
+        RecordedExchange next() {
+            return exchanges.get(Math.floorMod(cursor.getAndIncrement(), exchanges.size()));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Клиент провайдера, работающий по записи. Разбор ответов выполняет настоящий
+ * клиент провайдера, собранный поверх {@link ReplayExchangeFunction}, так что
+ * бенчмарки и регрессионные тесты проходят тот же путь парсинга, что и в проде.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ReplayWeatherProviderClient implements WeatherProviderClient {
+
+    private final WeatherProvider provider;
+    private final WeatherProviderClient delegate;
+
+    @Override
+    public Mono<WeatherResponse> getCurrentWeather(WeatherRequest request) {
+        return delegate.getCurrentWeather(request)
+                .doOnSubscribe(s -> log.debug("Replaying {} weather for {}", provider, request.getCity()));
+    }
+
+    @Override
+    public Mono<List<LocationInfo>> searchLocations(String query, String language, Integer limit) {
+        return delegate.searchLocations(query, language, limit);
+    }
+
+    @Override
+    public boolean supportsProvider(String providerName) {
+        return provider.name().equalsIgnoreCase(providerName);
+    }
+
+    @Override
+    public WeatherProvider getProvider() {
+        return provider;
+    }
+}
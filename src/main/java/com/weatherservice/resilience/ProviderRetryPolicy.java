@@ -0,0 +1,118 @@
+package com.weatherservice.resilience;
+
+import com.weatherservice.config.ResilienceConfig.RetryProperties;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.service.WeatherMetrics;
+import io.github.resilience4j.core.functions.Either;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Ретраи вызовов провайдеров. Конфигурация попыток и экспоненциальная огибающая
+ * берутся из {@link RetryRegistry} (отдельный экземпляр на провайдера), поверх нее:
+ * <ul>
+ *     <li>full jitter - пауза выбирается равномерно из [0, огибающая];</li>
+ *     <li>бюджет ретраев на провайдера ({@link RetryBudget});</li>
+ *     <li>дедлайн запроса ({@link RequestDeadline}) - ретрай не запускается, если не успеет.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ProviderRetryPolicy {
+
+    private final RetryRegistry retryRegistry;
+    private final RetryProperties properties;
+    private final WeatherMetrics metrics;
+    private final Map<WeatherProvider, RetryBudget> budgets = new EnumMap<>(WeatherProvider.class);
+    private final boolean enabled;
+
+    @Autowired
+    public ProviderRetryPolicy(RetryRegistry retryRegistry, RetryProperties properties, WeatherMetrics metrics) {
+        this.enabled = true;
+        this.retryRegistry = retryRegistry;
+        this.properties = properties;
+        this.metrics = metrics;
+        for (WeatherProvider provider : WeatherProvider.values()) {
+            budgets.put(provider, new RetryBudget(properties.budgetRatio(), properties.budgetCapacity()));
+        }
+    }
+
+    private ProviderRetryPolicy() {
+        this.enabled = false;
+        this.retryRegistry = null;
+        this.properties = null;
+        this.metrics = null;
+    }
+
+    /**
+     * Без ретраев - каждый вызов провайдера выполняется один раз
+     */
+    public static ProviderRetryPolicy disabled() {
+        return new ProviderRetryPolicy();
+    }
+
+    /**
+     * Оборачивает вызов провайдера ретраями; для неизвестного провайдера вызов не меняется
+     */
+    public <T> Function<Mono<T>, Mono<T>> forProvider(WeatherProvider provider) {
+        if (!enabled || provider == null) {
+            return Function.identity();
+        }
+
+        RetryBudget budget = budgets.get(provider);
+        Retry retry = retrySpec(provider, budget);
+        return call -> Mono.defer(() -> {
+            budget.recordRequest();
+            return call.retryWhen(retry);
+        });
+    }
+
+    public RetryBudget budget(WeatherProvider provider) {
+        return budgets.get(provider);
+    }
+
+    private Retry retrySpec(WeatherProvider provider, RetryBudget budget) {
+        RetryConfig config = retryRegistry.retry(provider.name().toLowerCase()).getRetryConfig();
+
+        return Retry.from(signals -> signals.concatMap(signal -> Mono.deferContextual(context -> {
+            Throwable failure = signal.failure();
+            int attempt = (int) signal.totalRetries() + 1;
+
+            if (attempt >= config.getMaxAttempts() || !config.getExceptionPredicate().test(failure)) {
+                return Mono.error(failure);
+            }
+
+            Duration delay = fullJitter(config.<Object>getIntervalBiFunction().apply(attempt, Either.left(failure)));
+            if (!RequestDeadline.allows(context, delay, properties.minAttemptTime())) {
+                log.debug("Not retrying {}: request deadline is too close", provider);
+                metrics.recordProviderRetry(provider, "deadline_exceeded");
+                return Mono.error(failure);
+            }
+            if (!budget.tryAcquireRetry()) {
+                log.debug("Not retrying {}: retry budget exhausted", provider);
+                metrics.recordProviderRetry(provider, "budget_exhausted");
+                return Mono.error(failure);
+            }
+
+            log.debug("Retrying {} (attempt {}) in {} ms: {}", provider, attempt + 1, delay.toMillis(),
+                    failure.getMessage());
+            metrics.recordProviderRetry(provider, "retried");
+            return Mono.delay(delay).thenReturn(attempt);
+        })));
+    }
+
+    private static Duration fullJitter(long envelopeMillis) {
+        return Duration.ofMillis(envelopeMillis > 0 ? ThreadLocalRandom.current().nextLong(envelopeMillis + 1) : 0);
+    }
+}
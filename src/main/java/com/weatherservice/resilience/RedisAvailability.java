@@ -0,0 +1,183 @@
+package com.weatherservice.resilience;
+
+import com.weatherservice.config.ResilienceConfig.RedisCircuitProperties;
+import com.weatherservice.service.WeatherMetrics;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.circuitbreaker.event.CircuitBreakerOnStateTransitionEvent;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.lettuce.core.RedisException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Общий для всех пользователей Redis автомат доступности.
+ * <p>
+ * Каждая операция с Redis ограничена коротким таймаутом (намного меньше таймаута Lettuce) и
+ * проходит через circuit breaker. После порога ошибок автомат открывается, и операции сразу
+ * завершаются ошибкой - сервисы мгновенно переходят на свои локальные fallback'и вместо
+ * ожидания таймаута на каждом запросе. Пока автомат открыт, в фоне идет PING; после ответа
+ * автомат закрывается и вызываются обработчики восстановления (ресинхронизация данных,
+ * накопленных локально за время недоступности).
+ */
+@Slf4j
+@Component
+public class RedisAvailability {
+
+    public static final String CIRCUIT_NAME = "redis";
+
+    private final CircuitBreaker circuitBreaker;
+    private final ReactiveRedisConnectionFactory connectionFactory;
+    private final RedisCircuitProperties properties;
+    private final WeatherMetrics metrics;
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private volatile Disposable probe;
+
+    @Autowired
+    public RedisAvailability(CircuitBreakerRegistry circuitBreakerRegistry,
+                             ReactiveRedisConnectionFactory connectionFactory,
+                             RedisCircuitProperties properties,
+                             WeatherMetrics metrics) {
+        this.circuitBreaker = properties.enabled()
+                ? circuitBreakerRegistry.circuitBreaker(CIRCUIT_NAME, circuitConfig(properties))
+                : null;
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.metrics = metrics;
+
+        if (circuitBreaker != null) {
+            circuitBreaker.getEventPublisher().onStateTransition(this::onStateTransition);
+        }
+    }
+
+    /**
+     * Без автомата: операции выполняются как есть (для тестов и ручной сборки сервисов)
+     */
+    public static RedisAvailability unguarded() {
+        return new RedisAvailability(CircuitBreakerRegistry.ofDefaults(), null,
+                RedisCircuitProperties.disabled(), null);
+    }
+
+    public <T> Mono<T> guard(Mono<T> operation) {
+        if (circuitBreaker == null) {
+            return operation;
+        }
+        return operation.timeout(properties.operationTimeout())
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public <T> Flux<T> guard(Flux<T> operation) {
+        if (circuitBreaker == null) {
+            return operation;
+        }
+        return operation.timeout(properties.operationTimeout())
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    public boolean isAvailable() {
+        return circuitBreaker == null
+                || (circuitBreaker.getState() != CircuitBreaker.State.OPEN
+                && circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN);
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker != null ? circuitBreaker.getState() : CircuitBreaker.State.DISABLED;
+    }
+
+    /**
+     * Обработчик вызывается после восстановления Redis (переход автомата в CLOSED)
+     */
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    @PreDestroy
+    public void stopProbe() {
+        Disposable current = probe;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    private void onStateTransition(CircuitBreakerOnStateTransitionEvent event) {
+        CircuitBreaker.State state = event.getStateTransition().getToState();
+        log.warn("Redis circuit {} -> {}", event.getStateTransition().getFromState(), state);
+        if (metrics != null) {
+            metrics.recordRedisCircuitTransition(state.name().toLowerCase());
+        }
+
+        if (state == CircuitBreaker.State.OPEN) {
+            startProbe();
+        } else if (state == CircuitBreaker.State.CLOSED) {
+            stopProbe();
+            recoveryListeners.forEach(this::runRecoveryListener);
+        }
+    }
+
+    private void startProbe() {
+        if (connectionFactory == null) {
+            return;
+        }
+        stopProbe();
+        probe = Flux.interval(properties.probeInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> ping(), 1)
+                .filter(Boolean::booleanValue)
+                .next()
+                .subscribe(recovered -> {
+                    log.info("Redis responded to probe, closing circuit");
+                    circuitBreaker.transitionToClosedState();
+                });
+    }
+
+    private Mono<Boolean> ping() {
+        return Mono.usingWhen(
+                        Mono.fromCallable(connectionFactory::getReactiveConnection),
+                        ReactiveRedisConnection::ping,
+                        ReactiveRedisConnection::closeLater)
+                .timeout(properties.operationTimeout())
+                .map("PONG"::equalsIgnoreCase)
+                .onErrorReturn(false);
+    }
+
+    private void runRecoveryListener(Runnable listener) {
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            log.warn("Redis recovery listener failed: {}", e.getMessage());
+        }
+    }
+
+    private static CircuitBreakerConfig circuitConfig(RedisCircuitProperties properties) {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.failureRateThreshold())
+                .minimumNumberOfCalls(properties.minimumNumberOfCalls())
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(properties.slidingWindowSize())
+                // Открытый автомат закрывает фоновая проба; half-open по времени - страховка
+                .waitDurationInOpenState(properties.waitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .recordException(RedisAvailability::isRedisFailure)
+                .build();
+    }
+
+    // Ошибки сериализации и прочие ошибки приложения не говорят о недоступности Redis
+    static boolean isRedisFailure(Throwable throwable) {
+        return throwable instanceof TimeoutException
+                || throwable instanceof DataAccessException
+                || throwable instanceof RedisException;
+    }
+}
@@ -0,0 +1,44 @@
+package com.weatherservice.resilience;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Дедлайн запроса, передаваемый через Reactor Context. Выставляется один раз на входе
+ * (внешний дедлайн, если он уже есть, не перезаписывается), а ретраи и фан-аут
+ * сверяются с оставшимся временем.
+ */
+public final class RequestDeadline {
+
+    private static final String CONTEXT_KEY = RequestDeadline.class.getName();
+
+    private RequestDeadline() {
+    }
+
+    public static Function<Context, Context> withTimeout(Duration timeout) {
+        return context -> context.hasKey(CONTEXT_KEY)
+                ? context
+                : context.put(CONTEXT_KEY, System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Оставшееся до дедлайна время; пусто, если дедлайн не задан
+     */
+    public static Optional<Duration> remaining(ContextView context) {
+        return context.<Long>getOrEmpty(CONTEXT_KEY)
+                .map(deadline -> Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+    }
+
+    /**
+     * Успеем ли после паузы {@code delay} выполнить еще одну попытку длиной хотя бы {@code minAttempt}
+     */
+    public static boolean allows(ContextView context, Duration delay, Duration minAttempt) {
+        return remaining(context)
+                .map(remaining -> remaining.compareTo(delay.plus(minAttempt)) >= 0)
+                .orElse(true);
+    }
+}
@@ -0,0 +1,47 @@
+package com.weatherservice.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бюджет ретраев в виде token bucket: каждый исходный запрос кладет в ведро
+ * {@code ratio} токена, каждый ретрай забирает целый токен. При ratio = 0.1 ретраи
+ * не превышают ~10% от запросов, и во время инцидента у провайдера ретраи
+ * не умножают нагрузку на него. Емкость ведра ограничивает всплеск ретраев.
+ */
+public class RetryBudget {
+
+    // Храним токены в тысячных долях, чтобы обойтись без блокировок
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int capacity) {
+        if (ratio < 0 || capacity < 0) {
+            throw new IllegalArgumentException("Retry budget ratio and capacity must be non-negative");
+        }
+        this.depositPerRequest = Math.round(ratio * SCALE);
+        this.capacity = capacity * SCALE;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    public void recordRequest() {
+        balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(capacity, current + deposit));
+    }
+
+    public boolean tryAcquireRetry() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+
+    public double availableRetries() {
+        return (double) balance.get() / SCALE;
+    }
+}
@@ -0,0 +1,349 @@
+package com.weatherservice.service;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.diagnostics.WeatherEvents;
+import com.weatherservice.exception.ServiceUnavailableException;
+import com.weatherservice.model.AggregatedWeatherResponse;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.resilience.ProviderRetryPolicy;
+import com.weatherservice.resilience.RequestDeadline;
+import com.weatherservice.resilience.WeatherErrorHandler;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Тот же сценарий, что и у {@link WeatherServiceFacade}, записанный последовательным
+ * блокирующим кодом для профиля {@value #PROFILE}: каждый запрос обслуживает свой виртуальный
+ * поток, и ожидание кэша или провайдера паркует только его. Кэш, клиенты провайдеров, политика
+ * ретраев и обработчик ошибок - те же компоненты; их реактивные вызовы ожидаются через
+ * {@code block()} с остатком дедлайна запроса в контексте.
+ * <p>
+ * Вызывать только из виртуальных (или иных блокирующих) потоков - не из event loop.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BlockingWeatherService {
+
+    public static final String PROFILE = "virtual-threads";
+
+    private final Map<String, WeatherProviderClient> clients;
+    private final WeatherCacheService cacheService;
+    private final WeatherErrorHandler errorHandler;
+    private final WeatherMetrics metrics;
+    private final ProviderRetryPolicy retryPolicy;
+    private final Duration requestDeadline;
+
+    // Запросы к провайдерам в полете: одинаковые промахи кэша ждут результат первого
+    private final Map<WeatherRequest, CompletableFuture<WeatherResponse>> inFlightFetches = new ConcurrentHashMap<>();
+
+    public WeatherResponse getWeather(WeatherRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("WeatherRequest cannot be null");
+        }
+
+        long deadline = System.nanoTime() + requestDeadline.toNanos();
+        long startTime = System.currentTimeMillis();
+        metrics.requestStarted();
+        try {
+            WeatherResponse response = getCachedWeatherSafe(request, deadline);
+            if (response == null) {
+                response = getFromProvider(request, deadline);
+            }
+            recordSuccessMetrics(response, startTime);
+            return response;
+        } catch (RuntimeException error) {
+            log.debug("Error in getWeather for {}: {}", request.getCity(), error.getMessage());
+            return handleWeatherError(Exceptions.unwrap(error), request, startTime, deadline);
+        } finally {
+            metrics.requestFinished();
+        }
+    }
+
+    /**
+     * Валидатор записи кэша; null, если записи нет или кэш недоступен
+     */
+    public CacheEntryTag getEntryTag(WeatherRequest request) {
+        try {
+            return cacheService.getEntryTag(request).block(requestDeadline);
+        } catch (RuntimeException e) {
+            log.debug("Cache validator lookup failed for {}: {}", request.getCity(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Есть ли в памяти готовое тело записи - только тогда валидатор имеет смысл читать без {@code If-None-Match}
+     */
+    public boolean hasEncodedWeather(WeatherRequest request) {
+        return cacheService.hasEncodedWeather(request);
+    }
+
+    /**
+     * Ответ, собранный по валидатору записи в обход {@link #getWeather} (304 или готовое тело
+     * из памяти), учитывается так же, как попадание в кэш у getWeather; null от {@code response} -
+     * ответа из кэша нет
+     */
+    public <T> T servedFromCache(WeatherRequest request, Supplier<T> response) {
+        long startTime = System.currentTimeMillis();
+        metrics.requestStarted();
+        try {
+            T hit = response.get();
+            if (hit != null) {
+                metrics.recordCacheHit();
+                metrics.recordWeatherRequest(request.getProvider(), true,
+                        Duration.ofMillis(System.currentTimeMillis() - startTime));
+                cacheService.recordValidatedHit(request);
+            }
+            return hit;
+        } finally {
+            metrics.requestFinished();
+        }
+    }
+
+    /**
+     * Закодированное тело ответа из памяти для записи с этим валидатором; null - нужен {@link #getWeather}
+     */
+    public EncodedWeatherResponse getEncodedWeather(WeatherRequest request, CacheEntryTag tag) {
+        try {
+            return cacheService.getEncodedWeather(request, tag).block(requestDeadline);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Опрос всех настоящих провайдеров параллельно - по виртуальному потоку на провайдера
+     */
+    public AggregatedWeatherResponse getAggregatedWeather(WeatherRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("WeatherRequest cannot be null");
+        }
+
+        List<WeatherProviderClient> realProviders = clients.values().stream()
+                .filter(client -> client != null && client.isRealProvider())
+                .toList();
+        if (realProviders.isEmpty()) {
+            throw new ServiceUnavailableException("No weather providers available");
+        }
+
+        long deadline = System.nanoTime() + requestDeadline.toNanos();
+        metrics.requestStarted();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<WeatherResponse>> calls = realProviders.stream()
+                    .map(client -> executor.submit(() -> executeProviderRequest(client, request, deadline)))
+                    .toList();
+            List<WeatherResponse> responses = new ArrayList<>();
+            for (Future<WeatherResponse> call : calls) {
+                responses.add(call.get());
+            }
+            responses.removeIf(Objects::isNull);
+            if (responses.isEmpty()) {
+                throw new ServiceUnavailableException("All weather providers failed");
+            }
+            return WeatherServiceFacade.createAggregatedResponse(responses);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for weather providers");
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } finally {
+            metrics.requestFinished();
+        }
+    }
+
+    private WeatherResponse getCachedWeatherSafe(WeatherRequest request, long deadline) {
+        try {
+            WeatherResponse cached = await(cacheService.getCachedWeather(request), deadline);
+            if (cached != null) {
+                log.debug("Cache hit for: {}", request.getCity());
+                metrics.recordCacheHit();
+            }
+            return cached;
+        } catch (RuntimeException e) {
+            log.debug("Cache error for {}: {}", request.getCity(), e.getMessage());
+            return null;
+        }
+    }
+
+    private WeatherResponse getFromProvider(WeatherRequest request, long deadline) {
+        log.debug("Cache miss for: {}, fetching from provider", request.getCity());
+
+        WeatherProviderClient client = selectProviderClient(request);
+        if (client == null) {
+            log.warn("No provider found for request: {}", request);
+            throw new ServiceUnavailableException("No supported weather provider found");
+        }
+
+        WeatherResponse response;
+        try {
+            response = coalesce(request, client.getProvider(), deadline, () -> fetch(client, request, deadline));
+        } catch (RuntimeException error) {
+            log.warn("Provider error for {}: {}", request.getCity(), error.getMessage());
+            return getCachedFallback(request, error, deadline);
+        }
+        if (response == null) {
+            log.warn("Provider returned empty response for: {}", request.getCity());
+            return getCachedFallback(request, null, deadline);
+        }
+        return response;
+    }
+
+    private WeatherResponse fetch(WeatherProviderClient client, WeatherRequest request, long deadline) {
+        long providerStartTime = System.currentTimeMillis();
+        WeatherResponse response = await(client.getCurrentWeather(request)
+                .transform(withRetries(client))
+                .transform(call -> WeatherEvents.providerCall(client.getProvider(), request, call)), deadline);
+        if (response == null) {
+            return null;
+        }
+        try {
+            await(cacheService.cacheWeatherData(request, response), deadline);
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache weather data for {}, but returning response", request.getCity());
+        }
+        recordProviderMetrics(response, providerStartTime);
+        return response;
+    }
+
+    /**
+     * Single-flight: первый промах вызывает провайдера в своем потоке, остальные одинаковые
+     * запросы ждут его результат, но не дольше собственного дедлайна. Запасные ветки (stale-кэш)
+     * остаются у каждого свои.
+     */
+    private WeatherResponse coalesce(WeatherRequest request, WeatherProvider provider, long deadline,
+                                     Supplier<WeatherResponse> fetch) {
+        // Ключ - собственная копия запроса: объект вызывающего может измениться, пока вызов в полете
+        WeatherRequest key = WeatherRequest.copyWithProvider(request, request.getProvider());
+        CompletableFuture<WeatherResponse> own = new CompletableFuture<>();
+        CompletableFuture<WeatherResponse> inFlight = inFlightFetches.putIfAbsent(key, own);
+        if (inFlight != null) {
+            return WeatherEvents.coalescedFetch(provider, request, () -> awaitInFlight(inFlight, deadline));
+        }
+        try {
+            WeatherResponse response = fetch.get();
+            own.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightFetches.remove(key, own);
+        }
+    }
+
+    // Истечение дедлайна - ошибка этого запроса: он уходит в свою запасную ветку, вызов первого продолжается
+    private static WeatherResponse awaitInFlight(CompletableFuture<WeatherResponse> inFlight, long deadline) {
+        try {
+            return inFlight.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw Exceptions.propagate(e.getCause());
+        } catch (TimeoutException e) {
+            throw Exceptions.propagate(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting for weather provider");
+        }
+    }
+
+    private WeatherResponse executeProviderRequest(WeatherProviderClient client, WeatherRequest request, long deadline) {
+        try {
+            return await(client.getCurrentWeather(request)
+                    .transform(withRetries(client)), deadline);
+        } catch (RuntimeException error) {
+            log.debug("Provider {} failed: {}", client.getClass().getSimpleName(), error.getMessage());
+            return null;
+        }
+    }
+
+    private WeatherResponse getCachedFallback(WeatherRequest request, Throwable reason, long deadline) {
+        log.debug("Trying cached fallback for: {}", request.getCity());
+        WeatherEvents.fallback("stale-cache", request.getCity(), reason);
+        WeatherResponse cached = getCachedWeatherSafe(request, deadline);
+        if (cached == null) {
+            throw new ServiceUnavailableException("Service unavailable and no cached data for: " + request.getCity());
+        }
+        return cached;
+    }
+
+    private WeatherResponse handleWeatherError(Throwable error, WeatherRequest request, long startTime, long deadline) {
+        recordErrorMetrics(request, startTime);
+        try {
+            WeatherResponse handled = await(errorHandler.handleProviderError(error, request), deadline);
+            if (handled != null) {
+                return handled;
+            }
+        } catch (RuntimeException e) {
+            log.error("Error handler failed for {}: {}", request.getCity(), e.getMessage());
+            return getCachedFallback(request, e, deadline);
+        }
+        throw new ServiceUnavailableException("Service unavailable and no cached data for: " + request.getCity());
+    }
+
+    private WeatherProviderClient selectProviderClient(WeatherRequest request) {
+        if (request.getProvider() != null) {
+            return clients.values().stream()
+                    .filter(client -> client != null && client.supportsProvider(request.getProvider().name()))
+                    .findFirst()
+                    .orElseGet(this::getDefaultProvider);
+        }
+        return getDefaultProvider();
+    }
+
+    private WeatherProviderClient getDefaultProvider() {
+        return clients.values().stream()
+                .filter(client -> client != null && client.isRealProvider())
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Function<Mono<WeatherResponse>, Mono<WeatherResponse>> withRetries(WeatherProviderClient client) {
+        return retryPolicy.forProvider(client.getProvider());
+    }
+
+    // Ожидание реактивного вызова компонента: ретраи видят оставшееся до дедлайна время
+    private static <T> T await(Mono<T> call, long deadline) {
+        Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+        return call.contextWrite(RequestDeadline.withTimeout(remaining)).block();
+    }
+
+    private void recordSuccessMetrics(WeatherResponse response, long startTime) {
+        if (response.getSource() != null) {
+            metrics.recordWeatherRequest(response.getSource(), true,
+                    Duration.ofMillis(System.currentTimeMillis() - startTime));
+        }
+    }
+
+    private void recordErrorMetrics(WeatherRequest request, long startTime) {
+        WeatherProvider provider = request.getProvider();
+        metrics.recordWeatherRequest(provider, false, Duration.ofMillis(System.currentTimeMillis() - startTime));
+    }
+
+    private void recordProviderMetrics(WeatherResponse response, long providerStartTime) {
+        if (response.getSource() != null) {
+            metrics.recordProviderResponseTime(response.getSource(),
+                    Duration.ofMillis(System.currentTimeMillis() - providerStartTime));
+        }
+        log.info("Fetched fresh weather data from {} for {}", response.getSource(),
+                response.getLocation() != null ? response.getLocation().getName() : "unknown");
+    }
+}
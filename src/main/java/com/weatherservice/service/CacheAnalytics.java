@@ -0,0 +1,187 @@
+package com.weatherservice.service;
+
+import com.weatherservice.config.CacheConfig.CacheAnalyticsProperties;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.util.SpaceSavingSketch;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Аналитика кэша погоды, обновляемая инкрементально на каждом обращении: доля попаданий по
+ * классам ключей и по провайдерам, объем in-memory уровня по провайдерам, причины вытеснения
+ * и приближенный top-K горячих и промахивающихся ключей. Redis при этом не сканируется.
+ */
+@Component
+public class CacheAnalytics {
+
+    public enum KeyClass {
+        CITY, COORDINATES, OTHER
+    }
+
+    public enum EvictionReason {
+        EXPIRED, EXPLICIT, REPLACED, CAPACITY
+    }
+
+    private static final WeatherProvider[] PROVIDERS = WeatherProvider.values();
+    // Последний слот - запрос без провайдера / ответ без источника
+    private static final int PROVIDER_SLOTS = PROVIDERS.length + 1;
+
+    private final boolean enabled;
+    private final int topK;
+
+    private final HitCounter[] byKeyClass = counters(KeyClass.values().length);
+    private final HitCounter[] byProvider = counters(PROVIDER_SLOTS);
+    private final LongAdder[] memoryEntries = adders(PROVIDER_SLOTS);
+    private final LongAdder[] memoryBytes = adders(PROVIDER_SLOTS);
+    private final LongAdder[] evictions = adders(EvictionReason.values().length);
+    private final SpaceSavingSketch hotKeys;
+    private final SpaceSavingSketch missedKeys;
+
+    public CacheAnalytics(CacheAnalyticsProperties properties) {
+        this.enabled = properties.enabled();
+        this.topK = properties.topK();
+        this.hotKeys = new SpaceSavingSketch(properties.sketchCapacity(), properties.sketchStripes());
+        this.missedKeys = new SpaceSavingSketch(properties.sketchCapacity(), properties.sketchStripes());
+    }
+
+    public static CacheAnalytics disabled() {
+        return new CacheAnalytics(CacheAnalyticsProperties.disabled());
+    }
+
+    public void recordLookup(WeatherRequest request, String cacheKey, boolean hit) {
+        if (!enabled) {
+            return;
+        }
+        byKeyClass[classify(request).ordinal()].record(hit);
+        byProvider[providerSlot(request.getProvider())].record(hit);
+        (hit ? hotKeys : missedKeys).offer(cacheKey);
+    }
+
+    /**
+     * Горячий ли ключ: не меньше {@code minHits} гарантированных попаданий в скетче горячих ключей.
+     * Без аналитики о горячести судить не по чему - горячими считаются все ключи.
+     */
+    public boolean isHot(String cacheKey, long minHits) {
+        return !enabled || hotKeys.lowerBound(cacheKey) >= minHits;
+    }
+
+    /**
+     * Запись в in-memory уровень; {@code previous} - вытесненное этой записью значение.
+     * Размеры - длины уже закодированных тел: аналитика сама ничего не сериализует.
+     */
+    public void recordMemoryPut(WeatherResponse value, int bytes, WeatherResponse previous, int previousBytes) {
+        if (!enabled) {
+            return;
+        }
+        if (previous != null) {
+            recordMemoryRemoval(previous, previousBytes, EvictionReason.REPLACED);
+        }
+        int slot = providerSlot(value.getSource());
+        memoryEntries[slot].increment();
+        memoryBytes[slot].add(bytes);
+    }
+
+    public void recordMemoryRemoval(WeatherResponse removed, int bytes, EvictionReason reason) {
+        if (!enabled || removed == null) {
+            return;
+        }
+        int slot = providerSlot(removed.getSource());
+        memoryEntries[slot].decrement();
+        memoryBytes[slot].add(-bytes);
+        evictions[reason.ordinal()].increment();
+    }
+
+    public Snapshot snapshot() {
+        Map<String, HitRatio> keyClasses = new LinkedHashMap<>();
+        for (KeyClass keyClass : KeyClass.values()) {
+            keyClasses.put(keyClass.name().toLowerCase(Locale.ROOT), byKeyClass[keyClass.ordinal()].toRatio());
+        }
+
+        Map<String, HitRatio> providers = new LinkedHashMap<>();
+        Map<String, TierUsage> memoryTier = new LinkedHashMap<>();
+        for (int slot = 0; slot < PROVIDER_SLOTS; slot++) {
+            String name = slot < PROVIDERS.length ? PROVIDERS[slot].name().toLowerCase(Locale.ROOT) : "default";
+            providers.put(name, byProvider[slot].toRatio());
+            memoryTier.put(name, new TierUsage(memoryEntries[slot].sum(), memoryBytes[slot].sum()));
+        }
+
+        Map<String, Long> evictionReasons = new LinkedHashMap<>();
+        for (EvictionReason reason : EvictionReason.values()) {
+            evictionReasons.put(reason.name().toLowerCase(Locale.ROOT), evictions[reason.ordinal()].sum());
+        }
+
+        return new Snapshot(enabled, keyClasses, providers, memoryTier, evictionReasons,
+                hotKeys.top(topK), missedKeys.top(topK));
+    }
+
+    /**
+     * Класс ключа - по тем же правилам, по которым {@code WeatherKeyGenerator} строит ключ
+     */
+    static KeyClass classify(WeatherRequest request) {
+        if (request.getCity() != null && request.getCountryCode() != null) {
+            return KeyClass.CITY;
+        }
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            return KeyClass.COORDINATES;
+        }
+        return KeyClass.OTHER;
+    }
+
+    private static int providerSlot(WeatherProvider provider) {
+        return provider != null ? provider.ordinal() : PROVIDERS.length;
+    }
+
+    private static HitCounter[] counters(int size) {
+        HitCounter[] counters = new HitCounter[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new HitCounter();
+        }
+        return counters;
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static final class HitCounter {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        void record(boolean hit) {
+            (hit ? hits : misses).increment();
+        }
+
+        HitRatio toRatio() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long total = hitCount + missCount;
+            return new HitRatio(hitCount, missCount, total == 0 ? 0.0 : (double) hitCount / total);
+        }
+    }
+
+    public record HitRatio(long hits, long misses, double ratio) {}
+
+    public record TierUsage(long entries, long bytes) {}
+
+    public record Snapshot(
+            boolean enabled,
+            Map<String, HitRatio> keyClasses,
+            Map<String, HitRatio> providers,
+            Map<String, TierUsage> memoryTier,
+            Map<String, Long> evictions,
+            List<SpaceSavingSketch.Entry> hotKeys,
+            List<SpaceSavingSketch.Entry> missedKeys
+    ) {}
+}
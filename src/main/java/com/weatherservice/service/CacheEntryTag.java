@@ -0,0 +1,146 @@
+package com.weatherservice.service;
+
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.util.JsonSerializerUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Валидатор записи кэша для условных GET: хэш содержимого ответа, посчитанный один раз при
+ * записи, и срок жизни записи. Хранится рядом с записью под отдельным коротким ключом, чтобы
+ * ответить 304 без чтения и десериализации самого ответа.
+ * <p>
+ * {@code cachedUntil} в хэш не входит: если провайдер вернул ту же погоду, ETag не меняется
+ * и клиенты продолжают получать 304 после обновления записи.
+ */
+public record CacheEntryTag(String etag, LocalDateTime cachedUntil) {
+
+    private static final int HASH_BYTES = 16;
+    private static final char SEPARATOR = '|';
+
+    public static CacheEntryTag of(WeatherResponse response, LocalDateTime cachedUntil) {
+        WeatherResponse content = WeatherResponse.builder()
+                .location(response.getLocation())
+                .current(response.getCurrent())
+                .forecast(response.getForecast())
+                .source(response.getSource())
+                .build();
+        return new CacheEntryTag(hash(JsonSerializerUtil.toJson(content)), cachedUntil);
+    }
+
+    /**
+     * Валидатор, прочитанный из кэша вместе с записью; null - запись не из кэша или без валидатора
+     */
+    public static CacheEntryTag stored(WeatherResponse response) {
+        return response.getEtag() != null && response.getCachedUntil() != null
+                ? new CacheEntryTag(response.getEtag(), response.getCachedUntil())
+                : null;
+    }
+
+    /**
+     * Разбирает значение, сохраненное {@link #encode()}; для поврежденного значения - null
+     */
+    public static CacheEntryTag decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        int separator = value.indexOf(SEPARATOR);
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return new CacheEntryTag(value.substring(0, separator), LocalDateTime.parse(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        return etag + SEPARATOR + cachedUntil;
+    }
+
+    public boolean isValid() {
+        return cachedUntil != null && cachedUntil.isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Совпадает ли значение заголовка {@code If-None-Match} (список тегов, слабые теги или "*")
+     */
+    public boolean matches(String ifNoneMatch) {
+        return match(ifNoneMatch) != null;
+    }
+
+    /**
+     * ETag представления, совпавшего с {@code If-None-Match} - несжатого или gzip; null - совпадений нет
+     */
+    public String match(String ifNoneMatch) {
+        for (String tag : candidates(ifNoneMatch)) {
+            if (tag.equals("*") || tag.equals(quoted())) {
+                return quoted();
+            }
+            if (tag.equals(gzipQuoted())) {
+                return gzipQuoted();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Совпадает ли {@code If-None-Match} с ETag представления-варианта (например, проекции полей)
+     */
+    public boolean matches(String ifNoneMatch, String variant) {
+        for (String tag : candidates(ifNoneMatch)) {
+            if (tag.equals("*") || tag.equals(quoted(variant))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String quoted() {
+        return '"' + etag + '"';
+    }
+
+    /**
+     * ETag представления-варианта той же записи
+     */
+    public String quoted(String variant) {
+        return '"' + etag + '-' + variant + '"';
+    }
+
+    /**
+     * ETag gzip-представления: сжатое тело - другое представление и получает свой тег
+     */
+    public String gzipQuoted() {
+        return quoted("gzip");
+    }
+
+    // Теги из If-None-Match без префикса слабого тега
+    private static List<String> candidates(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return List.of();
+        }
+        List<String> tags = new ArrayList<>();
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            tags.add(tag.startsWith("W/") ? tag.substring(2) : tag);
+        }
+        return tags;
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, HASH_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.weatherservice.service;
+
+import com.weatherservice.config.CacheConfig.PrecompressionProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Бюджет памяти на заранее сжатые варианты тел ответов. Вариант строится при первом запросе
+ * записи, принимающем gzip, после того как ключ стал горячим по {@link CacheAnalytics}, и живет,
+ * пока живет запись; затраты CPU на сжатие растут с числом горячих записей, а не с числом
+ * запросов, и редкие ключи не расходуют бюджет. Когда бюджет исчерпан, новые варианты не
+ * строятся - такие ответы сжимает сервер, как и раньше.
+ */
+@Slf4j
+@Component
+public class CompressedVariants {
+
+    private final boolean enabled;
+    private final long budgetBytes;
+    private final long minSize;
+    private final int minHits;
+    private final CacheAnalytics analytics;
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    public CompressedVariants(PrecompressionProperties properties) {
+        this(properties, CacheAnalytics.disabled());
+    }
+
+    @Autowired
+    public CompressedVariants(PrecompressionProperties properties, CacheAnalytics analytics) {
+        this.enabled = properties.enabled();
+        this.budgetBytes = properties.budget().toBytes();
+        this.minSize = properties.minSize().toBytes();
+        this.minHits = properties.minHits();
+        this.analytics = analytics;
+    }
+
+    /**
+     * Без вариантов - для окружений без заранее сжатых ответов
+     */
+    public static CompressedVariants disabled() {
+        return new CompressedVariants(PrecompressionProperties.disabled());
+    }
+
+    /**
+     * Отложить ли вариант записи: ключ еще не горячий. Решение пересматривается на следующих
+     * запросах; ключ null (неизвестен) не откладывается.
+     */
+    boolean deferred(String cacheKey) {
+        return enabled && cacheKey != null && !analytics.isHot(cacheKey, minHits);
+    }
+
+    /**
+     * gzip-вариант тела, учтенный в бюджете; null - тело слишком мало или бюджет исчерпан
+     */
+    byte[] gzip(byte[] body) {
+        if (!enabled || body.length < minSize || usedBytes.get() >= budgetBytes) {
+            return null;
+        }
+        byte[] compressed = compress(body);
+        if (!reserve(compressed.length)) {
+            log.debug("Precompression budget of {} bytes is exhausted", budgetBytes);
+            return null;
+        }
+        return compressed;
+    }
+
+    void release(byte[] variant) {
+        if (variant != null) {
+            usedBytes.addAndGet(-variant.length);
+        }
+    }
+
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    private boolean reserve(long size) {
+        long current;
+        do {
+            current = usedBytes.get();
+            if (current + size > budgetBytes) {
+                return false;
+            }
+        } while (!usedBytes.compareAndSet(current, current + size));
+        return true;
+    }
+
+    private static byte[] compress(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
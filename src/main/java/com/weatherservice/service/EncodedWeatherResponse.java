@@ -0,0 +1,70 @@
+package com.weatherservice.service;
+
+/**
+ * Ответ о погоде, уже закодированный в JSON для HTTP, и валидатор записи кэша, из которой он
+ * получен. Массивы общие для всех запросов - изменять их нельзя.
+ * <p>
+ * gzip-вариант строится при первом обращении после того, как ключ записи стал горячим, и
+ * учитывается в бюджете {@link CompressedVariants}; после {@link #release()} (запись заменена
+ * или удалена) он больше не строится.
+ */
+public final class EncodedWeatherResponse {
+
+    private final byte[] json;
+    private final CacheEntryTag tag;
+    private final CompressedVariants variants;
+    private final String cacheKey;
+    private volatile byte[] gzip;
+    // Вариант строился (или запись освобождена): повторно тело не сжимается
+    private volatile boolean settled;
+
+    public EncodedWeatherResponse(byte[] json, CacheEntryTag tag) {
+        this(json, tag, CompressedVariants.disabled());
+    }
+
+    public EncodedWeatherResponse(byte[] json, CacheEntryTag tag, CompressedVariants variants) {
+        this(json, tag, variants, null);
+    }
+
+    public EncodedWeatherResponse(byte[] json, CacheEntryTag tag, CompressedVariants variants, String cacheKey) {
+        this.json = json;
+        this.tag = tag;
+        this.variants = variants;
+        this.cacheKey = cacheKey;
+    }
+
+    public byte[] json() {
+        return json;
+    }
+
+    public CacheEntryTag tag() {
+        return tag;
+    }
+
+    /**
+     * Тело, сжатое gzip; null - варианта нет, отдавать {@link #json()}
+     */
+    public byte[] gzip() {
+        if (settled) {
+            return gzip;
+        }
+        // Холодный ключ отдается несжатым; вариант построится, когда ключ наберет попадания
+        if (variants.deferred(cacheKey)) {
+            return null;
+        }
+        // Строится один раз: одновременные первые запросы ждут, а не сжимают тело каждый
+        synchronized (this) {
+            if (!settled) {
+                gzip = variants.gzip(json);
+                settled = true;
+            }
+            return gzip;
+        }
+    }
+
+    synchronized void release() {
+        settled = true;
+        variants.release(gzip);
+        gzip = null;
+    }
+}
@@ -0,0 +1,221 @@
+package com.weatherservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальный (в памяти процесса) слой перед Redis-лимитером.
+ * <p>
+ * Для каждого клиента хранится последний известный из Redis остаток лимита и число запросов,
+ * разрешенных локально и еще не отправленных в Redis. Пока оценка остатка
+ * {@code remaining - (inFlight + pending)} больше запаса {@code headroom}, решение принимается
+ * локально; у границы лимита и для нового клиента решение принимает Redis. Накопленные счетчики
+ * отправляются в Redis пачками ({@link #drainPending()}), поэтому глобальный лимит приблизительный:
+ * перерасход ограничен трафиком остальных инстансов за интервал синхронизации сверх запаса.
+ * Восстановление лимита между синхронизациями локально не учитывается - оценка консервативна.
+ * <p>
+ * Клиенты разнесены по независимым полосам (stripes), чтобы периодический сброс и вытеснение
+ * неактивных клиентов не конкурировали за одну общую структуру.
+ */
+public class LocalRateLimiter {
+
+    public enum Decision {
+        ALLOWED,
+        DENIED,
+        SYNC_REQUIRED
+    }
+
+    private final ConcurrentHashMap<String, Bucket>[] stripes;
+    private final int stripeMask;
+    private final double headroomRatio;
+
+    @SuppressWarnings("unchecked")
+    public LocalRateLimiter(int stripes, double headroomRatio) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.stripeMask = size - 1;
+        this.headroomRatio = headroomRatio;
+    }
+
+    public Decision tryAcquire(String key, int cost, int limit, Duration window) {
+        Bucket bucket = bucket(key, limit, window);
+        bucket.lastAccess = System.nanoTime();
+        return bucket.tryAcquire(cost, headroom(limit));
+    }
+
+    /**
+     * Забирает локально накопленные запросы клиента вместе с текущим для синхронного решения в Redis
+     */
+    public Sync beginSync(String key, int cost, int limit, Duration window) {
+        return bucket(key, limit, window).drain(cost);
+    }
+
+    /**
+     * Забирает накопленные запросы всех клиентов для пакетной отправки в Redis и вытесняет
+     * клиентов, к которым не обращались дольше их периода
+     */
+    public List<Sync> drainPending() {
+        long now = System.nanoTime();
+        List<Sync> batch = new ArrayList<>();
+
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            for (Bucket bucket : stripe.values()) {
+                if (bucket.pending.get() > 0) {
+                    Sync sync = bucket.drain(0);
+                    if (sync.forced() > 0) {
+                        batch.add(sync);
+                    }
+                } else if (bucket.inFlight.get() == 0 && now - bucket.lastAccess > bucket.window.toNanos()) {
+                    stripe.remove(bucket.key, bucket);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Учитывает ответ Redis. Возвращает расхождение: насколько остаток в Redis меньше
+     * ожидаемого, то есть сколько запросов других инстансов прошло с прошлой синхронизации
+     */
+    public long completeSync(Sync sync, RateLimitDecision decision) {
+        Bucket bucket = sync.bucket();
+        bucket.inFlight.addAndGet(-sync.total());
+
+        long previous = bucket.remaining.getAndSet(decision.remaining());
+        bucket.denyUntil = System.nanoTime() + decision.retryAfter().toNanos();
+        if (previous < 0) {
+            return 0;
+        }
+
+        long expected = previous - sync.forced() - (decision.allowed() ? sync.cost() : 0);
+        return Math.max(0, expected - decision.remaining());
+    }
+
+    /**
+     * Redis не ответил: запросы возвращаются в локальный счетчик до следующего сброса
+     */
+    public void abortSync(Sync sync) {
+        sync.bucket().inFlight.addAndGet(-sync.total());
+        sync.bucket().pending.addAndGet(sync.total());
+    }
+
+    /**
+     * Запросы клиента, разрешенные локально и еще не подтвержденные Redis
+     */
+    public long unsynced(String key) {
+        Bucket bucket = stripe(key).get(key);
+        return bucket != null ? bucket.pending.get() + bucket.inFlight.get() : 0;
+    }
+
+    /**
+     * Оценка остатка лимита по локальным данным
+     */
+    public long estimateRemaining(String key) {
+        Bucket bucket = stripe(key).get(key);
+        return bucket != null ? Math.max(0, bucket.remaining.get() - bucket.inFlight.get() - bucket.pending.get()) : 0;
+    }
+
+    public Duration denyRemaining(String key) {
+        Bucket bucket = stripe(key).get(key);
+        return bucket != null ? Duration.ofNanos(Math.max(0, bucket.denyUntil - System.nanoTime())) : Duration.ZERO;
+    }
+
+    public void forget(String key) {
+        stripe(key).remove(key);
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private long headroom(int limit) {
+        return Math.max(1, (long) Math.ceil(limit * headroomRatio));
+    }
+
+    private Bucket bucket(String key, int limit, Duration window) {
+        return stripe(key).computeIfAbsent(key, k -> new Bucket(k, limit, window));
+    }
+
+    private ConcurrentHashMap<String, Bucket> stripe(String key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & stripeMask];
+    }
+
+    /**
+     * Пачка для Redis: {@code forced} - уже разрешенные локально запросы, списываются без проверки;
+     * {@code cost} - стоимость текущего запроса, по которому нужно решение Redis
+     */
+    public record Sync(Bucket bucket, long forced, int cost) {
+
+        public String key() {
+            return bucket.key;
+        }
+
+        public int limit() {
+            return bucket.limit;
+        }
+
+        public Duration window() {
+            return bucket.window;
+        }
+
+        long total() {
+            return forced + cost;
+        }
+    }
+
+    static final class Bucket {
+
+        private final String key;
+        private final int limit;
+        private final Duration window;
+        // Остаток лимита в Redis на момент последней синхронизации; -1 - еще не синхронизировались
+        private final AtomicLong remaining = new AtomicLong(-1);
+        private final AtomicLong pending = new AtomicLong();
+        private final AtomicLong inFlight = new AtomicLong();
+        private volatile long denyUntil = System.nanoTime();
+        private volatile long lastAccess = System.nanoTime();
+
+        private Bucket(String key, int limit, Duration window) {
+            this.key = key;
+            this.limit = limit;
+            this.window = window;
+        }
+
+        private Decision tryAcquire(int cost, long headroom) {
+            long known = remaining.get();
+            if (known < 0) {
+                return Decision.SYNC_REQUIRED;
+            }
+            if (known < cost) {
+                // Redis отказал или лимит исчерпан - до указанного им момента отказываем сами
+                return System.nanoTime() < denyUntil ? Decision.DENIED : Decision.SYNC_REQUIRED;
+            }
+
+            long current;
+            do {
+                current = pending.get();
+                if (known - inFlight.get() - current - cost < headroom) {
+                    return Decision.SYNC_REQUIRED;
+                }
+            } while (!pending.compareAndSet(current, current + cost));
+            return Decision.ALLOWED;
+        }
+
+        private Sync drain(int cost) {
+            long forced = pending.getAndSet(0);
+            inFlight.addAndGet(forced + cost);
+            return new Sync(this, forced, cost);
+        }
+    }
+}
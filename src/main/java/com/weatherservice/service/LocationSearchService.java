@@ -1,8 +1,16 @@
 package com.weatherservice.service;
 
 import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.diagnostics.WeatherEvents;
+import com.weatherservice.config.LocationConfig.LocationSearchProperties;
+import com.weatherservice.location.Gazetteer;
+import com.weatherservice.location.LocationPrefixIndex;
+import com.weatherservice.location.LocationResultMerger;
+import com.weatherservice.location.LocationTrigramIndex;
+import com.weatherservice.location.LocationTrigramIndex.Correction;
 import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.LocationSearchRequest;
+import com.weatherservice.resilience.RedisAvailability;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
@@ -10,49 +18,162 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Поиск мест для автодополнения. Сначала отвечает префиксный индекс в памяти, затем офлайн-справочник
+ * {@link Gazetteer}; если ни одно известное название не начинается с запроса, он исправляется
+ * нечетким поиском. Redis-кэш и провайдеры опрашиваются, только если локально найдено меньше
+ * совпадений, чем запрошено, и дополняют локальные результаты; исправления опечаток дополняют их ответ и в индексы не попадают.
+ * Ответы провайдеров отдаются потоком до дедлайна запроса.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LocationSearchService {
 
+    private static final int DEFAULT_LIMIT = 5;
+
     private final List<WeatherProviderClient> clients;
-    private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    private final ReactiveRedisTemplate<String, List<LocationInfo>> redisTemplate;
+    private final RedisAvailability redisAvailability;
+    private final LocationPrefixIndex prefixIndex;
+    private final Gazetteer gazetteer;
+    private final LocationTrigramIndex trigramIndex;
+    private final LocationSearchProperties searchProperties;
+    private final WeatherMetrics metrics;
 
     public Flux<LocationInfo> searchLocations(LocationSearchRequest request) {
+        int limit = request.getLimit() != null ? request.getLimit() : DEFAULT_LIMIT;
+        List<LocationInfo> local = searchLocal(request.getQuery(), limit);
+        if (local.size() >= limit) {
+            log.debug("Local location hit for query: {}", request.getQuery());
+            metrics.recordLocationSearch(WeatherMetrics.LocationSearchSource.LOCAL);
+            recordServed(local);
+            return Flux.fromIterable(local);
+        }
+        // Ни одно известное название так не начинается - возможно, опечатка. Ответом без провайдеров
+        // могут быть только точные совпадения: исправленный "Bern" - это еще не Berlin
+        List<Correction> corrections = local.isEmpty() ? trigramIndex.corrections(request.getQuery(), limit) : List.of();
+        List<LocationInfo> corrected = corrections.stream().map(Correction::location).toList();
+        if (corrections.size() >= limit && corrections.stream().allMatch(correction -> correction.distance() == 0)) {
+            log.debug("Fuzzy location hit for query: {}", request.getQuery());
+            metrics.recordLocationSearch(WeatherMetrics.LocationSearchSource.FUZZY);
+            return Flux.fromIterable(corrected);
+        }
+
         String cacheKey = "weather:search:" + generateSearchKey(request);
+        recordServed(local);
 
-        return redisTemplate.opsForValue().get(cacheKey)
-                .flatMapMany(cachedData -> {
-                    if (cachedData instanceof List) {
-                        @SuppressWarnings("unchecked")
-                        List<LocationInfo> locations = (List<LocationInfo>) cachedData;
-                        log.debug("Cache hit for location search: {}", cacheKey);
-                        return Flux.fromIterable(locations);
-                    }
-                    return Flux.empty();
+        // Найденное локально отдается первым, кэш или провайдеры дополняют его до limit
+        return Flux.fromIterable(local).concatWith(WeatherEvents.cacheLookup(cacheKey, "search",
+                        redisAvailability.guard(redisTemplate.opsForValue().get(cacheKey)))
+                .onErrorResume(e -> {
+                    // Без кэша (или с нечитаемой записью) ищем сразу у провайдеров
+                    log.debug("Location search cache unavailable: {}", e.getMessage());
+                    WeatherEvents.fallback("search-providers", cacheKey, e);
+                    metrics.recordLocationSearch(WeatherMetrics.LocationSearchSource.ERROR);
+                    return Mono.empty();
                 })
-                .switchIfEmpty(Flux.defer(() -> fetchFromProviders(request)
-                        .collectList()
-                        .flatMap(locations -> cacheResults(cacheKey, locations)
-                                .thenReturn(locations))
-                        .flatMapMany(Flux::fromIterable)))
+                .flatMapMany(locations -> {
+                    log.debug("Cache hit for location search: {}", cacheKey);
+                    metrics.recordLocationSearch(WeatherMetrics.LocationSearchSource.HIT);
+                    recordServed(locations);
+                    return Flux.fromIterable(locations);
+                })
+                .switchIfEmpty(Flux.defer(() -> searchProviders(request, cacheKey))))
+                // Исправления опечаток только дополняют ответ: запрос может быть настоящим названием
+                .concatWith(Flux.fromIterable(corrected))
                 .distinct(location -> location.getName() + ":" + location.getCountry())
-                .take(request.getLimit() != null ? request.getLimit() : 5);
+                .take(limit);
+    }
+
+    /**
+     * Координаты места по точному названию: из справочника, а если его нет или место не найдено -
+     * первый подходящий результат провайдеров
+     */
+    public Mono<LocationInfo> resolveLocation(String name, String country) {
+        return Mono.justOrEmpty(gazetteer.resolve(name, country))
+                .switchIfEmpty(Mono.defer(() -> fetchFromProviders(LocationSearchRequest.builder()
+                                .query(name)
+                                .limit(DEFAULT_LIMIT)
+                                .build())
+                        .filter(location -> country == null || country.equalsIgnoreCase(location.getCountry()))
+                        .next()));
+    }
+
+    // Отданные места повышают популярность в индексе и становятся целями исправления опечаток. В индекс
+    // координат они не попадают: провайдеры называют страну по-разному, ключ кэша должен строиться из кода ISO
+    private void recordServed(List<LocationInfo> locations) {
+        prefixIndex.record(locations);
+        trigramIndex.add(locations);
+    }
+
+    // Индекс популярных мест, дополненный справочником; без повторов одного места
+    private List<LocationInfo> searchLocal(String query, int limit) {
+        List<LocationInfo> indexed = prefixIndex.search(query, limit);
+        if (indexed.size() >= limit || gazetteer.size() == 0) {
+            return indexed;
+        }
+
+        Map<String, LocationInfo> merged = new LinkedHashMap<>();
+        for (LocationInfo location : indexed) {
+            merged.putIfAbsent(identity(location), location);
+        }
+        for (LocationInfo location : gazetteer.search(query, limit)) {
+            if (merged.size() >= limit) {
+                break;
+            }
+            merged.putIfAbsent(identity(location), location);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private static String identity(LocationInfo location) {
+        return location.getName().toLowerCase(Locale.ROOT) + '|'
+                + (location.getCountry() != null ? location.getCountry().toUpperCase(Locale.ROOT) : "");
+    }
+
+    /**
+     * Опрашивает провайдеров параллельно и отдает новые места сразу по приходе каждого ответа,
+     * но не дольше дедлайна запроса. Поздние ответы не теряются: полный ранжированный список
+     * после ответа всех провайдеров записывается в кэш в фоне.
+     */
+    private Flux<LocationInfo> searchProviders(LocationSearchRequest request, String cacheKey) {
+        metrics.recordLocationSearch(WeatherMetrics.LocationSearchSource.MISS);
+        Flux<List<LocationInfo>> responses = providerResponses(request).cache();
+
+        LocationResultMerger complete = new LocationResultMerger(request.getQuery());
+        responses.doOnNext(complete::accept)
+                .then(Mono.fromCallable(complete::ranked))
+                .doOnNext(this::recordServed)
+                .flatMap(locations -> cacheResults(cacheKey, locations))
+                .subscribe();
+
+        LocationResultMerger streamed = new LocationResultMerger(request.getQuery());
+        return responses
+                .take(searchProperties.deadline())
+                .concatMapIterable(streamed::accept);
     }
 
     private Flux<LocationInfo> fetchFromProviders(LocationSearchRequest request) {
+        return providerResponses(request).flatMapIterable(list -> list);
+    }
+
+    // Ответы реальных провайдеров по мере поступления; no-op клиенты не опрашиваются
+    private Flux<List<LocationInfo>> providerResponses(LocationSearchRequest request) {
         return Flux.fromIterable(clients)
+                .filter(WeatherProviderClient::isRealProvider)
                 .flatMap(client -> client.searchLocations(request.getQuery(),
-                        request.getLanguage(), request.getLimit()))
-                .onErrorResume(e -> {
-                    log.warn("Error searching locations with provider: {}", e.getMessage());
-                    return Flux.empty();
-                })
-                .flatMapIterable(list -> list);
+                                request.getLanguage(), request.getLimit())
+                        .onErrorResume(e -> {
+                            log.warn("Error searching locations with provider: {}", e.getMessage());
+                            return Mono.empty();
+                        }));
     }
 
     private Mono<Boolean> cacheResults(String cacheKey, List<LocationInfo> locations) {
@@ -60,17 +181,14 @@ public class LocationSearchService {
             return Mono.just(false);
         }
 
-        List<LocationInfo> sortedLocations = locations.stream()
-                .sorted(Comparator.comparing(LocationInfo::getName))
-                .collect(Collectors.toList());
-
-        return redisTemplate.opsForValue()
-                .set(cacheKey, sortedLocations, Duration.ofMinutes(30))
+        return redisAvailability.guard(redisTemplate.opsForValue()
+                        .set(cacheKey, locations, Duration.ofMinutes(30)))
                 .doOnSuccess(success -> {
                     if (success) {
                         log.debug("Cached location search results for key: {}", cacheKey);
                     }
-                });
+                })
+                .onErrorReturn(false);
     }
 
     private String generateSearchKey(LocationSearchRequest request) {
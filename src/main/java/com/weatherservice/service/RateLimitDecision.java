@@ -0,0 +1,23 @@
+package com.weatherservice.service;
+
+import java.time.Duration;
+
+/**
+ * Решение rate limiter по одному запросу.
+ *
+ * @param remaining  сколько запросов еще можно сделать прямо сейчас
+ * @param retryAfter через сколько повторить отклоненный запрос (ноль для разрешенного)
+ * @param resetAfter через сколько лимит восстановится полностью
+ */
+public record RateLimitDecision(
+        boolean allowed,
+        int limit,
+        long remaining,
+        Duration retryAfter,
+        Duration resetAfter
+) {
+
+    public static RateLimitDecision failOpen(int limit) {
+        return new RateLimitDecision(true, limit, limit, Duration.ZERO, Duration.ZERO);
+    }
+}
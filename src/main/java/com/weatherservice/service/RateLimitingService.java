@@ -1,51 +1,169 @@
 package com.weatherservice.service;
 
-import lombok.RequiredArgsConstructor;
+import com.weatherservice.config.RateLimitConfig.LocalLimiterProperties;
+import com.weatherservice.diagnostics.WeatherEvents;
+import com.weatherservice.resilience.RedisAvailability;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
+/**
+ * Rate limiting по алгоритму GCRA: один Lua-скрипт в Redis принимает решение и возвращает
+ * остаток и время восстановления за один round trip. Скрипт вызывается через EVALSHA
+ * (SHA считается один раз, при NOSCRIPT Spring Data Redis повторяет через EVAL).
+ * Перед Redis стоит {@link LocalRateLimiter}, который принимает большинство решений локально.
+ * Пока Redis недоступен ({@link RedisAvailability}), запросы разрешаются без ожидания таймаута,
+ * локальные счетчики копятся и отправляются в Redis после его восстановления.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class RateLimitingService {
 
+    private static final RedisScript<List<Long>> GCRA_SCRIPT = gcraScript();
+
     private final ReactiveRedisTemplate<String, String> redisTemplate;
     private final WeatherMetrics metrics;
+    private final LocalLimiterProperties localProperties;
+    private final RedisAvailability redisAvailability;
+    // null, если локальный слой выключен и каждое решение принимает Redis
+    private final LocalRateLimiter localLimiter;
+    private Disposable syncTask;
 
     private static final int DEFAULT_LIMIT = 100;
     private static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    private static final int SYNC_CONCURRENCY = 64;
+
+    public RateLimitingService(ReactiveRedisTemplate<String, String> redisTemplate, WeatherMetrics metrics) {
+        this(redisTemplate, metrics, LocalLimiterProperties.disabled());
+    }
+
+    public RateLimitingService(ReactiveRedisTemplate<String, String> redisTemplate, WeatherMetrics metrics,
+                               LocalLimiterProperties localProperties) {
+        this(redisTemplate, metrics, localProperties, RedisAvailability.unguarded());
+    }
+
+    @Autowired
+    public RateLimitingService(ReactiveRedisTemplate<String, String> redisTemplate, WeatherMetrics metrics,
+                               LocalLimiterProperties localProperties, RedisAvailability redisAvailability) {
+        this.redisTemplate = redisTemplate;
+        this.metrics = metrics;
+        this.localProperties = localProperties;
+        this.redisAvailability = redisAvailability;
+        this.localLimiter = localProperties.enabled()
+                ? new LocalRateLimiter(localProperties.stripes(), localProperties.headroom())
+                : null;
+        // Разрешенное локально за время недоступности Redis отправляем сразу после восстановления
+        redisAvailability.onRecovery(() -> flushLocalCounts().subscribe());
+    }
+
+    @PostConstruct
+    public void startSync() {
+        if (localLimiter == null) {
+            return;
+        }
+        syncTask = Flux.interval(localProperties.syncInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> flushLocalCounts(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stopSync() {
+        if (syncTask != null) {
+            syncTask.dispose();
+            // Отдаем в Redis то, что успели разрешить локально
+            flushLocalCounts().block(localProperties.syncInterval().multipliedBy(5));
+        }
+    }
 
     public Mono<Boolean> isAllowed(String clientId) {
         return isAllowed(clientId, DEFAULT_LIMIT, DEFAULT_WINDOW);
     }
 
     public Mono<Boolean> isAllowed(String clientId, int limit, Duration window) {
-        String key = "rate_limit:" + clientId + ":" + getCurrentWindowKey();
-
-        return redisTemplate.opsForValue()
-                .increment(key)
-                .flatMap(count -> {
-                    if (count == 1) {
-                        // Устанавливаем TTL для нового ключа
-                        return redisTemplate.expire(key, window)
-                                .thenReturn(count);
-                    }
-                    return Mono.just(count);
-                })
-                .map(count -> {
-                    boolean allowed = count <= limit;
-                    if (!allowed) {
-                        metrics.recordRateLimitExceeded();
-                        log.warn("Rate limit exceeded for client: {} ({} requests)", clientId, count);
-                    }
-                    return allowed;
-                })
-                .onErrorReturn(true); // В случае ошибки Redis разрешаем запрос
+        return tryConsume(clientId, 1, limit, window)
+                .map(RateLimitDecision::allowed);
+    }
+
+    public Mono<RateLimitDecision> tryConsume(String clientId, int cost) {
+        return tryConsume(clientId, cost, DEFAULT_LIMIT, DEFAULT_WINDOW);
+    }
+
+    public Mono<RateLimitDecision> tryConsume(String clientId, int cost, int limit, Duration window) {
+        String key = rateLimitKey(clientId);
+
+        if (localLimiter == null) {
+            return evaluate(key, limit, window, cost, 0)
+                    .map(decision -> logDecision(clientId, decision))
+                    .doOnNext(decision -> recordDecisionEvent(key, "redis", cost, decision))
+                    .onErrorResume(e -> failOpen(key, cost, limit, e)); // В случае ошибки Redis разрешаем запрос
+        }
+
+        switch (localLimiter.tryAcquire(key, cost, limit, window)) {
+            case ALLOWED -> {
+                metrics.recordRateLimitDecision("local", true);
+                long remaining = localLimiter.estimateRemaining(key);
+                WeatherEvents.rateLimitDecision(key, "local", cost, true, remaining);
+                return Mono.just(new RateLimitDecision(true, limit, remaining, Duration.ZERO,
+                        window.multipliedBy(limit - remaining).dividedBy(limit)));
+            }
+            case DENIED -> {
+                metrics.recordRateLimitExceeded();
+                metrics.recordRateLimitDecision("local", false);
+                Duration retryAfter = localLimiter.denyRemaining(key);
+                WeatherEvents.rateLimitDecision(key, "local", cost, false, 0);
+                return Mono.just(new RateLimitDecision(false, limit, 0, retryAfter, window));
+            }
+            default -> {
+                // У границы лимита или для нового клиента решает Redis; заодно отдаем накопленное
+                LocalRateLimiter.Sync sync = localLimiter.beginSync(key, cost, limit, window);
+                return evaluate(key, limit, window, cost, sync.forced())
+                        .doOnNext(decision -> metrics.recordRateLimitDrift(localLimiter.completeSync(sync, decision)))
+                        .map(decision -> {
+                            metrics.recordRateLimitDecision("synced", decision.allowed());
+                            recordDecisionEvent(key, "synced", cost, decision);
+                            return logDecision(clientId, decision);
+                        })
+                        .onErrorResume(e -> {
+                            localLimiter.abortSync(sync);
+                            return failOpen(key, cost, limit, e);
+                        });
+            }
+        }
+    }
+
+    /**
+     * Пакетная отправка в Redis запросов, разрешенных локально с прошлой синхронизации
+     */
+    public Mono<Void> flushLocalCounts() {
+        if (localLimiter == null || !redisAvailability.isAvailable()) {
+            return Mono.empty();
+        }
+
+        return Flux.fromIterable(localLimiter.drainPending())
+                .flatMap(sync -> evaluate(sync.key(), sync.limit(), sync.window(), 0, sync.forced())
+                        .doOnNext(decision -> metrics.recordRateLimitDrift(localLimiter.completeSync(sync, decision)))
+                        .onErrorResume(e -> {
+                            log.debug("Failed to sync rate limit counter {}: {}", sync.key(), e.getMessage());
+                            localLimiter.abortSync(sync);
+                            return Mono.empty();
+                        }), SYNC_CONCURRENCY)
+                .then();
     }
 
     public Mono<Long> getRemainingRequests(String clientId) {
@@ -53,57 +171,115 @@ public class RateLimitingService {
     }
 
     public Mono<Long> getRemainingRequests(String clientId, int limit, Duration window) {
-        String key = "rate_limit:" + clientId + ":" + getCurrentWindowKey();
-
-        return redisTemplate.opsForValue()
-                .get(key)
-                .map(Long::parseLong)
-                .map(count -> Math.max(0, limit - count))
-                .defaultIfEmpty((long) limit);
+        return peek(clientId, limit, window)
+                .map(RateLimitDecision::remaining);
     }
 
     /**
      * Сброс rate limit для конкретного клиента
      */
     public Mono<Boolean> resetRateLimit(String clientId) {
-        String key = "rate_limit:" + clientId + ":" + getCurrentWindowKey();
-        return redisTemplate.delete(key)
+        String key = rateLimitKey(clientId);
+        if (localLimiter != null) {
+            localLimiter.forget(key);
+        }
+        return redisAvailability.guard(redisTemplate.delete(key))
                 .map(count -> count > 0);
     }
 
     /**
-     * Получение текущего количества запросов
+     * Получение текущего количества запросов (израсходованная часть лимита)
      */
     public Mono<Long> getCurrentRequestCount(String clientId) {
-        String key = "rate_limit:" + clientId + ":" + getCurrentWindowKey();
-        return redisTemplate.opsForValue()
-                .get(key)
-                .map(Long::parseLong)
-                .defaultIfEmpty(0L);
+        return peek(clientId, DEFAULT_LIMIT, DEFAULT_WINDOW)
+                .map(decision -> decision.limit() - decision.remaining());
     }
 
     /**
      * Получение информации о rate limit
      */
     public Mono<RateLimitInfo> getRateLimitInfo(String clientId) {
-        return getCurrentRequestCount(clientId)
-                .map(currentCount -> {
-                    Instant resetTime = Instant.now().plusSeconds(60 - (Instant.now().getEpochSecond() % 60));
-
-                    return RateLimitInfo.builder()
-                            .clientId(clientId)
-                            .currentRequests(currentCount)
-                            .remainingRequests(Math.max(0, DEFAULT_LIMIT - currentCount))
-                            .limit(DEFAULT_LIMIT)
-                            .windowMinutes((int) DEFAULT_WINDOW.toMinutes())
-                            .resetTime(resetTime)
-                            .build();
-                });
-    }
-
-    private String getCurrentWindowKey() {
-        // Используем текущую минуту как ключ окна
-        return String.valueOf(Instant.now().getEpochSecond() / 60);
+        return peek(clientId, DEFAULT_LIMIT, DEFAULT_WINDOW)
+                .map(decision -> RateLimitInfo.builder()
+                        .clientId(clientId)
+                        .currentRequests(decision.limit() - decision.remaining())
+                        .remainingRequests(decision.remaining())
+                        .limit(decision.limit())
+                        .windowMinutes((int) DEFAULT_WINDOW.toMinutes())
+                        .resetTime(Instant.now().plus(decision.resetAfter()))
+                        .build());
+    }
+
+    /**
+     * Состояние лимита без списания: тот же скрипт со стоимостью 0
+     */
+    private Mono<RateLimitDecision> peek(String clientId, int limit, Duration window) {
+        String key = rateLimitKey(clientId);
+        long unsynced = localLimiter != null ? localLimiter.unsynced(key) : 0;
+
+        return evaluate(key, limit, window, 0, 0)
+                .map(decision -> unsynced == 0 ? decision : new RateLimitDecision(decision.allowed(), limit,
+                        Math.max(0, decision.remaining() - unsynced), decision.retryAfter(), decision.resetAfter()));
+    }
+
+    private Mono<RateLimitDecision> evaluate(String key, int limit, Duration window, int cost, long forced) {
+        List<String> args = List.of(String.valueOf(limit), String.valueOf(window.toMillis()),
+                String.valueOf(cost), String.valueOf(forced));
+
+        return redisAvailability.guard(redisTemplate.execute(GCRA_SCRIPT, List.of(key), args))
+                .cast(Object.class)
+                .collectList()
+                .map(result -> toDecision(limit, result));
+    }
+
+    private static Mono<RateLimitDecision> failOpen(String key, int cost, int limit, Throwable error) {
+        WeatherEvents.fallback("rate-limit-fail-open", key, error);
+        WeatherEvents.rateLimitDecision(key, "fail-open", cost, true, limit);
+        return Mono.just(RateLimitDecision.failOpen(limit));
+    }
+
+    private static void recordDecisionEvent(String key, String path, int cost, RateLimitDecision decision) {
+        WeatherEvents.rateLimitDecision(key, path, cost, decision.allowed(), decision.remaining());
+    }
+
+    private RateLimitDecision logDecision(String clientId, RateLimitDecision decision) {
+        if (!decision.allowed()) {
+            metrics.recordRateLimitExceeded();
+            log.warn("Rate limit exceeded for client: {} (retry after {} ms)", clientId,
+                    decision.retryAfter().toMillis());
+        }
+        return decision;
+    }
+
+    // Lettuce разворачивает ответ-массив в отдельные элементы, но принимаем и вложенный список
+    private static RateLimitDecision toDecision(int limit, List<?> result) {
+        List<?> values = result.size() == 1 && result.get(0) instanceof List<?> nested ? nested : result;
+        if (values.size() < 4) {
+            throw new IllegalStateException("Unexpected rate limit script result: " + result);
+        }
+
+        return new RateLimitDecision(
+                ((Number) values.get(0)).longValue() == 1,
+                limit,
+                ((Number) values.get(1)).longValue(),
+                Duration.ofMillis(((Number) values.get(2)).longValue()),
+                Duration.ofMillis(((Number) values.get(3)).longValue()));
+    }
+
+    private static String rateLimitKey(String clientId) {
+        return "rate_limit:" + clientId;
+    }
+
+    // Текст скрипта читается один раз: при NOSCRIPT повторный EVAL идет из event loop Lettuce,
+    // и ресурс classpath, прочитанный там, блокировал бы его
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RedisScript<List<Long>> gcraScript() {
+        try {
+            String script = new ClassPathResource("scripts/gcra_rate_limit.lua").getContentAsString(StandardCharsets.UTF_8);
+            return (RedisScript) RedisScript.of(script, List.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load rate limit script", e);
+        }
     }
 
     // DTO для информации о rate limit
@@ -0,0 +1,180 @@
+package com.weatherservice.service;
+
+import com.weatherservice.model.WeatherProvider;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Время этапов обработки одного запроса. Создается веб-фильтром и передается через Reactor
+ * Context; каждый завершенный этап пишется в гистограмму ({@link WeatherMetrics#recordStage})
+ * и суммируется здесь для заголовка {@code Server-Timing}. Вне HTTP-запроса (фоновые задачи,
+ * тесты сервисов) объекта в контексте нет и замеры не выполняются.
+ * <p>
+ * Этапы, привязанные к провайдеру, учитываются по провайдерам отдельно. Этапы могут
+ * пересекаться: {@code provider} включает разбор ответа ({@code parse}) и ретраи.
+ */
+public final class RequestTimings {
+
+    public enum Stage {
+        RATE_LIMIT,
+        CACHE_L1,
+        CACHE_REDIS,
+        PROVIDER,
+        PARSE,
+        CACHE_WRITE,
+        SERIALIZE;
+
+        private final String metricName = name().toLowerCase(Locale.ROOT).replace('_', '-');
+
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final Class<RequestTimings> CONTEXT_KEY = RequestTimings.class;
+    private static final Stage[] STAGES = Stage.values();
+    private static final WeatherProvider[] PROVIDERS = WeatherProvider.values();
+    // Последняя колонка - этап без провайдера
+    private static final int SLOTS = PROVIDERS.length + 1;
+
+    private final WeatherMetrics metrics;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray totals = new AtomicLongArray(STAGES.length * SLOTS);
+
+    public RequestTimings(WeatherMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public Context addTo(Context context) {
+        return context.put(CONTEXT_KEY, this);
+    }
+
+    public static RequestTimings from(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    /**
+     * Замер этапа от подписки до первого значения, завершения, ошибки или отмены
+     */
+    public static <T> Mono<T> time(Stage stage, Mono<T> operation) {
+        return time(stage, null, operation);
+    }
+
+    public static <T> Mono<T> time(Stage stage, WeatherProvider provider, Mono<T> operation) {
+        return Mono.deferContextual(context -> {
+            RequestTimings timings = from(context);
+            if (timings == null) {
+                return operation;
+            }
+            StageSpan span = new StageSpan(timings, stage, provider);
+            // Этап закрывается по первому сигналу: значение Mono обрабатывается ниже по цепочке
+            // (вплоть до отправки ответа) раньше, чем приходит onComplete
+            return operation
+                    .doOnSubscribe(subscription -> span.start())
+                    .doOnEach(signal -> span.end())
+                    .doOnCancel(span::end);
+        });
+    }
+
+    /**
+     * Синхронное преобразование с замером, для {@code Mono.transformDeferredContextual}
+     */
+    public static <T, R> BiFunction<Mono<T>, ContextView, Mono<R>> timedMap(Stage stage, WeatherProvider provider,
+                                                                           Function<T, R> mapper) {
+        return (mono, context) -> {
+            RequestTimings timings = from(context);
+            if (timings == null) {
+                return mono.map(mapper);
+            }
+            return mono.map(value -> {
+                long start = System.nanoTime();
+                try {
+                    return mapper.apply(value);
+                } finally {
+                    timings.record(stage, provider, System.nanoTime() - start);
+                }
+            });
+        };
+    }
+
+    public void record(Stage stage, WeatherProvider provider, long nanos) {
+        totals.addAndGet(index(stage, provider), nanos);
+        if (metrics != null) {
+            metrics.recordStage(stage, provider, nanos);
+        }
+    }
+
+    public long totalNanos(Stage stage, WeatherProvider provider) {
+        return totals.get(index(stage, provider));
+    }
+
+    /**
+     * Значение заголовка Server-Timing: этапы с ненулевым временем и общее время запроса, в мс
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(128);
+        for (Stage stage : STAGES) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                long nanos = totals.get(stage.ordinal() * SLOTS + slot);
+                if (nanos > 0) {
+                    header.append(stage.metricName());
+                    if (slot < PROVIDERS.length) {
+                        header.append('.').append(PROVIDERS[slot].name().toLowerCase(Locale.ROOT));
+                    }
+                    appendDuration(header, nanos).append(", ");
+                }
+            }
+        }
+        header.append("total");
+        return appendDuration(header, System.nanoTime() - startNanos).toString();
+    }
+
+    private static StringBuilder appendDuration(StringBuilder header, long nanos) {
+        long micros = nanos / 1_000;
+        header.append(";dur=").append(micros / 1_000).append('.');
+        long fraction = micros % 1_000;
+        if (fraction < 100) {
+            header.append('0');
+        }
+        if (fraction < 10) {
+            header.append('0');
+        }
+        return header.append(fraction);
+    }
+
+    private static final class StageSpan {
+
+        private final RequestTimings timings;
+        private final Stage stage;
+        private final WeatherProvider provider;
+        private long start;
+        private boolean ended;
+
+        private StageSpan(RequestTimings timings, Stage stage, WeatherProvider provider) {
+            this.timings = timings;
+            this.stage = stage;
+            this.provider = provider;
+        }
+
+        void start() {
+            start = System.nanoTime();
+        }
+
+        void end() {
+            if (!ended) {
+                ended = true;
+                timings.record(stage, provider, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static int index(Stage stage, WeatherProvider provider) {
+        return stage.ordinal() * SLOTS + (provider != null ? provider.ordinal() : PROVIDERS.length);
+    }
+}
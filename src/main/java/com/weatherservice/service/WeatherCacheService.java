@@ -1,27 +1,111 @@
 package com.weatherservice.service;
 
+import com.weatherservice.config.CacheConfig.MemoryCacheProperties;
+import com.weatherservice.diagnostics.WeatherEvents;
 import com.weatherservice.model.WeatherRequest;
 import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.resilience.RedisAvailability;
+import com.weatherservice.util.JsonSerializerUtil;
 import com.weatherservice.util.WeatherKeyGenerator;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class WeatherCacheService {
 
+    // Валидатор записи хранится рядом с ней: "<ключ записи>:etag"
+    private static final String TAG_SUFFIX = ":etag";
+
     private final ReactiveRedisTemplate<String, WeatherResponse> redisTemplate;
     private final WeatherKeyGenerator keyGenerator;
+    private final RedisAvailability redisAvailability;
+    private final CacheAnalytics analytics;
+    private final CompressedVariants compressedVariants;
+    private final MemoryCacheProperties memoryProperties;
+    private Disposable sweepTask;
 
-    // In-memory fallback cache если Redis недоступен
+    // In-memory fallback cache если Redis недоступен; размер ограничен memoryProperties.maxEntries()
     private final ConcurrentHashMap<String, WeatherResponse> memoryCache = new ConcurrentHashMap<>();
+    // Готовое тело HTTP-ответа для записей, сохраненных этим экземпляром, вместе с валидатором
+    private final ConcurrentHashMap<String, EncodedWeatherResponse> memoryEncoded = new ConcurrentHashMap<>();
+    // Ключи, записанные или удаленные только в памяти, пока Redis был недоступен
+    private final Set<String> pendingResync = ConcurrentHashMap.newKeySet();
+    // Подписчики на обновление записей: ключ кэша и сохраненный ответ
+    private final List<BiConsumer<String, WeatherResponse>> updateListeners = new CopyOnWriteArrayList<>();
+
+    public WeatherCacheService(ReactiveRedisTemplate<String, WeatherResponse> redisTemplate,
+                               WeatherKeyGenerator keyGenerator) {
+        this(redisTemplate, keyGenerator, RedisAvailability.unguarded());
+    }
+
+    public WeatherCacheService(ReactiveRedisTemplate<String, WeatherResponse> redisTemplate,
+                               WeatherKeyGenerator keyGenerator,
+                               RedisAvailability redisAvailability) {
+        this(redisTemplate, keyGenerator, redisAvailability, CacheAnalytics.disabled());
+    }
+
+    public WeatherCacheService(ReactiveRedisTemplate<String, WeatherResponse> redisTemplate,
+                               WeatherKeyGenerator keyGenerator,
+                               RedisAvailability redisAvailability,
+                               CacheAnalytics analytics) {
+        this(redisTemplate, keyGenerator, redisAvailability, analytics, CompressedVariants.disabled());
+    }
+
+    public WeatherCacheService(ReactiveRedisTemplate<String, WeatherResponse> redisTemplate,
+                               WeatherKeyGenerator keyGenerator,
+                               RedisAvailability redisAvailability,
+                               CacheAnalytics analytics,
+                               CompressedVariants compressedVariants) {
+        this(redisTemplate, keyGenerator, redisAvailability, analytics, compressedVariants, MemoryCacheProperties.defaults());
+    }
+
+    @Autowired
+    public WeatherCacheService(ReactiveRedisTemplate<String, WeatherResponse> redisTemplate,
+                               WeatherKeyGenerator keyGenerator,
+                               RedisAvailability redisAvailability,
+                               CacheAnalytics analytics,
+                               CompressedVariants compressedVariants,
+                               MemoryCacheProperties memoryProperties) {
+        this.redisTemplate = redisTemplate;
+        this.keyGenerator = keyGenerator;
+        this.redisAvailability = redisAvailability;
+        this.analytics = analytics;
+        this.compressedVariants = compressedVariants;
+        this.memoryProperties = memoryProperties;
+        redisAvailability.onRecovery(() -> resync().subscribe());
+    }
+
+    @PostConstruct
+    public void startSweep() {
+        sweepTask = Flux.interval(memoryProperties.sweepInterval())
+                .onBackpressureDrop()
+                .subscribe(tick -> sweepExpired());
+    }
+
+    @PreDestroy
+    public void stopSweep() {
+        if (sweepTask != null) {
+            sweepTask.dispose();
+        }
+    }
 
     public Mono<WeatherResponse> getCachedWeather(WeatherRequest request) {
         if (request == null) {
@@ -30,18 +114,31 @@ public class WeatherCacheService {
 
         String cacheKey = keyGenerator.generateCacheKey(request);
 
-        return redisTemplate.opsForValue().get(cacheKey)
+        // Запись и ее валидатор - одним MGET: хэш для ETag посчитан при записи и не пересчитывается
+        return RequestTimings.time(RequestTimings.Stage.CACHE_REDIS,
+                        WeatherEvents.cacheLookup(cacheKey, "redis",
+                                Mono.defer(() -> redisAvailability.guard(
+                                                tagOperations().multiGet(List.of(cacheKey, cacheKey + TAG_SUFFIX))))
+                                        .mapNotNull(WeatherCacheService::readEntry)))
                 .doOnNext(data -> log.debug("Redis cache hit for key: {}", cacheKey))
                 .onErrorResume(e -> {
                     log.warn("Redis error, trying memory cache for key: {}", cacheKey, e);
+                    WeatherEvents.fallback("memory-cache", cacheKey, e);
                     // Fallback to memory cache
-                    WeatherResponse cached = memoryCache.get(cacheKey);
-                    if (cached != null && isCacheValid(cached)) {
-                        log.debug("Memory cache hit for key: {}", cacheKey);
-                        return Mono.just(cached);
-                    }
-                    return Mono.empty();
-                });
+                    return RequestTimings.time(RequestTimings.Stage.CACHE_L1,
+                            WeatherEvents.cacheLookup(cacheKey, "l1", Mono.fromSupplier(() -> {
+                                WeatherResponse cached = memoryCache.get(cacheKey);
+                                if (cached != null && isCacheValid(cached)) {
+                                    log.debug("Memory cache hit for key: {}", cacheKey);
+                                    return cached;
+                                }
+                                if (cached != null) {
+                                    evict(cacheKey, cached, CacheAnalytics.EvictionReason.EXPIRED);
+                                }
+                                return null;
+                            })));
+                })
+                .doOnSuccess(cached -> analytics.recordLookup(request, cacheKey, cached != null));
     }
 
     public Mono<Boolean> cacheWeatherData(WeatherRequest request, WeatherResponse response) {
@@ -53,6 +150,7 @@ public class WeatherCacheService {
             return Mono.just(false);
         }
 
+        keyGenerator.registerLocation(request, response.getLocation());
         String cacheKey = keyGenerator.generateCacheKey(request);
 
         WeatherResponse updatedResponse = WeatherResponse.builder()
@@ -62,20 +160,27 @@ public class WeatherCacheService {
                 .source(response.getSource())
                 .cachedUntil(LocalDateTime.now().plus(ttl))
                 .build();
+        // Хэш содержимого считается один раз здесь, а не на каждый запрос
+        CacheEntryTag tag = CacheEntryTag.of(updatedResponse, updatedResponse.getCachedUntil());
+        updatedResponse.setEtag(tag.etag());
 
-        return redisTemplate.opsForValue()
-                .set(cacheKey, updatedResponse, ttl)
+        return redisAvailability.guard(redisTemplate.opsForValue().set(cacheKey, updatedResponse, ttl))
+                .flatMap(success -> success ? writeTag(cacheKey, tag, ttl).thenReturn(true) : Mono.just(false))
                 .doOnSuccess(success -> {
                     if (success) {
                         log.debug("Cached weather data in Redis for key: {}", cacheKey);
                         // Также сохраняем в memory cache как fallback
-                        memoryCache.put(cacheKey, updatedResponse);
+                        putInMemory(cacheKey, updatedResponse, tag);
+                        notifyUpdate(cacheKey, updatedResponse);
                     }
                 })
                 .onErrorResume(e -> {
                     log.warn("Redis caching failed, using memory cache for key: {}", cacheKey, e);
+                    WeatherEvents.fallback("memory-cache-write", cacheKey, e);
                     // Fallback to memory cache
-                    memoryCache.put(cacheKey, updatedResponse);
+                    putInMemory(cacheKey, updatedResponse, tag);
+                    pendingResync.add(cacheKey);
+                    notifyUpdate(cacheKey, updatedResponse);
                     return Mono.just(true);
                 });
     }
@@ -87,22 +192,235 @@ public class WeatherCacheService {
 
         String cacheKey = keyGenerator.generateCacheKey(request);
 
-        return redisTemplate.delete(cacheKey)
+        return redisAvailability.guard(redisTemplate.delete(cacheKey))
                 .map(count -> count > 0)
+                .flatMap(deleted -> deleteTag(cacheKey).thenReturn(deleted))
                 .doOnSuccess(deleted -> {
                     if (deleted) {
                         log.debug("Evicted cache from Redis for key: {}", cacheKey);
                     }
                     // Также удаляем из memory cache
-                    memoryCache.remove(cacheKey);
+                    removeFromMemory(cacheKey);
                 })
                 .onErrorResume(e -> {
                     log.warn("Redis eviction failed, clearing memory cache for key: {}", cacheKey, e);
-                    memoryCache.remove(cacheKey);
+                    removeFromMemory(cacheKey);
+                    pendingResync.add(cacheKey);
                     return Mono.just(true);
                 });
     }
 
+    /**
+     * Валидатор живой записи кэша для запроса - без чтения самой записи. Пусто, если записи нет
+     * или она записана до появления валидаторов.
+     */
+    public Mono<CacheEntryTag> getEntryTag(WeatherRequest request) {
+        if (request == null) {
+            return Mono.empty();
+        }
+
+        String cacheKey = keyGenerator.generateCacheKey(request);
+
+        return RequestTimings.time(RequestTimings.Stage.CACHE_REDIS,
+                        Mono.defer(() -> redisAvailability.guard(tagOperations().get(cacheKey + TAG_SUFFIX))))
+                .mapNotNull(CacheEntryTag::decode)
+                .onErrorResume(e -> Mono.justOrEmpty(memoryEncoded.get(cacheKey)).map(EncodedWeatherResponse::tag))
+                .filter(CacheEntryTag::isValid);
+    }
+
+    /**
+     * Есть ли у экземпляра готовое тело записи для запроса. Без него и без {@code If-None-Match}
+     * валидатор сверять не с чем, и его чтение из Redis пропускается.
+     */
+    public boolean hasEncodedWeather(WeatherRequest request) {
+        return request != null && memoryEncoded.containsKey(keyGenerator.generateCacheKey(request));
+    }
+
+    /**
+     * Запрос, обслуженный по валидатору без чтения записи (304 или готовое тело), - попадание в кэш
+     */
+    public void recordValidatedHit(WeatherRequest request) {
+        if (request != null) {
+            analytics.recordLookup(request, keyGenerator.generateCacheKey(request), true);
+        }
+    }
+
+    /**
+     * Готовое тело ответа из памяти, если оно соответствует действующему валидатору записи.
+     * Сверка с валидатором из Redis не дает отдать локальную копию записи, которую уже
+     * перезаписал или удалил другой экземпляр.
+     */
+    public Mono<EncodedWeatherResponse> getEncodedWeather(WeatherRequest request, CacheEntryTag tag) {
+        if (request == null || tag == null) {
+            return Mono.empty();
+        }
+
+        String cacheKey = keyGenerator.generateCacheKey(request);
+        return RequestTimings.time(RequestTimings.Stage.CACHE_L1, Mono.fromSupplier(() -> memoryEncoded.get(cacheKey)))
+                .filter(encoded -> encoded.tag().equals(tag))
+                .doOnNext(encoded -> log.debug("Encoded memory cache hit for key: {}", cacheKey));
+    }
+
+    /**
+     * Вызывается после каждой записи ответа в кэш - в Redis или, при его недоступности, в память
+     */
+    public void onUpdate(BiConsumer<String, WeatherResponse> listener) {
+        updateListeners.add(listener);
+    }
+
+    /**
+     * Переносит в Redis изменения, сделанные только в памяти за время его недоступности:
+     * еще живые записи сохраняются с оставшимся TTL, удаленные и истекшие - удаляются
+     */
+    public Mono<Long> resync() {
+        List<String> keys = List.copyOf(pendingResync);
+        if (keys.isEmpty()) {
+            return Mono.just(0L);
+        }
+        log.info("Resynchronizing {} cache entries with Redis", keys.size());
+
+        return Flux.fromIterable(keys)
+                .concatMap(key -> {
+                    pendingResync.remove(key);
+                    return resyncKey(key)
+                            .onErrorResume(e -> {
+                                pendingResync.add(key);
+                                return Mono.just(false);
+                            });
+                })
+                .filter(Boolean::booleanValue)
+                .count();
+    }
+
+    /**
+     * Удаляет из памяти истекшие записи вместе с готовыми телами; их gzip-варианты возвращают
+     * место в бюджет {@link CompressedVariants}. Иначе записи, к которым больше не обращаются,
+     * остаются в памяти навсегда.
+     */
+    public int sweepExpired() {
+        int removed = 0;
+        for (Map.Entry<String, WeatherResponse> entry : memoryCache.entrySet()) {
+            if (!isCacheValid(entry.getValue()) && evict(entry.getKey(), entry.getValue(),
+                    CacheAnalytics.EvictionReason.EXPIRED)) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("Swept {} expired memory cache entries", removed);
+        }
+        return removed;
+    }
+
+    private Mono<Boolean> resyncKey(String key) {
+        WeatherResponse cached = memoryCache.get(key);
+        if (!isCacheValid(cached)) {
+            return redisAvailability.guard(redisTemplate.delete(key)).then(deleteTag(key)).thenReturn(true);
+        }
+        Duration ttl = Duration.between(LocalDateTime.now(), cached.getCachedUntil());
+        EncodedWeatherResponse encoded = memoryEncoded.get(key);
+        return redisAvailability.guard(redisTemplate.opsForValue().set(key, cached, ttl))
+                .flatMap(success -> success && encoded != null
+                        ? writeTag(key, encoded.tag(), ttl).thenReturn(true)
+                        : Mono.just(success));
+    }
+
+    // Валидатор - необязательная часть записи: его ошибки не влияют на результат записи ответа
+    private Mono<Boolean> writeTag(String cacheKey, CacheEntryTag tag, Duration ttl) {
+        return Mono.defer(() -> redisAvailability.guard(tagOperations().set(cacheKey + TAG_SUFFIX, tag.encode(), ttl)))
+                .onErrorResume(e -> {
+                    log.debug("Failed to store cache validator for key {}: {}", cacheKey, e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    private Mono<Boolean> deleteTag(String cacheKey) {
+        return Mono.defer(() -> redisAvailability.guard(tagOperations().delete(cacheKey + TAG_SUFFIX)))
+                .onErrorResume(e -> Mono.just(false));
+    }
+
+    // Значение записи и валидатор из MGET; валидатор прикрепляется, только если относится к этой записи
+    private static WeatherResponse readEntry(List<String> values) {
+        String json = values.get(0);
+        if (json == null) {
+            return null;
+        }
+        WeatherResponse response = JsonSerializerUtil.fromJson(json, WeatherResponse.class);
+        CacheEntryTag tag = CacheEntryTag.decode(values.get(1));
+        if (tag != null && tag.cachedUntil().equals(response.getCachedUntil())) {
+            response.setEtag(tag.etag());
+        }
+        return response;
+    }
+
+    // Строковый контекст: валидаторы и чтение записи вместе с валидатором. Значение записи
+    // десериализуется JsonSerializerUtil с теми же настройками, что и у шаблона
+    private ReactiveValueOperations<String, String> tagOperations() {
+        return redisTemplate.opsForValue(RedisSerializationContext.string());
+    }
+
+    private void notifyUpdate(String cacheKey, WeatherResponse response) {
+        for (BiConsumer<String, WeatherResponse> listener : updateListeners) {
+            try {
+                listener.accept(cacheKey, response);
+            } catch (RuntimeException e) {
+                log.warn("Cache update listener failed for key {}: {}", cacheKey, e.getMessage());
+            }
+        }
+    }
+
+    private void putInMemory(String cacheKey, WeatherResponse response, CacheEntryTag tag) {
+        if (memoryCache.size() >= memoryProperties.maxEntries() && !memoryCache.containsKey(cacheKey)) {
+            evictForCapacity();
+        }
+        // Тело кодируется один раз при записи; попадания отдают эти байты без Jackson,
+        // а аналитика берет размер записи из них же
+        byte[] json = JsonSerializerUtil.toJsonBytes(response);
+        EncodedWeatherResponse replaced = memoryEncoded.put(cacheKey,
+                new EncodedWeatherResponse(json, tag, compressedVariants, cacheKey));
+        if (replaced != null) {
+            replaced.release();
+        }
+        analytics.recordMemoryPut(response, json.length, memoryCache.put(cacheKey, response), sizeOf(replaced));
+    }
+
+    // Граница приблизительная: одновременные записи могут ненадолго превысить ее. Вытесняется первая
+    // попавшаяся запись, кроме ожидающих переноса в Redis - их копия в памяти единственная
+    private void evictForCapacity() {
+        for (Map.Entry<String, WeatherResponse> entry : memoryCache.entrySet()) {
+            if (!pendingResync.contains(entry.getKey()) && evict(entry.getKey(), entry.getValue(),
+                    isCacheValid(entry.getValue()) ? CacheAnalytics.EvictionReason.CAPACITY
+                            : CacheAnalytics.EvictionReason.EXPIRED)) {
+                return;
+            }
+        }
+    }
+
+    private boolean evict(String cacheKey, WeatherResponse cached, CacheAnalytics.EvictionReason reason) {
+        if (!memoryCache.remove(cacheKey, cached)) {
+            return false;
+        }
+        analytics.recordMemoryRemoval(cached, removeEncoded(cacheKey), reason);
+        return true;
+    }
+
+    private void removeFromMemory(String cacheKey) {
+        int bytes = removeEncoded(cacheKey);
+        analytics.recordMemoryRemoval(memoryCache.remove(cacheKey), bytes, CacheAnalytics.EvictionReason.EXPLICIT);
+    }
+
+    // Размер удаленного тела для аналитики
+    private int removeEncoded(String cacheKey) {
+        EncodedWeatherResponse removed = memoryEncoded.remove(cacheKey);
+        if (removed != null) {
+            removed.release();
+        }
+        return sizeOf(removed);
+    }
+
+    private static int sizeOf(EncodedWeatherResponse encoded) {
+        return encoded != null ? encoded.json().length : 0;
+    }
+
     private boolean isCacheValid(WeatherResponse response) {
         return response != null &&
                 response.getCachedUntil() != null &&
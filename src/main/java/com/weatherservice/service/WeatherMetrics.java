@@ -2,29 +2,114 @@ package com.weatherservice.service;
 
 import com.weatherservice.model.WeatherProvider;
 import io.micrometer.core.instrument.*;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Метрики сервиса. Все метры с известным набором тегов регистрируются один раз в конструкторе
+ * и хранятся в таблицах, индексированных по провайдеру и статусу, поэтому запись на горячем пути
+ * не ищет метр в реестре и не создает builder'ы и списки тегов. Метры с заранее неизвестными
+ * значениями тегов кэшируются при первом обращении.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class WeatherMetrics {
 
+    private static final WeatherProvider[] PROVIDERS = WeatherProvider.values();
+    // Последняя строка таблиц по провайдеру - запросы без провайдера (тег unknown)
+    private static final int UNKNOWN_PROVIDER = PROVIDERS.length;
+    private static final int SUCCESS = 0;
+    private static final int ERROR = 1;
+
+    private static final String RETRY_RETRIED = "retried";
+    private static final String RETRY_BUDGET_EXHAUSTED = "budget_exhausted";
+    private static final String RETRY_DEADLINE_EXCEEDED = "deadline_exceeded";
+
     private final MeterRegistry meterRegistry;
 
-    // Убираем отдельные поля счетчиков, будем создавать их динамически
-    private final AtomicInteger cacheHitCount = new AtomicInteger(0);
-    private final AtomicInteger cacheMissCount = new AtomicInteger(0);
-    private final AtomicLong totalResponseTime = new AtomicLong(0);
-    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private final Counter[][] requestCounters = new Counter[PROVIDERS.length + 1][2];
+    private final Timer[] providerResponseTimers = new Timer[PROVIDERS.length];
+    private final Counter[][] providerRetryCounters = new Counter[PROVIDERS.length][3];
+    // [local, synced][allowed, denied]
+    private final Counter[][] rateLimitDecisionCounters = new Counter[2][2];
+    // Индекс - число провайдеров в агрегированном запросе
+    private final Counter[] aggregatedRequestCounters = new Counter[PROVIDERS.length + 1];
+    // [этап][провайдер]; последняя колонка - этапы без провайдера
+    private final Timer[][] stageTimers = new Timer[RequestTimings.Stage.values().length][PROVIDERS.length + 1];
+    private final Counter[] locationSearchCounters = new Counter[LocationSearchSource.values().length];
+    private final Counter circuitBreakerFallbacks;
+    private final Counter rateLimitExceeded;
+    private final DistributionSummary rateLimitDrift;
+    private final Map<String, Counter> dynamicCounters = new ConcurrentHashMap<>();
+
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder cacheMissCount = new LongAdder();
+    private final LongAdder totalResponseTime = new LongAdder();
+    private final LongAdder completedRequests = new LongAdder();
+    private final LongAdder activeRequests = new LongAdder();
+
+    public WeatherMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        for (int i = 0; i <= PROVIDERS.length; i++) {
+            String providerTag = i == UNKNOWN_PROVIDER ? "unknown" : providerTag(PROVIDERS[i]);
+            requestCounters[i][SUCCESS] = counter("weather.requests", "provider", providerTag, "status", "success");
+            requestCounters[i][ERROR] = counter("weather.requests", "provider", providerTag, "status", "error");
+        }
+
+        for (WeatherProvider provider : PROVIDERS) {
+            String providerTag = providerTag(provider);
+            providerResponseTimers[provider.ordinal()] = Timer.builder("weather.provider.response.time")
+                    .tag("provider", providerTag)
+                    .register(meterRegistry);
+            providerRetryCounters[provider.ordinal()][0] = counter("weather.provider.retries",
+                    "provider", providerTag, "outcome", RETRY_RETRIED);
+            providerRetryCounters[provider.ordinal()][1] = counter("weather.provider.retries",
+                    "provider", providerTag, "outcome", RETRY_BUDGET_EXHAUSTED);
+            providerRetryCounters[provider.ordinal()][2] = counter("weather.provider.retries",
+                    "provider", providerTag, "outcome", RETRY_DEADLINE_EXCEEDED);
+        }
+
+        String[] paths = {"local", "synced"};
+        for (int i = 0; i < paths.length; i++) {
+            rateLimitDecisionCounters[i][0] = counter("weather.ratelimit.decisions",
+                    "path", paths[i], "outcome", "allowed");
+            rateLimitDecisionCounters[i][1] = counter("weather.ratelimit.decisions",
+                    "path", paths[i], "outcome", "denied");
+        }
+
+        for (int i = 0; i < aggregatedRequestCounters.length; i++) {
+            aggregatedRequestCounters[i] = counter("weather.aggregated.requests", "providers_count", String.valueOf(i));
+        }
+
+        for (RequestTimings.Stage stage : RequestTimings.Stage.values()) {
+            Timer withoutProvider = stageTimer(stage, "none");
+            for (int i = 0; i <= PROVIDERS.length; i++) {
+                stageTimers[stage.ordinal()][i] = i < PROVIDERS.length && isProviderStage(stage)
+                        ? stageTimer(stage, providerTag(PROVIDERS[i]))
+                        : withoutProvider;
+            }
+        }
+
+        for (LocationSearchSource source : LocationSearchSource.values()) {
+            locationSearchCounters[source.ordinal()] = counter("weather.location.search.cache",
+                    "result", source.name().toLowerCase());
+        }
+
+        circuitBreakerFallbacks = counter("weather.circuitbreaker.fallbacks");
+        rateLimitExceeded = counter("weather.ratelimit.exceeded");
+        rateLimitDrift = DistributionSummary.builder("weather.ratelimit.drift")
+                .baseUnit("requests")
+                .register(meterRegistry);
+    }
 
     @PostConstruct
     public void init() {
@@ -34,16 +119,16 @@ public class WeatherMetrics {
                 .tag("component", "weather-service")
                 .register(meterRegistry);
 
-        Gauge.builder("weather.cache.hits", cacheHitCount, AtomicInteger::get)
+        Gauge.builder("weather.cache.hits", cacheHitCount, LongAdder::sum)
                 .description("Weather cache hits count")
                 .register(meterRegistry);
 
-        Gauge.builder("weather.cache.misses", cacheMissCount, AtomicInteger::get)
+        Gauge.builder("weather.cache.misses", cacheMissCount, LongAdder::sum)
                 .description("Weather cache misses count")
                 .register(meterRegistry);
 
-        Gauge.builder("weather.requests.active", requestCount, AtomicInteger::get)
-                .description("Active weather requests count")
+        Gauge.builder("weather.requests.active", activeRequests, LongAdder::sum)
+                .description("Weather requests currently in flight")
                 .register(meterRegistry);
 
         Gauge.builder("weather.response.time.avg", this, WeatherMetrics::getAverageResponseTime)
@@ -51,74 +136,180 @@ public class WeatherMetrics {
                 .register(meterRegistry);
     }
 
-    public void recordWeatherRequest(WeatherProvider provider, boolean success, Duration duration) {
-        String providerTag = provider != null ? provider.name().toLowerCase() : "unknown";
-        String status = success ? "success" : "error";
+    /**
+     * Начало обработки запроса; парный вызов {@link #requestFinished()} обязателен
+     */
+    public void requestStarted() {
+        activeRequests.increment();
+    }
 
-        // Создаем счетчики динамически при каждом вызове
-        Counter.builder("weather.requests")
-                .tag("provider", providerTag)
-                .tag("status", status)
-                .register(meterRegistry)
-                .increment();
+    public void requestFinished() {
+        activeRequests.decrement();
+    }
+
+    public long getActiveRequests() {
+        return activeRequests.sum();
+    }
+
+    public void recordWeatherRequest(WeatherProvider provider, boolean success, Duration duration) {
+        int providerIndex = provider != null ? provider.ordinal() : UNKNOWN_PROVIDER;
+        requestCounters[providerIndex][success ? SUCCESS : ERROR].increment();
 
         // Записываем время ответа
-        totalResponseTime.addAndGet(duration.toMillis());
-        requestCount.incrementAndGet();
+        totalResponseTime.add(duration.toMillis());
+        completedRequests.increment();
     }
 
     public void recordCacheHit() {
-        cacheHitCount.incrementAndGet();
+        cacheHitCount.increment();
     }
 
     public void recordCacheMiss() {
-        cacheMissCount.incrementAndGet();
+        cacheMissCount.increment();
+    }
+
+    /**
+     * Откуда получен ответ поиска мест - доля hit среди hit + miss показывает, работает ли кэш поиска
+     */
+    public void recordLocationSearch(LocationSearchSource source) {
+        locationSearchCounters[source.ordinal()].increment();
     }
 
     public void recordCircuitBreakerFallback() {
-        Counter.builder("weather.circuitbreaker.fallbacks")
-                .register(meterRegistry)
-                .increment();
+        circuitBreakerFallbacks.increment();
     }
 
     public void recordRateLimitExceeded() {
-        Counter.builder("weather.ratelimit.exceeded")
-                .register(meterRegistry)
-                .increment();
+        rateLimitExceeded.increment();
+    }
+
+    /**
+     * Решение rate limiter: {@code path} - local (в памяти процесса) или synced (через Redis)
+     */
+    public void recordRateLimitDecision(String path, boolean allowed) {
+        int pathIndex = switch (path) {
+            case "local" -> 0;
+            case "synced" -> 1;
+            default -> -1;
+        };
+        if (pathIndex < 0) {
+            dynamicCounter("weather.ratelimit.decisions", "path", path, "outcome", allowed ? "allowed" : "denied")
+                    .increment();
+            return;
+        }
+        rateLimitDecisionCounters[pathIndex][allowed ? 0 : 1].increment();
+    }
+
+    /**
+     * Расхождение локальной оценки с Redis: запросы других инстансов между синхронизациями
+     */
+    public void recordRateLimitDrift(long drift) {
+        rateLimitDrift.record(drift);
+    }
+
+    /**
+     * Переход автомата доступности Redis; {@code state} - новое состояние
+     */
+    public void recordRedisCircuitTransition(String state) {
+        dynamicCounter("weather.redis.circuit.transitions", "state", state).increment();
+    }
+
+    /**
+     * Длительность этапа обработки запроса (см. {@link RequestTimings})
+     */
+    public void recordStage(RequestTimings.Stage stage, WeatherProvider provider, long nanos) {
+        stageTimers[stage.ordinal()][provider != null ? provider.ordinal() : UNKNOWN_PROVIDER]
+                .record(nanos, TimeUnit.NANOSECONDS);
     }
 
     public void recordProviderResponseTime(WeatherProvider provider, Duration duration) {
-        Timer.builder("weather.provider.response.time")
-                .tag("provider", provider.name().toLowerCase())
-                .register(meterRegistry)
-                .record(duration);
+        providerResponseTimers[provider.ordinal()].record(duration);
+    }
+
+    public void recordProviderRetry(WeatherProvider provider, String outcome) {
+        int outcomeIndex = switch (outcome) {
+            case RETRY_RETRIED -> 0;
+            case RETRY_BUDGET_EXHAUSTED -> 1;
+            case RETRY_DEADLINE_EXCEEDED -> 2;
+            default -> -1;
+        };
+        if (outcomeIndex < 0) {
+            dynamicCounter("weather.provider.retries", "provider", providerTag(provider), "outcome", outcome)
+                    .increment();
+            return;
+        }
+        providerRetryCounters[provider.ordinal()][outcomeIndex].increment();
     }
 
     public void recordAggregatedRequest(List<WeatherProvider> providers) {
-        Counter.builder("weather.aggregated.requests")
-                .tag("providers_count", String.valueOf(providers != null ? providers.size() : 0))
-                .register(meterRegistry)
-                .increment();
+        int count = providers != null ? providers.size() : 0;
+        if (count < aggregatedRequestCounters.length) {
+            aggregatedRequestCounters[count].increment();
+        } else {
+            dynamicCounter("weather.aggregated.requests", "providers_count", String.valueOf(count)).increment();
+        }
     }
 
     public double getCacheHitRate() {
-        int hits = cacheHitCount.get();
-        int misses = cacheMissCount.get();
-        int total = hits + misses;
+        long hits = cacheHitCount.sum();
+        long misses = cacheMissCount.sum();
+        long total = hits + misses;
 
         return total > 0 ? (double) hits / total * 100 : 0.0;
     }
 
     public double getAverageResponseTime() {
-        int count = requestCount.get();
-        return count > 0 ? (double) totalResponseTime.get() / count : 0.0;
+        long count = completedRequests.sum();
+        return count > 0 ? (double) totalResponseTime.sum() / count : 0.0;
     }
 
     // Метод для сброса метрик (можно вызывать периодически)
     public void resetMetrics() {
-        cacheHitCount.set(0);
-        cacheMissCount.set(0);
-        totalResponseTime.set(0);
-        requestCount.set(0);
+        cacheHitCount.reset();
+        cacheMissCount.reset();
+        totalResponseTime.reset();
+        completedRequests.reset();
+    }
+
+    private Counter counter(String name, String... tags) {
+        return Counter.builder(name)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    // Гистограмма с перцентилями; границы ограничивают число бакетов
+    private Timer stageTimer(RequestTimings.Stage stage, String providerTag) {
+        return Timer.builder("weather.request.stage")
+                .tag("stage", stage.metricName())
+                .tag("provider", providerTag)
+                .publishPercentiles(0.5, 0.95, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private static boolean isProviderStage(RequestTimings.Stage stage) {
+        return stage == RequestTimings.Stage.PROVIDER || stage == RequestTimings.Stage.PARSE;
+    }
+
+    // Редкие значения тегов: метр создается один раз и дальше берется из кэша
+    private Counter dynamicCounter(String name, String... tags) {
+        String key = name + String.join(":", tags);
+        return dynamicCounters.computeIfAbsent(key, k -> counter(name, tags));
+    }
+
+    private static String providerTag(WeatherProvider provider) {
+        return provider.name().toLowerCase();
+    }
+
+    /**
+     * Источник ответа поиска мест: LOCAL - индекс в памяти или справочник (кэш не нужен),
+     * FUZZY - запрос с опечаткой исправлен по известным названиям,
+     * HIT / MISS - Redis-кэш поиска, ERROR - кэш недоступен или запись не читается (такой
+     * запрос учитывается и как MISS)
+     */
+    public enum LocationSearchSource {
+        LOCAL, FUZZY, HIT, MISS, ERROR
     }
 }
@@ -1,7 +1,10 @@
 package com.weatherservice.service;
 
 import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.diagnostics.WeatherEvents;
 import com.weatherservice.model.*;
+import com.weatherservice.resilience.ProviderRetryPolicy;
+import com.weatherservice.resilience.RequestDeadline;
 import com.weatherservice.resilience.WeatherErrorHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +15,10 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,6 +30,11 @@ public class WeatherServiceFacade {
     private final WeatherCacheService cacheService;
     private final WeatherErrorHandler errorHandler;
     private final WeatherMetrics metrics;
+    private final ProviderRetryPolicy retryPolicy;
+    private final Duration requestDeadline;
+
+    // Запросы к провайдерам в полете: одинаковые промахи кэша ждут один общий вызов
+    private final Map<WeatherRequest, CompletableFuture<WeatherResponse>> inFlightFetches = new ConcurrentHashMap<>();
 
     public Mono<WeatherResponse> getWeather(WeatherRequest request) {
         if (request == null) {
@@ -44,9 +55,52 @@ public class WeatherServiceFacade {
                 .onErrorResume(error -> {
                     log.debug("Error in getWeather for {}: {}", request.getCity(), error.getMessage());
                     return handleWeatherError(error, request, startTime);
+                })
+                .transform(this::trackInFlight)
+                .contextWrite(RequestDeadline.withTimeout(requestDeadline));
+    }
+
+    /**
+     * Валидатор записи кэша для условного GET; пусто, если записи нет или кэш недоступен
+     */
+    public Mono<CacheEntryTag> getEntryTag(WeatherRequest request) {
+        return cacheService.getEntryTag(request)
+                .onErrorResume(e -> {
+                    log.debug("Cache validator lookup failed for {}: {}", request.getCity(), e.getMessage());
+                    return Mono.empty();
                 });
     }
 
+    /**
+     * Есть ли в памяти готовое тело записи - только тогда валидатор имеет смысл читать без {@code If-None-Match}
+     */
+    public boolean hasEncodedWeather(WeatherRequest request) {
+        return cacheService.hasEncodedWeather(request);
+    }
+
+    /**
+     * Ответ, собранный по валидатору записи в обход {@link #getWeather} (304 или готовое тело
+     * из памяти), учитывается так же, как попадание в кэш у getWeather: запрос в обработке,
+     * попадание, {@code weather.requests} и аналитика кэша. Провайдер - запрошенный: сама запись
+     * не читалась.
+     */
+    public <T> Mono<T> servedFromCache(WeatherRequest request, Mono<T> response) {
+        return Mono.defer(() -> {
+                    long startTime = System.currentTimeMillis();
+                    return response.doOnNext(hit -> recordValidatedHit(request, startTime));
+                })
+                .transform(this::trackInFlight);
+    }
+
+    /**
+     * Закодированное тело ответа из памяти для записи с этим валидатором; пусто - нужен
+     * обычный {@link #getWeather}
+     */
+    public Mono<EncodedWeatherResponse> getEncodedWeather(WeatherRequest request, CacheEntryTag tag) {
+        return cacheService.getEncodedWeather(request, tag)
+                .onErrorResume(e -> Mono.empty());
+    }
+
     public Mono<AggregatedWeatherResponse> getAggregatedWeather(WeatherRequest request) {
         if (request == null) {
             return Mono.error(new IllegalArgumentException("WeatherRequest cannot be null"));
@@ -67,9 +121,20 @@ public class WeatherServiceFacade {
         return Flux.merge(providerRequests)
                 .collectList()
                 .filter(responses -> !responses.isEmpty())
-                .map(this::createAggregatedResponse)
+                .map(WeatherServiceFacade::createAggregatedResponse)
                 .switchIfEmpty(Mono.error(new com.weatherservice.exception.ServiceUnavailableException(
-                        "All weather providers failed")));
+                        "All weather providers failed")))
+                .transform(this::trackInFlight)
+                .contextWrite(RequestDeadline.withTimeout(requestDeadline));
+    }
+
+    // Запрос в обработке - от подписки до завершения, ошибки или отмены
+    private <T> Mono<T> trackInFlight(Mono<T> call) {
+        if (metrics == null) {
+            return call;
+        }
+        return call.doOnSubscribe(subscription -> metrics.requestStarted())
+                .doFinally(signal -> metrics.requestFinished());
     }
 
     private Mono<WeatherResponse> getCachedWeatherSafe(WeatherRequest request) {
@@ -106,28 +171,59 @@ public class WeatherServiceFacade {
         log.debug("Selected provider: {}", client.getClass().getSimpleName());
         long providerStartTime = System.currentTimeMillis();
 
-        return client.getCurrentWeather(request)
-                .flatMap(response -> {
-                    if (response == null) {
-                        log.warn("Provider returned null response for: {}", request.getCity());
-                        return Mono.error(new RuntimeException("Provider returned null response"));
-                    }
-                    log.debug("Successfully got response from provider for: {}", request.getCity());
-                    return cacheWeatherData(request, response);
-                })
-                .doOnNext(response -> recordProviderMetrics(response, providerStartTime))
+        return coalesce(request, client.getProvider(), () -> client.getCurrentWeather(request)
+                        .transform(withRetries(client))
+                        .transform(call -> RequestTimings.time(RequestTimings.Stage.PROVIDER, client.getProvider(), call))
+                        .transform(call -> WeatherEvents.providerCall(client.getProvider(), request, call))
+                        .flatMap(response -> {
+                            if (response == null) {
+                                log.warn("Provider returned null response for: {}", request.getCity());
+                                return Mono.error(new RuntimeException("Provider returned null response"));
+                            }
+                            log.debug("Successfully got response from provider for: {}", request.getCity());
+                            return cacheWeatherData(request, response);
+                        })
+                        .doOnNext(response -> recordProviderMetrics(response, providerStartTime)))
                 .onErrorResume(error -> {
                     log.warn("Provider error for {}: {}", request.getCity(), error.getMessage());
-                    return getCachedFallback(request);
+                    return getCachedFallback(request, error);
                 })
                 .switchIfEmpty(Mono.defer(() -> {
                     log.warn("Provider returned empty response for: {}", request.getCity());
-                    return getCachedFallback(request);
+                    return getCachedFallback(request, null);
                 }));
     }
 
-    private Mono<WeatherResponse> getCachedFallback(WeatherRequest request) {
+    /**
+     * Single-flight с той же семантикой, что у {@link BlockingWeatherService}: первый промах
+     * запускает вызов провайдера, остальные одинаковые запросы ждут его результат, но не дольше
+     * собственного дедлайна. Вызов выполняется в контексте первого запроса и не отменяется, когда
+     * уходят ожидающие, - ответ все равно попадет в кэш. Запасные ветки (stale-кэш) у каждого свои.
+     */
+    private Mono<WeatherResponse> coalesce(WeatherRequest request, WeatherProvider provider,
+                                           Supplier<Mono<WeatherResponse>> fetch) {
+        return Mono.deferContextual(context -> {
+            // Ключ - собственная копия запроса: объект вызывающего может измениться, пока вызов в полете
+            WeatherRequest key = WeatherRequest.copyWithProvider(request, request.getProvider());
+            CompletableFuture<WeatherResponse> own = new CompletableFuture<>();
+            CompletableFuture<WeatherResponse> inFlight = inFlightFetches.putIfAbsent(key, own);
+            if (inFlight != null) {
+                Mono<WeatherResponse> wait = Mono.fromFuture(inFlight, true);
+                Mono<WeatherResponse> bounded = RequestDeadline.remaining(context).map(wait::timeout).orElse(wait);
+                return WeatherEvents.coalescedFetch(provider, request,
+                        RequestTimings.time(RequestTimings.Stage.PROVIDER, provider, bounded));
+            }
+            fetch.get()
+                    .doFinally(signal -> inFlightFetches.remove(key, own))
+                    .contextWrite(context)
+                    .subscribe(own::complete, own::completeExceptionally, () -> own.complete(null));
+            return Mono.fromFuture(own, true);
+        });
+    }
+
+    private Mono<WeatherResponse> getCachedFallback(WeatherRequest request, Throwable reason) {
         log.debug("Trying cached fallback for: {}", request.getCity());
+        WeatherEvents.fallback("stale-cache", request.getCity(), reason);
         return getCachedWeatherSafe(request)
                 .switchIfEmpty(Mono.error(new com.weatherservice.exception.ServiceUnavailableException(
                         "Service unavailable and no cached data for: " + request.getCity())));
@@ -142,14 +238,14 @@ public class WeatherServiceFacade {
                 return errorHandler.handleProviderError(error, request)
                         .onErrorResume(e -> {
                             log.error("Error handler failed for {}: {}", request.getCity(), e.getMessage());
-                            return getCachedFallback(request);
+                            return getCachedFallback(request, e);
                         });
             } catch (Exception e) {
                 log.error("Error in error handler for {}: {}", request.getCity(), e.getMessage());
-                return getCachedFallback(request);
+                return getCachedFallback(request, e);
             }
         } else {
-            return getCachedFallback(request);
+            return getCachedFallback(request, error);
         }
     }
 
@@ -190,15 +286,22 @@ public class WeatherServiceFacade {
         }
 
         return providerCall
+                .transform(withRetries(client))
+                .transform(call -> RequestTimings.time(RequestTimings.Stage.PROVIDER, client.getProvider(), call))
                 .onErrorResume(error -> {
                     log.debug("Provider {} failed: {}", client.getClass().getSimpleName(), error.getMessage());
                     return Mono.empty();
                 });
     }
 
+    private Function<Mono<WeatherResponse>, Mono<WeatherResponse>> withRetries(WeatherProviderClient client) {
+        return retryPolicy.forProvider(client.getProvider());
+    }
+
     private Mono<WeatherResponse> cacheWeatherData(WeatherRequest request, WeatherResponse response) {
         try {
             return cacheService.cacheWeatherData(request, response)
+                    .transform(write -> RequestTimings.time(RequestTimings.Stage.CACHE_WRITE, write))
                     .thenReturn(response)
                     .onErrorResume(e -> {
                         log.warn("Failed to cache weather data for {}, but returning response", request.getCity());
@@ -210,7 +313,7 @@ public class WeatherServiceFacade {
         }
     }
 
-    private AggregatedWeatherResponse createAggregatedResponse(List<WeatherResponse> responses) {
+    static AggregatedWeatherResponse createAggregatedResponse(List<WeatherResponse> responses) {
         if (responses == null || responses.isEmpty()) {
             throw new IllegalArgumentException("Responses cannot be null or empty");
         }
@@ -242,7 +345,7 @@ public class WeatherServiceFacade {
         return aggregated;
     }
 
-    private Double calculateAverageTemperature(List<WeatherResponse> responses) {
+    private static Double calculateAverageTemperature(List<WeatherResponse> responses) {
         List<Double> temperatures = responses.stream()
                 .map(r -> r.getCurrent() != null ? r.getCurrent().getTemperature() : null)
                 .filter(Objects::nonNull)
@@ -258,7 +361,7 @@ public class WeatherServiceFacade {
                 .orElse(0.0);
     }
 
-    private Integer calculateAverageHumidity(List<WeatherResponse> responses) {
+    private static Integer calculateAverageHumidity(List<WeatherResponse> responses) {
         List<Integer> humidities = responses.stream()
                 .map(r -> r.getCurrent() != null ? r.getCurrent().getHumidity() : null)
                 .filter(Objects::nonNull)
@@ -274,7 +377,7 @@ public class WeatherServiceFacade {
                 .orElse(0.0));
     }
 
-    private Integer calculateAveragePressure(List<WeatherResponse> responses) {
+    private static Integer calculateAveragePressure(List<WeatherResponse> responses) {
         List<Integer> pressures = responses.stream()
                 .map(r -> r.getCurrent() != null ? r.getCurrent().getPressure() : null)
                 .filter(Objects::nonNull)
@@ -290,7 +393,7 @@ public class WeatherServiceFacade {
                 .orElse(0.0));
     }
 
-    private Double calculateAverageWindSpeed(List<WeatherResponse> responses) {
+    private static Double calculateAverageWindSpeed(List<WeatherResponse> responses) {
         List<Double> windSpeeds = responses.stream()
                 .map(r -> r.getCurrent() != null ? r.getCurrent().getWindSpeed() : null)
                 .filter(Objects::nonNull)
@@ -306,7 +409,7 @@ public class WeatherServiceFacade {
                 .orElse(0.0);
     }
 
-    private String getMostCommonDescription(List<WeatherResponse> responses) {
+    private static String getMostCommonDescription(List<WeatherResponse> responses) {
         return responses.stream()
                 .map(r -> r.getCurrent() != null ? r.getCurrent().getDescription() : null)
                 .filter(Objects::nonNull)
@@ -324,6 +427,15 @@ public class WeatherServiceFacade {
         }
     }
 
+    private void recordValidatedHit(WeatherRequest request, long startTime) {
+        long duration = System.currentTimeMillis() - startTime;
+        if (metrics != null) {
+            metrics.recordCacheHit();
+            metrics.recordWeatherRequest(request.getProvider(), true, Duration.ofMillis(duration));
+        }
+        cacheService.recordValidatedHit(request);
+    }
+
     private void recordErrorMetrics(WeatherRequest request, long startTime) {
         long duration = System.currentTimeMillis() - startTime;
         WeatherProvider provider = request != null ? request.getProvider() : null;
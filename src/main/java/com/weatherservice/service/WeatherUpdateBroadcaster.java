@@ -0,0 +1,257 @@
+package com.weatherservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weatherservice.config.SubscriptionConfig.SubscriptionProperties;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.util.WeatherKeyGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Push-подписки на погоду вместо опроса {@code /current}. Подписчики одного места делят тему
+ * с ключом кэша: при каждом обновлении записи кэша ответ один раз кодируется в SSE-кадр, и тот же
+ * массив байт уходит всем подписчикам. Пока у темы есть подписчики, раз в {@code refreshInterval}
+ * тема запрашивает погоду через фасад - один запрос на место, а не на клиента. Полученный ответ
+ * рассылается, если его {@code cachedUntil} или время наблюдения отличаются от последнего кадра
+ * темы: так доходят и записи, обновленные другим экземпляром сервиса, для которых здесь был
+ * только cache hit без {@link WeatherCacheService#onUpdate}.
+ * <p>
+ * У каждого подписчика свой ограниченный буфер: медленный клиент теряет самые старые кадры,
+ * не задерживая остальных и не накапливая память.
+ */
+@Slf4j
+@Service
+public class WeatherUpdateBroadcaster {
+
+    private static final byte[] EVENT_PREFIX = "event: weather\ndata: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_SUFFIX = "\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final int REFRESH_CONCURRENCY = 8;
+
+    private final WeatherServiceFacade weatherService;
+    private final WeatherKeyGenerator keyGenerator;
+    private final ObjectMapper objectMapper;
+    private final SubscriptionProperties properties;
+    private final Counter droppedFrames;
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private Disposable refreshTask;
+
+    public WeatherUpdateBroadcaster(WeatherServiceFacade weatherService,
+                                    WeatherCacheService cacheService,
+                                    WeatherKeyGenerator keyGenerator,
+                                    ObjectMapper objectMapper,
+                                    SubscriptionProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.weatherService = weatherService;
+        this.keyGenerator = keyGenerator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.droppedFrames = Counter.builder("weather.subscriptions.dropped")
+                .description("SSE frames dropped for slow subscribers")
+                .register(meterRegistry);
+        Gauge.builder("weather.subscriptions.active", subscribers, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("weather.subscriptions.topics", topics, Map::size)
+                .register(meterRegistry);
+        cacheService.onUpdate(this::publish);
+    }
+
+    @PostConstruct
+    public void startRefresh() {
+        refreshTask = Flux.interval(properties.refreshInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> refreshTopics(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+    }
+
+    /**
+     * Поток SSE-кадров для места: сначала текущая погода, затем каждое обновление записи кэша.
+     * Кадры - общие для всех подписчиков массивы байт; изменять их нельзя.
+     */
+    public Flux<byte[]> subscribe(WeatherRequest request) {
+        String key = keyGenerator.generateCacheKey(request);
+        return Flux.defer(() -> {
+            Topic topic = retainTopic(key, request);
+            Mono<byte[]> current = Mono.justOrEmpty(topic.latest)
+                    .switchIfEmpty(Mono.defer(() -> weatherService.getWeather(request)
+                            .map(response -> topic.latestOr(response, this::encode))));
+            return Flux.concat(current, topic.sink.asFlux())
+                    .onBackpressureBuffer(properties.bufferSize(), dropped -> droppedFrames.increment(),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .doFinally(signal -> releaseTopic(key, topic));
+        });
+    }
+
+    public int activeSubscribers() {
+        return subscribers.get();
+    }
+
+    // Новый ответ в кэше: кодируем один раз и отдаем всем подписчикам места
+    void publish(String cacheKey, WeatherResponse response) {
+        Topic topic = topics.get(cacheKey);
+        if (topic != null) {
+            topic.publish(response, this::encode, true);
+        }
+    }
+
+    byte[] encode(WeatherResponse response) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(EVENT_PREFIX.length + json.length + EVENT_SUFFIX.length);
+            frame.writeBytes(EVENT_PREFIX);
+            frame.writeBytes(json);
+            frame.writeBytes(EVENT_SUFFIX);
+            return frame.toByteArray();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode weather update", e);
+        }
+    }
+
+    // Один запрос через фасад на тему
+    Mono<Void> refreshTopics() {
+        List<Topic> active = List.copyOf(topics.values());
+        return Flux.fromIterable(active)
+                .flatMap(topic -> weatherService.getWeather(topic.request)
+                        .doOnNext(response -> topic.publish(response, this::encode, false))
+                        .onErrorResume(e -> {
+                            log.debug("Subscription refresh failed for {}: {}", topic.request.getCity(), e.getMessage());
+                            return Mono.empty();
+                        }), REFRESH_CONCURRENCY)
+                .then();
+    }
+
+    private Topic retainTopic(String key, WeatherRequest request) {
+        while (true) {
+            Topic topic = topics.computeIfAbsent(key, k -> new Topic(request));
+            if (topic.retain()) {
+                subscribers.incrementAndGet();
+                return topic;
+            }
+            // Тему как раз закрывает последний отписавшийся - создаем новую
+            topics.remove(key, topic);
+        }
+    }
+
+    private void releaseTopic(String key, Topic topic) {
+        subscribers.decrementAndGet();
+        if (topic.release()) {
+            topics.remove(key, topic);
+            topic.complete();
+        }
+    }
+
+    /**
+     * Подписчики одного места. Счетчик -1 означает закрытую тему, к которой нельзя присоединиться.
+     * Кадры в sink эмитятся под монитором темы: обновления одного ключа приходят из разных потоков
+     * (запись кэша, обновление по таймеру), а ожидание внутри sink заняло бы event loop.
+     */
+    private static final class Topic {
+
+        private final WeatherRequest request;
+        private final Sinks.Many<byte[]> sink = Sinks.many().multicast().directBestEffort();
+        private final AtomicInteger subscribers = new AtomicInteger();
+        private volatile byte[] latest;
+        private Version latestVersion;
+
+        Topic(WeatherRequest request) {
+            this.request = request;
+        }
+
+        // Последний кадр темы; если его еще нет - закодированный текущий ответ становится им
+        byte[] latestOr(WeatherResponse response, Function<WeatherResponse, byte[]> encoder) {
+            byte[] frame = latest;
+            if (frame != null) {
+                return frame;
+            }
+            frame = encoder.apply(response);
+            synchronized (this) {
+                if (latest == null) {
+                    latest = frame;
+                    latestVersion = Version.of(response);
+                }
+                return latest;
+            }
+        }
+
+        // Рассылает ответ; без force - только другую версию записи, чем у последнего кадра
+        void publish(WeatherResponse response, Function<WeatherResponse, byte[]> encoder, boolean force) {
+            Version version = Version.of(response);
+            if (!force && isLatest(version)) {
+                return;
+            }
+            byte[] frame = encoder.apply(response);
+            synchronized (this) {
+                if (!force && version.equals(latestVersion)) {
+                    return;
+                }
+                latest = frame;
+                latestVersion = version;
+                sink.tryEmitNext(frame);
+            }
+        }
+
+        private synchronized boolean isLatest(Version version) {
+            return version.equals(latestVersion);
+        }
+
+        boolean retain() {
+            int current;
+            do {
+                current = subscribers.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!subscribers.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        // true, если ушел последний подписчик и тема закрыта
+        boolean release() {
+            return subscribers.decrementAndGet() == 0 && subscribers.compareAndSet(0, -1);
+        }
+
+        synchronized void complete() {
+            sink.tryEmitComplete();
+        }
+    }
+
+    /**
+     * Версия записи кэша: срок жизни, назначенный при записи, и время наблюдения у провайдера
+     */
+    private record Version(LocalDateTime cachedUntil, LocalDateTime observedAt) {
+
+        static Version of(WeatherResponse response) {
+            return new Version(response.getCachedUntil(),
+                    response.getCurrent() != null ? response.getCurrent().getTimestamp() : null);
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.weatherservice.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -35,6 +41,52 @@ public class JsonSerializerUtil {
         }
     }
 
+    /**
+     * Сериализация объекта в JSON (UTF-8) - в том же виде, что отдают HTTP-ответы
+     */
+    public static byte[] toJsonBytes(Object object) {
+        try {
+            return objectMapper.writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            log.error("Error serializing object to JSON", e);
+            throw new JsonSerializationException("Failed to serialize object to JSON", e);
+        }
+    }
+
+    /**
+     * Сериализация в JSON только того, что пропускает фильтр, - без записи отброшенных полей
+     */
+    public static byte[] toJsonBytes(Object object, TokenFilter filter) {
+        ByteArrayBuilder out = new ByteArrayBuilder(objectMapper.getFactory()._getBufferRecycler());
+        try (JsonGenerator generator = new FilteringGeneratorDelegate(objectMapper.getFactory().createGenerator(out),
+                filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+            objectMapper.writeValue(generator, object);
+        } catch (IOException e) {
+            log.error("Error serializing filtered object to JSON", e);
+            throw new JsonSerializationException("Failed to serialize object to JSON", e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Копия готового JSON только с тем, что пропускает фильтр: токены переписываются потоком,
+     * без построения объектов
+     */
+    public static byte[] filterJson(byte[] json, TokenFilter filter) {
+        ByteArrayBuilder out = new ByteArrayBuilder(json.length / 4 + 16);
+        try (JsonParser parser = new FilteringParserDelegate(objectMapper.getFactory().createParser(json),
+                filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            if (parser.nextToken() != null) {
+                generator.copyCurrentStructure(parser);
+            }
+        } catch (IOException e) {
+            log.error("Error filtering JSON", e);
+            throw new JsonSerializationException("Failed to filter JSON", e);
+        }
+        return out.toByteArray();
+    }
+
     /**
      * Десериализация JSON строки в объект
      */
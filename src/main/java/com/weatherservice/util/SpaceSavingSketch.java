@@ -0,0 +1,199 @@
+package com.weatherservice.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приближенный top-K самых частых ключей (алгоритм Space-Saving, Metwally et al.) в
+ * фиксированном объеме памяти. Хранит не больше {@code capacity} счетчиков в min-куче:
+ * новый ключ при заполнении вытесняет самый редкий и наследует его счет как погрешность.
+ * Любой ключ с частотой выше {@code total / capacity} гарантированно присутствует в выборке.
+ * <p>
+ * Счетчики разбиты на {@code stripes} независимых полос по хэшу ключа, у каждой свой монитор:
+ * ключ всегда попадает в одну полосу, поэтому объединение полос дает ту же гарантию в пределах
+ * полосы, а одновременные обновления разных ключей редко ждут друг друга.
+ * Обновление - O(log (capacity / stripes)).
+ */
+public class SpaceSavingSketch {
+
+    private final Stripe[] stripes;
+
+    public SpaceSavingSketch(int capacity) {
+        this(capacity, 1);
+    }
+
+    public SpaceSavingSketch(int capacity, int stripes) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (stripes <= 0 || stripes > capacity) {
+            throw new IllegalArgumentException("Stripes must be between 1 and capacity: " + stripes);
+        }
+        this.stripes = new Stripe[stripes];
+        int stripeCapacity = (capacity + stripes - 1) / stripes;
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    public void offer(String key) {
+        stripeFor(key).offer(key);
+    }
+
+    /**
+     * Гарантированная частота ключа - {@code count - error}; 0, если ключ не отслеживается
+     */
+    public long lowerBound(String key) {
+        return stripeFor(key).lowerBound(key);
+    }
+
+    /**
+     * До {@code k} ключей по убыванию оценки частоты
+     */
+    public List<Entry> top(int k) {
+        List<Entry> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(entries);
+        }
+        entries.sort(Comparator.comparingLong(Entry::count).reversed());
+        return entries.size() > k ? List.copyOf(entries.subList(0, k)) : entries;
+    }
+
+    public long total() {
+        long total = 0;
+        for (Stripe stripe : stripes) {
+            total += stripe.total();
+        }
+        return total;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    private Stripe stripeFor(String key) {
+        if (stripes.length == 1) {
+            return stripes[0];
+        }
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ (hash >>> 16), stripes.length)];
+    }
+
+    private static final class Stripe {
+
+        private final int capacity;
+        private final String[] keys;
+        private final long[] counts;
+        private final long[] errors;
+        private final Map<String, Integer> positions;
+        private int size;
+        private long total;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.keys = new String[capacity];
+            this.counts = new long[capacity];
+            this.errors = new long[capacity];
+            this.positions = new HashMap<>(capacity * 2);
+        }
+
+        synchronized void offer(String key) {
+            total++;
+            Integer position = positions.get(key);
+            if (position != null) {
+                counts[position]++;
+                siftDown(position);
+                return;
+            }
+
+            if (size < capacity) {
+                int slot = size++;
+                set(slot, key, 1, 0);
+                siftUp(slot);
+                return;
+            }
+
+            // Вытесняем минимум (корень кучи): новый ключ мог встречаться до count раз незамеченным
+            long min = counts[0];
+            positions.remove(keys[0]);
+            set(0, key, min + 1, min);
+            siftDown(0);
+        }
+
+        synchronized long lowerBound(String key) {
+            Integer position = positions.get(key);
+            return position != null ? counts[position] - errors[position] : 0;
+        }
+
+        synchronized void collect(List<Entry> entries) {
+            for (int i = 0; i < size; i++) {
+                entries.add(new Entry(keys[i], counts[i], errors[i]));
+            }
+        }
+
+        synchronized long total() {
+            return total;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(keys, null);
+            positions.clear();
+            size = 0;
+            total = 0;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (counts[parent] <= counts[index]) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int left = 2 * index + 1;
+                if (left >= size) {
+                    return;
+                }
+                int right = left + 1;
+                int smallest = right < size && counts[right] < counts[left] ? right : left;
+                if (counts[index] <= counts[smallest]) {
+                    return;
+                }
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            String key = keys[a];
+            long count = counts[a];
+            long error = errors[a];
+            set(a, keys[b], counts[b], errors[b]);
+            set(b, key, count, error);
+        }
+
+        private void set(int slot, String key, long count, long error) {
+            keys[slot] = key;
+            counts[slot] = count;
+            errors[slot] = error;
+            positions.put(key, slot);
+        }
+    }
+
+    /**
+     * @param count оценка частоты сверху
+     * @param error максимальное завышение: истинная частота не меньше {@code count - error}
+     */
+    public record Entry(String key, long count, long error) {}
+}
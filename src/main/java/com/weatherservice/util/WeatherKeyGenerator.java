@@ -1,16 +1,32 @@
 package com.weatherservice.util;
 
+import com.weatherservice.location.LocationSpatialIndex;
+import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.WeatherRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 @Component
 public class WeatherKeyGenerator {
 
+    private final LocationSpatialIndex spatialIndex;
+
+    public WeatherKeyGenerator() {
+        this(LocationSpatialIndex.disabled());
+    }
+
+    @Autowired
+    public WeatherKeyGenerator(LocationSpatialIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+    }
+
     public String generateCacheKey(WeatherRequest request) {
         if (request == null) {
             return "weather:null";
@@ -24,10 +40,16 @@ public class WeatherKeyGenerator {
             keyBuilder.append("default:");
         }
 
+        Optional<LocationInfo> canonical = canonicalLocation(request);
         if (request.getCity() != null && request.getCountryCode() != null) {
             keyBuilder.append(request.getCity().toLowerCase())
                     .append(":")
                     .append(request.getCountryCode().toLowerCase());
+        } else if (canonical.isPresent()) {
+            // Координаты рядом с известным городом - тот же ключ, что у запроса по городу
+            keyBuilder.append(canonical.get().getName().toLowerCase())
+                    .append(":")
+                    .append(canonical.get().getCountry().toLowerCase());
         } else if (request.getLatitude() != null && request.getLongitude() != null) {
             keyBuilder.append(String.format("%.4f:%.4f",
                     request.getLatitude(), request.getLongitude()));
@@ -47,6 +69,40 @@ public class WeatherKeyGenerator {
         return keyBuilder.toString();
     }
 
+    /**
+     * Запоминает координаты города из ответа, чтобы последующие запросы по координатам рядом
+     * с ним попадали в его запись кэша. Это единственный источник индекса: ключ строится из названия
+     * и кода страны ISO 3166 запроса, поэтому совпадает с ключом запроса по городу.
+     */
+    public void registerLocation(WeatherRequest request, LocationInfo location) {
+        if (request == null || location == null || request.getCity() == null || !isIsoCountry(request.getCountryCode())
+                || request.getLatitude() != null || request.getLongitude() != null) {
+            return;
+        }
+        spatialIndex.add(List.of(LocationInfo.builder()
+                .name(request.getCity())
+                .country(request.getCountryCode())
+                .lat(location.getLat())
+                .lon(location.getLon())
+                .timezone(location.getTimezone())
+                .build()));
+    }
+
+    private Optional<LocationInfo> canonicalLocation(WeatherRequest request) {
+        if (request.getCity() != null || request.getLatitude() == null || request.getLongitude() == null) {
+            return Optional.empty();
+        }
+        // Места с названием страны вместо кода дали бы ключ, не совпадающий ни с одним запросом по городу
+        return spatialIndex.nearest(request.getLatitude(), request.getLongitude(),
+                location -> isIsoCountry(location.getCountry()));
+    }
+
+    // Код страны ISO 3166-1 alpha-2, как в запросах по городу
+    private static boolean isIsoCountry(String country) {
+        return country != null && country.length() == 2
+                && Character.isLetter(country.charAt(0)) && Character.isLetter(country.charAt(1));
+    }
+
     private String generateHashKey(WeatherRequest request) {
         try {
             String data = Objects.toString(request.getCity(), "") +
@@ -0,0 +1,88 @@
+package com.weatherservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Энкодеры CBOR и Smile для ответов контроллеров. Поток элементов ({@code Flux}) кодируется
+ * одним массивом: стандартный CBOR-энкодер потоки не поддерживает, а Smile-энкодер склеивает
+ * элементы JSON-разделителями, которые в бинарном формате недопустимы. Потоковые типы
+ * ({@code application/stream+x-jackson-smile}) кодируются как раньше.
+ * <p>
+ * Пользовательские кодеки стоят в списке раньше стандартного JSON, поэтому API-контроллеры
+ * перечисляют форматы в {@code produces}: JSON первым остается форматом по умолчанию.
+ */
+public final class BinaryJacksonEncoders {
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    public static final MimeType CBOR = MediaType.APPLICATION_CBOR;
+    public static final MimeType SMILE = MimeType.valueOf(SMILE_VALUE);
+    public static final MimeType SMILE_STREAM = new MimeType("application", "stream+x-jackson-smile");
+
+    private BinaryJacksonEncoders() {
+    }
+
+    public static class Cbor extends Jackson2CborEncoder {
+
+        public Cbor(ObjectMapper cborMapper) {
+            super(cborMapper, CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, @Nullable MimeType mimeType,
+                                       @Nullable Map<String, Object> hints) {
+            return encodeAsValue(inputStream, elementType,
+                    (value, type) -> encodeValue(value, bufferFactory, type, mimeType, hints));
+        }
+    }
+
+    public static class Smile extends Jackson2SmileEncoder {
+
+        public Smile(ObjectMapper smileMapper) {
+            super(smileMapper, SMILE, SMILE_STREAM);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                       ResolvableType elementType, @Nullable MimeType mimeType,
+                                       @Nullable Map<String, Object> hints) {
+            if (mimeType != null && getStreamingMediaTypes().stream().anyMatch(mimeType::isCompatibleWith)) {
+                return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            }
+            return encodeAsValue(inputStream, elementType,
+                    (value, type) -> encodeValue(value, bufferFactory, type, mimeType, hints));
+        }
+    }
+
+    private static Flux<DataBuffer> encodeAsValue(Publisher<?> inputStream, ResolvableType elementType,
+                                                  ValueEncoder encoder) {
+        if (inputStream instanceof Mono<?> value) {
+            return value.map(body -> encoder.encode(body, elementType)).flux();
+        }
+        ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(inputStream)
+                .collectList()
+                .map(list -> encoder.encode(list, listType))
+                .flux();
+    }
+
+    @FunctionalInterface
+    private interface ValueEncoder {
+        DataBuffer encode(Object value, ResolvableType type);
+    }
+}
@@ -0,0 +1,184 @@
+package com.weatherservice.web;
+
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.weatherservice.exception.WeatherServiceException;
+import com.weatherservice.util.JsonSerializerUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Проекция ответа на поля из параметра {@code fields}, например
+ * {@code fields=location.name,current.temperature}. Пути через точку; поле-объект попадает
+ * целиком, поле внутри массива применяется к каждому элементу.
+ * <p>
+ * Спецификация разбирается один раз в дерево фильтров Jackson и кэшируется: запрос только
+ * переписывает токены готового JSON (или сериализует ответ) через фильтр, без промежуточного
+ * дерева узлов. Отброшенные поля не пишутся вовсе.
+ */
+public final class FieldProjection {
+
+    public static final String PARAMETER = "fields";
+
+    private static final int MAX_FIELDS = 16;
+    private static final int MAX_DEPTH = 3;
+    private static final int MAX_CACHED = 256;
+    private static final int ID_BYTES = 6;
+    private static final Pattern SEGMENT = Pattern.compile("[A-Za-z][A-Za-z0-9_]{0,63}");
+
+    private static final Map<String, FieldProjection> COMPILED = new ConcurrentHashMap<>();
+
+    private final String id;
+    private final TokenFilter filter;
+
+    private FieldProjection(String id, TokenFilter filter) {
+        this.id = id;
+        this.filter = filter;
+    }
+
+    /**
+     * Скомпилированная проекция; неверная спецификация - {@link WeatherServiceException} (400)
+     */
+    public static FieldProjection of(String spec) {
+        FieldProjection projection = COMPILED.get(spec);
+        if (projection != null) {
+            return projection;
+        }
+        projection = compile(spec);
+        // Набор спецификаций задают клиенты - кэш ограничен, остальные компилируются на каждый запрос
+        if (COMPILED.size() < MAX_CACHED) {
+            COMPILED.putIfAbsent(spec, projection);
+        }
+        return projection;
+    }
+
+    /**
+     * Короткий идентификатор набора полей: не зависит от порядка и повторов, входит в ETag проекции
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Проекция готового JSON - например, байтов из кэша
+     */
+    public byte[] project(byte[] json) {
+        return JsonSerializerUtil.filterJson(json, filter);
+    }
+
+    /**
+     * Сериализация в JSON только запрошенных полей
+     */
+    public byte[] project(Object value) {
+        return JsonSerializerUtil.toJsonBytes(value, filter);
+    }
+
+    private static FieldProjection compile(String spec) {
+        TreeSet<String> paths = new TreeSet<>();
+        for (String field : spec.split(",")) {
+            String path = field.trim();
+            if (!path.isEmpty()) {
+                paths.add(validate(path));
+            }
+        }
+        if (paths.isEmpty()) {
+            throw new WeatherServiceException("Parameter 'fields' must list at least one field");
+        }
+        if (paths.size() > MAX_FIELDS) {
+            throw new WeatherServiceException("Parameter 'fields' accepts at most " + MAX_FIELDS + " fields");
+        }
+        Node root = new Node();
+        for (String path : paths) {
+            root.add(path.split("\\."), 0);
+        }
+        return new FieldProjection(hash(String.join(",", paths)), root.toFilter());
+    }
+
+    private static String validate(String path) {
+        String[] segments = path.split("\\.", -1);
+        if (segments.length > MAX_DEPTH) {
+            throw new WeatherServiceException("Field '" + path + "' is nested deeper than " + MAX_DEPTH + " levels");
+        }
+        for (String segment : segments) {
+            if (!SEGMENT.matcher(segment).matches()) {
+                throw new WeatherServiceException("Invalid field '" + path + "'");
+            }
+        }
+        return path;
+    }
+
+    private static String hash(String canonical) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return "f" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, ID_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Узел дерева путей при разборе; лист - поле, запрошенное целиком
+     */
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean whole;
+
+        void add(String[] segments, int index) {
+            if (whole) {
+                return;
+            }
+            if (index == segments.length) {
+                whole = true;
+                children.clear();
+                return;
+            }
+            children.computeIfAbsent(segments[index], name -> new Node()).add(segments, index + 1);
+        }
+
+        TokenFilter toFilter() {
+            if (whole) {
+                return TokenFilter.INCLUDE_ALL;
+            }
+            Map<String, TokenFilter> filters = new HashMap<>();
+            children.forEach((name, child) -> filters.put(name, child.toFilter()));
+            return new PathFilter(Map.copyOf(filters));
+        }
+    }
+
+    /**
+     * Фильтр промежуточного объекта: пропускает только перечисленные свойства, элементы массивов
+     * фильтрует тем же набором, а скаляры на этом уровне отбрасывает
+     */
+    private static final class PathFilter extends TokenFilter {
+
+        private final Map<String, TokenFilter> properties;
+
+        PathFilter(Map<String, TokenFilter> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return properties.get(name);
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return this;
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.weatherservice.web;
+
+import com.weatherservice.config.RateLimitConfig.RouteCost;
+import com.weatherservice.service.RateLimitDecision;
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.service.RequestTimings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rate limiting до маршрутизации и разбора параметров/тела.
+ * <p>
+ * Стоимость запроса определяется первым подходящим маршрутом: поиск локаций и агрегированная
+ * погода опрашивают всех провайдеров и стоят дороже чтения текущей погоды из кэша.
+ * Запросы к неописанным путям (actuator и т.п.) и маршрутам с нулевой стоимостью не лимитируются.
+ * Заголовки {@code RateLimit-*} и {@code Retry-After} строятся из того же решения, без
+ * дополнительного обращения к Redis.
+ */
+@Slf4j
+public class RateLimitWebFilter implements WebFilter, Ordered {
+
+    public static final String DECISION_ATTRIBUTE = RateLimitWebFilter.class.getName() + ".decision";
+
+    private final RateLimitingService rateLimitingService;
+    private final List<Route> routes;
+
+    public RateLimitWebFilter(RateLimitingService rateLimitingService, List<RouteCost> routeCosts) {
+        this.rateLimitingService = rateLimitingService;
+        this.routes = routeCosts.stream()
+                .map(route -> new Route(PathPatternParser.defaultInstance.parse(route.pattern()), route.cost()))
+                .toList();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        int cost = costOf(exchange.getRequest().getPath().pathWithinApplication());
+        if (cost <= 0) {
+            return chain.filter(exchange);
+        }
+
+        return RequestTimings.time(RequestTimings.Stage.RATE_LIMIT, rateLimitingService.tryConsume(clientId(exchange), cost))
+                .flatMap(decision -> {
+                    exchange.getAttributes().put(DECISION_ATTRIBUTE, decision);
+                    writeHeaders(exchange.getResponse().getHeaders(), decision);
+                    return decision.allowed()
+                            ? chain.filter(exchange)
+                            : reject(exchange.getResponse(), decision);
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // Раньше остальных фильтров приложения, но после фильтров безопасности/трассировки
+        return Ordered.HIGHEST_PRECEDENCE + 100;
+    }
+
+    /**
+     * Клиент для rate limiting - IP адрес
+     */
+    public static String clientId(ServerWebExchange exchange) {
+        return exchange.getRequest().getRemoteAddress() != null
+                && exchange.getRequest().getRemoteAddress().getAddress() != null
+                ? exchange.getRequest().getRemoteAddress().getAddress().getHostAddress()
+                : "unknown";
+    }
+
+    private int costOf(PathContainer path) {
+        for (Route route : routes) {
+            if (route.pattern().matches(path)) {
+                return route.cost();
+            }
+        }
+        return 0;
+    }
+
+    private static void writeHeaders(HttpHeaders headers, RateLimitDecision decision) {
+        headers.set("RateLimit-Limit", String.valueOf(decision.limit()));
+        headers.set("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        headers.set("RateLimit-Reset", String.valueOf(seconds(decision.resetAfter())));
+        if (!decision.allowed()) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, seconds(decision.retryAfter()))));
+        }
+    }
+
+    private static Mono<Void> reject(ServerHttpResponse response, RateLimitDecision decision) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        // Тот же формат, что и у GlobalExceptionHandler
+        String body = String.format(
+                "{\"timestamp\":\"%s\",\"status\":%d,\"error\":\"Rate Limit Exceeded\",\"message\":\"Rate limit exceeded, retry after %d s\"}",
+                LocalDateTime.now(), HttpStatus.TOO_MANY_REQUESTS.value(), Math.max(1, seconds(decision.retryAfter())));
+        DataBuffer buffer = response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8));
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    private static long seconds(Duration duration) {
+        return (duration.toMillis() + 999) / 1000;
+    }
+
+    private record Route(PathPattern pattern, int cost) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.weatherservice.web;
+
+import com.weatherservice.service.RequestTimings;
+import com.weatherservice.service.WeatherMetrics;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Заводит {@link RequestTimings} на каждый запрос и кладет его в Reactor Context, чтобы
+ * этапы ниже по цепочке (rate limiting, кэш, провайдеры, сериализация) писали свое время.
+ * При включенном заголовке разбивка по этапам отдается клиенту в {@code Server-Timing}
+ * непосредственно перед отправкой ответа.
+ */
+public class RequestTimingWebFilter implements WebFilter, Ordered {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final WeatherMetrics metrics;
+    private final boolean serverTimingHeader;
+
+    public RequestTimingWebFilter(WeatherMetrics metrics, boolean serverTimingHeader) {
+        this.metrics = metrics;
+        this.serverTimingHeader = serverTimingHeader;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RequestTimings timings = new RequestTimings(metrics);
+        if (serverTimingHeader) {
+            exchange.getResponse().beforeCommit(() -> {
+                exchange.getResponse().getHeaders().set(SERVER_TIMING_HEADER, timings.toServerTiming());
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange)
+                .contextWrite(timings::addTo);
+    }
+
+    @Override
+    public int getOrder() {
+        // Раньше rate limiting, чтобы учитывать и его время
+        return Ordered.HIGHEST_PRECEDENCE + 50;
+    }
+}
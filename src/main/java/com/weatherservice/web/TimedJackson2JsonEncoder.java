@@ -0,0 +1,51 @@
+package com.weatherservice.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weatherservice.service.RequestTimings;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * JSON-энкодер, замеряющий сериализацию ответа как этап {@code serialize}.
+ * Замеряется только одиночное значение (обычные ответы контроллеров); потоки
+ * кодируются без замера.
+ */
+public class TimedJackson2JsonEncoder extends Jackson2JsonEncoder {
+
+    public TimedJackson2JsonEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, @Nullable MimeType mimeType,
+                                   @Nullable Map<String, Object> hints) {
+        if (!(inputStream instanceof Mono<?> value)) {
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+
+        return Flux.deferContextual(context -> {
+            RequestTimings timings = RequestTimings.from(context);
+            if (timings == null) {
+                return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+            }
+            return value
+                    .map(body -> {
+                        long start = System.nanoTime();
+                        DataBuffer buffer = encodeValue(body, bufferFactory, elementType, mimeType, hints);
+                        timings.record(RequestTimings.Stage.SERIALIZE, null, System.nanoTime() - start);
+                        return buffer;
+                    })
+                    .flux();
+        });
+    }
+}
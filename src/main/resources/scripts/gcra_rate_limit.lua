@@ -0,0 +1,58 @@
+-- GCRA (generic cell rate algorithm): лимит ARGV[1] запросов за ARGV[2] мс без границ окон.
+-- В ключе хранится теоретическое время прихода следующего запроса (TAT) в мс.
+--
+-- KEYS[1] - ключ клиента
+-- ARGV[1] - лимит запросов за период
+-- ARGV[2] - период в мс
+-- ARGV[3] - стоимость запроса, по которому нужно решение (0 - только узнать остаток)
+-- ARGV[4] - стоимость, списываемая без проверки (запросы, уже разрешенные локально)
+--
+-- Возвращает {allowed, remaining, retry_after_ms, reset_after_ms}
+
+if redis.replicate_commands then
+    redis.replicate_commands()
+end
+
+local limit = tonumber(ARGV[1])
+local period = tonumber(ARGV[2])
+local cost = tonumber(ARGV[3])
+local forced = tonumber(ARGV[4])
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local interval = period / limit
+
+local tat = tonumber(redis.call('GET', KEYS[1]))
+if not tat or tat < now then
+    tat = now
+end
+tat = tat + forced * interval
+
+local allowed = 1
+local retry_after = 0
+local new_tat = tat + cost * interval
+local allow_at = new_tat - period
+
+if now < allow_at then
+    allowed = 0
+    retry_after = math.ceil(allow_at - now)
+    new_tat = tat
+end
+
+if new_tat > now and (forced > 0 or (allowed == 1 and cost > 0)) then
+    redis.call('SET', KEYS[1], string.format('%.3f', new_tat), 'PX', math.ceil(new_tat - now))
+end
+
+local remaining = math.floor((now - (new_tat - period)) / interval)
+if remaining < 0 then
+    remaining = 0
+elseif remaining > limit then
+    remaining = limit
+end
+
+local reset_after = math.ceil(new_tat - now)
+if reset_after < 0 then
+    reset_after = 0
+end
+
+return {allowed, remaining, retry_after, reset_after}
@@ -0,0 +1,72 @@
+package com.weatherservice.benchmark;
+
+import com.weatherservice.service.BlockingWeatherService;
+import com.weatherservice.simulator.LatencyDistribution;
+import com.weatherservice.simulator.LoadHarness;
+import com.weatherservice.simulator.LoadReport;
+import com.weatherservice.simulator.LoadScenario;
+import com.weatherservice.simulator.ProviderSimulator;
+import com.weatherservice.simulator.SimulatorProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Реактивный фасад против блокирующего кода на виртуальных потоках (профиль
+ * {@value BlockingWeatherService#PROFILE}) на одном сценарии и одном симуляторе провайдеров -
+ * с одинаковой задержкой апстрима. Семантика кэша и вызовов одна: оба режима сводят одинаковые
+ * промахи к одному вызову провайдера, так что разница в таблице - от модели исполнения. Режимы поднимаются по очереди, каждый с холодного кэша
+ * (база Redis очищается) и со своим прогревом; итог - таблица пропускной способности, задержек
+ * и памяти по столбцу на режим:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ExecutionModelBenchmark -Dload.rps=1000 -Dload.duration=PT30S
+ * </pre>
+ * Режимы делят одну JVM, и первый прогон доплачивает за JIT общего кода: для честного
+ * сравнения нужен длинный прогрев или второй запуск в обратном порядке
+ * ({@code -Dload.modes=virtual-threads,reactive}).
+ */
+class ExecutionModelBenchmark {
+
+    private static final Map<String, String[]> MODES = Map.of(
+            "reactive", new String[0],
+            BlockingWeatherService.PROFILE, new String[]{BlockingWeatherService.PROFILE});
+
+    @Test
+    void reactiveVersusVirtualThreads() {
+        SimulatorProfile providers = SimulatorProfile.builder()
+                .latency(LatencyDistribution.logNormal(
+                        Duration.parse(System.getProperty("sim.latency.median", "PT0.08S")),
+                        Duration.parse(System.getProperty("sim.latency.p99", "PT0.4S"))))
+                .errorRate(Double.parseDouble(System.getProperty("sim.error-rate", "0.01")))
+                .build();
+
+        LoadScenario scenario = LoadScenario.standardMix()
+                .targetRps(Integer.getInteger("load.rps", 500))
+                .duration(Duration.parse(System.getProperty("load.duration", "PT20S")))
+                .warmup(Duration.parse(System.getProperty("load.warmup", "PT5S")))
+                .build();
+
+        List<LoadReport> reports = new ArrayList<>();
+        for (String mode : System.getProperty("load.modes", "reactive," + BlockingWeatherService.PROFILE).split(",")) {
+            // Куча предыдущего режима не должна попасть в замер следующего
+            System.gc();
+            // Симулятор - на режим: закрытие контекста освобождает общие ресурсы Reactor Netty,
+            // на которых работает и сервер симулятора
+            try (ProviderSimulator simulator = new ProviderSimulator(providers);
+                 LoadHarness harness = LoadHarness.start(simulator, Map.of(), MODES.get(mode.trim()))) {
+                harness.clearCache();
+                LoadReport report = harness.run(mode.trim(), scenario);
+                System.out.println(report.format());
+                reports.add(report);
+            }
+        }
+
+        System.out.println(LoadReport.compare(reports));
+        reports.forEach(report -> assertTrue(report.getCompleted() > 0, "No requests completed in " + report.getLabel()));
+    }
+}
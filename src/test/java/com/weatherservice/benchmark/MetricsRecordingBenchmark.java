@@ -0,0 +1,77 @@
+package com.weatherservice.benchmark;
+
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.service.WeatherMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость записи метрик одного запроса: {@code perCallRegistration} - прежний способ
+ * ({@code Counter.builder(...).register(...)} на каждый вызов), {@code preRegistered} - таблицы
+ * {@link WeatherMetrics}. Аллокации видны с профайлером gc:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=MetricsRecordingBenchmark -Djmh.threads=4 -Djmh.prof=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsRecordingBenchmark {
+
+    private static final Duration DURATION = Duration.ofMillis(42);
+
+    private MeterRegistry registry;
+    private WeatherMetrics metrics;
+
+    @Setup
+    public void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        metrics = new WeatherMetrics(registry);
+        metrics.init();
+    }
+
+    @Benchmark
+    public void perCallRegistration() {
+        Counter.builder("weather.requests")
+                .tag("provider", WeatherProvider.WEATHER_API.name().toLowerCase())
+                .tag("status", "success")
+                .register(registry)
+                .increment();
+        Timer.builder("weather.provider.response.time")
+                .tag("provider", WeatherProvider.WEATHER_API.name().toLowerCase())
+                .register(registry)
+                .record(DURATION);
+    }
+
+    @Benchmark
+    public void preRegistered() {
+        metrics.recordWeatherRequest(WeatherProvider.WEATHER_API, true, DURATION);
+        metrics.recordProviderResponseTime(WeatherProvider.WEATHER_API, DURATION);
+    }
+
+    @Test
+    void run() throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(MetricsRecordingBenchmark.class.getSimpleName())
+                .threads(Integer.getInteger("jmh.threads", 1));
+        String profiler = System.getProperty("jmh.prof");
+        if (profiler != null) {
+            options.addProfiler(profiler);
+        }
+        new Runner(options.build()).run();
+    }
+}
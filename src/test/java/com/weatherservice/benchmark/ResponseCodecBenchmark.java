@@ -0,0 +1,110 @@
+package com.weatherservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weatherservice.model.CurrentWeather;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherForecast;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherResponse;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Размер и время кодирования ответа о погоде (текущая погода и 5-дневный прогноз) в JSON,
+ * CBOR и Smile. Мапперы строятся так же, как в {@code BinaryCodecConfig}: копией основного.
+ * Размер ответа печатается при подготовке каждого формата:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=ResponseCodecBenchmark -Djmh.prof=gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseCodecBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter writer;
+    private ObjectMapper reader;
+    private WeatherResponse response;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper json = new ObjectMapper();
+        json.registerModule(new JavaTimeModule());
+        json.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        reader = switch (format) {
+            case "cbor" -> json.copyWith(new CBORFactory());
+            case "smile" -> json.copyWith(new SmileFactory());
+            default -> json;
+        };
+        writer = reader.writerFor(WeatherResponse.class);
+        response = response();
+        encoded = writer.writeValueAsBytes(response);
+        System.out.printf("%n%s payload: %d bytes%n", format, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public WeatherResponse decode() throws Exception {
+        return reader.readValue(encoded, WeatherResponse.class);
+    }
+
+    @Test
+    void run() throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(ResponseCodecBenchmark.class.getSimpleName())
+                .threads(Integer.getInteger("jmh.threads", 1));
+        String profiler = System.getProperty("jmh.prof");
+        if (profiler != null) {
+            options.addProfiler(profiler);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static WeatherResponse response() {
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        List<WeatherForecast> forecast = new ArrayList<>();
+        for (int day = 1; day <= 5; day++) {
+            forecast.add(WeatherForecast.builder()
+                    .date(now.plusDays(day))
+                    .minTemperature(10.0 + day)
+                    .maxTemperature(18.5 + day)
+                    .humidity(60 + day)
+                    .description("partly cloudy")
+                    .icon("02d")
+                    .build());
+        }
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").lat(51.5074).lon(-0.1278)
+                        .timezone("Europe/London").build())
+                .current(CurrentWeather.builder().temperature(15.5).feelsLike(14.8).humidity(65).pressure(1013)
+                        .windSpeed(3.6).windDirection("SW").description("cloudy").icon("04d").timestamp(now).build())
+                .forecast(forecast)
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .cachedUntil(now.plusMinutes(10))
+                .build();
+    }
+}
@@ -0,0 +1,50 @@
+package com.weatherservice.benchmark;
+
+import com.weatherservice.simulator.LatencyDistribution;
+import com.weatherservice.simulator.LoadHarness;
+import com.weatherservice.simulator.LoadReport;
+import com.weatherservice.simulator.LoadScenario;
+import com.weatherservice.simulator.ProviderSimulator;
+import com.weatherservice.simulator.SimulatorProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный прогон всего сервиса против симулятора провайдеров.
+ * Запускается только в профиле benchmark:
+ * <pre>
+ * mvn -Pbenchmark test -Dtest=WeatherLoadBenchmark -Dload.rps=500 -Dload.duration=PT30S
+ * </pre>
+ */
+class WeatherLoadBenchmark {
+
+    @Test
+    void standardMix() {
+        SimulatorProfile providers = SimulatorProfile.builder()
+                .latency(LatencyDistribution.logNormal(
+                        Duration.parse(System.getProperty("sim.latency.median", "PT0.08S")),
+                        Duration.parse(System.getProperty("sim.latency.p99", "PT0.4S"))))
+                .errorRate(Double.parseDouble(System.getProperty("sim.error-rate", "0.01")))
+                .rateLimitRate(Double.parseDouble(System.getProperty("sim.rate-limit-rate", "0.0")))
+                .build();
+
+        LoadScenario scenario = LoadScenario.standardMix()
+                .targetRps(Integer.getInteger("load.rps", 200))
+                .duration(Duration.parse(System.getProperty("load.duration", "PT20S")))
+                .warmup(Duration.parse(System.getProperty("load.warmup", "PT5S")))
+                .build();
+
+        try (ProviderSimulator simulator = new ProviderSimulator(providers);
+             LoadHarness harness = LoadHarness.start(simulator, Map.of())) {
+
+            LoadReport report = harness.run("reactive", scenario);
+            System.out.println(report.format());
+
+            assertTrue(report.getCompleted() > 0, "No requests completed");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.weatherservice.controller;
+
+import com.weatherservice.config.RateLimitConfig;
+import com.weatherservice.model.*;
+import com.weatherservice.service.BlockingWeatherService;
+import com.weatherservice.service.CacheEntryTag;
+import com.weatherservice.service.RateLimitDecision;
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.web.FieldProjection;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(BlockingWeatherController.class)
+@ActiveProfiles(BlockingWeatherService.PROFILE)
+@ImportAutoConfiguration(TaskExecutionAutoConfiguration.class)
+@Import(RateLimitConfig.class)
+class BlockingWeatherControllerTest {
+
+    private static final RateLimitDecision ALLOWED =
+            new RateLimitDecision(true, 100, 99, Duration.ZERO, Duration.ofMillis(600));
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private BlockingWeatherService weatherService;
+
+    @MockBean
+    private RateLimitingService rateLimitingService;
+
+    @Test
+    void getCurrentWeather_ShouldRunOnVirtualThread() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenAnswer(invocation -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            return response;
+        });
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("RateLimit-Remaining", "99")
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody()
+                .jsonPath("$.location.name").isEqualTo("London");
+
+        assertTrue(virtual.get(), "Handler should run on a virtual thread");
+    }
+
+    @Test
+    void getCurrentWeather_WithMatchingETag_ShouldReturnNotModified() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(tag);
+        when(weatherService.servedFromCache(any(WeatherRequest.class), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header("If-None-Match", tag.quoted())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", tag.quoted())
+                .expectHeader().valueEquals("Vary", "Accept");
+
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+        verify(weatherService).servedFromCache(any(WeatherRequest.class), any());
+    }
+
+    @Test
+    void getCurrentWeather_WhenJsonRefused_ShouldReturnNotAcceptable() {
+        // Given
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header(HttpHeaders.ACCEPT, "application/xml, application/json;q=0")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE)
+                .expectHeader().valueEquals("Vary", "Accept");
+
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+    }
+
+    @Test
+    void getCurrentWeather_WithFields_ShouldProjectResponse() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = new CacheEntryTag("stored-hash", response.getCachedUntil());
+        // Запись прочитана из кэша вместе с валидатором
+        response.setEtag(tag.etag());
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(response);
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&fields=source")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", tag.quoted(FieldProjection.of("source").id()))
+                .expectBody(String.class).isEqualTo("{\"source\":\"OPENWEATHER_MAP\"}");
+
+        // Валидатор не с чем сверить - он берется из прочитанной записи, без отдельного чтения из Redis
+        verify(weatherService, never()).getEntryTag(any(WeatherRequest.class));
+    }
+
+    @Test
+    void getAggregatedWeather_ShouldReturnOk() {
+        // Given
+        AggregatedWeatherResponse aggregated = AggregatedWeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .temperature(20.0)
+                .sourcesCount(2)
+                .timestamp(LocalDateTime.now())
+                .build();
+        when(weatherService.getAggregatedWeather(any(WeatherRequest.class))).thenReturn(aggregated);
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/aggregated?city=London")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.temperature").isEqualTo(20.0)
+                .jsonPath("$.sourcesCount").isEqualTo(2);
+    }
+
+    private WeatherResponse createTestResponse() {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .current(CurrentWeather.builder().temperature(15.5).humidity(65).build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .cachedUntil(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+}
@@ -1,22 +1,39 @@
 package com.weatherservice.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.weatherservice.config.BinaryCodecConfig;
+import com.weatherservice.config.RateLimitConfig;
 import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.LocationSearchRequest;
 import com.weatherservice.service.LocationSearchService;
+import com.weatherservice.service.RateLimitDecision;
+import com.weatherservice.service.RateLimitingService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @WebFluxTest(LocationController.class)
+@Import({RateLimitConfig.class, BinaryCodecConfig.class})
 class LocationControllerTest {
 
     @Autowired
@@ -25,6 +42,32 @@ class LocationControllerTest {
     @MockBean
     private LocationSearchService locationSearchService;
 
+    @MockBean
+    private RateLimitingService rateLimitingService;
+
+    @BeforeEach
+    void setUp() {
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(
+                new RateLimitDecision(true, 100, 95, Duration.ZERO, Duration.ofSeconds(3))));
+    }
+
+    @Test
+    void searchLocations_ShouldBeRateLimitedWithSearchCost() {
+        // Given
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(
+                new RateLimitDecision(false, 100, 2, Duration.ofSeconds(2), Duration.ofSeconds(59))));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/locations?query=London")
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().valueEquals("Retry-After", "2");
+
+        verify(rateLimitingService).tryConsume(any(), eq(5));
+        verifyNoInteractions(locationSearchService);
+    }
+
     @Test
     void searchLocations_WithQuery_ShouldReturnLocations() {
         // Given
@@ -87,4 +130,30 @@ class LocationControllerTest {
                     assertEquals("FR", locations.get(0).getCountry());
                 });
     }
+
+    @Test
+    void searchLocations_WithBinaryAccept_ShouldEncodeStreamAsOneArray() throws IOException {
+        // Given
+        when(locationSearchService.searchLocations(any())).thenAnswer(invocation -> Flux.just(
+                LocationInfo.builder().name("London").country("GB").lat(51.5).lon(-0.12).build(),
+                LocationInfo.builder().name("London").country("CA").lat(42.98).lon(-81.25).build()));
+
+        for (String type : Arrays.asList("application/cbor", "application/x-jackson-smile")) {
+            // When
+            byte[] body = webTestClient.get()
+                    .uri("/api/v1/weather/locations?query=London")
+                    .accept(MediaType.parseMediaType(type))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(byte[].class)
+                    .returnResult()
+                    .getResponseBody();
+
+            // Then
+            ObjectMapper mapper = type.endsWith("cbor") ? new ObjectMapper(new CBORFactory()) : new ObjectMapper(new SmileFactory());
+            JsonNode decoded = mapper.readTree(body);
+            assertEquals(2, decoded.size(), type);
+            assertEquals("CA", decoded.at("/1/country").asText(), type);
+        }
+    }
 }
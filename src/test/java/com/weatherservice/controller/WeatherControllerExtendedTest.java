@@ -1,24 +1,35 @@
 package com.weatherservice.controller;
 
+import com.weatherservice.config.RateLimitConfig;
 import com.weatherservice.model.*;
+import com.weatherservice.service.RateLimitDecision;
 import com.weatherservice.service.RateLimitingService;
 import com.weatherservice.service.WeatherServiceFacade;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(WeatherController.class)
+@Import(RateLimitConfig.class)
 class WeatherControllerExtendedTest {
 
+    private static final RateLimitDecision ALLOWED =
+            new RateLimitDecision(true, 100, 99, Duration.ZERO, Duration.ofMillis(600));
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -28,11 +39,17 @@ class WeatherControllerExtendedTest {
     @MockBean
     private RateLimitingService rateLimitingService;
 
+    @BeforeEach
+    void setUp() {
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.empty());
+        when(weatherService.servedFromCache(any(WeatherRequest.class), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
     @Test
     void getCurrentWeather_WithCityAndCountry_ShouldReturnWeather() {
         // Given
         WeatherResponse response = createTestResponse();
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
         when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
 
         // When & Then
@@ -49,7 +66,7 @@ class WeatherControllerExtendedTest {
     void getCurrentWeather_WithValidCoordinates_ShouldReturnWeather() {
         // Given
         WeatherResponse response = createTestResponse();
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
         when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
 
         // When & Then - coordinates should work
@@ -65,7 +82,7 @@ class WeatherControllerExtendedTest {
     void getCurrentWeather_WithProvider_ShouldReturnWeather() {
         // Given
         WeatherResponse response = createTestResponse();
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
         when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
 
         // When & Then
@@ -81,7 +98,7 @@ class WeatherControllerExtendedTest {
     @Test
     void getCurrentWeather_WhenServiceError_ShouldReturnError() {
         // Given
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
         when(weatherService.getWeather(any(WeatherRequest.class)))
                 .thenReturn(Mono.error(new RuntimeException("Service error")));
 
@@ -108,7 +125,7 @@ class WeatherControllerExtendedTest {
                 .recommendation("Pleasant weather")
                 .build();
 
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
         when(weatherService.getAggregatedWeather(any(WeatherRequest.class))).thenReturn(Mono.just(aggregatedResponse));
 
         // When & Then
@@ -125,7 +142,14 @@ class WeatherControllerExtendedTest {
     @Test
     void getRateLimitInfo_ShouldReturnRateLimitData() {
         // Given
-        when(rateLimitingService.getRemainingRequests(any())).thenReturn(Mono.just(75L));
+        when(rateLimitingService.getRateLimitInfo(any())).thenReturn(Mono.just(RateLimitingService.RateLimitInfo.builder()
+                .clientId("127.0.0.1")
+                .currentRequests(25L)
+                .remainingRequests(75L)
+                .limit(100)
+                .windowMinutes(1)
+                .resetTime(Instant.parse("2026-01-01T00:00:15Z"))
+                .build()));
 
         // When & Then
         webTestClient.get()
@@ -134,7 +158,8 @@ class WeatherControllerExtendedTest {
                 .expectStatus().isOk()
                 .expectBody()
                 .jsonPath("$.remainingRequests").isEqualTo(75)
-                .jsonPath("$.limit").isEqualTo(100);
+                .jsonPath("$.limit").isEqualTo(100)
+                .jsonPath("$.resetTime").isEqualTo("2026-01-01T00:00:15Z");
     }
 
     @Test
@@ -1,24 +1,58 @@
 package com.weatherservice.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.weatherservice.config.BinaryCodecConfig;
+import com.weatherservice.config.RateLimitConfig;
 import com.weatherservice.model.*;
+import com.weatherservice.config.CacheConfig.PrecompressionProperties;
+import com.weatherservice.service.CacheEntryTag;
+import com.weatherservice.service.CompressedVariants;
+import com.weatherservice.service.EncodedWeatherResponse;
+import com.weatherservice.service.RateLimitDecision;
 import com.weatherservice.service.RateLimitingService;
 import com.weatherservice.service.WeatherServiceFacade;
+import com.weatherservice.util.JsonSerializerUtil;
+import com.weatherservice.web.FieldProjection;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
 import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 @WebFluxTest(WeatherController.class)
+@Import({RateLimitConfig.class, BinaryCodecConfig.class})
 class WeatherControllerTest {
 
+    private static final RateLimitDecision ALLOWED =
+            new RateLimitDecision(true, 100, 99, Duration.ZERO, Duration.ofMillis(600));
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -28,12 +62,19 @@ class WeatherControllerTest {
     @MockBean
     private RateLimitingService rateLimitingService;
 
+    @BeforeEach
+    void setUp() {
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.empty());
+        when(weatherService.getEncodedWeather(any(WeatherRequest.class), any(CacheEntryTag.class))).thenReturn(Mono.empty());
+        when(weatherService.servedFromCache(any(WeatherRequest.class), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
     @Test
     void getCurrentWeather_WithCityAndCountry_ShouldReturnWeather() {
         // Given
         WeatherResponse response = createTestResponse();
         when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
 
         // When & Then
         webTestClient.get()
@@ -56,7 +97,7 @@ class WeatherControllerTest {
         // Given
         WeatherResponse response = createTestResponse();
         when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
 
         // When & Then
         webTestClient.get()
@@ -75,7 +116,8 @@ class WeatherControllerTest {
     @Test
     void getCurrentWeather_WhenRateLimitExceeded_ShouldReturnError() {
         // Given
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(false));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(
+                new RateLimitDecision(false, 100, 0, Duration.ofMillis(1500), Duration.ofSeconds(60))));
 
         // When & Then
         webTestClient.get()
@@ -84,7 +126,41 @@ class WeatherControllerTest {
                         .queryParam("city", "London")
                         .build())
                 .exchange()
-                .expectStatus().isEqualTo(429); // TOO_MANY_REQUESTS
+                .expectStatus().isEqualTo(429) // TOO_MANY_REQUESTS
+                .expectHeader().valueEquals("Retry-After", "2")
+                .expectHeader().valueEquals("RateLimit-Remaining", "0")
+                .expectBody()
+                .jsonPath("$.status").isEqualTo(429)
+                .jsonPath("$.error").isEqualTo("Rate Limit Exceeded");
+
+        // Отклонено до контроллера
+        verify(weatherService, never()).getWeather(any());
+    }
+
+    @Test
+    void rateLimitFilter_ShouldApplyRouteCostAndHeaders() {
+        // Given
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+        when(weatherService.getAggregatedWeather(any(WeatherRequest.class))).thenReturn(Mono.empty());
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/aggregated?city=London")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("RateLimit-Limit", "100")
+                .expectHeader().valueEquals("RateLimit-Remaining", "99")
+                .expectHeader().valueEquals("RateLimit-Reset", "1");
+
+        webTestClient.get()
+                .uri("/api/v1/weather/providers")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("RateLimit-Limit");
+
+        // Агрегация опрашивает всех провайдеров и стоит дороже, список провайдеров бесплатен
+        verify(rateLimitingService).tryConsume(any(), eq(3));
+        verify(rateLimitingService, times(1)).tryConsume(any(), anyInt());
     }
 
     @Test
@@ -92,7 +168,7 @@ class WeatherControllerTest {
         // Given
         when(weatherService.getWeather(any(WeatherRequest.class)))
                 .thenReturn(Mono.error(new RuntimeException("Service unavailable")));
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
 
         // When & Then
         webTestClient.get()
@@ -104,6 +180,298 @@ class WeatherControllerTest {
                 .expectStatus().is5xxServerError();
     }
 
+    @Test
+    void getCurrentWeather_FromCache_ShouldEmitValidators() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = new CacheEntryTag("stored-hash", response.getCachedUntil());
+        // Запись прочитана из кэша вместе с валидатором
+        response.setEtag(tag.etag());
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", tag.quoted())
+                .expectHeader().valueMatches("Cache-Control", "max-age=(59\\d|600), must-revalidate")
+                .expectHeader().exists("Expires")
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody()
+                .jsonPath("$.location.name").isEqualTo("London");
+
+        // Без If-None-Match и готового тела валидатор отдельно не читается и не пересчитывается
+        verify(weatherService, never()).getEntryTag(any(WeatherRequest.class));
+    }
+
+    @Test
+    void getCurrentWeather_WithMatchingETag_ShouldReturnNotModified() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header("If-None-Match", "\"stale\", " + tag.quoted())
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", tag.quoted())
+                .expectHeader().exists("Expires")
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody().isEmpty();
+
+        // Запись кэша не читалась, но ответ учтен как попадание
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+        verify(weatherService).servedFromCache(any(WeatherRequest.class), any());
+    }
+
+    @Test
+    void getCurrentWeather_WithEncodedEntry_ShouldWriteBytesWithoutMapping() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        byte[] json = "{\"location\":{\"name\":\"London\"}}".getBytes(StandardCharsets.UTF_8);
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(weatherService.getEncodedWeather(any(WeatherRequest.class), eq(tag)))
+                .thenReturn(Mono.just(new EncodedWeatherResponse(json, tag)));
+        when(weatherService.hasEncodedWeather(any(WeatherRequest.class))).thenReturn(true);
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals("ETag", tag.quoted())
+                .expectHeader().valueEquals("Vary", "Accept, Accept-Encoding")
+                .expectBody(byte[].class).isEqualTo(json);
+
+        // Готовое тело учтено как попадание в кэш
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+        verify(weatherService).servedFromCache(any(WeatherRequest.class), any());
+    }
+
+    @Test
+    void getCurrentWeather_WithFields_ShouldProjectCachedBytes() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        byte[] json = JsonSerializerUtil.toJsonBytes(response);
+        FieldProjection projection = FieldProjection.of("current.temperature,location.name");
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(weatherService.getEncodedWeather(any(WeatherRequest.class), eq(tag)))
+                .thenReturn(Mono.just(new EncodedWeatherResponse(json, tag)));
+        when(weatherService.hasEncodedWeather(any(WeatherRequest.class))).thenReturn(true);
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&fields=location.name,current.temperature")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectHeader().valueEquals("ETag", tag.quoted(projection.id()))
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody(String.class)
+                .isEqualTo("{\"location\":{\"name\":\"London\"},\"current\":{\"temperature\":15.5}}");
+
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+    }
+
+    @Test
+    void getCurrentWeather_WithFieldsAndMatchingETag_ShouldReturnNotModified() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        FieldProjection projection = FieldProjection.of("source");
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then: ETag полного ответа проекции не подходит
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&fields=source")
+                .header("If-None-Match", tag.quoted(projection.id()))
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", tag.quoted(projection.id()));
+    }
+
+    @Test
+    void getCurrentWeather_WithFieldsFromProvider_ShouldSerializeOnlyRequestedFields() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        response.setCachedUntil(null);
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&fields=source")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("{\"source\":\"OPENWEATHER_MAP\"}");
+    }
+
+    @Test
+    void getCurrentWeather_WithInvalidFields_ShouldReturnBadRequest() {
+        // Given
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&fields=location..name")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+    }
+
+    @Test
+    void getCurrentWeather_WhenGzipAccepted_ShouldServePrecompressedVariant() throws IOException {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        byte[] json = "{\"location\":{\"name\":\"London\"}}".repeat(20).getBytes(StandardCharsets.UTF_8);
+        CompressedVariants variants = new CompressedVariants(
+                new PrecompressionProperties(true, DataSize.ofMegabytes(1), DataSize.ofBytes(0), 0));
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(weatherService.getEncodedWeather(any(WeatherRequest.class), eq(tag)))
+                .thenReturn(Mono.just(new EncodedWeatherResponse(json, tag, variants)));
+        when(weatherService.hasEncodedWeather(any(WeatherRequest.class))).thenReturn(true);
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When
+        byte[] body = webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Content-Encoding", "gzip")
+                .expectHeader().valueEquals("Vary", "Accept, Accept-Encoding")
+                .expectHeader().valueEquals("ETag", tag.gzipQuoted())
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+
+        // Клиент без gzip получает несжатое тело той же записи
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("Content-Encoding")
+                .expectBody(byte[].class).isEqualTo(json);
+    }
+
+    @Test
+    void getCurrentWeather_WithCborAccept_ShouldEncodeWithBinaryCodec() throws IOException {
+        // Given - в памяти есть готовый JSON, но клиент просит CBOR
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When
+        byte[] body = webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .accept(MediaType.APPLICATION_CBOR)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_CBOR)
+                .expectHeader().valueEquals("ETag", tag.quoted())
+                .expectHeader().valueEquals("Vary", "Accept")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then
+        JsonNode decoded = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals("London", decoded.at("/location/name").asText());
+        assertEquals(15.5, decoded.at("/current/temperature").asDouble());
+        verify(weatherService, never()).getEncodedWeather(any(), any());
+    }
+
+    @Test
+    void getCurrentWeather_WithXmlAccept_ShouldReturnNotAcceptable() {
+        // Given - в памяти есть готовый JSON, но клиент принимает только XML
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = CacheEntryTag.of(response, response.getCachedUntil());
+        when(weatherService.getEntryTag(any(WeatherRequest.class))).thenReturn(Mono.just(tag));
+        when(weatherService.getEncodedWeather(any(WeatherRequest.class), eq(tag)))
+                .thenReturn(Mono.just(new EncodedWeatherResponse("{}".getBytes(StandardCharsets.UTF_8), tag, null)));
+        when(weatherService.hasEncodedWeather(any(WeatherRequest.class))).thenReturn(true);
+        when(weatherService.getWeather(any(WeatherRequest.class))).thenReturn(Mono.just(response));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When & Then
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .accept(MediaType.APPLICATION_XML)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE);
+        // JSON с q=0 - отказ от JSON, а не согласие на него; сопоставление по produces q не учитывает
+        webTestClient.get()
+                .uri("/api/v1/weather/current?city=London&country=GB")
+                .header(HttpHeaders.ACCEPT, "application/xml, application/json;q=0")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_ACCEPTABLE)
+                .expectHeader().valueEquals("Vary", "Accept");
+
+        verify(weatherService, never()).getEncodedWeather(any(), any());
+        verify(weatherService, never()).getWeather(any(WeatherRequest.class));
+    }
+
+    @Test
+    void acceptsEncodedJson_ShouldRequireJsonCompatibleType() {
+        assertTrue(WeatherController.acceptsEncodedJson(accept(null)));
+        assertTrue(WeatherController.acceptsEncodedJson(accept("*/*")));
+        assertTrue(WeatherController.acceptsEncodedJson(accept("application/xml, application/*;q=0.5")));
+        assertTrue(WeatherController.acceptsEncodedJson(accept("application/json, application/cbor;q=0")));
+        assertFalse(WeatherController.acceptsEncodedJson(accept("application/xml")));
+        assertFalse(WeatherController.acceptsEncodedJson(accept("application/xml, application/json;q=0")));
+        assertFalse(WeatherController.acceptsEncodedJson(accept("application/cbor, */*;q=0.1")));
+    }
+
+    @Test
+    void getAggregatedWeather_WithSmileAccept_ShouldEncodeWithBinaryCodec() throws IOException {
+        // Given
+        AggregatedWeatherResponse aggregatedResponse = AggregatedWeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .temperature(20.0)
+                .providersUsed(List.of(WeatherProvider.OPENWEATHER_MAP))
+                .timestamp(LocalDateTime.now())
+                .build();
+        when(weatherService.getAggregatedWeather(any(WeatherRequest.class))).thenReturn(Mono.just(aggregatedResponse));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
+
+        // When
+        byte[] body = webTestClient.get()
+                .uri("/api/v1/weather/aggregated?city=London")
+                .accept(MediaType.parseMediaType("application/x-jackson-smile"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        // Then - даты в том же ISO-виде, что и в JSON (незначащие нули долей секунды Jackson не пишет)
+        JsonNode decoded = new ObjectMapper(new SmileFactory()).readTree(body);
+        assertEquals(20.0, decoded.at("/temperature").asDouble());
+        assertEquals(aggregatedResponse.getTimestamp(), LocalDateTime.parse(decoded.at("/timestamp").asText()));
+    }
+
     @Test
     void getAggregatedWeather_ShouldReturnOk() {
         // Given
@@ -119,7 +487,7 @@ class WeatherControllerTest {
                 .build();
 
         when(weatherService.getAggregatedWeather(any(WeatherRequest.class))).thenReturn(Mono.just(aggregatedResponse));
-        when(rateLimitingService.isAllowed(any())).thenReturn(Mono.just(true));
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(ALLOWED));
 
         // When & Then
         webTestClient.get()
@@ -144,6 +512,14 @@ class WeatherControllerTest {
                 .jsonPath("$[2]").isEqualTo("ACCUWEATHER");
     }
 
+    private static HttpHeaders accept(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        if (value != null) {
+            headers.set(HttpHeaders.ACCEPT, value);
+        }
+        return headers;
+    }
+
     private WeatherResponse createTestResponse() {
         return WeatherResponse.builder()
                 .location(LocationInfo.builder()
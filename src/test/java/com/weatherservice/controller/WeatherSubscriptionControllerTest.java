@@ -0,0 +1,79 @@
+package com.weatherservice.controller;
+
+import com.weatherservice.config.SubscriptionConfig;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.service.WeatherUpdateBroadcaster;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(WeatherSubscriptionController.class)
+@Import(SubscriptionConfig.class)
+class WeatherSubscriptionControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private WeatherUpdateBroadcaster broadcaster;
+
+    @Test
+    void subscribe_ShouldStreamFramesForEachLocation() {
+        // Given
+        when(broadcaster.subscribe(any())).thenAnswer(invocation -> {
+            WeatherRequest request = invocation.getArgument(0);
+            return Flux.just(("event: weather\ndata: {\"city\":\"" + request.getCity() + "\"}\n\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        });
+
+        // When
+        Flux<String> body = webTestClient.get()
+                .uri("/api/v1/weather/subscribe?city=London&country=GB&city=Paris&country=FR")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+                .returnResult(String.class)
+                .getResponseBody();
+
+        // Then
+        StepVerifier.create(body.take(2).collectList())
+                .assertNext(events -> assertEquals(2, events.size()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        ArgumentCaptor<WeatherRequest> requests = ArgumentCaptor.forClass(WeatherRequest.class);
+        verify(broadcaster, times(2)).subscribe(requests.capture());
+        assertEquals(List.of("GB", "FR"), requests.getAllValues().stream().map(WeatherRequest::getCountryCode).toList());
+    }
+
+    @Test
+    void subscribe_WithTooManyLocations_ShouldBeRejected() {
+        StringBuilder uri = new StringBuilder("/api/v1/weather/subscribe?city=A");
+        for (int i = 0; i < 10; i++) {
+            uri.append("&city=C").append(i);
+        }
+
+        webTestClient.get()
+                .uri(uri.toString())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,65 @@
+package com.weatherservice.diagnostics;
+
+import io.netty.channel.EventLoopGroup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import reactor.blockhound.BlockingOperationError;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BlockHound ставится на все тесты через blockhound-junit-platform (Maven-профиль blockhound)
+ */
+@EnabledIf("blockHoundInstalled")
+class BlockingCallDetectionTest {
+
+    static boolean blockHoundInstalled() {
+        try {
+            Class.forName("reactor.blockhound.junit.platform.BlockHoundTestExecutionListener");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void blockingCallOnParallelScheduler_ShouldFail() {
+        // When / Then
+        StepVerifier.create(Mono.delay(Duration.ofMillis(1)).doOnNext(tick -> sleep()))
+                .expectError(BlockingOperationError.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void blockingCallOnNettyEventLoop_ShouldFail() throws Exception {
+        // Given
+        LoopResources loops = LoopResources.create("blocking-test", 1, true);
+        try {
+            EventLoopGroup group = loops.onServer(false);
+
+            // When
+            ExecutionException error = assertThrows(ExecutionException.class,
+                    () -> group.submit(BlockingCallDetectionTest::sleep).get(5, TimeUnit.SECONDS));
+
+            // Then
+            assertInstanceOf(BlockingOperationError.class, error.getCause());
+        } finally {
+            loops.disposeLater().block(Duration.ofSeconds(5));
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
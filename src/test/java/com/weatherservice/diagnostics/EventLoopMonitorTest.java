@@ -0,0 +1,126 @@
+package com.weatherservice.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.EventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopMonitorTest {
+
+    private LoopResources loops;
+    private EventLoopGroup group;
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        loops = LoopResources.create("monitor-test", 2, true);
+        group = loops.onServer(false);
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        loops.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void probe_ShouldRecordLatencyUtilizationAndPendingTasksPerLoop() throws Exception {
+        // Given - первый цикл занят вычислениями
+        EventLoopMonitor monitor = new EventLoopMonitor(group, registry, Duration.ofSeconds(1));
+        monitor.probe();
+        awaitCondition(() -> latencyCount("loop-0") == 1 && latencyCount("loop-1") == 1);
+
+        // When
+        group.iterator().next().submit(() -> burnCpu(Duration.ofMillis(100))).get(5, TimeUnit.SECONDS);
+        monitor.probe();
+        awaitCondition(() -> latencyCount("loop-0") == 2 && latencyCount("loop-1") == 2);
+
+        // Then
+        List<EventLoopMonitor.LoopSnapshot> snapshot = monitor.snapshot();
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.get(0).thread().startsWith("monitor-test"));
+        assertTrue(snapshot.get(0).utilization() > snapshot.get(1).utilization(),
+                () -> "busy loop should have higher utilization: " + snapshot);
+        assertEquals(0, snapshot.get(1).pendingTasks());
+        assertEquals(0.0, registry.get("weather.eventloop.pending.tasks").tag("loop", "loop-1").gauge().value());
+        assertTrue(registry.get("weather.eventloop.utilization").tag("loop", "loop-0").gauge().value() >= 0);
+    }
+
+    @Test
+    void verdict_ShouldDistinguishCpuBoundBlockedAndIoBound() {
+        assertEquals("unknown", EventLoopEndpoint.verdict(List.of()));
+        assertEquals("cpu-bound", EventLoopEndpoint.verdict(List.of(loop(0.95, 200))));
+        assertEquals("blocked", EventLoopEndpoint.verdict(List.of(loop(0.05, 200), loop(0.05, 1))));
+        assertEquals("io-bound", EventLoopEndpoint.verdict(List.of(loop(0.1, 0.2))));
+    }
+
+    @Test
+    void schedulerMetrics_ShouldAggregateWaitAndExecutionPerScheduler() {
+        // Given - декоратор действует на планировщики, созданные после установки
+        SchedulerMetrics.install(registry);
+        Scheduler scheduler = Schedulers.newParallel("metrics-test", 2);
+        try {
+            // When
+            StepVerifier.create(Mono.fromCallable(() -> 42).subscribeOn(scheduler))
+                    .expectNext(42)
+                    .verifyComplete();
+            StepVerifier.create(Mono.delay(Duration.ofMillis(5), scheduler))
+                    .expectNext(0L)
+                    .verifyComplete();
+
+            // Then
+            assertEquals("parallel", SchedulerMetrics.schedulerName(Schedulers.parallel()));
+            assertEquals(2, registry.get("weather.scheduler.task.execution").tag("scheduler", "metrics-test")
+                    .timer().count());
+            assertEquals(2, registry.get("weather.scheduler.task.wait").tag("scheduler", "metrics-test")
+                    .timer().count());
+            SchedulerMetrics.SchedulerSnapshot snapshot = SchedulerMetrics.snapshot().stream()
+                    .filter(stats -> stats.name().equals("metrics-test"))
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(2, snapshot.completedTasks());
+        } finally {
+            scheduler.dispose();
+            SchedulerMetrics.uninstall();
+        }
+    }
+
+    private long latencyCount(String loop) {
+        return registry.get("weather.eventloop.task.latency").tag("loop", loop).timer().count();
+    }
+
+    private static EventLoopMonitor.LoopSnapshot loop(double utilization, double latencyMillis) {
+        return new EventLoopMonitor.LoopSnapshot("loop", "thread", 0, latencyMillis, latencyMillis, utilization);
+    }
+
+    private static void burnCpu(Duration duration) {
+        long end = System.nanoTime() + duration.toNanos();
+        long value = 0;
+        while (System.nanoTime() < end) {
+            value += Long.numberOfTrailingZeros(value + 1);
+        }
+        assertTrue(value >= 0);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met in time");
+            Thread.sleep(10);
+        }
+    }
+}
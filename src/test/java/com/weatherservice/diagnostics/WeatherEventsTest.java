@@ -0,0 +1,237 @@
+package com.weatherservice.diagnostics;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.config.DiagnosticsConfig;
+import com.weatherservice.resilience.ProviderRetryPolicy;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.service.BlockingWeatherService;
+import com.weatherservice.service.WeatherCacheService;
+import com.weatherservice.service.WeatherMetrics;
+import com.weatherservice.service.WeatherServiceFacade;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.io.Resource;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WeatherEventsTest {
+
+    @Test
+    void helpers_WithoutActiveRecording_ShouldReturnOperationUnchanged() {
+        // Given
+        Mono<String> lookup = Mono.just("value");
+
+        // When / Then
+        assertSame(lookup, WeatherEvents.cacheLookup("key", "redis", lookup));
+        assertSame(lookup, WeatherEvents.providerCall(WeatherProvider.WEATHER_API, "key", lookup));
+    }
+
+    @Test
+    void cacheMiss_ShouldEmitProviderCallEvent() throws IOException {
+        // Given - провайдер отвечает за 100 мс
+        WeatherRequest request = WeatherRequest.builder().city("London").build();
+        WeatherResponse response = WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .build();
+
+        WeatherProviderClient client = mock(WeatherProviderClient.class);
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.getProvider()).thenReturn(WeatherProvider.OPENWEATHER_MAP);
+        when(client.getCurrentWeather(any())).thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(response));
+
+        WeatherCacheService cacheService = mock(WeatherCacheService.class);
+        when(cacheService.getCachedWeather(any())).thenReturn(Mono.empty());
+        when(cacheService.cacheWeatherData(any(), any())).thenReturn(Mono.just(true));
+
+        WeatherServiceFacade facade = new WeatherServiceFacade(Map.of("client", client), cacheService,
+                null, null, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            WeatherEvents.EVENT_TYPES.forEach(type -> recording.enable(type).withoutThreshold());
+            recording.start();
+
+            // When
+            StepVerifier.create(facade.getWeather(request))
+                    .expectNext(response)
+                    .verifyComplete();
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        // Then
+        verify(client, times(1)).getCurrentWeather(any());
+
+        List<RecordedEvent> providerCalls = eventsNamed(events, "com.weatherservice.ProviderCall");
+        assertEquals(1, providerCalls.size());
+        assertEquals("OPENWEATHER_MAP", providerCalls.get(0).getString("provider"));
+        assertEquals("success", providerCalls.get(0).getString("outcome"));
+        assertTrue(providerCalls.get(0).getDuration().toMillis() >= 90);
+    }
+
+    @Test
+    void concurrentBlockingMisses_ShouldEmitCoalescedFetchForFollowers() throws Exception {
+        // Given - провайдер отвечает, только когда второй запрос уже ждет первый
+        WeatherRequest request = WeatherRequest.builder().city("London").build();
+        WeatherResponse response = WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .build();
+        Sinks.One<WeatherResponse> upstream = Sinks.one();
+
+        WeatherProviderClient client = mock(WeatherProviderClient.class);
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.getProvider()).thenReturn(WeatherProvider.OPENWEATHER_MAP);
+        when(client.getCurrentWeather(any())).thenReturn(upstream.asMono());
+
+        WeatherCacheService cacheService = mock(WeatherCacheService.class);
+        when(cacheService.getCachedWeather(any())).thenReturn(Mono.empty());
+        when(cacheService.cacheWeatherData(any(), any())).thenReturn(Mono.just(true));
+
+        BlockingWeatherService service = new BlockingWeatherService(Map.of("client", client), cacheService,
+                null, mock(WeatherMetrics.class), ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            WeatherEvents.EVENT_TYPES.forEach(type -> recording.enable(type).withoutThreshold());
+            recording.start();
+
+            // When
+            List<Future<WeatherResponse>> results = new ArrayList<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                results.add(executor.submit(() -> service.getWeather(request)));
+                results.add(executor.submit(() -> service.getWeather(request)));
+                Thread.sleep(200);
+                upstream.tryEmitValue(response);
+            }
+            for (Future<WeatherResponse> result : results) {
+                assertSame(response, result.get());
+            }
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        // Then - один вызов провайдера, второй запрос дождался его результата
+        verify(client, times(1)).getCurrentWeather(any());
+        List<RecordedEvent> coalesced = eventsNamed(events, "com.weatherservice.CoalescedFetch");
+        assertEquals(1, coalesced.size());
+        assertEquals("OPENWEATHER_MAP", coalesced.get(0).getString("provider"));
+        assertEquals("success", coalesced.get(0).getString("outcome"));
+    }
+
+    @Test
+    void fallbackAndRateLimitEvents_ShouldCarryFields() throws IOException {
+        // Given
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            WeatherEvents.EVENT_TYPES.forEach(type -> recording.enable(type).withoutThreshold());
+            recording.start();
+
+            // When
+            WeatherEvents.fallback("memory-cache", "weather:london", new IllegalStateException("redis down"));
+            WeatherEvents.rateLimitDecision("rate_limit:client", "local", 3, false, 0);
+            StepVerifier.create(WeatherEvents.cacheLookup("weather:london", "l1", Mono.empty()))
+                    .verifyComplete();
+
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        // Then
+        RecordedEvent fallback = eventsNamed(events, "com.weatherservice.Fallback").get(0);
+        assertEquals("memory-cache", fallback.getString("kind"));
+        assertEquals("IllegalStateException: redis down", fallback.getString("reason"));
+
+        RecordedEvent decision = eventsNamed(events, "com.weatherservice.RateLimitDecision").get(0);
+        assertEquals(3, decision.getInt("cost"));
+        assertFalse(decision.getBoolean("allowed"));
+
+        RecordedEvent lookup = eventsNamed(events, "com.weatherservice.CacheLookup").get(0);
+        assertEquals("l1", lookup.getString("tier"));
+        assertFalse(lookup.getBoolean("hit"));
+        assertEquals("empty", lookup.getString("outcome"));
+    }
+
+    @Test
+    void endpoint_ShouldStartListDownloadAndStopRecording() throws IOException {
+        // Given
+        JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint();
+
+        // When
+        WebEndpointResponse<JfrRecordingEndpoint.RecordingInfo> started =
+                endpoint.start("test-recording", Duration.ofMinutes(1), "default");
+        long id = started.getBody().id();
+        WeatherEvents.fallback("stale-cache", "London", null);
+
+        // Then
+        assertEquals("RUNNING", started.getBody().state());
+        assertTrue(endpoint.recordings().stream().anyMatch(info -> info.id() == id));
+
+        // Снимок отдается файлом с диска, повторное скачивание его подменяет
+        endpoint.download(id);
+        Resource dump = endpoint.download(id).getBody();
+        assertTrue(dump.isFile());
+        assertFalse(eventsNamed(RecordingFile.readAllEvents(dump.getFile().toPath()), "com.weatherservice.Fallback").isEmpty());
+
+        assertEquals(WebEndpointResponse.STATUS_NO_CONTENT, endpoint.stop(id).getStatus());
+        assertTrue(endpoint.recordings().stream().noneMatch(info -> info.id() == id));
+        assertFalse(dump.exists());
+        assertEquals(WebEndpointResponse.STATUS_NOT_FOUND, endpoint.download(id).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.start(null, null, "unknown").getStatus());
+        endpoint.deleteDumps();
+    }
+
+    @Test
+    void endpoint_ShouldBeDisabledByDefault() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withUserConfiguration(DiagnosticsConfig.class)
+                .withPropertyValues("weather.diagnostics.event-loop-monitor=false");
+
+        runner.run(context -> assertThat(context).doesNotHaveBean(JfrRecordingEndpoint.class));
+        runner.withPropertyValues("weather.diagnostics.jfr-endpoint=true")
+                .run(context -> assertThat(context).hasSingleBean(JfrRecordingEndpoint.class));
+    }
+
+    private static List<RecordedEvent> readEvents(Recording recording) throws IOException {
+        Path file = Files.createTempFile("weather-events-test", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<RecordedEvent> eventsNamed(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+    }
+}
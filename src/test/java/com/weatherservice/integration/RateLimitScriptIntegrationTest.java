@@ -0,0 +1,169 @@
+package com.weatherservice.integration;
+
+import com.weatherservice.service.RateLimitDecision;
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.service.WeatherMetrics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import reactor.test.StepVerifier;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * GCRA-скрипт против настоящего redis-server: время берется из Redis TIME, ключ пишется с TTL
+ */
+class RateLimitScriptIntegrationTest {
+
+    private static final int LIMIT = 3;
+    private static final Duration PERIOD = Duration.ofMillis(600);
+
+    private static RedisServer redisServer;
+    private static ReactiveRedisConnectionFactory connectionFactory;
+    private static ReactiveStringRedisTemplate redisTemplate;
+
+    private RateLimitingService rateLimitingService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        factory.afterPropertiesSet();
+        connectionFactory = factory;
+        // Соединение открываем заранее, вне потоков, которые проверяет BlockHound
+        connectionFactory.getReactiveConnection().ping().block(Duration.ofSeconds(5));
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        if (connectionFactory instanceof LettuceConnectionFactory factory) {
+            factory.destroy();
+        }
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        rateLimitingService = new RateLimitingService(redisTemplate, mock(WeatherMetrics.class));
+        connectionFactory.getReactiveConnection().serverCommands().flushDb().block(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void tryConsume_ShouldAllowUpToLimitAndThenDeny() {
+        // When & Then - лимит расходуется по одному запросу
+        for (int i = LIMIT - 1; i >= 0; i--) {
+            long remaining = i;
+            StepVerifier.create(rateLimitingService.tryConsume("client-a", 1, LIMIT, PERIOD))
+                    .expectNextMatches(decision -> decision.allowed()
+                            && decision.limit() == LIMIT
+                            && decision.remaining() == remaining
+                            && decision.resetAfter().compareTo(PERIOD) <= 0)
+                    .verifyComplete();
+        }
+
+        // Сверх лимита - отказ со временем до следующего разрешенного запроса
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 1, LIMIT, PERIOD))
+                .expectNextMatches(decision -> !decision.allowed()
+                        && decision.remaining() == 0
+                        && decision.retryAfter().compareTo(Duration.ZERO) > 0
+                        && decision.retryAfter().compareTo(PERIOD.dividedBy(LIMIT)) <= 0)
+                .verifyComplete();
+
+        // Другой клиент не затронут
+        StepVerifier.create(rateLimitingService.tryConsume("client-b", 1, LIMIT, PERIOD))
+                .expectNextMatches(decision -> decision.allowed() && decision.remaining() == LIMIT - 1)
+                .verifyComplete();
+    }
+
+    @Test
+    void tryConsume_ShouldDenyRequestCostingMoreThanRemaining() {
+        // Given
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 2, LIMIT, PERIOD))
+                .expectNextMatches(decision -> decision.allowed() && decision.remaining() == 1)
+                .verifyComplete();
+
+        // When & Then - отказ не списывает стоимость
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 2, LIMIT, PERIOD))
+                .expectNextMatches(decision -> !decision.allowed() && decision.remaining() == 1)
+                .verifyComplete();
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 1, LIMIT, PERIOD))
+                .expectNextMatches(decision -> decision.allowed() && decision.remaining() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    void tryConsume_ShouldRestoreLimitAfterResetTime() throws InterruptedException {
+        // Given - лимит исчерпан
+        Duration resetAfter = rateLimitingService.tryConsume("client-a", LIMIT, LIMIT, PERIOD)
+                .filter(decision -> decision.allowed() && decision.remaining() == 0)
+                .map(RateLimitDecision::resetAfter)
+                .block();
+        assertNotNull(resetAfter);
+        assertTrue(resetAfter.compareTo(Duration.ZERO) > 0 && resetAfter.compareTo(PERIOD) <= 0);
+
+        // When
+        Thread.sleep(resetAfter.toMillis() + 50);
+
+        // Then - ключ истек вместе с TTL, лимит снова полный
+        StepVerifier.create(redisTemplate.hasKey("rate_limit:client-a"))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(rateLimitingService.getRemainingRequests("client-a", LIMIT, PERIOD))
+                .expectNext((long) LIMIT)
+                .verifyComplete();
+    }
+
+    @Test
+    void peek_ShouldNotConsumeLimit() {
+        // Given
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 1, LIMIT, PERIOD))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // When & Then
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(rateLimitingService.getRemainingRequests("client-a", LIMIT, PERIOD))
+                    .expectNextMatches(remaining -> remaining == LIMIT - 1 || remaining == LIMIT)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void resetRateLimit_ShouldDeleteClientState() {
+        // Given
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", LIMIT, LIMIT, PERIOD))
+                .expectNextMatches(RateLimitDecision::allowed)
+                .verifyComplete();
+
+        // When
+        StepVerifier.create(rateLimitingService.resetRateLimit("client-a"))
+                .expectNext(true)
+                .verifyComplete();
+
+        // Then
+        StepVerifier.create(rateLimitingService.tryConsume("client-a", 1, LIMIT, PERIOD))
+                .expectNextMatches(decision -> decision.allowed() && decision.remaining() == LIMIT - 1)
+                .verifyComplete();
+    }
+}
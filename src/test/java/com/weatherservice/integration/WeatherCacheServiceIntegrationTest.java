@@ -6,19 +6,24 @@ import com.weatherservice.model.CurrentWeather;
 import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.WeatherProvider;
 import com.weatherservice.service.WeatherCacheService;
+import com.weatherservice.util.JsonSerializerUtil;
 import com.weatherservice.util.WeatherKeyGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -36,11 +41,16 @@ class WeatherCacheServiceIntegrationTest {
     @Mock
     private ReactiveValueOperations<String, WeatherResponse> valueOperations;
 
+    @Mock
+    private ReactiveValueOperations<String, String> stringOperations;
+
     private WeatherCacheService cacheService;
 
     @BeforeEach
     void setUp() {
         lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class)))
+                .thenReturn(stringOperations);
         cacheService = new WeatherCacheService(redisTemplate, keyGenerator);
     }
 
@@ -54,7 +64,11 @@ class WeatherCacheServiceIntegrationTest {
         when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
         when(valueOperations.set(eq(cacheKey), any(WeatherResponse.class), any(Duration.class)))
                 .thenReturn(Mono.just(true));
-        when(valueOperations.get(cacheKey)).thenReturn(Mono.just(response));
+        ArgumentCaptor<String> storedTag = ArgumentCaptor.forClass(String.class);
+        when(stringOperations.set(eq(cacheKey + ":etag"), storedTag.capture(), any(Duration.class)))
+                .thenReturn(Mono.just(true));
+        when(stringOperations.multiGet(List.of(cacheKey, cacheKey + ":etag")))
+                .thenAnswer(inv -> Mono.just(Arrays.asList(JsonSerializerUtil.toJson(response), storedTag.getValue())));
 
         // When - cache data
         StepVerifier.create(cacheService.cacheWeatherData(request, response))
@@ -69,7 +83,7 @@ class WeatherCacheServiceIntegrationTest {
                 .verifyComplete();
 
         verify(valueOperations).set(eq(cacheKey), any(WeatherResponse.class), any(Duration.class));
-        verify(valueOperations).get(cacheKey);
+        verify(stringOperations).multiGet(List.of(cacheKey, cacheKey + ":etag"));
     }
 
     @Test
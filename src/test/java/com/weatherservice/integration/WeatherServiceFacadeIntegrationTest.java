@@ -1,6 +1,7 @@
 package com.weatherservice.integration;
 
 import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.resilience.ProviderRetryPolicy;
 import com.weatherservice.model.*;
 import com.weatherservice.resilience.WeatherErrorHandler;
 import com.weatherservice.service.WeatherCacheService;
@@ -14,6 +15,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -47,7 +49,7 @@ class WeatherServiceFacadeIntegrationTest {
                 "realClient", realClient,
                 "anotherClient", anotherClient
         );
-        weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
     }
 
     @Test
@@ -0,0 +1,113 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GazetteerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void search_ShouldReturnPrefixMatchesByPopulation() throws IOException {
+        // Given
+        Path source = writeSource(
+                place("London", "GB", 51.50853, -0.12574, 8961989, "Europe/London"),
+                place("London", "CA", 42.98339, -81.23304, 346765, "America/Toronto"),
+                place("Londrina", "BR", -23.31028, -51.16278, 575377, "America/Sao_Paulo"),
+                place("Zürich", "CH", 47.36667, 8.55, 341730, "Europe/Zurich"),
+                place("Paris", "FR", 48.85341, 2.3488, 2138551, "Europe/Paris"),
+                "malformed line");
+
+        try (Gazetteer gazetteer = Gazetteer.open(source, directory.resolve("cities.gaz"), 100)) {
+            // When
+            List<LocationInfo> lon = gazetteer.search("LON", 2);
+            List<LocationInfo> zurich = gazetteer.search("zuri", 5);
+
+            // Then
+            assertEquals(5, gazetteer.size());
+            assertEquals(List.of("GB", "BR"), lon.stream().map(LocationInfo::getCountry).toList());
+            assertEquals("Europe/London", lon.get(0).getTimezone());
+            assertEquals(51.50853, lon.get(0).getLat(), 1e-4);
+            assertEquals("Zürich", zurich.get(0).getName());
+            assertTrue(gazetteer.search("xyz", 5).isEmpty());
+        }
+    }
+
+    @Test
+    void resolve_ShouldPreferLargestPlaceAndHonourCountry() throws IOException {
+        // Given
+        Path source = writeSource(
+                place("London", "CA", 42.98339, -81.23304, 346765, "America/Toronto"),
+                place("London", "GB", 51.50853, -0.12574, 8961989, "Europe/London"),
+                place("Londrina", "BR", -23.31028, -51.16278, 575377, "America/Sao_Paulo"));
+
+        try (Gazetteer gazetteer = Gazetteer.open(source, directory.resolve("cities.gaz"), 100)) {
+            // When / Then
+            assertEquals("GB", gazetteer.resolve("london", null).orElseThrow().getCountry());
+            assertEquals("CA", gazetteer.resolve("London", "ca").orElseThrow().getCountry());
+            assertTrue(gazetteer.resolve("London", "US").isEmpty());
+            assertTrue(gazetteer.resolve("Lond", null).isEmpty());
+        }
+    }
+
+    @Test
+    void open_ShouldReuseCompiledFileUntilSourceChanges() throws IOException {
+        // Given
+        Path source = writeSource(place("Paris", "FR", 48.85341, 2.3488, 2138551, "Europe/Paris"));
+        Path compiled = directory.resolve("cities.gaz");
+        Gazetteer.open(source, compiled, 100).close();
+        FileTime firstCompile = Files.getLastModifiedTime(compiled);
+
+        // When - повторный старт с той же выгрузкой
+        Files.setLastModifiedTime(source, FileTime.from(firstCompile.toInstant().minusSeconds(60)));
+        try (Gazetteer reopened = Gazetteer.open(source, compiled, 100)) {
+            // Then - файл не пересобирается
+            assertEquals(firstCompile, Files.getLastModifiedTime(compiled));
+            assertEquals(1, reopened.size());
+        }
+
+        // When - выгрузка обновилась
+        Files.writeString(source, String.join("\n",
+                place("Paris", "FR", 48.85341, 2.3488, 2138551, "Europe/Paris"),
+                place("Paris", "US", 33.66094, -95.55551, 24171, "America/Chicago")));
+        Files.setLastModifiedTime(source, FileTime.from(Instant.now().plusSeconds(60)));
+        try (Gazetteer recompiled = Gazetteer.open(source, compiled, 100)) {
+            // Then
+            assertNotEquals(firstCompile, Files.getLastModifiedTime(compiled));
+            assertEquals(2, recompiled.size());
+        }
+    }
+
+    @Test
+    void empty_ShouldFindNothing() {
+        assertEquals(0, Gazetteer.empty().size());
+        assertTrue(Gazetteer.empty().search("London", 5).isEmpty());
+        assertTrue(Gazetteer.empty().resolve("London", null).isEmpty());
+    }
+
+    private Path writeSource(String... lines) throws IOException {
+        Path source = directory.resolve("cities.txt");
+        Files.writeString(source, String.join("\n", lines));
+        return source;
+    }
+
+    // Строка выгрузки GeoNames: 19 колонок через табуляцию
+    private static String place(String name, String country, double lat, double lon, long population,
+                                String timezone) {
+        return String.join("\t", "0", name, name, "", String.valueOf(lat), String.valueOf(lon), "P", "PPL",
+                country, "", "", "", "", "", String.valueOf(population), "", "0", timezone, "2023-01-01");
+    }
+}
@@ -0,0 +1,52 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocationListCodecTest {
+
+    private final LocationListCodec codec = new LocationListCodec();
+
+    @Test
+    void roundTrip_ShouldRestoreTypedLocations() {
+        // Given
+        List<LocationInfo> locations = List.of(
+                LocationInfo.builder().name("Zürich").country("CH").lat(47.36667).lon(8.55)
+                        .timezone("Europe/Zurich").build(),
+                LocationInfo.builder().name("Nowhere").build());
+
+        // When
+        byte[] bytes = codec.serialize(locations);
+        List<LocationInfo> restored = codec.deserialize(bytes);
+
+        // Then - те же объекты и заметно меньше JSON
+        assertEquals(locations, restored);
+        String json = "[{\"name\":\"Zürich\",\"country\":\"CH\",\"lat\":47.36667,\"lon\":8.55,"
+                + "\"timezone\":\"Europe/Zurich\"},{\"name\":\"Nowhere\",\"country\":null,\"lat\":null,"
+                + "\"lon\":null,\"timezone\":null}]";
+        assertTrue(bytes.length * 2 < json.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void deserialize_ShouldRejectForeignOrTruncatedData() {
+        // Given
+        byte[] bytes = codec.serialize(List.of(LocationInfo.builder().name("London").country("GB").build()));
+
+        // When / Then - старый JSON-формат и обрезанная запись - ошибка, а не мусор
+        assertThrows(SerializationException.class,
+                () -> codec.deserialize("[{\"name\":\"London\"}]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(SerializationException.class, () -> codec.deserialize(Arrays.copyOf(bytes, bytes.length - 2)));
+        assertNull(codec.deserialize(new byte[0]));
+        assertEquals(List.of(), codec.deserialize(codec.serialize(List.of())));
+    }
+}
@@ -0,0 +1,86 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.LocationIndexProperties;
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocationPrefixIndexTest {
+
+    @Test
+    void search_ShouldRankPrefixMatchesByPopularity() {
+        // Given
+        LocationPrefixIndex index = new LocationPrefixIndex(new LocationIndexProperties(true, 100, 10));
+        LocationInfo londonGb = location("London", "GB");
+        LocationInfo londonCa = location("London", "CA");
+        LocationInfo londrina = location("Londrina", "BR");
+        LocationInfo lyon = location("Lyon", "FR");
+
+        // When
+        index.record(List.of(londonCa, londrina, lyon));
+        index.record(Collections.nCopies(3, londonGb));
+        index.record(List.of(londrina));
+
+        // Then
+        assertEquals(List.of(londonGb, londrina, londonCa), index.search("Lond", 5));
+        assertEquals(List.of(londonGb), index.search("lond", 1));
+        assertEquals(List.of(londonGb, londrina, londonCa, lyon), index.search("L", 10));
+        assertEquals(List.of(), index.search("Paris", 5));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void search_ShouldIgnoreCaseDiacriticsAndSeparators() {
+        // Given
+        LocationPrefixIndex index = new LocationPrefixIndex(new LocationIndexProperties(true, 100, 10));
+        LocationInfo saoPaulo = location("São Paulo", "BR");
+        index.record(List.of(saoPaulo));
+
+        // When / Then
+        assertEquals(List.of(saoPaulo), index.search("SAO  pa", 5));
+        assertEquals(List.of(saoPaulo), index.search("sao-paulo", 5));
+        assertEquals(List.of(), index.search("  ", 5));
+        assertEquals("sao paulo", LocationNames.normalize(" São--Paulo "));
+    }
+
+    @Test
+    void record_ShouldKeepTopKPerNodeAndRespectMaxEntries() {
+        // Given - в узле хранятся только 2 самых популярных места, в индексе не больше 3 мест
+        LocationPrefixIndex index = new LocationPrefixIndex(new LocationIndexProperties(true, 3, 2));
+        LocationInfo berlin = location("Berlin", "DE");
+        LocationInfo bern = location("Bern", "CH");
+        LocationInfo bergen = location("Bergen", "NO");
+        LocationInfo bergamo = location("Bergamo", "IT");
+
+        // When
+        index.record(List.of(berlin, bern, bergen, bergamo));
+        index.record(List.of(bergen, bergen));
+
+        // Then
+        assertEquals(3, index.size());
+        assertEquals(List.of(bergen, berlin), index.search("ber", 5));
+        assertEquals(List.of(bern), index.search("bern", 5));
+        assertEquals(List.of(), index.search("bergamo", 5));
+    }
+
+    @Test
+    void disabledIndex_ShouldNeitherStoreNorAnswer() {
+        // Given
+        LocationPrefixIndex index = new LocationPrefixIndex(new LocationIndexProperties(false, 100, 10));
+
+        // When
+        index.record(List.of(location("London", "GB")));
+
+        // Then
+        assertEquals(0, index.size());
+        assertEquals(List.of(), index.search("London", 5));
+    }
+
+    private static LocationInfo location(String name, String country) {
+        return LocationInfo.builder().name(name).country(country).build();
+    }
+}
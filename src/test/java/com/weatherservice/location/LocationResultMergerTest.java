@@ -0,0 +1,47 @@
+package com.weatherservice.location;
+
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocationResultMergerTest {
+
+    @Test
+    void accept_ShouldReturnOnlyNewLocationsRankedByMatch() {
+        // Given
+        LocationResultMerger merger = new LocationResultMerger("paris");
+        LocationInfo parisFr = location("Paris", "FR", 48.85341, 2.3488);
+        LocationInfo parisTx = location("Paris", "US", 33.66094, -95.55551);
+        LocationInfo leParisien = location("Le Parisien", "FR", 48.9, 2.3);
+
+        // When
+        List<LocationInfo> first = merger.accept(List.of(leParisien, parisFr));
+        List<LocationInfo> second = merger.accept(List.of(location("Paris", "FR", 48.8534, 2.3488), parisTx));
+
+        // Then - точное совпадение выше вхождения, повтор того же места не отдается снова
+        assertEquals(List.of(parisFr, leParisien), first);
+        assertEquals(List.of(parisTx), second);
+    }
+
+    @Test
+    void ranked_ShouldPreferLocationsConfirmedBySeveralProviders() {
+        // Given
+        LocationResultMerger merger = new LocationResultMerger("london");
+        LocationInfo londonCa = location("London", "CA", 42.98339, -81.23304);
+        LocationInfo londonGb = location("London", "GB", 51.50853, -0.12574);
+
+        // When
+        merger.accept(List.of(londonCa, londonGb));
+        merger.accept(List.of(londonGb));
+
+        // Then
+        assertEquals(List.of(londonGb, londonCa), merger.ranked());
+    }
+
+    private static LocationInfo location(String name, String country, double lat, double lon) {
+        return LocationInfo.builder().name(name).country(country).lat(lat).lon(lon).build();
+    }
+}
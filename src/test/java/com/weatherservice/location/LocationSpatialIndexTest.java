@@ -0,0 +1,72 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.SpatialIndexProperties;
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocationSpatialIndexTest {
+
+    private final LocationSpatialIndex index = new LocationSpatialIndex(new SpatialIndexProperties(true, 1000, 0.25, 5));
+
+    @Test
+    void nearest_ShouldReturnClosestLocationWithinRadius() {
+        // Given
+        LocationInfo london = location("London", "GB", 51.50853, -0.12574);
+        LocationInfo croydon = location("Croydon", "GB", 51.38333, -0.1);
+        LocationInfo paris = location("Paris", "FR", 48.85341, 2.3488);
+        index.add(List.of(london, croydon, paris));
+
+        // When / Then
+        assertEquals(london, index.nearest(51.5074, -0.1278).orElseThrow());
+        assertEquals(croydon, index.nearest(51.39, -0.09).orElseThrow());
+        assertTrue(index.nearest(49.5, 1.5).isEmpty());
+        assertEquals(paris, index.nearest(49.5, 1.5, 200).orElseThrow());
+    }
+
+    @Test
+    void withinRadius_ShouldReturnLocationsByDistance() {
+        // Given
+        LocationInfo london = location("London", "GB", 51.50853, -0.12574);
+        LocationInfo croydon = location("Croydon", "GB", 51.38333, -0.1);
+        LocationInfo paris = location("Paris", "FR", 48.85341, 2.3488);
+        index.add(List.of(paris, london, croydon));
+
+        // When
+        List<LocationInfo> nearCroydon = index.withinRadius(51.40, -0.1, 20);
+
+        // Then
+        assertEquals(List.of(croydon, london), nearCroydon);
+    }
+
+    @Test
+    void nearest_ShouldSearchAcrossAntimeridianAndCellBorders() {
+        // Given - место у самого края сетки по долготе
+        LocationInfo fiji = location("Labasa", "FJ", -16.41667, 179.99);
+        index.add(List.of(fiji));
+
+        // When / Then
+        assertEquals(fiji, index.nearest(-16.41667, -179.99).orElseThrow());
+    }
+
+    @Test
+    void add_ShouldIgnoreDuplicatesAndLocationsWithoutCoordinates() {
+        // Given
+        index.add(List.of(location("London", "GB", 51.50853, -0.12574)));
+
+        // When
+        index.add(List.of(location("london", "gb", 40.0, 40.0), LocationInfo.builder().name("Nowhere").build()));
+
+        // Then
+        assertEquals(1, index.size());
+        assertTrue(LocationSpatialIndex.disabled().nearest(51.5, -0.12).isEmpty());
+    }
+
+    private static LocationInfo location(String name, String country, double lat, double lon) {
+        return LocationInfo.builder().name(name).country(country).lat(lat).lon(lon).build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.weatherservice.location;
+
+import com.weatherservice.config.LocationConfig.FuzzySearchProperties;
+import com.weatherservice.model.LocationInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocationTrigramIndexTest {
+
+    private final LocationTrigramIndex index = new LocationTrigramIndex(new FuzzySearchProperties(true, 1000, 200));
+
+    @Test
+    void search_ShouldCorrectTyposAndRankByEditDistance() {
+        // Given
+        LocationInfo london = location("London", "GB");
+        LocationInfo londrina = location("Londrina", "BR");
+        LocationInfo moscow = location("Moscow", "RU");
+        LocationInfo muenchen = location("München", "DE");
+        index.add(List.of(londrina, london, moscow, muenchen));
+
+        // When / Then - перестановка, замена, пропуск буквы и начало названия
+        assertEquals(List.of(london), index.search("Lodnon", 5));
+        assertEquals(List.of(moscow), index.search("moskow", 5));
+        assertEquals(List.of(muenchen), index.search("Munchn", 5));
+        assertEquals(List.of(london), index.search("Londn", 5));
+        assertEquals(List.of(londrina), index.search("Lodnr", 5));
+        assertTrue(index.search("Paris", 5).isEmpty());
+        assertTrue(index.search("Lo", 5).isEmpty());
+    }
+
+    @Test
+    void corrections_ShouldMatchNamePrefixOnlyWithoutWholeNameMatch() {
+        // Given
+        LocationInfo berlin = location("Berlin", "DE");
+        index.add(List.of(berlin));
+
+        // When / Then - начало названия находится, но как исправление, а не точное совпадение
+        assertEquals(List.of(new LocationTrigramIndex.Correction(berlin, 1)), index.corrections("Bern", 5));
+
+        // Появилось подходящее целиком название - начало другого больше не учитывается
+        LocationInfo bern = location("Bern", "CH");
+        index.add(List.of(bern));
+        assertEquals(List.of(new LocationTrigramIndex.Correction(bern, 0)), index.corrections("Bern", 5));
+    }
+
+    @Test
+    void search_ShouldScanAtMostMaxCandidates() {
+        // Given - много мест с общей триграммой, кандидатов проверяется не больше двух
+        LocationTrigramIndex bounded = new LocationTrigramIndex(new FuzzySearchProperties(true, 1000, 2));
+        bounded.add(List.of(location("Lorton", "US"), location("Loxton", "AU"), location("Lofton", "US"),
+                location("London", "GB")));
+
+        // When
+        List<LocationInfo> result = bounded.search("Lonton", 5);
+
+        // Then
+        assertTrue(result.size() <= 2);
+        assertEquals(4, bounded.size());
+    }
+
+    @Test
+    void editDistance_ShouldCountAdjacentTranspositionAsOneEdit() {
+        assertEquals(1, LocationTrigramIndex.editDistance("lodnon", "london"));
+        assertEquals(1, LocationTrigramIndex.editDistance("moskow", "moscow"));
+        assertEquals(3, LocationTrigramIndex.editDistance("kitten", "sitting"));
+        assertEquals(1, LocationTrigramIndex.prefixDistance("lodn", "londrina"));
+    }
+
+    private static LocationInfo location(String name, String country) {
+        return LocationInfo.builder().name(name).country(country).build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.weatherservice.recording;
+
+import com.weatherservice.client.OpenWeatherClient;
+import com.weatherservice.exception.LocationNotFoundException;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.simulator.LatencyDistribution;
+import com.weatherservice.simulator.ProviderSimulator;
+import com.weatherservice.simulator.SimulatorProfile;
+import io.netty.channel.EventLoopGroup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderRecordingTest {
+
+    private static final WeatherRequest LONDON = WeatherRequest.builder()
+            .city("London")
+            .countryCode("GB")
+            .units("metric")
+            .build();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordingFile_ShouldGrowAndContinueAfterReopen() throws Exception {
+        // Given - заведомо маленький начальный размер, чтобы проверить перестроение отображения
+        Path file = tempDir.resolve("responses.rec");
+
+        try (RecordingFile recording = RecordingFile.open(file, 64)) {
+            for (int i = 0; i < 50; i++) {
+                recording.append(exchange("/weather?q=city" + i, "{\"n\":" + i + "}"));
+            }
+            assertEquals(50, recording.entries().size());
+        }
+
+        // When
+        try (RecordingFile recording = RecordingFile.open(file, 64)) {
+            recording.append(exchange("/weather?q=last", "{\"n\":50}"));
+        }
+
+        // Then
+        List<RecordedExchange> exchanges = RecordingFile.readAll(file);
+        assertEquals(51, exchanges.size());
+        assertEquals("/weather?q=city7", exchanges.get(7).key());
+        assertEquals("{\"n\":7}", text(exchanges.get(7).body()));
+        assertEquals("{\"n\":50}", text(exchanges.get(50).body()));
+        assertEquals(Duration.ofMillis(42), exchanges.get(50).latency());
+    }
+
+    @Test
+    void recordingWriter_ShouldGrowFileOffEventLoop() throws Exception {
+        // Given - файл меньше первой же записи: перестроение отображения неизбежно.
+        // Под BlockHound (профиль blockhound) блокирующий вызов на event loop'е уронил бы submit
+        Path file = tempDir.resolve("event-loop.rec");
+        RecordingWriter writer = new RecordingWriter(RecordingFile.open(file, 64), 1000);
+        LoopResources loops = LoopResources.create("recording-test", 1, true);
+
+        try {
+            EventLoopGroup group = loops.onServer(false);
+
+            // When
+            int accepted = group.submit(() -> {
+                int count = 0;
+                for (int i = 0; i < 200; i++) {
+                    count += writer.submit(exchange("/weather?q=city" + i, "{\"n\":" + i + "}")) ? 1 : 0;
+                }
+                return count;
+            }).get(5, TimeUnit.SECONDS);
+            writer.close();
+
+            // Then
+            assertEquals(200, accepted);
+            assertEquals(0, writer.dropped());
+            List<RecordedExchange> exchanges = RecordingFile.readAll(file);
+            assertEquals(200, exchanges.size());
+            assertEquals("{\"n\":199}", text(exchanges.get(199).body()));
+            // Закрытый писатель записи не принимает
+            assertFalse(writer.submit(exchange("/weather?q=late", "{}")));
+            assertEquals(1, writer.dropped());
+        } finally {
+            loops.disposeLater().block(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void keyOf_ShouldStripBasePathAndApiKey() {
+        assertEquals("/weather?q=London,GB&units=metric", RecordedExchange.keyOf(
+                URI.create("http://host/data/2.5/weather?appid=secret&q=London,GB&units=metric"),
+                "http://other-host/data/2.5"));
+        assertEquals("/current.json?q=Paris", RecordedExchange.keyOf(
+                URI.create("http://host/v1/current.json?key=secret&q=Paris"), "http://host/v1"));
+        assertEquals("/currentconditions/v1/328328", RecordedExchange.keyOf(
+                URI.create("http://host/currentconditions/v1/328328?apikey=secret"), "http://host"));
+    }
+
+    @Test
+    void recordThenReplay_ShouldServeSameResponsesWithoutNetwork() throws Exception {
+        Path file = tempDir.resolve("openweather.rec");
+        WeatherResponse recorded;
+
+        // Given - записываем ответ симулятора
+        try (ProviderSimulator simulator = new ProviderSimulator(SimulatorProfile.builder()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(100)))
+                .build());
+             RecordingWriter recording = new RecordingWriter(RecordingFile.open(file, 1024), 16)) {
+            String baseUrl = simulator.baseUrl(WeatherProvider.OPENWEATHER_MAP);
+            WebClient webClient = WebClient.builder()
+                    .filter(new RecordingExchangeFilter(WeatherProvider.OPENWEATHER_MAP, baseUrl, recording))
+                    .build();
+
+            recorded = new OpenWeatherClient(webClient, "secret", baseUrl).getCurrentWeather(LONDON).block();
+        }
+
+        List<RecordedExchange> exchanges = RecordingFile.readAll(file);
+        assertEquals(1, exchanges.size());
+        assertFalse(exchanges.get(0).key().contains("secret"));
+        assertTrue(exchanges.get(0).latency().compareTo(Duration.ofMillis(100)) >= 0);
+
+        // When - воспроизводим без симулятора, с записанной скоростью и ускоренно
+        ReplayWeatherProviderClient realtime = replayClient(exchanges, 1.0);
+        ReplayWeatherProviderClient accelerated = replayClient(exchanges, 0);
+
+        // Then
+        assertNotNull(recorded);
+        StepVerifier.create(realtime.getCurrentWeather(LONDON))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(80))
+                .expectNextMatches(response -> sameWeather(recorded, response))
+                .verifyComplete();
+
+        // Запрос другого города получает ответ того же эндпоинта
+        StepVerifier.create(accelerated.getCurrentWeather(WeatherRequest.builder()
+                        .city("Paris").countryCode("FR").units("metric").build()))
+                .expectNextMatches(response -> sameWeather(recorded, response))
+                .verifyComplete();
+
+        assertEquals(WeatherProvider.OPENWEATHER_MAP, accelerated.getProvider());
+        assertTrue(accelerated.supportsProvider("OPENWEATHER_MAP"));
+    }
+
+    @Test
+    void replay_WhenEndpointNotRecorded_ShouldRespondNotFound() {
+        ReplayWeatherProviderClient client = replayClient(List.of(), 0);
+
+        StepVerifier.create(client.getCurrentWeather(LONDON))
+                .expectError(LocationNotFoundException.class)
+                .verify();
+    }
+
+    private static ReplayWeatherProviderClient replayClient(List<RecordedExchange> exchanges, double speed) {
+        String baseUrl = "http://replay.invalid/data/2.5";
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(new ReplayExchangeFunction(WeatherProvider.OPENWEATHER_MAP, baseUrl, exchanges, speed))
+                .build();
+        return new ReplayWeatherProviderClient(WeatherProvider.OPENWEATHER_MAP,
+                new OpenWeatherClient(webClient, "other-key", baseUrl));
+    }
+
+    private static boolean sameWeather(WeatherResponse expected, WeatherResponse actual) {
+        return expected.getLocation().getName().equals(actual.getLocation().getName())
+                && expected.getCurrent().getTemperature().equals(actual.getCurrent().getTemperature())
+                && actual.getSource() == WeatherProvider.OPENWEATHER_MAP;
+    }
+
+    private static RecordedExchange exchange(String key, String body) {
+        return new RecordedExchange(WeatherProvider.WEATHER_API, key, 200, Duration.ofMillis(42),
+                System.currentTimeMillis(), ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String text(ByteBuffer body) {
+        return StandardCharsets.UTF_8.decode(body.duplicate()).toString();
+    }
+}
@@ -0,0 +1,196 @@
+package com.weatherservice.resilience;
+
+import com.weatherservice.config.ResilienceConfig;
+import com.weatherservice.config.ResilienceConfig.RetryProperties;
+import com.weatherservice.exception.LocationNotFoundException;
+import com.weatherservice.exception.ServiceUnavailableException;
+import com.weatherservice.exception.WeatherServiceException;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.service.WeatherMetrics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProviderRetryPolicyTest {
+
+    @Mock
+    private WeatherMetrics metrics;
+
+    @Test
+    void forProvider_WhenTransientFailure_ShouldRetryAndSucceed() {
+        // Given
+        ProviderRetryPolicy policy = createPolicy(0.1, 10, Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(serverError())
+                : Mono.just("ok"));
+
+        // When & Then
+        StepVerifier.create(call.transform(policy.forProvider(WeatherProvider.OPENWEATHER_MAP)))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(3, attempts.get());
+        verify(metrics, times(2)).recordProviderRetry(WeatherProvider.OPENWEATHER_MAP, "retried");
+    }
+
+    @Test
+    void forProvider_WhenPermanentFailure_ShouldNotRetry() {
+        // Given
+        ProviderRetryPolicy policy = createPolicy(0.1, 10, Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> notFound = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new LocationNotFoundException("Location not found: Atlantis"));
+        });
+        Mono<String> rateLimited = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(new ServiceUnavailableException("Rate limit exceeded"));
+        });
+
+        // When & Then
+        StepVerifier.create(notFound.transform(policy.forProvider(WeatherProvider.WEATHER_API)))
+                .expectError(LocationNotFoundException.class)
+                .verify();
+        StepVerifier.create(rateLimited.transform(policy.forProvider(WeatherProvider.WEATHER_API)))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+
+        assertEquals(2, attempts.get());
+        verifyNoInteractions(metrics);
+    }
+
+    @Test
+    void forProvider_WhenBudgetExhausted_ShouldStopRetrying() {
+        // Given - без пополнения, в ведре ровно один ретрай
+        ProviderRetryPolicy policy = createPolicy(0.0, 1, Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> alwaysFailing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(serverError());
+        });
+
+        // When & Then
+        StepVerifier.create(alwaysFailing.transform(policy.forProvider(WeatherProvider.ACCUWEATHER)))
+                .expectError(WeatherServiceException.class)
+                .verify();
+
+        assertEquals(2, attempts.get());
+        verify(metrics).recordProviderRetry(WeatherProvider.ACCUWEATHER, "retried");
+        verify(metrics).recordProviderRetry(WeatherProvider.ACCUWEATHER, "budget_exhausted");
+    }
+
+    @Test
+    void forProvider_WhenDeadlineTooClose_ShouldNotRetry() {
+        // Given
+        ProviderRetryPolicy policy = createPolicy(0.1, 10, Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(serverError());
+        });
+
+        // When & Then
+        StepVerifier.create(failing.transform(policy.forProvider(WeatherProvider.OPENWEATHER_MAP))
+                        .contextWrite(RequestDeadline.withTimeout(Duration.ofMillis(50))))
+                .expectError(WeatherServiceException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+        verify(metrics).recordProviderRetry(WeatherProvider.OPENWEATHER_MAP, "deadline_exceeded");
+    }
+
+    @Test
+    void forProvider_WithUnknownProvider_ShouldLeaveCallUntouched() {
+        // Given
+        ProviderRetryPolicy policy = createPolicy(0.1, 10, Duration.ofSeconds(5));
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(serverError());
+        });
+
+        // When & Then
+        StepVerifier.create(failing.transform(policy.forProvider(null)))
+                .expectError(WeatherServiceException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+        verify(metrics, never()).recordProviderRetry(any(), any());
+    }
+
+    @Test
+    void disabled_ShouldCallProviderOnce() {
+        // Given
+        ProviderRetryPolicy policy = ProviderRetryPolicy.disabled();
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> failing = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.error(serverError());
+        });
+
+        // When & Then
+        StepVerifier.create(failing.transform(policy.forProvider(WeatherProvider.OPENWEATHER_MAP)))
+                .expectError(WeatherServiceException.class)
+                .verify();
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void retryBudget_ShouldRefillProportionallyToRequests() {
+        // Given
+        RetryBudget budget = new RetryBudget(0.1, 2);
+
+        // When - выбираем начальный запас
+        assertTrue(budget.tryAcquireRetry());
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        for (int i = 0; i < 10; i++) {
+            budget.recordRequest();
+        }
+
+        // Then - 10 запросов дают ровно один ретрай
+        assertEquals(1.0, budget.availableRetries(), 0.001);
+        assertTrue(budget.tryAcquireRetry());
+        assertFalse(budget.tryAcquireRetry());
+
+        // Емкость ограничивает накопление
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+        assertEquals(2.0, budget.availableRetries(), 0.001);
+    }
+
+    @Test
+    void requestDeadline_ShouldNotOverrideOuterDeadline() {
+        StepVerifier.create(Mono.deferContextual(context -> Mono.justOrEmpty(RequestDeadline.remaining(context)))
+                        .contextWrite(RequestDeadline.withTimeout(Duration.ofSeconds(30)))
+                        .contextWrite(RequestDeadline.withTimeout(Duration.ofSeconds(1))))
+                .expectNextMatches(remaining -> remaining.compareTo(Duration.ofSeconds(1)) <= 0)
+                .verifyComplete();
+    }
+
+    private ProviderRetryPolicy createPolicy(double ratio, int capacity, Duration deadline) {
+        RetryProperties properties = new RetryProperties(ratio, capacity, deadline, Duration.ofMillis(200));
+        return new ProviderRetryPolicy(new ResilienceConfig().retryRegistry(), properties, metrics);
+    }
+
+    private static WeatherServiceException serverError() {
+        return new WeatherServiceException("Provider API error",
+                WebClientResponseException.create(503, "Service Unavailable", null, null, null));
+    }
+}
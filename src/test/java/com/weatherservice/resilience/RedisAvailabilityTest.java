@@ -0,0 +1,147 @@
+package com.weatherservice.resilience;
+
+import com.weatherservice.config.ResilienceConfig.RedisCircuitProperties;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.service.WeatherCacheService;
+import com.weatherservice.service.WeatherMetrics;
+import com.weatherservice.util.WeatherKeyGenerator;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisAvailabilityTest {
+
+    private static final RedisCircuitProperties PROPERTIES = new RedisCircuitProperties(
+            true, Duration.ofMillis(50), 50, 2, 4, Duration.ofMillis(20), Duration.ofMinutes(1));
+
+    @Mock
+    private ReactiveRedisConnectionFactory connectionFactory;
+
+    @Mock
+    private ReactiveRedisConnection connection;
+
+    @Mock
+    private WeatherMetrics metrics;
+
+    private RedisAvailability availability;
+
+    @BeforeEach
+    void setUp() {
+        availability = new RedisAvailability(CircuitBreakerRegistry.ofDefaults(), connectionFactory, PROPERTIES, metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        availability.stopProbe();
+    }
+
+    @Test
+    void guard_AfterFailureThreshold_ShouldFailFastWithoutCallingRedis() {
+        // Given - Redis "висит" дольше таймаута операции; проба пока не отвечает
+        lenient().when(connectionFactory.getReactiveConnection()).thenThrow(new RedisConnectionFailureException("down"));
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(availability.guard(Mono.never()))
+                    .expectError(TimeoutException.class)
+                    .verify(Duration.ofSeconds(1));
+        }
+
+        // When
+        AtomicBoolean subscribed = new AtomicBoolean();
+        long start = System.nanoTime();
+        StepVerifier.create(availability.guard(Mono.fromCallable(() -> subscribed.getAndSet(true))))
+                .expectError(CallNotPermittedException.class)
+                .verify();
+
+        // Then
+        assertFalse(availability.isAvailable());
+        assertFalse(subscribed.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(50)) < 0);
+        verify(metrics).recordRedisCircuitTransition("open");
+    }
+
+    @Test
+    void guard_ShouldIgnoreNonRedisErrors() {
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(availability.guard(Mono.error(new IllegalArgumentException("bad value"))))
+                    .expectError(IllegalArgumentException.class)
+                    .verify();
+        }
+
+        assertTrue(availability.isAvailable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void probe_WhenRedisRecovers_ShouldCloseCircuitAndResyncCache() {
+        // Given
+        ReactiveRedisTemplate<String, WeatherResponse> redisTemplate = mock(ReactiveRedisTemplate.class);
+        ReactiveValueOperations<String, WeatherResponse> valueOperations = mock(ReactiveValueOperations.class);
+        WeatherKeyGenerator keyGenerator = mock(WeatherKeyGenerator.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(keyGenerator.generateCacheKey(any())).thenReturn("weather:london");
+
+        AtomicInteger writes = new AtomicInteger();
+        when(valueOperations.set(eq("weather:london"), any(WeatherResponse.class), any(Duration.class)))
+                .thenReturn(Mono.error(new RedisConnectionFailureException("down")))
+                .thenAnswer(invocation -> {
+                    writes.incrementAndGet();
+                    return Mono.just(true);
+                });
+
+        WeatherCacheService cacheService = new WeatherCacheService(redisTemplate, keyGenerator, availability);
+        availability.guard(Mono.error(new RedisConnectionFailureException("down"))).onErrorResume(e -> Mono.empty()).block();
+
+        // When - запись во время недоступности уходит только в память
+        StepVerifier.create(cacheService.cacheWeatherData(request(), response(), Duration.ofMinutes(10)))
+                .expectNext(true)
+                .verifyComplete();
+        assertEquals(CircuitBreaker.State.OPEN, availability.getState());
+
+        // Redis снова отвечает на PING
+        when(connectionFactory.getReactiveConnection()).thenReturn(connection);
+        when(connection.ping()).thenReturn(Mono.just("PONG"));
+        when(connection.closeLater()).thenReturn(Mono.empty());
+
+        // Then
+        verify(valueOperations, timeout(2000).times(2)).set(eq("weather:london"), any(WeatherResponse.class), any(Duration.class));
+        assertEquals(CircuitBreaker.State.CLOSED, availability.getState());
+        assertEquals(1, writes.get());
+        StepVerifier.create(cacheService.resync()).expectNext(0L).verifyComplete();
+    }
+
+    private static WeatherRequest request() {
+        return WeatherRequest.builder().city("London").build();
+    }
+
+    private static WeatherResponse response() {
+        return WeatherResponse.builder()
+                .cachedUntil(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+}
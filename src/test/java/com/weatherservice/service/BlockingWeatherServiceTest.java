@@ -0,0 +1,246 @@
+package com.weatherservice.service;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.exception.ServiceUnavailableException;
+import com.weatherservice.model.*;
+import com.weatherservice.resilience.ProviderRetryPolicy;
+import com.weatherservice.resilience.WeatherErrorHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlockingWeatherServiceTest {
+
+    @Mock
+    private WeatherCacheService cacheService;
+
+    @Mock
+    private WeatherErrorHandler errorHandler;
+
+    @Mock
+    private WeatherMetrics metrics;
+
+    @Mock
+    private WeatherProviderClient openWeather;
+
+    @Mock
+    private WeatherProviderClient weatherApi;
+
+    private BlockingWeatherService weatherService;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, WeatherProviderClient> clients = Map.of("OPENWEATHER_MAP", openWeather, "WEATHER_API", weatherApi);
+        weatherService = new BlockingWeatherService(clients, cacheService, errorHandler, metrics,
+                ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void getWeather_WhenCached_ShouldNotCallProvider() {
+        // Given
+        WeatherRequest request = request();
+        WeatherResponse cached = response(15.0, WeatherProvider.OPENWEATHER_MAP);
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.just(cached));
+
+        // When
+        WeatherResponse result = weatherService.getWeather(request);
+
+        // Then
+        assertSame(cached, result);
+        verify(metrics).recordCacheHit();
+        verify(openWeather, never()).getCurrentWeather(any());
+        verify(metrics).requestFinished();
+    }
+
+    @Test
+    void getWeather_OnCacheMiss_ShouldFetchAndCache() {
+        // Given
+        WeatherRequest request = request();
+        WeatherResponse fresh = response(15.0, WeatherProvider.OPENWEATHER_MAP);
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        lenient().when(openWeather.isRealProvider()).thenReturn(true);
+        lenient().when(weatherApi.isRealProvider()).thenReturn(true);
+        lenient().when(weatherApi.getCurrentWeather(request)).thenReturn(Mono.just(fresh));
+        lenient().when(openWeather.getCurrentWeather(request)).thenReturn(Mono.just(fresh));
+        when(cacheService.cacheWeatherData(eq(request), any())).thenReturn(Mono.just(true));
+
+        // When
+        WeatherResponse result = weatherService.getWeather(request);
+
+        // Then
+        assertSame(fresh, result);
+        verify(cacheService).cacheWeatherData(request, fresh);
+    }
+
+    @Test
+    void getWeather_WhenProviderFailsWithoutCache_ShouldThrowServiceUnavailable() {
+        // Given
+        WeatherRequest request = request();
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        lenient().when(openWeather.isRealProvider()).thenReturn(true);
+        lenient().when(weatherApi.isRealProvider()).thenReturn(true);
+        lenient().when(openWeather.getCurrentWeather(request)).thenReturn(Mono.error(new RuntimeException("boom")));
+        lenient().when(weatherApi.getCurrentWeather(request)).thenReturn(Mono.error(new RuntimeException("boom")));
+        when(errorHandler.handleProviderError(any(), eq(request)))
+                .thenReturn(Mono.error(new ServiceUnavailableException("no cache")));
+
+        // When & Then
+        assertThrows(ServiceUnavailableException.class, () -> weatherService.getWeather(request));
+        verify(metrics).recordWeatherRequest(isNull(), eq(false), any());
+    }
+
+    @Test
+    void getWeather_ConcurrentMisses_ShouldShareOneProviderCall() throws Exception {
+        // Given: провайдер отвечает, только когда все потоки уже ждут
+        WeatherRequest request = request();
+        WeatherResponse fresh = response(15.0, WeatherProvider.OPENWEATHER_MAP);
+        Sinks.One<WeatherResponse> upstream = Sinks.one();
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        lenient().when(openWeather.isRealProvider()).thenReturn(true);
+        lenient().when(weatherApi.isRealProvider()).thenReturn(true);
+        lenient().when(openWeather.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        lenient().when(weatherApi.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        when(cacheService.cacheWeatherData(eq(request), any())).thenReturn(Mono.just(true));
+
+        // When
+        List<Future<WeatherResponse>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> weatherService.getWeather(request)));
+            }
+            Thread.sleep(200);
+            upstream.tryEmitValue(fresh);
+        }
+
+        // Then
+        for (Future<WeatherResponse> result : results) {
+            assertSame(fresh, result.get());
+        }
+        verify(cacheService, times(1)).cacheWeatherData(request, fresh);
+    }
+
+    @Test
+    void getWeather_WhenSharedCallOutlivesDeadline_ShouldNotWaitPastIt() throws Exception {
+        // Given: первый вызов провайдера висит дольше дедлайна запроса
+        Map<String, WeatherProviderClient> clients = Map.of("OPENWEATHER_MAP", openWeather, "WEATHER_API", weatherApi);
+        BlockingWeatherService shortDeadline = new BlockingWeatherService(clients, cacheService, errorHandler, metrics,
+                ProviderRetryPolicy.disabled(), Duration.ofMillis(300));
+        WeatherRequest request = request();
+        Sinks.One<WeatherResponse> upstream = Sinks.one();
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        lenient().when(openWeather.isRealProvider()).thenReturn(true);
+        lenient().when(weatherApi.isRealProvider()).thenReturn(true);
+        lenient().when(openWeather.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        lenient().when(weatherApi.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        lenient().when(cacheService.cacheWeatherData(eq(request), any())).thenReturn(Mono.just(true));
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> shortDeadline.getWeather(request));
+            Thread.sleep(100);
+            long start = System.nanoTime();
+
+            // Then - ожидающий запрос уходит в свою запасную ветку по своему дедлайну
+            assertThrows(ServiceUnavailableException.class, () -> shortDeadline.getWeather(request));
+            assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+            upstream.tryEmitValue(response(15.0, WeatherProvider.OPENWEATHER_MAP));
+        }
+        verify(openWeather, atMost(1)).getCurrentWeather(request);
+        verify(weatherApi, atMost(1)).getCurrentWeather(request);
+    }
+
+    @Test
+    void getAggregatedWeather_ShouldCombineProvidersAndSkipFailures() {
+        // Given
+        WeatherRequest request = request();
+        when(openWeather.isRealProvider()).thenReturn(true);
+        when(weatherApi.isRealProvider()).thenReturn(true);
+        when(openWeather.getCurrentWeather(request)).thenReturn(Mono.just(response(15.0, WeatherProvider.OPENWEATHER_MAP)));
+        when(weatherApi.getCurrentWeather(request)).thenReturn(Mono.error(new RuntimeException("down")));
+
+        // When
+        AggregatedWeatherResponse aggregated = weatherService.getAggregatedWeather(request);
+
+        // Then
+        assertEquals(15.0, aggregated.getTemperature());
+        assertEquals(1, aggregated.getSourcesCount());
+    }
+
+    @Test
+    void getAggregatedWeather_WhenAllProvidersFail_ShouldThrowServiceUnavailable() {
+        // Given
+        WeatherRequest request = request();
+        when(openWeather.isRealProvider()).thenReturn(true);
+        when(weatherApi.isRealProvider()).thenReturn(true);
+        when(openWeather.getCurrentWeather(request)).thenReturn(Mono.empty());
+        when(weatherApi.getCurrentWeather(request)).thenReturn(Mono.error(new RuntimeException("down")));
+
+        // When & Then
+        assertThrows(ServiceUnavailableException.class, () -> weatherService.getAggregatedWeather(request));
+    }
+
+    @Test
+    void getEntryTag_WhenCacheFails_ShouldReturnNull() {
+        // Given
+        WeatherRequest request = request();
+        when(cacheService.getEntryTag(request)).thenReturn(Mono.error(new RuntimeException("redis down")));
+
+        // When & Then
+        assertEquals(null, weatherService.getEntryTag(request));
+    }
+
+    @Test
+    void servedFromCache_ShouldRecordHitOnlyWhenResponseBuilt() {
+        // Given
+        WeatherRequest request = request();
+
+        // When - готовое тело из памяти, затем промах по валидатору
+        assertEquals("encoded", weatherService.servedFromCache(request, () -> "encoded"));
+        assertNull(weatherService.servedFromCache(request, () -> null));
+
+        // Then
+        verify(metrics, times(2)).requestStarted();
+        verify(metrics, times(2)).requestFinished();
+        verify(metrics).recordCacheHit();
+        verify(metrics).recordWeatherRequest(isNull(), eq(true), any(Duration.class));
+        verify(cacheService).recordValidatedHit(request);
+    }
+
+    private static WeatherRequest request() {
+        return WeatherRequest.builder().city("London").countryCode("GB").units("metric").build();
+    }
+
+    private static WeatherResponse response(double temperature, WeatherProvider source) {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .current(CurrentWeather.builder().temperature(temperature).humidity(60).pressure(1010)
+                        .windSpeed(3.0).description("cloudy").build())
+                .source(source)
+                .cachedUntil(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+}
@@ -0,0 +1,198 @@
+package com.weatherservice.service;
+
+import com.weatherservice.config.CacheConfig.CacheAnalyticsProperties;
+import com.weatherservice.config.CacheConfig.MemoryCacheProperties;
+import com.weatherservice.config.CacheConfig.PrecompressionProperties;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.resilience.RedisAvailability;
+import com.weatherservice.util.JsonSerializerUtil;
+import com.weatherservice.util.WeatherKeyGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheAnalyticsTest {
+
+    @Mock
+    private ReactiveRedisTemplate<String, WeatherResponse> redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, WeatherResponse> valueOperations;
+
+    @Mock
+    private ReactiveValueOperations<String, String> stringOperations;
+
+    private CacheAnalytics analytics;
+    private WeatherCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        analytics = new CacheAnalytics(new CacheAnalyticsProperties(true, 2, 16, 4));
+        cacheService = new WeatherCacheService(redisTemplate, new WeatherKeyGenerator(),
+                RedisAvailability.unguarded(), analytics);
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class)))
+                .thenReturn(stringOperations);
+        lenient().when(stringOperations.set(anyString(), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+    }
+
+    @Test
+    void lookups_ShouldTrackHitRatioPerKeyClassAndProviderAndTopKeys() {
+        // Given - London есть в кэше, запрос по координатам - нет
+        WeatherRequest london = WeatherRequest.builder().city("London").countryCode("GB").build();
+        WeatherRequest coordinates = WeatherRequest.builder().latitude(48.85).longitude(2.35)
+                .provider(WeatherProvider.WEATHER_API).build();
+        when(stringOperations.multiGet(List.of("weather:default:london:gb", "weather:default:london:gb:etag")))
+                .thenReturn(Mono.just(Arrays.asList(JsonSerializerUtil.toJson(response()), null)));
+        when(stringOperations.multiGet(List.of("weather:weather_api:48.8500:2.3500", "weather:weather_api:48.8500:2.3500:etag")))
+                .thenReturn(Mono.just(Arrays.asList(null, null)));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(cacheService.getCachedWeather(london)).expectNextCount(1).verifyComplete();
+        }
+        StepVerifier.create(cacheService.getCachedWeather(coordinates)).verifyComplete();
+
+        // Then
+        CacheAnalytics.Snapshot snapshot = analytics.snapshot();
+        assertEquals(new CacheAnalytics.HitRatio(3, 0, 1.0), snapshot.keyClasses().get("city"));
+        assertEquals(new CacheAnalytics.HitRatio(0, 1, 0.0), snapshot.keyClasses().get("coordinates"));
+        assertEquals(new CacheAnalytics.HitRatio(3, 0, 1.0), snapshot.providers().get("default"));
+        assertEquals(new CacheAnalytics.HitRatio(0, 1, 0.0), snapshot.providers().get("weather_api"));
+        assertEquals("weather:default:london:gb", snapshot.hotKeys().get(0).key());
+        assertEquals(3, snapshot.hotKeys().get(0).count());
+        assertEquals("weather:weather_api:48.8500:2.3500", snapshot.missedKeys().get(0).key());
+    }
+
+    @Test
+    void memoryTier_ShouldTrackEntriesBytesAndEvictionReasons() {
+        // Given
+        WeatherRequest london = WeatherRequest.builder().city("London").countryCode("GB").build();
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(redisTemplate.delete(anyString())).thenReturn(Mono.just(1L));
+
+        // When - запись, перезапись, удаление
+        StepVerifier.create(cacheService.cacheWeatherData(london, response())).expectNext(true).verifyComplete();
+        CacheAnalytics.TierUsage afterPut = analytics.snapshot().memoryTier().get("openweather_map");
+        StepVerifier.create(cacheService.cacheWeatherData(london, response())).expectNext(true).verifyComplete();
+        CacheAnalytics.TierUsage afterReplace = analytics.snapshot().memoryTier().get("openweather_map");
+        StepVerifier.create(cacheService.evictWeatherData(london)).expectNext(true).verifyComplete();
+
+        // Then
+        assertEquals(1, afterPut.entries());
+        assertTrue(afterPut.bytes() > 0);
+        // Перезапись не удваивает учет; размер может отличаться на точность cachedUntil
+        assertEquals(1, afterReplace.entries());
+        assertTrue(Math.abs(afterReplace.bytes() - afterPut.bytes()) < 16);
+
+        CacheAnalytics.Snapshot snapshot = analytics.snapshot();
+        assertEquals(new CacheAnalytics.TierUsage(0, 0), snapshot.memoryTier().get("openweather_map"));
+        assertEquals(1L, snapshot.evictions().get("replaced"));
+        assertEquals(1L, snapshot.evictions().get("explicit"));
+        assertEquals(0L, snapshot.evictions().get("expired"));
+    }
+
+    @Test
+    void expiredMemoryEntry_ShouldBeEvictedOnLookupWhenRedisFails() {
+        // Given - в памяти запись с истекшим сроком, Redis недоступен
+        WeatherRequest london = WeatherRequest.builder().city("London").countryCode("GB").build();
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        StepVerifier.create(cacheService.cacheWeatherData(london, response(), Duration.ofMillis(-1)))
+                .expectNext(true)
+                .verifyComplete();
+        when(stringOperations.multiGet(anyList())).thenReturn(Mono.error(new RedisConnectionFailureException("down")));
+
+        // When
+        StepVerifier.create(cacheService.getCachedWeather(london)).verifyComplete();
+
+        // Then
+        CacheAnalytics.Snapshot snapshot = analytics.snapshot();
+        assertEquals(1L, snapshot.evictions().get("expired"));
+        assertEquals(0, snapshot.memoryTier().get("openweather_map").entries());
+        assertEquals(new CacheAnalytics.HitRatio(0, 1, 0.0), snapshot.keyClasses().get("city"));
+    }
+
+    @Test
+    void sweepExpired_ShouldRemoveEntriesAndReleaseVariantBudget() {
+        // Given - истекшая запись с построенным gzip-вариантом
+        CompressedVariants variants = new CompressedVariants(
+                new PrecompressionProperties(true, DataSize.ofKilobytes(64), DataSize.ofBytes(0), 0));
+        cacheService = new WeatherCacheService(redisTemplate, new WeatherKeyGenerator(), RedisAvailability.unguarded(),
+                analytics, variants, MemoryCacheProperties.defaults());
+        WeatherRequest london = WeatherRequest.builder().city("London").countryCode("GB").build();
+        ArgumentCaptor<WeatherResponse> stored = ArgumentCaptor.forClass(WeatherResponse.class);
+        when(valueOperations.set(anyString(), stored.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        StepVerifier.create(cacheService.cacheWeatherData(london, response(), Duration.ofMillis(-1)))
+                .expectNext(true)
+                .verifyComplete();
+        CacheEntryTag tag = CacheEntryTag.of(stored.getValue(), stored.getValue().getCachedUntil());
+        EncodedWeatherResponse encoded = cacheService.getEncodedWeather(london, tag).block();
+        assertNotNull(encoded);
+        assertNotNull(encoded.gzip());
+        assertTrue(variants.usedBytes() > 0);
+
+        // When
+        int swept = cacheService.sweepExpired();
+
+        // Then
+        assertEquals(1, swept);
+        assertEquals(0, variants.usedBytes());
+        assertFalse(cacheService.hasEncodedWeather(london));
+        CacheAnalytics.Snapshot snapshot = analytics.snapshot();
+        assertEquals(1L, snapshot.evictions().get("expired"));
+        assertEquals(new CacheAnalytics.TierUsage(0, 0), snapshot.memoryTier().get("openweather_map"));
+    }
+
+    @Test
+    void memoryTier_ShouldStayWithinMaxEntries() {
+        // Given
+        cacheService = new WeatherCacheService(redisTemplate, new WeatherKeyGenerator(), RedisAvailability.unguarded(),
+                analytics, CompressedVariants.disabled(), new MemoryCacheProperties(2, Duration.ofMinutes(1)));
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        // When
+        for (String city : new String[]{"London", "Paris", "Berlin"}) {
+            WeatherRequest request = WeatherRequest.builder().city(city).countryCode("EU").build();
+            StepVerifier.create(cacheService.cacheWeatherData(request, response())).expectNext(true).verifyComplete();
+        }
+
+        // Then
+        CacheAnalytics.Snapshot snapshot = analytics.snapshot();
+        assertEquals(2, snapshot.memoryTier().get("openweather_map").entries());
+        assertEquals(1L, snapshot.evictions().get("capacity"));
+    }
+
+    private static WeatherResponse response() {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .cachedUntil(LocalDateTime.now().plusMinutes(10))
+                .build();
+    }
+}
@@ -0,0 +1,82 @@
+package com.weatherservice.service;
+
+import com.weatherservice.config.CacheConfig.CacheAnalyticsProperties;
+import com.weatherservice.config.CacheConfig.PrecompressionProperties;
+import com.weatherservice.model.WeatherRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedVariantsTest {
+
+    private static final CacheEntryTag TAG = new CacheEntryTag("abc", LocalDateTime.now().plusMinutes(10));
+
+    @Test
+    void gzip_ShouldBuildVariantOnceAndReleaseBudget() throws IOException {
+        // Given
+        CompressedVariants variants = new CompressedVariants(
+                new PrecompressionProperties(true, DataSize.ofKilobytes(64), DataSize.ofBytes(16), 0));
+        byte[] json = "{\"city\":\"London\"}".repeat(50).getBytes(StandardCharsets.UTF_8);
+        EncodedWeatherResponse encoded = new EncodedWeatherResponse(json, TAG, variants);
+
+        // When
+        byte[] first = encoded.gzip();
+        byte[] second = encoded.gzip();
+
+        // Then - вариант построен один раз и распаковывается в исходное тело
+        assertSame(first, second);
+        assertEquals(first.length, variants.usedBytes());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(first))) {
+            assertArrayEquals(json, in.readAllBytes());
+        }
+
+        encoded.release();
+        assertEquals(0, variants.usedBytes());
+        assertNull(encoded.gzip());
+    }
+
+    @Test
+    void gzip_ShouldWaitUntilKeyIsHot() {
+        // Given - вариант строится с третьего попадания в ключ
+        CacheAnalytics analytics = new CacheAnalytics(new CacheAnalyticsProperties(true, 5, 16, 1));
+        CompressedVariants variants = new CompressedVariants(
+                new PrecompressionProperties(true, DataSize.ofKilobytes(64), DataSize.ofBytes(16), 3), analytics);
+        byte[] json = "{\"city\":\"London\"}".repeat(50).getBytes(StandardCharsets.UTF_8);
+        WeatherRequest request = WeatherRequest.builder().city("London").countryCode("GB").build();
+        EncodedWeatherResponse encoded = new EncodedWeatherResponse(json, TAG, variants, "weather:london");
+
+        // When & Then - холодный ключ отдается несжатым и не расходует бюджет
+        analytics.recordLookup(request, "weather:london", true);
+        analytics.recordLookup(request, "weather:london", true);
+        assertNull(encoded.gzip());
+        assertEquals(0, variants.usedBytes());
+
+        analytics.recordLookup(request, "weather:london", true);
+        assertNotNull(encoded.gzip());
+        assertTrue(variants.usedBytes() > 0);
+    }
+
+    @Test
+    void gzip_ShouldSkipSmallBodiesAndRespectBudget() {
+        // Given
+        CompressedVariants variants = new CompressedVariants(
+                new PrecompressionProperties(true, DataSize.ofBytes(60), DataSize.ofBytes(16), 0));
+        byte[] small = "{}".getBytes(StandardCharsets.UTF_8);
+        byte[] large = "{\"city\":\"London\"}".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+        // When & Then
+        assertNull(new EncodedWeatherResponse(small, TAG, variants).gzip());
+        byte[] fits = new EncodedWeatherResponse(large, TAG, variants).gzip();
+        assertNotNull(fits);
+        // Второй вариант в оставшийся бюджет не помещается - такие ответы сжимает сервер
+        assertNull(new EncodedWeatherResponse(large, TAG, variants).gzip());
+        assertEquals(fits.length, variants.usedBytes());
+    }
+}
@@ -0,0 +1,167 @@
+package com.weatherservice.service;
+
+import com.weatherservice.config.RateLimitConfig.LocalLimiterProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocalRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    @Mock
+    private ReactiveRedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private WeatherMetrics metrics;
+
+    // Израсходованная часть лимита в "Redis"
+    private final AtomicLong globalCount = new AtomicLong();
+
+    private RateLimitingService rateLimitingService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> fakeScript(invocation.getArgument(2)))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        rateLimitingService = new RateLimitingService(redisTemplate, metrics,
+                new LocalLimiterProperties(true, 4, 0.2, Duration.ofMillis(200)));
+    }
+
+    @Test
+    void isAllowed_ShouldDecideLocallyAwayFromLimit() {
+        // When - лимит 10, запас 2: первый запрос синхронный, дальше локально до остатка 2
+        for (int i = 0; i < 8; i++) {
+            StepVerifier.create(rateLimitingService.isAllowed("client", 10, WINDOW))
+                    .expectNext(true)
+                    .verifyComplete();
+        }
+
+        // Then
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+        verify(metrics).recordRateLimitDecision("synced", true);
+        verify(metrics, times(7)).recordRateLimitDecision("local", true);
+        assertEquals(1, globalCount.get());
+
+        // Пачка: 7 локальных решений уходят в Redis одним вызовом скрипта без проверки
+        StepVerifier.create(rateLimitingService.flushLocalCounts()).verifyComplete();
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("rate_limit:client")),
+                eq(List.of("10", "60000", "0", "7")));
+        assertEquals(8, globalCount.get());
+    }
+
+    @Test
+    void isAllowed_NearLimit_ShouldAskRedisAndThenDenyLocally() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            StepVerifier.create(rateLimitingService.isAllowed("client", 10, WINDOW))
+                    .expectNext(true)
+                    .verifyComplete();
+        }
+        StepVerifier.create(rateLimitingService.isAllowed("client", 10, WINDOW))
+                .expectNext(false)
+                .verifyComplete();
+        StepVerifier.create(rateLimitingService.isAllowed("client", 10, WINDOW))
+                .expectNext(false)
+                .verifyComplete();
+
+        // Then - у границы решал Redis, после его отказа до retry-after отказываем без Redis
+        assertEquals(10, globalCount.get());
+        verify(redisTemplate, times(4)).execute(any(RedisScript.class), anyList(), anyList());
+        verify(metrics).recordRateLimitDecision("synced", false);
+        verify(metrics).recordRateLimitDecision("local", false);
+        verify(metrics, times(2)).recordRateLimitExceeded();
+    }
+
+    @Test
+    void flushLocalCounts_ShouldReportDriftFromOtherInstances() {
+        // Given
+        StepVerifier.create(rateLimitingService.isAllowed("client", 100, WINDOW))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(rateLimitingService.isAllowed("client", 100, WINDOW))
+                .expectNext(true)
+                .verifyComplete();
+
+        // Другой инстанс успел пропустить 5 запросов
+        globalCount.addAndGet(5);
+
+        // When
+        StepVerifier.create(rateLimitingService.flushLocalCounts()).verifyComplete();
+
+        // Then
+        verify(metrics).recordRateLimitDrift(5);
+        assertEquals(7, globalCount.get());
+    }
+
+    @Test
+    void isAllowed_WhenRedisFails_ShouldAllowAndKeepCountsForNextSync() {
+        // Given
+        doReturn(Flux.error(new RuntimeException("Redis error")))
+                .doAnswer(invocation -> fakeScript(invocation.getArgument(2)))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        // When
+        StepVerifier.create(rateLimitingService.isAllowed("client", 10, WINDOW))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(rateLimitingService.flushLocalCounts()).verifyComplete();
+
+        // Then - неудачный запрос учтен при следующей синхронизации
+        assertEquals(1, globalCount.get());
+    }
+
+    @Test
+    void drainPending_ShouldEvictIdleKeys() throws InterruptedException {
+        // Given
+        LocalRateLimiter limiter = new LocalRateLimiter(3, 0.1);
+        LocalRateLimiter.Sync sync = limiter.beginSync("short", 1, 100, Duration.ofMillis(1));
+        limiter.completeSync(sync, decision(99));
+        assertEquals(LocalRateLimiter.Decision.ALLOWED, limiter.tryAcquire("short", 1, 100, Duration.ofMillis(1)));
+
+        // When
+        List<LocalRateLimiter.Sync> batch = limiter.drainPending();
+        batch.forEach(pending -> limiter.completeSync(pending, decision(98)));
+        Thread.sleep(5);
+
+        // Then
+        assertEquals(1, batch.size());
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.drainPending().isEmpty());
+        assertEquals(0, limiter.size());
+    }
+
+    private static RateLimitDecision decision(long remaining) {
+        return new RateLimitDecision(true, 100, remaining, Duration.ZERO, Duration.ZERO);
+    }
+
+    // Упрощенная модель скрипта: без восстановления лимита во времени
+    private Flux<Long> fakeScript(List<String> args) {
+        long limit = Long.parseLong(args.get(0));
+        long cost = Long.parseLong(args.get(2));
+        long forced = Long.parseLong(args.get(3));
+
+        long used = globalCount.addAndGet(forced);
+        boolean allowed = used + cost <= limit;
+        if (allowed) {
+            used = globalCount.addAndGet(cost);
+        }
+        return Flux.just(allowed ? 1L : 0L, Math.max(0, limit - used), allowed ? 0L : 1000L, used * 600L);
+    }
+}
@@ -0,0 +1,298 @@
+package com.weatherservice.service;
+
+import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.client.NoOpWeatherProviderClient;
+import com.weatherservice.config.LocationConfig.FuzzySearchProperties;
+import com.weatherservice.config.LocationConfig.LocationIndexProperties;
+import com.weatherservice.config.LocationConfig.LocationSearchProperties;
+import com.weatherservice.location.Gazetteer;
+import com.weatherservice.location.LocationPrefixIndex;
+import com.weatherservice.location.LocationTrigramIndex;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.LocationSearchRequest;
+import com.weatherservice.resilience.RedisAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.SerializationException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocationSearchServiceTest {
+
+    private static final LocationSearchProperties SEARCH = new LocationSearchProperties(Duration.ofSeconds(1));
+
+    @Mock
+    private WeatherProviderClient client;
+
+    @Mock
+    private ReactiveRedisTemplate<String, List<LocationInfo>> redisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, List<LocationInfo>> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherMetrics metrics;
+    private LocationPrefixIndex prefixIndex;
+    private LocationTrigramIndex trigramIndex;
+    private LocationSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new WeatherMetrics(meterRegistry);
+        prefixIndex = new LocationPrefixIndex(new LocationIndexProperties(true, 1000, 10));
+        trigramIndex = new LocationTrigramIndex(new FuzzySearchProperties(true, 1000, 200));
+        searchService = new LocationSearchService(List.of(client), redisTemplate, RedisAvailability.unguarded(),
+                prefixIndex, Gazetteer.empty(), trigramIndex, SEARCH, metrics);
+    }
+
+    @Test
+    void searchLocations_WithFewIndexedMatches_ShouldQueryProvidersAndFeedIndex() {
+        // Given
+        LocationInfo londonGb = location("London", "GB");
+        LocationInfo londonCa = location("London", "CA");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.searchLocations("Lon", "en", 2)).thenReturn(Mono.just(List.of(londonGb, londonCa)));
+
+        // When
+        StepVerifier.create(searchService.searchLocations(request("Lon", 2)))
+                .expectNext(londonGb, londonCa)
+                .verifyComplete();
+
+        // Then
+        verify(client).searchLocations("Lon", "en", 2);
+        assertEquals(2, prefixIndex.size());
+    }
+
+    @Test
+    void searchLocations_WithEnoughIndexedMatches_ShouldAnswerFromMemory() {
+        // Given - London GB популярнее
+        LocationInfo londonGb = location("London", "GB");
+        LocationInfo londonCa = location("London", "CA");
+        prefixIndex.record(List.of(londonGb, londonCa, londonGb));
+
+        // When / Then - провайдеры и Redis не вызываются на каждое нажатие клавиши
+        StepVerifier.create(searchService.searchLocations(request("Lo", 2)))
+                .expectNext(londonGb, londonCa)
+                .verifyComplete();
+        StepVerifier.create(searchService.searchLocations(request("Lond", 1)))
+                .expectNext(londonGb)
+                .verifyComplete();
+
+        verifyNoInteractions(client, redisTemplate);
+    }
+
+    @Test
+    void searchLocations_WithGazetteerMatches_ShouldFillFromGazetteerWithoutProviders(@TempDir Path directory)
+            throws IOException {
+        // Given - индекс знает один London, справочник - два (GB крупнее)
+        Path source = directory.resolve("cities.txt");
+        Files.writeString(source, String.join("\n",
+                "1\tLondon\tLondon\t\t51.50853\t-0.12574\tP\tPPLC\tGB\t\t\t\t\t\t8961989\t\t25\tEurope/London\t2023-01-01",
+                "2\tLondon\tLondon\t\t42.98339\t-81.23304\tP\tPPL\tCA\t\t\t\t\t\t346765\t\t252\tAmerica/Toronto\t2023-01-01"));
+        LocationInfo londonCa = location("London", "CA");
+        prefixIndex.record(List.of(londonCa));
+
+        try (Gazetteer gazetteer = Gazetteer.open(source, directory.resolve("cities.gaz"), 100)) {
+            LocationSearchService service = new LocationSearchService(List.of(client), redisTemplate,
+                    RedisAvailability.unguarded(), prefixIndex, gazetteer, trigramIndex, SEARCH, metrics);
+
+            // When / Then - индекс первым, справочник дополняет без повторов
+            StepVerifier.create(service.searchLocations(request("lon", 2)))
+                    .expectNext(londonCa)
+                    .assertNext(location -> {
+                        assertEquals("GB", location.getCountry());
+                        assertEquals("Europe/London", location.getTimezone());
+                    })
+                    .verifyComplete();
+            StepVerifier.create(service.resolveLocation("london", "ca"))
+                    .assertNext(location -> assertEquals(42.98339, location.getLat(), 1e-4))
+                    .verifyComplete();
+        }
+
+        verifyNoInteractions(client, redisTemplate);
+    }
+
+    @Test
+    void searchLocations_WithFewLocalMatches_ShouldKeepThemAheadOfProviderResults(@TempDir Path directory)
+            throws IOException {
+        // Given - справочник знает только London GB, провайдер - оба, в другом порядке
+        Path source = directory.resolve("cities.txt");
+        Files.writeString(source,
+                "1\tLondon\tLondon\t\t51.50853\t-0.12574\tP\tPPLC\tGB\t\t\t\t\t\t8961989\t\t25\tEurope/London\t2023-01-01");
+        LocationInfo londonGb = location("London", "GB");
+        LocationInfo londonCa = location("London", "CA");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.searchLocations("lon", "en", 3)).thenReturn(Mono.just(List.of(londonCa, londonGb)));
+
+        try (Gazetteer gazetteer = Gazetteer.open(source, directory.resolve("cities.gaz"), 100)) {
+            LocationSearchService service = new LocationSearchService(List.of(client), redisTemplate,
+                    RedisAvailability.unguarded(), prefixIndex, gazetteer, trigramIndex, SEARCH, metrics);
+
+            // When / Then - место из справочника не теряется, ответ провайдера дополняет без повторов
+            StepVerifier.create(service.searchLocations(request("lon", 3)))
+                    .assertNext(location -> assertEquals("Europe/London", location.getTimezone()))
+                    .expectNext(londonCa)
+                    .verifyComplete();
+        }
+    }
+
+    @Test
+    void searchLocations_WithSlowProvider_ShouldAnswerByDeadlineAndCacheLateResults() {
+        // Given - второй провайдер отвечает позже дедлайна, no-op клиент не опрашивается
+        WeatherProviderClient slowClient = mock(WeatherProviderClient.class);
+        NoOpWeatherProviderClient noOpClient = spy(new NoOpWeatherProviderClient());
+        LocationInfo londonGb = location("London", "GB");
+        LocationInfo londonCa = location("London", "CA");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(client.isRealProvider()).thenReturn(true);
+        when(slowClient.isRealProvider()).thenReturn(true);
+        when(client.searchLocations("Lon", "en", 5)).thenReturn(Mono.just(List.of(londonGb)));
+        when(slowClient.searchLocations("Lon", "en", 5))
+                .thenReturn(Mono.delay(Duration.ofMillis(500)).thenReturn(List.of(londonCa, londonGb)));
+        LocationSearchService service = new LocationSearchService(List.of(noOpClient, client, slowClient),
+                redisTemplate, RedisAvailability.unguarded(), prefixIndex, Gazetteer.empty(),
+                trigramIndex, new LocationSearchProperties(Duration.ofMillis(100)),
+                metrics);
+
+        // When / Then - клиент получает то, что успело прийти
+        StepVerifier.create(service.searchLocations(request("Lon", 5)))
+                .expectNext(londonGb)
+                .expectComplete()
+                .verify(Duration.ofMillis(400));
+
+        // Then - полный ранжированный список попадает в кэш после ответа медленного провайдера
+        verify(valueOperations, timeout(2000)).set(anyString(), eq(List.of(londonGb, londonCa)), any(Duration.class));
+        verify(noOpClient, never()).searchLocations(anyString(), anyString(), any());
+    }
+
+    @Test
+    void searchLocations_WithCachedResults_ShouldServeTypedListAndCountHits() {
+        // Given - индекс пуст, в кэше поиска лежит типизированный список
+        LocationInfo paris = LocationInfo.builder().name("Paris").country("FR").lat(48.85341).lon(2.3488).build();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("weather:search:par_en")).thenReturn(Mono.just(List.of(paris)));
+        when(valueOperations.get("weather:search:zzz_en")).thenReturn(Mono.empty());
+        when(valueOperations.get("weather:search:broken_en"))
+                .thenReturn(Mono.error(new SerializationException("Unsupported location list format")));
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.searchLocations(anyString(), anyString(), any())).thenReturn(Mono.just(List.of()));
+
+        // When
+        StepVerifier.create(searchService.searchLocations(request("Par", 1))).expectNext(paris).verifyComplete();
+        StepVerifier.create(searchService.searchLocations(request("zzz", 1))).verifyComplete();
+        StepVerifier.create(searchService.searchLocations(request("broken", 1))).verifyComplete();
+
+        // Then - нечитаемая запись считается ошибкой кэша и промахом
+        assertEquals(1, searchCount("hit"));
+        assertEquals(2, searchCount("miss"));
+        assertEquals(1, searchCount("error"));
+    }
+
+    @Test
+    void searchLocations_WithTypo_ShouldAddCorrectionsAfterProviderResults() {
+        // Given - London и Moscow уже встречались в ответах, провайдеры опечатку не знают
+        LocationInfo london = location("London", "GB");
+        LocationInfo moscow = location("Moscow", "RU");
+        prefixIndex.record(List.of(london, moscow));
+        trigramIndex.add(List.of(london, moscow));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.searchLocations(anyString(), anyString(), any())).thenReturn(Mono.just(List.of()));
+
+        // When / Then
+        StepVerifier.create(searchService.searchLocations(request("Lodnon", 5)))
+                .expectNext(london)
+                .verifyComplete();
+        StepVerifier.create(searchService.searchLocations(request("Moskow", 5)))
+                .expectNext(moscow)
+                .verifyComplete();
+
+        verify(client).searchLocations("Lodnon", "en", 5);
+        assertEquals(0, searchCount("fuzzy"));
+        assertEquals(2, searchCount("miss"));
+    }
+
+    @Test
+    void searchLocations_WithExactCorrections_ShouldAnswerWithoutProviders() {
+        // Given - префиксный индекс выключен, название известно только нечеткому поиску
+        LocationSearchService service = new LocationSearchService(List.of(client), redisTemplate,
+                RedisAvailability.unguarded(), new LocationPrefixIndex(new LocationIndexProperties(false, 1000, 10)),
+                Gazetteer.empty(), trigramIndex, SEARCH, metrics);
+        LocationInfo moscow = location("Moscow", "RU");
+        trigramIndex.add(List.of(moscow));
+
+        // When / Then
+        StepVerifier.create(service.searchLocations(request("Moscow", 1)))
+                .expectNext(moscow)
+                .verifyComplete();
+
+        verifyNoInteractions(client, redisTemplate);
+        assertEquals(1, searchCount("fuzzy"));
+    }
+
+    @Test
+    void searchLocations_WithRealNameSimilarToIndexedOne_ShouldStillQueryProviders() {
+        // Given - известен только Berlin, "Bern" совпадает с его началом в одну правку
+        LocationInfo berlin = location("Berlin", "DE");
+        LocationInfo bern = location("Bern", "CH");
+        prefixIndex.record(List.of(berlin));
+        trigramIndex.add(List.of(berlin));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        when(valueOperations.set(anyString(), any(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(client.isRealProvider()).thenReturn(true);
+        when(client.searchLocations("Bern", "en", 5)).thenReturn(Mono.just(List.of(bern)));
+
+        // When / Then - настоящий Bern первым, исправление только дополняет
+        StepVerifier.create(searchService.searchLocations(request("Bern", 5)))
+                .expectNext(bern, berlin)
+                .verifyComplete();
+
+        // Then - Berlin не закрепился за запросом "Bern"
+        verify(client).searchLocations("Bern", "en", 5);
+        verify(valueOperations, timeout(2000)).set(anyString(), eq(List.of(bern)), any(Duration.class));
+        assertEquals(List.of(bern), prefixIndex.search("Bern", 5));
+    }
+
+    private double searchCount(String result) {
+        return meterRegistry.get("weather.location.search.cache").tag("result", result).counter().count();
+    }
+
+    private static LocationSearchRequest request(String query, int limit) {
+        return LocationSearchRequest.builder().query(query).limit(limit).language("en").build();
+    }
+
+    private static LocationInfo location(String name, String country) {
+        return LocationInfo.builder().name(name).country(country).build();
+    }
+}
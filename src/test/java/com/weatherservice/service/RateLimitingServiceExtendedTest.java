@@ -6,15 +6,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,14 +30,10 @@ class RateLimitingServiceExtendedTest {
     @Mock
     private WeatherMetrics metrics;
 
-    @Mock
-    private ReactiveValueOperations<String, String> valueOperations;
-
     private RateLimitingService rateLimitingService;
 
     @BeforeEach
     void setUp() {
-        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         rateLimitingService = new RateLimitingService(redisTemplate, metrics);
     }
 
@@ -43,9 +43,7 @@ class RateLimitingServiceExtendedTest {
         String clientId = "127.0.0.1";
         int customLimit = 50;
         Duration customWindow = Duration.ofMinutes(5);
-
-        lenient().when(valueOperations.increment(anyString())).thenReturn(Mono.just(25L));
-        lenient().when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+        stubScript(1, 25, 0, 150000);
 
         // When
         Mono<Boolean> result = rateLimitingService.isAllowed(clientId, customLimit, customWindow);
@@ -54,6 +52,8 @@ class RateLimitingServiceExtendedTest {
         StepVerifier.create(result)
                 .expectNext(true)
                 .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(List.of("50", "300000", "1", "0")));
     }
 
     @Test
@@ -62,8 +62,7 @@ class RateLimitingServiceExtendedTest {
         String clientId = "127.0.0.1";
         int customLimit = 50;
         Duration customWindow = Duration.ofMinutes(5);
-
-        when(valueOperations.get(anyString())).thenReturn(Mono.just("30"));
+        stubScript(1, 20, 0, 180000);
 
         // When
         Mono<Long> result = rateLimitingService.getRemainingRequests(clientId, customLimit, customWindow);
@@ -78,7 +77,7 @@ class RateLimitingServiceExtendedTest {
     void getRateLimitInfo_ShouldReturnCompleteInfo() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(anyString())).thenReturn(Mono.just("75"));
+        stubScript(1, 25, 0, 45000);
 
         // When
         Mono<RateLimitingService.RateLimitInfo> result = rateLimitingService.getRateLimitInfo(clientId);
@@ -90,7 +89,36 @@ class RateLimitingServiceExtendedTest {
                                 info.getCurrentRequests() == 75L &&
                                 info.getRemainingRequests() == 25L &&
                                 info.getLimit() == 100 &&
-                                info.getResetTime() != null)
+                                info.getResetTime() != null &&
+                                info.getResetTime().isAfter(Instant.now().plusSeconds(40)))
+                .verifyComplete();
+    }
+
+    @Test
+    void tryConsume_ShouldReturnRetryAfterWhenDenied() {
+        // Given
+        stubScript(0, 0, 1200, 60000);
+
+        // When & Then
+        StepVerifier.create(rateLimitingService.tryConsume("127.0.0.1", 5))
+                .expectNextMatches(decision -> !decision.allowed()
+                        && decision.remaining() == 0
+                        && decision.retryAfter().equals(Duration.ofMillis(1200))
+                        && decision.resetAfter().equals(Duration.ofMinutes(1)))
+                .verifyComplete();
+
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(List.of("100", "60000", "5", "0")));
+    }
+
+    @Test
+    void tryConsume_WhenScriptResultIsNested_ShouldParseIt() {
+        // Given - ответ-массив одним элементом вместо развернутых значений
+        doReturn(Flux.just(List.of(1L, 42L, 0L, 34800L)))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+
+        // When & Then
+        StepVerifier.create(rateLimitingService.tryConsume("127.0.0.1", 1))
+                .expectNextMatches(decision -> decision.allowed() && decision.remaining() == 42L)
                 .verifyComplete();
     }
 
@@ -110,10 +138,10 @@ class RateLimitingServiceExtendedTest {
     }
 
     @Test
-    void getCurrentRequestCount_WhenRedisError_ShouldReturnZero() {
+    void getCurrentRequestCount_WhenNoData_ShouldReturnZero() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(anyString())).thenReturn(Mono.empty());
+        stubScript(1, 100, 0, 0);
 
         // When
         Mono<Long> result = rateLimitingService.getCurrentRequestCount(clientId);
@@ -125,18 +153,26 @@ class RateLimitingServiceExtendedTest {
     }
 
     @Test
-    void isAllowed_WhenExpireFails_ShouldStillWork() {
+    void isAllowed_ShouldUseSingleScriptCallWithoutSeparateExpire() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.increment(anyString())).thenReturn(Mono.just(1L));
-        lenient().when(redisTemplate.expire(anyString(), any(Duration.class))).thenReturn(Mono.just(false));
+        stubScript(1, 99, 0, 600);
 
         // When
         Mono<Boolean> result = rateLimitingService.isAllowed(clientId);
 
-        // Then
+        // Then - TTL выставляет сам скрипт, отдельных INCR/EXPIRE нет
         StepVerifier.create(result)
                 .expectNext(true)
                 .verifyComplete();
+
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyList());
+        verify(redisTemplate, never()).opsForValue();
+        verify(redisTemplate, never()).expire(anyString(), any(Duration.class));
+    }
+
+    private void stubScript(long allowed, long remaining, long retryAfterMillis, long resetAfterMillis) {
+        doReturn(Flux.just(allowed, remaining, retryAfterMillis, resetAfterMillis))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
     }
 }
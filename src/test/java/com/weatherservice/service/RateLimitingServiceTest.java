@@ -6,13 +6,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
-import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
-import java.time.Duration;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,15 +27,10 @@ class RateLimitingServiceTest {
     @Mock
     private WeatherMetrics metrics;
 
-    @Mock
-    private ReactiveValueOperations<String, String> valueOperations;
-
     private RateLimitingService rateLimitingService;
 
     @BeforeEach
     void setUp() {
-        // Используем lenient чтобы избежать UnnecessaryStubbing
-        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
         rateLimitingService = new RateLimitingService(redisTemplate, metrics);
     }
 
@@ -40,8 +38,7 @@ class RateLimitingServiceTest {
     void isAllowed_WhenUnderLimit_ShouldReturnTrue() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.increment(any())).thenReturn(Mono.just(1L));
-        when(redisTemplate.expire(any(), any(Duration.class))).thenReturn(Mono.just(true));
+        stubScript(1, 99, 0, 600);
 
         // When
         Mono<Boolean> result = rateLimitingService.isAllowed(clientId);
@@ -50,14 +47,17 @@ class RateLimitingServiceTest {
         StepVerifier.create(result)
                 .expectNext(true)
                 .verifyComplete();
+
+        // Одно обращение к Redis: ключ клиента, лимит, период в мс, стоимость, списание без проверки
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("rate_limit:127.0.0.1")),
+                eq(List.of("100", "60000", "1", "0")));
     }
 
     @Test
     void isAllowed_WhenOverLimit_ShouldReturnFalse() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.increment(any())).thenReturn(Mono.just(101L));
-        // Убираем ненужный стаб для expire
+        stubScript(0, 0, 600, 60000);
 
         // When
         Mono<Boolean> result = rateLimitingService.isAllowed(clientId);
@@ -74,7 +74,8 @@ class RateLimitingServiceTest {
     void isAllowed_WhenRedisError_ShouldReturnTrue() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.increment(any())).thenReturn(Mono.error(new RuntimeException("Redis error")));
+        doReturn(Flux.error(new RuntimeException("Redis error")))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
 
         // When
         Mono<Boolean> result = rateLimitingService.isAllowed(clientId);
@@ -89,7 +90,7 @@ class RateLimitingServiceTest {
     void getRemainingRequests_ShouldReturnCorrectCount() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(any())).thenReturn(Mono.just("50"));
+        stubScript(1, 50, 0, 30000);
 
         // When
         Mono<Long> result = rateLimitingService.getRemainingRequests(clientId);
@@ -98,13 +99,16 @@ class RateLimitingServiceTest {
         StepVerifier.create(result)
                 .expectNext(50L)
                 .verifyComplete();
+
+        // Остаток читается тем же скриптом с нулевой стоимостью
+        verify(redisTemplate).execute(any(RedisScript.class), anyList(), eq(List.of("100", "60000", "0", "0")));
     }
 
     @Test
     void getRemainingRequests_WhenNoData_ShouldReturnLimit() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(any())).thenReturn(Mono.empty());
+        stubScript(1, 100, 0, 0);
 
         // When
         Mono<Long> result = rateLimitingService.getRemainingRequests(clientId);
@@ -119,7 +123,7 @@ class RateLimitingServiceTest {
     void getCurrentRequestCount_ShouldReturnCount() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(any())).thenReturn(Mono.just("75"));
+        stubScript(1, 25, 0, 45000);
 
         // When
         Mono<Long> result = rateLimitingService.getCurrentRequestCount(clientId);
@@ -134,7 +138,7 @@ class RateLimitingServiceTest {
     void getCurrentRequestCount_WhenNoData_ShouldReturnZero() {
         // Given
         String clientId = "127.0.0.1";
-        when(valueOperations.get(any())).thenReturn(Mono.empty());
+        stubScript(1, 100, 0, 0);
 
         // When
         Mono<Long> result = rateLimitingService.getCurrentRequestCount(clientId);
@@ -160,4 +164,9 @@ class RateLimitingServiceTest {
                 .expectNext(true)
                 .verifyComplete();
     }
+
+    private void stubScript(long allowed, long remaining, long retryAfterMillis, long resetAfterMillis) {
+        doReturn(Flux.just(allowed, remaining, retryAfterMillis, resetAfterMillis))
+                .when(redisTemplate).execute(any(RedisScript.class), anyList(), anyList());
+    }
 }
@@ -5,21 +5,28 @@ import com.weatherservice.model.WeatherResponse;
 import com.weatherservice.model.CurrentWeather;
 import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.util.JsonSerializerUtil;
 import com.weatherservice.util.WeatherKeyGenerator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -43,25 +50,31 @@ class WeatherCacheServiceTest {
     }
 
     @Test
-    void getCachedWeather_WhenKeyExists_ShouldReturnData() {
-        // Given
+    void getCachedWeather_WhenKeyExists_ShouldReturnDataWithStoredValidator() {
+        // Given - запись и ее валидатор читаются одним MGET
         WeatherRequest request = createTestRequest();
         WeatherResponse response = createTestResponse();
+        CacheEntryTag tag = new CacheEntryTag("stored-hash", response.getCachedUntil());
         String cacheKey = "test:key";
+        ReactiveValueOperations<String, String> tagOperations = mock(ReactiveValueOperations.class);
 
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class))).thenReturn(tagOperations);
         when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
-        when(valueOperations.get(cacheKey)).thenReturn(Mono.just(response));
+        when(tagOperations.multiGet(List.of(cacheKey, cacheKey + ":etag")))
+                .thenReturn(Mono.just(Arrays.asList(JsonSerializerUtil.toJson(response), tag.encode())));
 
         // When
         Mono<WeatherResponse> result = cacheService.getCachedWeather(request);
 
-        // Then
+        // Then - хэш не пересчитывается, а берется из валидатора записи
         StepVerifier.create(result)
-                .expectNext(response)
+                .assertNext(cached -> {
+                    assertEquals(response, cached);
+                    assertEquals(tag, CacheEntryTag.stored(cached));
+                })
                 .verifyComplete();
 
-        verify(valueOperations).get(cacheKey);
+        verify(redisTemplate, never()).opsForValue();
     }
 
     @Test
@@ -69,10 +82,12 @@ class WeatherCacheServiceTest {
         // Given
         WeatherRequest request = createTestRequest();
         String cacheKey = "test:key";
+        ReactiveValueOperations<String, String> tagOperations = mock(ReactiveValueOperations.class);
 
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class))).thenReturn(tagOperations);
         when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
-        when(valueOperations.get(cacheKey)).thenReturn(Mono.empty());
+        when(tagOperations.multiGet(List.of(cacheKey, cacheKey + ":etag")))
+                .thenReturn(Mono.just(Arrays.asList(null, null)));
 
         // When
         Mono<WeatherResponse> result = cacheService.getCachedWeather(request);
@@ -80,8 +95,6 @@ class WeatherCacheServiceTest {
         // Then
         StepVerifier.create(result)
                 .verifyComplete();
-
-        verify(valueOperations).get(cacheKey);
     }
 
     @Test
@@ -151,6 +164,137 @@ class WeatherCacheServiceTest {
         verify(valueOperations).set(eq(cacheKey), any(WeatherResponse.class), eq(customTtl));
     }
 
+    @Test
+    void cacheWeatherData_ShouldStoreValidatorOnceAtWriteTime() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherResponse response = createTestResponse();
+        String cacheKey = "test:key";
+        ReactiveValueOperations<String, String> tagOperations = mock(ReactiveValueOperations.class);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class))).thenReturn(tagOperations);
+        when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
+        when(valueOperations.set(eq(cacheKey), any(WeatherResponse.class), any(Duration.class)))
+                .thenReturn(Mono.just(true));
+        when(tagOperations.set(eq(cacheKey + ":etag"), anyString(), any(Duration.class))).thenReturn(Mono.just(true));
+
+        // When
+        StepVerifier.create(cacheService.cacheWeatherData(request, response))
+                .expectNext(true)
+                .verifyComplete();
+
+        // Then - валидатор хранится рядом с записью и читается без нее
+        ArgumentCaptor<String> stored = ArgumentCaptor.forClass(String.class);
+        verify(tagOperations).set(eq(cacheKey + ":etag"), stored.capture(), any(Duration.class));
+        CacheEntryTag tag = CacheEntryTag.decode(stored.getValue());
+        assertEquals(CacheEntryTag.of(response, null).etag(), tag.etag());
+
+        when(tagOperations.get(cacheKey + ":etag")).thenReturn(Mono.just(stored.getValue()));
+        StepVerifier.create(cacheService.getEntryTag(request))
+                .expectNext(tag)
+                .verifyComplete();
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void getEncodedWeather_ShouldReturnBytesOnlyForCurrentValidator() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherResponse response = createTestResponse();
+        String cacheKey = "test:key";
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
+        ArgumentCaptor<WeatherResponse> stored = ArgumentCaptor.forClass(WeatherResponse.class);
+        when(valueOperations.set(eq(cacheKey), stored.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        cacheService.cacheWeatherData(request, response).block();
+        CacheEntryTag tag = CacheEntryTag.of(response, stored.getValue().getCachedUntil());
+
+        // When & Then - тело закодировано при записи в том же виде, что и HTTP-ответ
+        StepVerifier.create(cacheService.getEncodedWeather(request, tag))
+                .assertNext(encoded -> assertArrayEquals(JsonSerializerUtil.toJsonBytes(stored.getValue()), encoded.json()))
+                .verifyComplete();
+
+        // Запись перезаписана другим экземпляром - локальные байты не отдаются
+        CacheEntryTag newer = new CacheEntryTag(tag.etag(), tag.cachedUntil().plusMinutes(1));
+        StepVerifier.create(cacheService.getEncodedWeather(request, newer))
+                .verifyComplete();
+    }
+
+    @Test
+    void getCachedWeather_ShouldAttachOnlyValidatorOfReadEntry() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        String cacheKey = "test:key";
+        ReactiveValueOperations<String, String> tagOperations = mock(ReactiveValueOperations.class);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class))).thenReturn(tagOperations);
+        when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
+        ArgumentCaptor<WeatherResponse> stored = ArgumentCaptor.forClass(WeatherResponse.class);
+        ArgumentCaptor<String> storedTag = ArgumentCaptor.forClass(String.class);
+        when(valueOperations.set(eq(cacheKey), stored.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        when(tagOperations.set(eq(cacheKey + ":etag"), storedTag.capture(), any(Duration.class))).thenReturn(Mono.just(true));
+        assertFalse(cacheService.hasEncodedWeather(request));
+        cacheService.cacheWeatherData(request, createTestResponse()).block();
+        String json = JsonSerializerUtil.toJson(stored.getValue());
+        String staleTag = new CacheEntryTag("old-hash", LocalDateTime.now().plusMinutes(1)).encode();
+
+        // When - запись, прочитанная другим экземпляром: с ее валидатором и с валидатором прошлой записи
+        WeatherCacheService other = new WeatherCacheService(redisTemplate, keyGenerator);
+        when(tagOperations.multiGet(List.of(cacheKey, cacheKey + ":etag")))
+                .thenReturn(Mono.just(Arrays.asList(json, storedTag.getValue())))
+                .thenReturn(Mono.just(Arrays.asList(json, staleTag)));
+        WeatherResponse read = other.getCachedWeather(request).block();
+        WeatherResponse readWithStaleTag = other.getCachedWeather(request).block();
+
+        // Then - хэш в JSON не попадает, у записи тот же валидатор, что записан в Redis
+        assertFalse(json.contains("etag"));
+        assertEquals(CacheEntryTag.decode(storedTag.getValue()), CacheEntryTag.stored(read));
+        assertNull(CacheEntryTag.stored(readWithStaleTag));
+        assertTrue(cacheService.hasEncodedWeather(request));
+    }
+
+    @Test
+    void getEntryTag_WhenRedisFails_ShouldUseMemoryValidator() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherResponse response = createTestResponse();
+        String cacheKey = "test:key";
+        ReactiveValueOperations<String, String> tagOperations = mock(ReactiveValueOperations.class);
+
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.<String, String>opsForValue(any(RedisSerializationContext.class))).thenReturn(tagOperations);
+        when(keyGenerator.generateCacheKey(request)).thenReturn(cacheKey);
+        when(valueOperations.set(eq(cacheKey), any(WeatherResponse.class), any(Duration.class)))
+                .thenReturn(Mono.error(new RuntimeException("Redis down")));
+        when(tagOperations.get(cacheKey + ":etag")).thenReturn(Mono.error(new RuntimeException("Redis down")));
+        cacheService.cacheWeatherData(request, response).block();
+
+        // When & Then
+        StepVerifier.create(cacheService.getEntryTag(request))
+                .assertNext(tag -> assertEquals(CacheEntryTag.of(response, null).etag(), tag.etag()))
+                .verifyComplete();
+    }
+
+    @Test
+    void entryTag_ShouldIgnoreCacheExpiryAndMatchConditionalHeaders() {
+        // Given
+        WeatherResponse response = createTestResponse();
+        CacheEntryTag first = CacheEntryTag.of(response, LocalDateTime.now().plusMinutes(5));
+        CacheEntryTag second = CacheEntryTag.of(response, LocalDateTime.now().plusMinutes(10));
+
+        // Then - та же погода после обновления записи дает тот же ETag
+        assertEquals(first.etag(), second.etag());
+        assertEquals(first, CacheEntryTag.decode(first.encode()));
+        assertTrue(first.matches("W/" + first.quoted()));
+        assertTrue(first.matches("\"other\", " + first.quoted()));
+        assertTrue(first.matches("*"));
+        assertFalse(first.matches("\"other\""));
+        assertNull(CacheEntryTag.decode("garbage"));
+    }
+
     private WeatherRequest createTestRequest() {
         return WeatherRequest.builder()
                 .city("London")
@@ -153,6 +153,59 @@ class WeatherMetricsTest {
         assertEquals(1.0, count, 0.01);
     }
 
+    @Test
+    void constructor_ShouldPreRegisterMetersSoRecordingDoesNotTouchRegistry() {
+        // Given - метры существуют до первого запроса
+        assertNotNull(meterRegistry.find("weather.requests")
+                .tags("provider", "accuweather", "status", "error").counter());
+        assertNotNull(meterRegistry.find("weather.requests")
+                .tags("provider", "unknown", "status", "success").counter());
+        int meters = meterRegistry.getMeters().size();
+
+        // When
+        weatherMetrics.recordWeatherRequest(WeatherProvider.WEATHER_API, true, Duration.ofMillis(10));
+        weatherMetrics.recordWeatherRequest(null, false, Duration.ofMillis(10));
+        weatherMetrics.recordProviderResponseTime(WeatherProvider.ACCUWEATHER, Duration.ofMillis(10));
+        weatherMetrics.recordProviderRetry(WeatherProvider.ACCUWEATHER, "budget_exhausted");
+        weatherMetrics.recordRateLimitDecision("local", false);
+        weatherMetrics.recordRateLimitDrift(3);
+
+        // Then
+        assertEquals(meters, meterRegistry.getMeters().size());
+        assertEquals(1.0, meterRegistry.counter("weather.requests",
+                "provider", "unknown", "status", "error").count(), 0.01);
+        assertEquals(1.0, meterRegistry.counter("weather.provider.retries",
+                "provider", "accuweather", "outcome", "budget_exhausted").count(), 0.01);
+        assertEquals(1.0, meterRegistry.counter("weather.ratelimit.decisions",
+                "path", "local", "outcome", "denied").count(), 0.01);
+    }
+
+    @Test
+    void recordRateLimitDecision_WithUnknownPath_ShouldRegisterMeterOnce() {
+        // When
+        weatherMetrics.recordRateLimitDecision("remote", true);
+        weatherMetrics.recordRateLimitDecision("remote", true);
+
+        // Then
+        assertEquals(2.0, meterRegistry.counter("weather.ratelimit.decisions",
+                "path", "remote", "outcome", "allowed").count(), 0.01);
+    }
+
+    @Test
+    void activeRequests_ShouldReportInFlightNotCumulative() {
+        // When
+        weatherMetrics.requestStarted();
+        weatherMetrics.requestStarted();
+        weatherMetrics.requestFinished();
+        weatherMetrics.recordWeatherRequest(WeatherProvider.OPENWEATHER_MAP, true, Duration.ofMillis(100));
+
+        // Then
+        assertEquals(1.0, meterRegistry.get("weather.requests.active").gauge().value(), 0.01);
+        weatherMetrics.requestFinished();
+        assertEquals(0.0, meterRegistry.get("weather.requests.active").gauge().value(), 0.01);
+        assertEquals(100.0, weatherMetrics.getAverageResponseTime(), 0.01);
+    }
+
     @Test
     void resetMetrics_ShouldResetAllCounters() {
         // Given
@@ -1,6 +1,7 @@
 package com.weatherservice.service;
 
 import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.resilience.ProviderRetryPolicy;
 import com.weatherservice.model.*;
 import com.weatherservice.resilience.WeatherErrorHandler;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -44,7 +46,7 @@ class WeatherServiceFacadeExtendedTest {
                 "realClient", realClient,
                 "anotherClient", anotherClient
         );
-        weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
     }
 
     @Test
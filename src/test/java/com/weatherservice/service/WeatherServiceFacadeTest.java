@@ -1,19 +1,27 @@
 package com.weatherservice.service;
 
 import com.weatherservice.client.WeatherProviderClient;
+import com.weatherservice.resilience.ProviderRetryPolicy;
 import com.weatherservice.model.*;
 import com.weatherservice.resilience.WeatherErrorHandler;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +45,7 @@ class WeatherServiceFacadeTest {
         // Используем NoOp клиент чтобы избежать вызовов supportsProvider
         WeatherProviderClient noOpClient = new com.weatherservice.client.NoOpWeatherProviderClient();
         Map<String, WeatherProviderClient> clients = Map.of("noOpClient", noOpClient);
-        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
 
         when(cacheService.getCachedWeather(request)).thenReturn(Mono.just(cachedResponse));
 
@@ -61,7 +69,7 @@ class WeatherServiceFacadeTest {
         WeatherProviderClient realClient = mock(WeatherProviderClient.class);
 
         Map<String, WeatherProviderClient> clients = Map.of("realClient", realClient);
-        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
 
         when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
         when(realClient.isRealProvider()).thenReturn(true);
@@ -88,7 +96,7 @@ class WeatherServiceFacadeTest {
         WeatherProviderClient realClient = mock(WeatherProviderClient.class);
 
         Map<String, WeatherProviderClient> clients = Map.of("realClient", realClient);
-        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
 
         when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
         when(realClient.isRealProvider()).thenReturn(true);
@@ -113,7 +121,7 @@ class WeatherServiceFacadeTest {
         WeatherProviderClient realClient = mock(WeatherProviderClient.class);
 
         Map<String, WeatherProviderClient> clients = Map.of("realClient", realClient);
-        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
 
         when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
         when(realClient.isRealProvider()).thenReturn(true);
@@ -137,7 +145,7 @@ class WeatherServiceFacadeTest {
 
         Map<String, WeatherProviderClient> noOpClients = Map.of("noOpClient", noOpClient);
         WeatherServiceFacade noOpWeatherService = new WeatherServiceFacade(
-                noOpClients, cacheService, errorHandler, metrics);
+                noOpClients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
 
         when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
         when(errorHandler.handleProviderError(any(), any())).thenReturn(Mono.error(new com.weatherservice.exception.ServiceUnavailableException("No providers")));
@@ -148,6 +156,96 @@ class WeatherServiceFacadeTest {
                 .verify();
     }
 
+    @Test
+    void servedFromCache_ShouldRecordHitLikeGetWeather() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(Map.of(), cacheService, errorHandler, metrics,
+                ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
+
+        // When - ответ по валидатору (304) собран без чтения записи
+        StepVerifier.create(weatherService.servedFromCache(request, Mono.just("not-modified")))
+                .expectNext("not-modified")
+                .verifyComplete();
+        // Валидатор не совпал - попадания нет, дальше обычный getWeather
+        StepVerifier.create(weatherService.servedFromCache(request, Mono.empty()))
+                .verifyComplete();
+
+        // Then
+        verify(metrics, times(2)).requestStarted();
+        verify(metrics, times(2)).requestFinished();
+        verify(metrics).recordCacheHit();
+        verify(metrics).recordWeatherRequest(eq(WeatherProvider.OPENWEATHER_MAP), eq(true), any(Duration.class));
+        verify(cacheService).recordValidatedHit(request);
+    }
+
+    @Test
+    void getWeather_ConcurrentMisses_ShouldShareOneProviderCall() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherResponse freshResponse = createTestResponse();
+        WeatherProviderClient realClient = mock(WeatherProviderClient.class);
+        Sinks.One<WeatherResponse> upstream = Sinks.one();
+
+        Map<String, WeatherProviderClient> clients = Map.of("realClient", realClient);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofSeconds(5));
+
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        when(realClient.isRealProvider()).thenReturn(true);
+        when(realClient.getProvider()).thenReturn(WeatherProvider.OPENWEATHER_MAP);
+        when(realClient.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        when(cacheService.cacheWeatherData(request, freshResponse)).thenReturn(Mono.just(true));
+
+        // When - три одинаковых промаха, пока вызов провайдера в полете
+        Mono<List<WeatherResponse>> result = Flux.merge(
+                weatherService.getWeather(request),
+                weatherService.getWeather(request),
+                weatherService.getWeather(request)).collectList();
+
+        // Then
+        StepVerifier.create(result)
+                .then(() -> upstream.tryEmitValue(freshResponse))
+                .assertNext(responses -> assertThat(responses).containsExactly(freshResponse, freshResponse, freshResponse))
+                .verifyComplete();
+
+        verify(realClient, times(1)).getCurrentWeather(request);
+        verify(cacheService, times(1)).cacheWeatherData(request, freshResponse);
+    }
+
+    @Test
+    void getWeather_CoalescedFollower_ShouldGiveUpAtItsDeadlineWhileLeaderFetchCompletes() {
+        // Given
+        WeatherRequest request = createTestRequest();
+        WeatherResponse freshResponse = createTestResponse();
+        WeatherProviderClient realClient = mock(WeatherProviderClient.class);
+        Sinks.One<WeatherResponse> upstream = Sinks.one();
+
+        Map<String, WeatherProviderClient> clients = Map.of("realClient", realClient);
+        WeatherServiceFacade weatherService = new WeatherServiceFacade(clients, cacheService, errorHandler, metrics, ProviderRetryPolicy.disabled(), Duration.ofMillis(100));
+
+        when(cacheService.getCachedWeather(request)).thenReturn(Mono.empty());
+        when(realClient.isRealProvider()).thenReturn(true);
+        when(realClient.getProvider()).thenReturn(WeatherProvider.OPENWEATHER_MAP);
+        when(realClient.getCurrentWeather(request)).thenReturn(upstream.asMono());
+        when(cacheService.cacheWeatherData(request, freshResponse)).thenReturn(Mono.just(true));
+        when(errorHandler.handleProviderError(any(), any())).thenReturn(Mono.error(
+                new com.weatherservice.exception.ServiceUnavailableException("Provider timed out")));
+
+        Disposable leader = weatherService.getWeather(request).subscribe();
+
+        // When - ожидающий ограничен своим дедлайном
+        StepVerifier.create(weatherService.getWeather(request))
+                .expectError(com.weatherservice.exception.ServiceUnavailableException.class)
+                .verify(Duration.ofSeconds(5));
+        // Ушедшие вызывающие не отменяют общий вызов
+        leader.dispose();
+        upstream.tryEmitValue(freshResponse);
+
+        // Then
+        verify(realClient, times(1)).getCurrentWeather(request);
+        verify(cacheService).cacheWeatherData(request, freshResponse);
+    }
+
     private WeatherRequest createTestRequest() {
         return WeatherRequest.builder()
                 .city("London")
@@ -0,0 +1,176 @@
+package com.weatherservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weatherservice.config.SubscriptionConfig.SubscriptionProperties;
+import com.weatherservice.model.CurrentWeather;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.util.WeatherKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WeatherUpdateBroadcasterTest {
+
+    private static final WeatherRequest LONDON = WeatherRequest.builder()
+            .city("London").countryCode("GB").units("metric").language("en").build();
+
+    @Mock
+    private WeatherServiceFacade weatherService;
+
+    @Mock
+    private WeatherCacheService cacheService;
+
+    private final WeatherKeyGenerator keyGenerator = new WeatherKeyGenerator();
+    private SimpleMeterRegistry meterRegistry;
+    private WeatherUpdateBroadcaster broadcaster;
+    private BiConsumer<String, WeatherResponse> cacheUpdates;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        broadcaster = broadcaster(16);
+    }
+
+    @Test
+    void subscribe_ShouldFanOutOneEncodedFramePerCacheRefresh() {
+        // Given - два подписчика одного места
+        when(weatherService.getWeather(any())).thenReturn(Mono.just(response(10.0)));
+        List<byte[]> first = new ArrayList<>();
+        List<byte[]> second = new ArrayList<>();
+        var firstSubscription = broadcaster.subscribe(LONDON).subscribe(first::add);
+        var secondSubscription = broadcaster.subscribe(LONDON).subscribe(second::add);
+
+        // When - запись кэша обновилась
+        cacheUpdates.accept(keyGenerator.generateCacheKey(LONDON), response(12.5));
+
+        // Then - текущая погода при подписке и одно обновление, общие байты у обоих
+        assertEquals(2, first.size());
+        assertEquals(2, second.size());
+        assertSame(first.get(1), second.get(1));
+        assertSame(first.get(0), second.get(0));
+        String frame = new String(first.get(1), StandardCharsets.UTF_8);
+        assertTrue(frame.startsWith("event: weather\ndata: {"));
+        assertTrue(frame.contains("12.5"));
+        assertTrue(frame.endsWith("\n\n"));
+        verify(weatherService, times(1)).getWeather(any());
+
+        firstSubscription.dispose();
+        secondSubscription.dispose();
+        assertEquals(0, broadcaster.activeSubscribers());
+    }
+
+    @Test
+    void subscribe_WithSlowConsumer_ShouldKeepOnlyNewestFramesInBoundedBuffer() {
+        // Given
+        WeatherUpdateBroadcaster bounded = broadcaster(2);
+        when(weatherService.getWeather(any())).thenReturn(Mono.just(response(10.0)));
+        String key = keyGenerator.generateCacheKey(LONDON);
+
+        // When / Then - клиент не читает, пока приходят четыре обновления
+        StepVerifier.create(bounded.subscribe(LONDON), 0)
+                .then(() -> {
+                    cacheUpdates.accept(key, response(11.0));
+                    cacheUpdates.accept(key, response(12.0));
+                    cacheUpdates.accept(key, response(13.0));
+                    cacheUpdates.accept(key, response(14.0));
+                })
+                .thenRequest(10)
+                .assertNext(frame -> assertTrue(new String(frame, StandardCharsets.UTF_8).contains("13.0")))
+                .assertNext(frame -> assertTrue(new String(frame, StandardCharsets.UTF_8).contains("14.0")))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3, meterRegistry.get("weather.subscriptions.dropped").counter().count());
+    }
+
+    @Test
+    void refresh_ShouldPublishEntryUpdatedElsewhereOnlyOnce() {
+        // Given - подписчик получил текущую запись
+        LocalDateTime cachedUntil = LocalDateTime.now().plusMinutes(10);
+        when(weatherService.getWeather(any())).thenReturn(Mono.just(response(10.0, cachedUntil)));
+        List<byte[]> frames = new ArrayList<>();
+        var subscription = broadcaster.subscribe(LONDON).subscribe(frames::add);
+
+        // When - та же запись, затем перезаписанная другим экземпляром (здесь это cache hit без onUpdate)
+        broadcaster.refreshTopics().block(Duration.ofSeconds(5));
+        when(weatherService.getWeather(any())).thenReturn(Mono.just(response(12.5, cachedUntil.plusMinutes(5))));
+        broadcaster.refreshTopics().block(Duration.ofSeconds(5));
+        broadcaster.refreshTopics().block(Duration.ofSeconds(5));
+
+        // Then - разослана только новая версия и только один раз
+        assertEquals(2, frames.size());
+        assertTrue(new String(frames.get(1), StandardCharsets.UTF_8).contains("12.5"));
+        subscription.dispose();
+    }
+
+    @Test
+    void publish_WithoutSubscribers_ShouldBeIgnored() {
+        // Given
+        WeatherResponse response = response(10.0);
+
+        // When
+        cacheUpdates.accept(keyGenerator.generateCacheKey(LONDON), response);
+
+        // Then - тем нет, кэш не влияет на подписки
+        assertEquals(0, broadcaster.activeSubscribers());
+        assertEquals(0, meterRegistry.get("weather.subscriptions.topics").gauge().value());
+    }
+
+    private WeatherUpdateBroadcaster broadcaster(int bufferSize) {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ArgumentCaptor<BiConsumer<String, WeatherResponse>> listener = captor();
+        WeatherUpdateBroadcaster created = new WeatherUpdateBroadcaster(weatherService, cacheService, keyGenerator,
+                objectMapper, new SubscriptionProperties(Duration.ofHours(1), bufferSize, Duration.ofHours(1), 10),
+                meterRegistry);
+        verify(cacheService, atLeastOnce()).onUpdate(listener.capture());
+        cacheUpdates = listener.getValue();
+        return created;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<BiConsumer<String, WeatherResponse>> captor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(BiConsumer.class);
+    }
+
+    private static WeatherResponse response(double temperature) {
+        return response(temperature, null);
+    }
+
+    private static WeatherResponse response(double temperature, LocalDateTime cachedUntil) {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .current(CurrentWeather.builder().temperature(temperature).build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .cachedUntil(cachedUntil)
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.weatherservice.simulator;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Распределение задержки ответа симулируемого провайдера
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    Duration sample(Random random);
+
+    static LatencyDistribution none() {
+        return random -> Duration.ZERO;
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long spread = Math.max(1, max.toNanos() - minNanos);
+        return random -> Duration.ofNanos(minNanos + (long) (random.nextDouble() * spread));
+    }
+
+    /**
+     * Логнормальное распределение, заданное медианой и 99-м перцентилем -
+     * типичная форма задержек внешних HTTP API с длинным хвостом
+     */
+    static LatencyDistribution logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        // z(0.99) ~ 2.326
+        double sigma = Math.max(0.0, (Math.log(p99.toNanos()) - mu) / 2.326);
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
@@ -0,0 +1,234 @@
+package com.weatherservice.simulator;
+
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.simulator.ProviderSimulator.UpstreamStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки с открытой моделью: запросы отправляются с заданной частотой
+ * независимо от того, успел ли сервис ответить на предыдущие. Если число запросов
+ * в полете достигает лимита, новые запросы отбрасываются и учитываются как dropped.
+ */
+@Slf4j
+public class LoadGenerator implements AutoCloseable {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final ProviderSimulator simulator;
+
+    public LoadGenerator(String targetBaseUrl, ProviderSimulator simulator, int maxConnections) {
+        this.simulator = simulator;
+        this.connectionProvider = ConnectionProvider.builder("load-generator")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl(targetBaseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(4 * 1024 * 1024))
+                .build();
+    }
+
+    public LoadReport run(String label, LoadScenario scenario) {
+        if (scenario.getRequestPaths().isEmpty()) {
+            throw new IllegalArgumentException("Scenario has no request paths");
+        }
+
+        if (!scenario.getWarmup().isZero()) {
+            log.info("Warming up for {} at {} rps", scenario.getWarmup(), scenario.getTargetRps());
+            drive(scenario, scenario.getWarmup(), new Recorder(0));
+        }
+
+        Map<WeatherProvider, UpstreamStats> upstreamBefore = simulator.snapshot();
+        long expected = (long) scenario.getTargetRps() * Math.max(1, scenario.getDuration().toSeconds());
+        Recorder recorder = new Recorder((int) Math.min(Integer.MAX_VALUE - 8, expected + expected / 4 + 1024));
+
+        log.info("Measuring for {} at {} rps", scenario.getDuration(), scenario.getTargetRps());
+        MemorySampler memory = MemorySampler.start();
+        long started = System.nanoTime();
+        drive(scenario, scenario.getDuration(), recorder);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        memory.stop();
+
+        Map<WeatherProvider, UpstreamStats> upstream = new EnumMap<>(WeatherProvider.class);
+        simulator.snapshot().forEach((provider, after) ->
+                upstream.put(provider, after.minus(upstreamBefore.get(provider))));
+
+        long[] sorted = LoadReport.sorted(recorder.latencies, Math.min(recorder.cursor.get(), recorder.latencies.length));
+        Map<Integer, Long> statuses = new ConcurrentHashMap<>();
+        recorder.statuses.forEach((status, count) -> statuses.put(status, count.sum()));
+
+        return LoadReport.builder()
+                .label(label)
+                .targetRps(scenario.getTargetRps())
+                .elapsed(elapsed)
+                .completed(recorder.completed.sum())
+                .failures(recorder.failures.sum())
+                .dropped(recorder.dropped.sum())
+                .responseBytes(recorder.bytes.get())
+                .statusCounts(statuses)
+                .p50Millis(LoadReport.percentile(sorted, 0.50))
+                .p90Millis(LoadReport.percentile(sorted, 0.90))
+                .p99Millis(LoadReport.percentile(sorted, 0.99))
+                .p999Millis(LoadReport.percentile(sorted, 0.999))
+                .maxMillis(sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0)
+                .upstream(upstream)
+                .peakHeapBytes(memory.peakHeap)
+                .avgHeapBytes(memory.samples > 0 ? memory.heapSum / memory.samples : 0)
+                .gcMillis(memory.gcMillis)
+                .peakThreads(memory.peakThreads)
+                .build();
+    }
+
+    private void drive(LoadScenario scenario, Duration duration, Recorder recorder) {
+        int rps = Math.max(1, scenario.getTargetRps());
+        // До 1000 rps - один запрос на тик, выше - пачка запросов на тик в 1 мс
+        long periodNanos = Math.max(NANOS_PER_SECOND / rps, 1_000_000L);
+        int perTick = (int) Math.max(1, (long) rps * periodNanos / NANOS_PER_SECOND);
+        long ticks = duration.toNanos() / periodNanos;
+
+        List<String> paths = scenario.getRequestPaths();
+        AtomicLong sequence = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(ticks)
+                .onBackpressureDrop(tick -> recorder.dropped.add(perTick))
+                .flatMap(tick -> Flux.range(0, perTick), Integer.MAX_VALUE)
+                .flatMap(i -> {
+                    if (inFlight.incrementAndGet() > scenario.getMaxInFlight()) {
+                        inFlight.decrementAndGet();
+                        recorder.dropped.increment();
+                        return Mono.empty();
+                    }
+                    String path = paths.get((int) (sequence.getAndIncrement() % paths.size()));
+                    return fire(path, recorder).doFinally(signal -> inFlight.decrementAndGet());
+                }, Integer.MAX_VALUE)
+                .blockLast(duration.plusSeconds(60));
+    }
+
+    private Mono<Void> fire(String path, Recorder recorder) {
+        long start = System.nanoTime();
+        return webClient.get()
+                .uri(path)
+                .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(new byte[0])
+                        .doOnNext(body -> recorder.record(System.nanoTime() - start,
+                                response.statusCode().value(), body.length)))
+                .then()
+                .onErrorResume(e -> {
+                    recorder.failures.increment();
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    /**
+     * Память процесса во время замера: занятая куча раз в {@link #PERIOD}, пик платформенных
+     * потоков и время GC. Генератор работает в том же процессе, поэтому цифры годятся для
+     * сравнения прогонов между собой, а не как абсолютный след сервиса.
+     */
+    private static final class MemorySampler {
+
+        private static final Duration PERIOD = Duration.ofMillis(100);
+
+        private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        private final Thread thread;
+        private final long gcMillisBefore;
+        private volatile boolean running = true;
+        private long peakHeap;
+        private long heapSum;
+        private long samples;
+        private int peakThreads;
+        private long gcMillis;
+
+        private MemorySampler() {
+            this.gcMillisBefore = gcMillis();
+            threadBean.resetPeakThreadCount();
+            this.thread = Thread.ofPlatform().daemon().name("load-memory-sampler").start(this::sample);
+        }
+
+        static MemorySampler start() {
+            return new MemorySampler();
+        }
+
+        void stop() {
+            running = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            peakThreads = threadBean.getPeakThreadCount();
+            gcMillis = gcMillis() - gcMillisBefore;
+        }
+
+        private void sample() {
+            while (running) {
+                long used = memoryBean.getHeapMemoryUsage().getUsed();
+                peakHeap = Math.max(peakHeap, used);
+                heapSum += used;
+                samples++;
+                LockSupport.parkNanos(PERIOD.toNanos());
+            }
+        }
+
+        private static long gcMillis() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                    .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                    .filter(time -> time > 0)
+                    .sum();
+        }
+    }
+
+    private static final class Recorder {
+        final long[] latencies;
+        final AtomicInteger cursor = new AtomicInteger();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final AtomicLong bytes = new AtomicLong();
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        Recorder(int capacity) {
+            this.latencies = new long[capacity];
+        }
+
+        void record(long latencyNanos, int status, int bodyBytes) {
+            completed.increment();
+            bytes.addAndGet(bodyBytes);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            int slot = cursor.getAndIncrement();
+            if (slot < latencies.length) {
+                latencies[slot] = latencyNanos;
+            }
+        }
+    }
+}
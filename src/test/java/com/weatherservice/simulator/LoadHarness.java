@@ -0,0 +1,95 @@
+package com.weatherservice.simulator;
+
+import com.weatherservice.WeatherServiceApplication;
+import com.weatherservice.model.WeatherProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поднимает приложение целиком (реальные контроллеры, кэш и клиенты), направляет
+ * клиентов провайдеров на {@link ProviderSimulator} и гоняет через него {@link LoadGenerator}.
+ */
+@Slf4j
+public class LoadHarness implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final LoadGenerator generator;
+
+    private LoadHarness(ConfigurableApplicationContext context, LoadGenerator generator) {
+        this.context = context;
+        this.generator = generator;
+    }
+
+    public static LoadHarness start(ProviderSimulator simulator, Map<String, String> overrides, String... profiles) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.weatherservice", "WARN");
+        properties.put("logging.level.org.springframework.data.redis", "WARN");
+        properties.put("weather.providers.openweather.base-url", simulator.baseUrl(WeatherProvider.OPENWEATHER_MAP));
+        properties.put("weather.providers.openweather.api-key", "simulator");
+        properties.put("weather.providers.weatherapi.base-url", simulator.baseUrl(WeatherProvider.WEATHER_API));
+        properties.put("weather.providers.weatherapi.api-key", "simulator");
+        properties.put("weather.providers.accuweather.base-url", simulator.baseUrl(WeatherProvider.ACCUWEATHER));
+        properties.put("weather.providers.accuweather.api-key", "simulator");
+        properties.putAll(overrides);
+
+        // Аргументы командной строки перекрывают application*.yml
+        List<String> args = new ArrayList<>();
+        properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(WeatherServiceApplication.class)
+                .profiles(profiles)
+                .run(args.toArray(String[]::new));
+
+        connectRedis(context);
+        Integer port = context.getEnvironment().getProperty("local.server.port", Integer.class);
+        log.info("Application under load listening on port {}", port);
+
+        return new LoadHarness(context, new LoadGenerator("http://localhost:" + port, simulator, 1024));
+    }
+
+    // Общее соединение Lettuce создается под блокировкой при первом обращении. Под BlockHound
+    // event loop, наткнувшийся на нее, получает ошибку и оставляет в очереди блокировки мертвый
+    // узел - ждущие за ним блокирующие потоки не просыпаются. Соединяемся заранее, из main.
+    private static void connectRedis(ConfigurableApplicationContext context) {
+        context.getBeanProvider(ReactiveRedisConnectionFactory.class).ifAvailable(factory -> {
+            try {
+                factory.getReactiveConnection().ping().block(Duration.ofSeconds(5));
+            } catch (RuntimeException e) {
+                log.warn("Redis is not reachable, cache tier will run degraded: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Очищает базу Redis, на которую смотрит приложение, - чтобы прогон начинался с холодного кэша
+     */
+    public void clearCache() {
+        context.getBeanProvider(ReactiveRedisConnectionFactory.class).ifAvailable(factory ->
+                factory.getReactiveConnection().serverCommands().flushDb().block(Duration.ofSeconds(5)));
+    }
+
+    public LoadReport run(String label, LoadScenario scenario) {
+        return generator.run(label, scenario);
+    }
+
+    public ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        generator.close();
+        context.close();
+    }
+}
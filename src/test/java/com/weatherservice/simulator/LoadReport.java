@@ -0,0 +1,117 @@
+package com.weatherservice.simulator;
+
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.simulator.ProviderSimulator.UpstreamStats;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Итог прогона: пропускная способность, перцентили задержки, число вызовов апстрима и память
+ */
+@Value
+@Builder
+public class LoadReport {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    String label;
+    int targetRps;
+    Duration elapsed;
+    long completed;
+    long failures;
+    long dropped;
+    long responseBytes;
+    Map<Integer, Long> statusCounts;
+    double p50Millis;
+    double p90Millis;
+    double p99Millis;
+    double p999Millis;
+    double maxMillis;
+    Map<WeatherProvider, UpstreamStats> upstream;
+    long peakHeapBytes;
+    long avgHeapBytes;
+    long gcMillis;
+    int peakThreads;
+
+    public double throughput() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? completed / seconds : 0.0;
+    }
+
+    public long upstreamCalls() {
+        return upstream.values().stream().mapToLong(UpstreamStats::calls).sum();
+    }
+
+    /**
+     * Сколько вызовов апстрима приходится на один обслуженный запрос
+     */
+    public double amplification() {
+        return completed > 0 ? (double) upstreamCalls() / completed : 0.0;
+    }
+
+    static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+    }
+
+    static long[] sorted(long[] latencies, int count) {
+        long[] copy = Arrays.copyOf(latencies, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "=== %s ===%n", label != null ? label : "load"));
+        sb.append(String.format(Locale.ROOT, "target %d rps, elapsed %.1f s%n", targetRps, elapsed.toMillis() / 1000.0));
+        sb.append(String.format(Locale.ROOT, "completed %d (%.1f rps), failures %d, dropped %d%n",
+                completed, throughput(), failures, dropped));
+        sb.append(String.format(Locale.ROOT, "latency ms: p50 %.2f  p90 %.2f  p99 %.2f  p999 %.2f  max %.2f%n",
+                p50Millis, p90Millis, p99Millis, p999Millis, maxMillis));
+        sb.append(String.format(Locale.ROOT, "status: %s, avg body %d B%n", new TreeMap<>(statusCounts),
+                completed > 0 ? responseBytes / completed : 0));
+        upstream.forEach((provider, stats) -> sb.append(String.format(Locale.ROOT,
+                "upstream %-16s calls %d, 5xx %d, 429 %d%n",
+                provider, stats.calls(), stats.errors(), stats.rateLimited())));
+        sb.append(String.format(Locale.ROOT, "upstream calls per request: %.3f%n", amplification()));
+        sb.append(String.format(Locale.ROOT, "memory: heap peak %.1f MB, avg %.1f MB, gc %d ms, platform threads peak %d%n",
+                peakHeapBytes / MB, avgHeapBytes / MB, gcMillis, peakThreads));
+        return sb.toString();
+    }
+
+    /**
+     * Прогоны одного сценария рядом: по столбцу на прогон
+     */
+    public static String compare(List<LoadReport> reports) {
+        StringBuilder sb = new StringBuilder();
+        row(sb, "", reports, report -> report.label);
+        row(sb, "throughput rps", reports, report -> String.format(Locale.ROOT, "%.1f", report.throughput()));
+        row(sb, "failures/dropped", reports, report -> report.failures + "/" + report.dropped);
+        row(sb, "p50 ms", reports, report -> String.format(Locale.ROOT, "%.2f", report.p50Millis));
+        row(sb, "p99 ms", reports, report -> String.format(Locale.ROOT, "%.2f", report.p99Millis));
+        row(sb, "p999 ms", reports, report -> String.format(Locale.ROOT, "%.2f", report.p999Millis));
+        row(sb, "heap peak MB", reports, report -> String.format(Locale.ROOT, "%.1f", report.peakHeapBytes / MB));
+        row(sb, "heap avg MB", reports, report -> String.format(Locale.ROOT, "%.1f", report.avgHeapBytes / MB));
+        row(sb, "gc ms", reports, report -> String.valueOf(report.gcMillis));
+        row(sb, "platform threads", reports, report -> String.valueOf(report.peakThreads));
+        row(sb, "upstream/request", reports, report -> String.format(Locale.ROOT, "%.3f", report.amplification()));
+        return sb.toString();
+    }
+
+    private static void row(StringBuilder sb, String name, List<LoadReport> reports, Function<LoadReport, String> value) {
+        sb.append(String.format(Locale.ROOT, "%-18s", name));
+        reports.forEach(report -> sb.append(String.format(Locale.ROOT, "%18s", value.apply(report))));
+        sb.append(System.lineSeparator());
+    }
+}
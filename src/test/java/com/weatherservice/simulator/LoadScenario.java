@@ -0,0 +1,50 @@
+package com.weatherservice.simulator;
+
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Параметры прогона нагрузки: целевой RPS, длительность, прогрев и набор запросов,
+ * которые генератор перебирает по кругу
+ */
+@Value
+@Builder(toBuilder = true)
+public class LoadScenario {
+
+    @Builder.Default
+    int targetRps = 200;
+
+    @Builder.Default
+    Duration duration = Duration.ofSeconds(20);
+
+    @Builder.Default
+    Duration warmup = Duration.ofSeconds(5);
+
+    @Builder.Default
+    int maxInFlight = 512;
+
+    @Singular
+    List<String> requestPaths;
+
+    /**
+     * Типичная смесь: текущая погода по городам и координатам, агрегированные
+     * запросы и поиск локаций
+     */
+    public static LoadScenario.LoadScenarioBuilder standardMix() {
+        return LoadScenario.builder()
+                .requestPath("/api/v1/weather/current?city=London&country=GB")
+                .requestPath("/api/v1/weather/current?city=Paris&country=FR")
+                .requestPath("/api/v1/weather/current?city=Berlin&country=DE")
+                .requestPath("/api/v1/weather/current?city=Madrid&country=ES")
+                .requestPath("/api/v1/weather/current?lat=51.5074&lon=-0.1278")
+                .requestPath("/api/v1/weather/current?city=London&country=GB")
+                .requestPath("/api/v1/weather/current?city=Paris&country=FR")
+                .requestPath("/api/v1/weather/aggregated?city=Rome&country=IT")
+                .requestPath("/api/v1/weather/locations?query=Lon&limit=5")
+                .requestPath("/api/v1/weather/current?city=Tokyo&country=JP");
+    }
+}
@@ -0,0 +1,246 @@
+package com.weatherservice.simulator;
+
+import com.weatherservice.model.WeatherProvider;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Локальный симулятор HTTP-контрактов OpenWeatherMap, WeatherAPI и AccuWeather
+ * на встроенном Reactor Netty. Каждый провайдер обслуживается под своим префиксом,
+ * поэтому base-url клиентов указывает на {@link #baseUrl(WeatherProvider)}.
+ * Задержка, доля ошибок и доля 429 настраиваются на лету через {@link #configure}.
+ */
+@Slf4j
+public class ProviderSimulator implements AutoCloseable {
+
+    private static final Map<WeatherProvider, String> PREFIXES = Map.of(
+            WeatherProvider.OPENWEATHER_MAP, "/openweather",
+            WeatherProvider.WEATHER_API, "/weatherapi",
+            WeatherProvider.ACCUWEATHER, "/accuweather");
+
+    private final Map<WeatherProvider, SimulatorProfile> profiles = new EnumMap<>(WeatherProvider.class);
+    private final Map<WeatherProvider, Counters> counters = new EnumMap<>(WeatherProvider.class);
+    private final DisposableServer server;
+
+    public ProviderSimulator() {
+        this(SimulatorProfile.healthy());
+    }
+
+    public ProviderSimulator(SimulatorProfile defaultProfile) {
+        for (WeatherProvider provider : WeatherProvider.values()) {
+            profiles.put(provider, defaultProfile);
+            counters.put(provider, new Counters());
+        }
+
+        this.server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/openweather/weather", (req, res) ->
+                                respond(WeatherProvider.OPENWEATHER_MAP, req, res, this::openWeatherCurrent))
+                        .get("/openweather/geo/1.0/direct", (req, res) ->
+                                respond(WeatherProvider.OPENWEATHER_MAP, req, res, this::openWeatherSearch))
+                        .get("/weatherapi/current.json", (req, res) ->
+                                respond(WeatherProvider.WEATHER_API, req, res, this::weatherApiCurrent))
+                        .get("/weatherapi/search.json", (req, res) ->
+                                respond(WeatherProvider.WEATHER_API, req, res, this::weatherApiSearch))
+                        .get("/accuweather/locations/v1/cities/search", (req, res) ->
+                                respond(WeatherProvider.ACCUWEATHER, req, res, this::accuWeatherLocation))
+                        .get("/accuweather/locations/v1/cities/geoposition/search", (req, res) ->
+                                respond(WeatherProvider.ACCUWEATHER, req, res, this::accuWeatherLocation))
+                        .get("/accuweather/locations/v1/cities/autocomplete", (req, res) ->
+                                respond(WeatherProvider.ACCUWEATHER, req, res, this::accuWeatherAutocomplete))
+                        .get("/accuweather/currentconditions/v1/{key}", (req, res) ->
+                                respond(WeatherProvider.ACCUWEATHER, req, res, this::accuWeatherConditions)))
+                .bindNow();
+
+        log.info("Provider simulator listening on port {}", server.port());
+    }
+
+    public String baseUrl(WeatherProvider provider) {
+        return "http://localhost:" + server.port() + PREFIXES.get(provider);
+    }
+
+    public int port() {
+        return server.port();
+    }
+
+    public synchronized void configure(WeatherProvider provider, SimulatorProfile profile) {
+        profiles.put(provider, profile);
+    }
+
+    public synchronized void configureAll(SimulatorProfile profile) {
+        for (WeatherProvider provider : WeatherProvider.values()) {
+            profiles.put(provider, profile);
+        }
+    }
+
+    /**
+     * Снимок счетчиков вызовов апстрима по провайдерам
+     */
+    public Map<WeatherProvider, UpstreamStats> snapshot() {
+        Map<WeatherProvider, UpstreamStats> snapshot = new EnumMap<>(WeatherProvider.class);
+        counters.forEach((provider, c) -> snapshot.put(provider,
+                new UpstreamStats(c.calls.sum(), c.errors.sum(), c.rateLimited.sum())));
+        return snapshot;
+    }
+
+    public void resetCounters() {
+        counters.values().forEach(Counters::reset);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow(Duration.ofSeconds(5));
+    }
+
+    private Mono<Void> respond(WeatherProvider provider, HttpServerRequest request, HttpServerResponse response,
+                               Function<Query, String> bodyFactory) {
+        Counters providerCounters = counters.get(provider);
+        providerCounters.calls.increment();
+
+        SimulatorProfile profile;
+        synchronized (this) {
+            profile = profiles.get(provider);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = profile.getLatency().sample(random);
+        double roll = random.nextDouble();
+
+        HttpResponseStatus status;
+        String body;
+        if (roll < profile.getRateLimitRate()) {
+            providerCounters.rateLimited.increment();
+            status = HttpResponseStatus.TOO_MANY_REQUESTS;
+            body = "{\"message\":\"simulated rate limit\"}";
+        } else if (roll < profile.getRateLimitRate() + profile.getErrorRate()) {
+            providerCounters.errors.increment();
+            status = HttpResponseStatus.INTERNAL_SERVER_ERROR;
+            body = "{\"message\":\"simulated failure\"}";
+        } else {
+            status = HttpResponseStatus.OK;
+            body = bodyFactory.apply(new Query(request));
+        }
+
+        return Mono.delay(delay)
+                .then(response.status(status)
+                        .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .sendString(Mono.just(body))
+                        .then());
+    }
+
+    // ===== OpenWeatherMap =====
+
+    private String openWeatherCurrent(Query query) {
+        String[] cityAndCountry = query.param("q", "Simulated City,SC").split(",", 2);
+        return String.format(Locale.ROOT, """
+                {"weather":[{"id":800,"main":"Clear","description":"clear sky","icon":"01d"}],
+                 "main":{"temp":%.1f,"feels_like":%.1f,"pressure":1013,"humidity":65},
+                 "wind":{"speed":3.6,"deg":180},
+                 "name":"%s","sys":{"country":"%s"},
+                 "coord":{"lat":%s,"lon":%s}}
+                """,
+                temperature(), temperature() - 0.7,
+                cityAndCountry[0], cityAndCountry.length > 1 ? cityAndCountry[1] : "SC",
+                query.param("lat", "51.5074"), query.param("lon", "-0.1278"));
+    }
+
+    private String openWeatherSearch(Query query) {
+        String name = query.param("q", "Simulated City");
+        return String.format(Locale.ROOT, """
+                [{"name":"%s","country":"GB","lat":51.5074,"lon":-0.1278},
+                 {"name":"%s","country":"CA","lat":42.9849,"lon":-81.2453}]
+                """, name, name);
+    }
+
+    // ===== WeatherAPI =====
+
+    private String weatherApiCurrent(Query query) {
+        String name = query.param("q", "Simulated City").split(",", 2)[0];
+        return String.format(Locale.ROOT, """
+                {"location":{"name":"%s","country":"United Kingdom","lat":51.52,"lon":-0.11,"tz_id":"Europe/London"},
+                 "current":{"temp_c":%.1f,"feelslike_c":%.1f,"humidity":70,"pressure_mb":1012,
+                            "wind_kph":13.0,"wind_dir":"SW","last_updated":"2024-01-15 12:00",
+                            "condition":{"text":"Partly cloudy","icon":"//cdn.weatherapi.com/116.png"}}}
+                """, name, temperature(), temperature() - 1.0);
+    }
+
+    private String weatherApiSearch(Query query) {
+        return String.format(Locale.ROOT, """
+                [{"name":"%s","country":"United Kingdom","lat":51.52,"lon":-0.11}]
+                """, query.param("q", "Simulated City"));
+    }
+
+    // ===== AccuWeather =====
+
+    private String accuWeatherLocation(Query query) {
+        return "[{\"Key\":\"328328\",\"LocalizedName\":\"" + query.param("q", "Simulated City") + "\"}]";
+    }
+
+    private String accuWeatherAutocomplete(Query query) {
+        return "[{\"Key\":\"328328\",\"LocalizedName\":\"" + query.param("q", "Simulated City")
+                + "\",\"Country\":{\"LocalizedName\":\"United Kingdom\"}}]";
+    }
+
+    private String accuWeatherConditions(Query query) {
+        return String.format(Locale.ROOT, """
+                [{"LocalObservationDateTime":"2024-01-15T12:00:00+00:00","WeatherText":"Cloudy","WeatherIcon":7,
+                  "Temperature":{"Metric":{"Value":%.1f}},"RealFeelTemperature":{"Metric":{"Value":%.1f}},
+                  "RelativeHumidity":72,"Pressure":{"Metric":{"Value":1011}},
+                  "Wind":{"Speed":{"Metric":{"Value":11.1}},"Direction":{"Localized":"WSW"}}}]
+                """, temperature(), temperature() - 1.5);
+    }
+
+    private static double temperature() {
+        return 10 + ThreadLocalRandom.current().nextDouble(10);
+    }
+
+    public record UpstreamStats(long calls, long errors, long rateLimited) {
+
+        public UpstreamStats minus(UpstreamStats other) {
+            return new UpstreamStats(calls - other.calls, errors - other.errors, rateLimited - other.rateLimited);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+
+        void reset() {
+            calls.reset();
+            errors.reset();
+            rateLimited.reset();
+        }
+    }
+
+    private static final class Query {
+        private final Map<String, List<String>> parameters;
+
+        Query(HttpServerRequest request) {
+            this.parameters = new QueryStringDecoder(request.uri()).parameters();
+        }
+
+        String param(String name, String defaultValue) {
+            List<String> values = parameters.get(name);
+            return values != null && !values.isEmpty() ? values.get(0) : defaultValue;
+        }
+    }
+}
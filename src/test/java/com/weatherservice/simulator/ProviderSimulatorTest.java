@@ -0,0 +1,138 @@
+package com.weatherservice.simulator;
+
+import com.weatherservice.client.AccuWeatherClient;
+import com.weatherservice.client.OpenWeatherClient;
+import com.weatherservice.client.WeatherApiClient;
+import com.weatherservice.exception.ServiceUnavailableException;
+import com.weatherservice.exception.WeatherServiceException;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderSimulatorTest {
+
+    private ProviderSimulator simulator;
+    private final WebClient webClient = WebClient.create();
+
+    @BeforeEach
+    void setUp() {
+        simulator = new ProviderSimulator();
+    }
+
+    @AfterEach
+    void tearDown() {
+        simulator.close();
+    }
+
+    @Test
+    void realClients_ShouldParseSimulatedContracts() {
+        WeatherRequest request = WeatherRequest.builder()
+                .city("London")
+                .countryCode("GB")
+                .units("metric")
+                .language("en")
+                .build();
+
+        OpenWeatherClient openWeather = new OpenWeatherClient(webClient, "key",
+                simulator.baseUrl(WeatherProvider.OPENWEATHER_MAP));
+        WeatherApiClient weatherApi = new WeatherApiClient(webClient, "key",
+                simulator.baseUrl(WeatherProvider.WEATHER_API));
+        AccuWeatherClient accuWeather = new AccuWeatherClient(webClient, "key",
+                simulator.baseUrl(WeatherProvider.ACCUWEATHER));
+
+        StepVerifier.create(openWeather.getCurrentWeather(request))
+                .expectNextMatches(response -> "London".equals(response.getLocation().getName())
+                        && response.getCurrent().getTemperature() != null)
+                .verifyComplete();
+
+        StepVerifier.create(weatherApi.getCurrentWeather(request))
+                .expectNextMatches(response -> "London".equals(response.getLocation().getName())
+                        && "Partly cloudy".equals(response.getCurrent().getDescription()))
+                .verifyComplete();
+
+        StepVerifier.create(accuWeather.getCurrentWeather(request))
+                .expectNextMatches(response -> response.getSource() == WeatherProvider.ACCUWEATHER
+                        && "Cloudy".equals(response.getCurrent().getDescription()))
+                .verifyComplete();
+
+        StepVerifier.create(openWeather.searchLocations("London", "en", 5))
+                .expectNextMatches(locations -> locations.size() == 2)
+                .verifyComplete();
+
+        assertEquals(2, simulator.snapshot().get(WeatherProvider.OPENWEATHER_MAP).calls());
+        assertEquals(1, simulator.snapshot().get(WeatherProvider.WEATHER_API).calls());
+        // AccuWeather: поиск ключа локации + текущие условия
+        assertEquals(2, simulator.snapshot().get(WeatherProvider.ACCUWEATHER).calls());
+    }
+
+    @Test
+    void configuredFailures_ShouldSurfaceAsClientErrors() {
+        WeatherRequest request = WeatherRequest.builder().city("London").countryCode("GB").build();
+        OpenWeatherClient openWeather = new OpenWeatherClient(webClient, "key",
+                simulator.baseUrl(WeatherProvider.OPENWEATHER_MAP));
+
+        simulator.configure(WeatherProvider.OPENWEATHER_MAP,
+                SimulatorProfile.builder().rateLimitRate(1.0).build());
+        StepVerifier.create(openWeather.getCurrentWeather(request))
+                .expectError(ServiceUnavailableException.class)
+                .verify();
+
+        simulator.configure(WeatherProvider.OPENWEATHER_MAP,
+                SimulatorProfile.builder().errorRate(1.0).build());
+        StepVerifier.create(openWeather.getCurrentWeather(request))
+                .expectError(WeatherServiceException.class)
+                .verify();
+
+        ProviderSimulator.UpstreamStats stats = simulator.snapshot().get(WeatherProvider.OPENWEATHER_MAP);
+        assertEquals(2, stats.calls());
+        assertEquals(1, stats.rateLimited());
+        assertEquals(1, stats.errors());
+
+        simulator.resetCounters();
+        assertEquals(0, simulator.snapshot().get(WeatherProvider.OPENWEATHER_MAP).calls());
+    }
+
+    @Test
+    void configuredLatency_ShouldDelayResponses() {
+        simulator.configure(WeatherProvider.WEATHER_API, SimulatorProfile.builder()
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(150)))
+                .build());
+        WeatherApiClient weatherApi = new WeatherApiClient(webClient, "key",
+                simulator.baseUrl(WeatherProvider.WEATHER_API));
+
+        long start = System.nanoTime();
+        weatherApi.getCurrentWeather(WeatherRequest.builder().city("Paris").build()).block(Duration.ofSeconds(5));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 150);
+    }
+
+    @Test
+    void latencyDistributions_ShouldProduceExpectedShape() {
+        Random random = new Random(42);
+
+        assertEquals(Duration.ZERO, LatencyDistribution.none().sample(random));
+
+        for (int i = 0; i < 1000; i++) {
+            Duration sample = LatencyDistribution.uniform(Duration.ofMillis(10), Duration.ofMillis(20)).sample(random);
+            assertTrue(sample.toMillis() >= 10 && sample.toMillis() <= 20);
+        }
+
+        long[] samples = new long[10_000];
+        LatencyDistribution logNormal = LatencyDistribution.logNormal(Duration.ofMillis(50), Duration.ofMillis(200));
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = logNormal.sample(random).toNanos();
+        }
+        long[] sorted = LoadReport.sorted(samples, samples.length);
+        assertEquals(50.0, LoadReport.percentile(sorted, 0.5), 5.0);
+        assertEquals(200.0, LoadReport.percentile(sorted, 0.99), 40.0);
+    }
+}
@@ -0,0 +1,25 @@
+package com.weatherservice.simulator;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Поведение одного симулируемого провайдера: задержка, доля 5xx и доля 429
+ */
+@Value
+@Builder(toBuilder = true)
+public class SimulatorProfile {
+
+    @Builder.Default
+    LatencyDistribution latency = LatencyDistribution.none();
+
+    @Builder.Default
+    double errorRate = 0.0;
+
+    @Builder.Default
+    double rateLimitRate = 0.0;
+
+    public static SimulatorProfile healthy() {
+        return SimulatorProfile.builder().build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.weatherservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void top_WithinCapacity_ShouldReturnExactCountsInDescendingOrder() {
+        // Given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+
+        // When
+        offer(sketch, "london", 5);
+        offer(sketch, "paris", 3);
+        offer(sketch, "berlin", 1);
+
+        // Then
+        List<SpaceSavingSketch.Entry> top = sketch.top(2);
+        assertEquals(List.of(new SpaceSavingSketch.Entry("london", 5, 0),
+                new SpaceSavingSketch.Entry("paris", 3, 0)), top);
+        assertEquals(9, sketch.total());
+        assertEquals(5, sketch.lowerBound("london"));
+        assertEquals(0, sketch.lowerBound("rome"));
+    }
+
+    @Test
+    void offer_BeyondCapacity_ShouldKeepHeavyHittersAndBoundError() {
+        // Given - 2 частых ключа среди 1000 редких при 8 счетчиках
+        SpaceSavingSketch sketch = new SpaceSavingSketch(8);
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            sketch.offer("rare-" + i);
+            if (i % 4 == 0) {
+                sketch.offer("hot");
+            }
+            if (i % 5 == 0) {
+                sketch.offer("warm");
+            }
+        }
+
+        // Then
+        List<SpaceSavingSketch.Entry> top = sketch.top(2);
+        assertEquals("hot", top.get(0).key());
+        assertEquals("warm", top.get(1).key());
+        assertTrue(top.get(0).count() >= 250);
+        assertTrue(top.get(0).count() - top.get(0).error() <= 250);
+        assertEquals(8, sketch.top(100).size());
+    }
+
+    @Test
+    void offer_WithStripes_ShouldMergeStripesIntoSingleTop() {
+        // Given - 4 полосы по 4 счетчика
+        SpaceSavingSketch sketch = new SpaceSavingSketch(16, 4);
+
+        // When
+        for (int i = 0; i < 500; i++) {
+            sketch.offer("rare-" + i);
+            if (i % 2 == 0) {
+                sketch.offer("hot");
+            }
+            if (i % 5 == 0) {
+                sketch.offer("warm");
+            }
+        }
+
+        // Then - частые ключи видны независимо от того, в какую полосу попали
+        List<SpaceSavingSketch.Entry> top = sketch.top(2);
+        assertEquals("hot", top.get(0).key());
+        assertEquals("warm", top.get(1).key());
+        assertTrue(top.get(0).count() - top.get(0).error() <= 250);
+        assertEquals(850, sketch.total());
+        assertEquals(16, sketch.top(100).size());
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(4, 8));
+    }
+
+    @Test
+    void clear_ShouldResetState() {
+        // Given
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        offer(sketch, "london", 3);
+
+        // When
+        sketch.clear();
+        sketch.offer("paris");
+
+        // Then
+        assertEquals(List.of(new SpaceSavingSketch.Entry("paris", 1, 0)), sketch.top(10));
+        assertEquals(1, sketch.total());
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch(0));
+    }
+
+    private static void offer(SpaceSavingSketch sketch, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            sketch.offer(key);
+        }
+    }
+}
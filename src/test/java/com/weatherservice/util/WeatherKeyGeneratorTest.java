@@ -1,8 +1,14 @@
 package com.weatherservice.util;
 
+import com.weatherservice.config.LocationConfig.SpatialIndexProperties;
+import com.weatherservice.location.LocationSpatialIndex;
+import com.weatherservice.model.LocationInfo;
 import com.weatherservice.model.WeatherRequest;
 import com.weatherservice.model.WeatherProvider;
 import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class WeatherKeyGeneratorTest {
@@ -96,4 +102,49 @@ class WeatherKeyGeneratorTest {
         assertTrue(key.toLowerCase().contains("fr"));
         assertTrue(key.contains("fr")); // language
     }
+
+    @Test
+    void generateCacheKey_WithCoordinatesNearKnownCity_ShouldReuseCityKey() {
+        // Given - город уже запрашивался по названию, провайдер вернул его координаты
+        WeatherKeyGenerator generator = new WeatherKeyGenerator(
+                new LocationSpatialIndex(new SpatialIndexProperties(true, 100, 0.25, 5)));
+        WeatherRequest byCity = WeatherRequest.builder().city("London").countryCode("GB").units("metric").build();
+        generator.registerLocation(byCity, LocationInfo.builder().name("London").country("GB")
+                .lat(51.50853).lon(-0.12574).build());
+
+        // When
+        String nearby = generator.generateCacheKey(WeatherRequest.builder()
+                .latitude(51.5074).longitude(-0.1278).units("metric").build());
+        String far = generator.generateCacheKey(WeatherRequest.builder()
+                .latitude(48.8566).longitude(2.3522).units("metric").build());
+
+        // Then
+        assertEquals(generator.generateCacheKey(byCity), nearby);
+        assertTrue(far.contains("48.8566"));
+    }
+
+    @Test
+    void generateCacheKey_WithSearchResultNearestToCoordinates_ShouldKeepIsoCityKey() {
+        // Given - ближе всего место из ответа поиска с названием страны вместо кода ISO
+        LocationSpatialIndex spatialIndex = new LocationSpatialIndex(new SpatialIndexProperties(true, 100, 0.25, 5));
+        WeatherKeyGenerator generator = new WeatherKeyGenerator(spatialIndex);
+        spatialIndex.add(List.of(LocationInfo.builder().name("London").country("United Kingdom")
+                .lat(51.5074).lon(-0.1278).build()));
+        WeatherRequest byCity = WeatherRequest.builder().city("London").countryCode("GB").units("metric").build();
+        generator.registerLocation(byCity, LocationInfo.builder().name("London").country("United Kingdom")
+                .lat(51.50853).lon(-0.12574).build());
+        generator.registerLocation(WeatherRequest.builder().city("Paris").countryCode("France").build(),
+                LocationInfo.builder().name("Paris").lat(48.85341).lon(2.3488).build());
+
+        // When
+        String nearby = generator.generateCacheKey(WeatherRequest.builder()
+                .latitude(51.5074).longitude(-0.1278).units("metric").build());
+        String paris = generator.generateCacheKey(WeatherRequest.builder()
+                .latitude(48.85341).longitude(2.3488).units("metric").build());
+
+        // Then - ключ города из запроса с кодом ISO, место без кода не индексируется
+        assertEquals(generator.generateCacheKey(byCity), nearby);
+        assertTrue(paris.contains("48.8534"));
+        assertEquals(2, spatialIndex.size());
+    }
 }
@@ -0,0 +1,88 @@
+package com.weatherservice.web;
+
+import com.weatherservice.exception.WeatherServiceException;
+import com.weatherservice.model.CurrentWeather;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherForecast;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.util.JsonSerializerUtil;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FieldProjectionTest {
+
+    @Test
+    void project_ShouldKeepOnlyRequestedPaths() {
+        // Given
+        FieldProjection projection = FieldProjection.of("location.name,current.temperature");
+
+        // When
+        String bytes = new String(projection.project(JsonSerializerUtil.toJsonBytes(response())), StandardCharsets.UTF_8);
+        String value = new String(projection.project(response()), StandardCharsets.UTF_8);
+
+        // Then: из готового JSON и из объекта получается одно и то же
+        assertEquals("{\"location\":{\"name\":\"London\"},\"current\":{\"temperature\":15.5}}", bytes);
+        assertEquals(bytes, value);
+    }
+
+    @Test
+    void project_ShouldApplyNestedPathToArrayElements() {
+        // Given
+        FieldProjection projection = FieldProjection.of("forecast.maxTemperature");
+
+        // When
+        String json = new String(projection.project(response()), StandardCharsets.UTF_8);
+
+        // Then
+        assertEquals("{\"forecast\":[{\"maxTemperature\":18.0},{\"maxTemperature\":20.0}]}", json);
+    }
+
+    @Test
+    void project_WholeObjectShouldWinOverNestedPath() {
+        // Given
+        FieldProjection projection = FieldProjection.of("location,location.name");
+
+        // When
+        String json = new String(projection.project(response()), StandardCharsets.UTF_8);
+
+        // Then
+        assertEquals("{\"location\":{\"name\":\"London\",\"country\":\"GB\",\"lat\":null,\"lon\":null,\"timezone\":null}}", json);
+    }
+
+    @Test
+    void of_ShouldReuseCompiledProjectionAndIgnoreFieldOrder() {
+        // When & Then
+        assertSame(FieldProjection.of("source,current"), FieldProjection.of("source,current"));
+        assertEquals(FieldProjection.of("source,current").id(), FieldProjection.of(" current , source,source").id());
+        assertNotEquals(FieldProjection.of("source").id(), FieldProjection.of("current").id());
+    }
+
+    @Test
+    void of_WithInvalidSpec_ShouldThrow() {
+        // When & Then
+        assertThrows(WeatherServiceException.class, () -> FieldProjection.of(" , "));
+        assertThrows(WeatherServiceException.class, () -> FieldProjection.of("location..name"));
+        assertThrows(WeatherServiceException.class, () -> FieldProjection.of("a.b.c.d"));
+        assertThrows(WeatherServiceException.class, () -> FieldProjection.of("current[0]"));
+    }
+
+    private static WeatherResponse response() {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").country("GB").build())
+                .current(CurrentWeather.builder().temperature(15.5).humidity(65).build())
+                .forecast(List.of(
+                        WeatherForecast.builder().date(LocalDate.of(2024, 1, 1).atStartOfDay()).maxTemperature(18.0).build(),
+                        WeatherForecast.builder().date(LocalDate.of(2024, 1, 2).atStartOfDay()).maxTemperature(20.0).build()))
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .build();
+    }
+}
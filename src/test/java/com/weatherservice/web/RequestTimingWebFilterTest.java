@@ -0,0 +1,107 @@
+package com.weatherservice.web;
+
+import com.weatherservice.config.RateLimitConfig;
+import com.weatherservice.config.RequestTimingConfig;
+import com.weatherservice.controller.WeatherController;
+import com.weatherservice.model.LocationInfo;
+import com.weatherservice.model.WeatherProvider;
+import com.weatherservice.model.WeatherResponse;
+import com.weatherservice.service.RateLimitDecision;
+import com.weatherservice.service.RateLimitingService;
+import com.weatherservice.service.RequestTimings;
+import com.weatherservice.service.WeatherMetrics;
+import com.weatherservice.service.WeatherServiceFacade;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(controllers = WeatherController.class, properties = "weather.timing.server-timing-header=true")
+@Import({RateLimitConfig.class, RequestTimingConfig.class, RequestTimingWebFilterTest.MetricsConfig.class})
+class RequestTimingWebFilterTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private WeatherServiceFacade weatherService;
+
+    @MockBean
+    private RateLimitingService rateLimitingService;
+
+    @Test
+    void filter_ShouldRecordStageHistogramsAndServerTimingHeader() {
+        // Given - "провайдер" отвечает за 20 мс
+        when(rateLimitingService.tryConsume(any(), anyInt())).thenReturn(Mono.just(
+                new RateLimitDecision(true, 100, 99, Duration.ZERO, Duration.ofMillis(600))));
+        when(weatherService.getEntryTag(any())).thenReturn(Mono.empty());
+        when(weatherService.servedFromCache(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(weatherService.getWeather(any())).thenReturn(RequestTimings.time(RequestTimings.Stage.PROVIDER,
+                WeatherProvider.OPENWEATHER_MAP, Mono.delay(Duration.ofMillis(20)).thenReturn(response())));
+
+        // When
+        String header = webTestClient.get()
+                .uri("/api/v1/weather/current?city=London")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.location.name").isEqualTo("London")
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(RequestTimingWebFilter.SERVER_TIMING_HEADER);
+
+        // Then
+        assertNotNull(header);
+        assertTrue(header.matches("rate-limit;dur=\\d+\\.\\d{3}, provider\\.openweather_map;dur=\\d+\\.\\d{3}, "
+                + "serialize;dur=\\d+\\.\\d{3}, total;dur=\\d+\\.\\d{3}"), header);
+
+        assertEquals(1, meterRegistry.get("weather.request.stage")
+                .tags("stage", "provider", "provider", "openweather_map").timer().count());
+        assertTrue(meterRegistry.get("weather.request.stage")
+                .tags("stage", "provider", "provider", "openweather_map").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 20);
+        assertEquals(1, meterRegistry.get("weather.request.stage")
+                .tags("stage", "serialize", "provider", "none").timer().count());
+        assertEquals(1, meterRegistry.get("weather.request.stage")
+                .tags("stage", "rate-limit", "provider", "none").timer().count());
+    }
+
+    private static WeatherResponse response() {
+        return WeatherResponse.builder()
+                .location(LocationInfo.builder().name("London").build())
+                .source(WeatherProvider.OPENWEATHER_MAP)
+                .build();
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        WeatherMetrics weatherMetrics(MeterRegistry meterRegistry) {
+            return new WeatherMetrics(meterRegistry);
+        }
+    }
+}